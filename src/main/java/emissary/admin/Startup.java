@@ -24,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -31,6 +32,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -72,6 +74,12 @@ public class Startup {
     // Collection of places that are being started
     protected final Set<String> placesToStart = ConcurrentHashMap.newKeySet();
 
+    // How long each place took to create, in milliseconds
+    protected final Map<String, Long> placeStartupMillis = new ConcurrentHashMap<>();
+
+    // Number of the slowest places to log after startup
+    private static final int SLOWEST_PLACES_LOGGED = 10;
+
     // sorted lists of the place types, grouped by hostname
     protected final Map<String, Set<String>> placeLists = new ConcurrentHashMap<>();
     protected final Map<String, Set<String>> pickupLists = new ConcurrentHashMap<>();
@@ -232,6 +240,7 @@ public class Startup {
         // Wait for all places to get started and registered
         //
         this.stopAndWaitForPlaceCreation();
+        logPlaceStartupTimes();
 
         logger.debug("Done with bootstrap phase");
         return true;
@@ -250,6 +259,7 @@ public class Startup {
         // Wait for all places to get started and registered
         //
         stopAndWaitForPlaceCreation();
+        logPlaceStartupTimes();
 
     }
 
@@ -407,10 +417,13 @@ public class Startup {
                         return;
                     }
 
+                    final long startNanos = System.nanoTime();
                     final IServiceProviderPlace p = PlaceStarter.createPlace(thePlaceLocation, null, thePlaceClassString, localDirectory);
+                    final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                    placeStartupMillis.put(thePlaceLocation, elapsedMillis);
                     if (p != null) {
                         placesArg.put(thePlaceLocation, thePlaceLocation);
-                        startupBuilder.append("done!");
+                        startupBuilder.append("done in ").append(elapsedMillis).append("ms!");
                         logger.info(startupBuilder.toString());
                     } else {
                         // logger.error("{} failed to start!", thePlaceLocation);
@@ -426,6 +439,31 @@ public class Startup {
         return true;
     }
 
+    /**
+     * Get how long each place took to create
+     *
+     * @return map of place location to milliseconds spent creating it
+     */
+    public Map<String, Long> getPlaceStartupMillis() {
+        return Collections.unmodifiableMap(new HashMap<>(placeStartupMillis));
+    }
+
+    /**
+     * Log the total time spent creating places and the slowest ones
+     */
+    protected void logPlaceStartupTimes() {
+        if (placeStartupMillis.isEmpty()) {
+            return;
+        }
+        final long total = placeStartupMillis.values().stream().mapToLong(Long::longValue).sum();
+        final String slowest = placeStartupMillis.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(SLOWEST_PLACES_LOGGED)
+                .map(e -> StringUtils.substringAfterLast(e.getKey(), "/") + "=" + e.getValue() + "ms")
+                .collect(Collectors.joining(", "));
+        logger.info("Created {} places in {}ms total, slowest: {}", placeStartupMillis.size(), total, slowest);
+    }
+
     /**
      * Check to see if all the places have started and been registered in the directory. This doesn't account for
      * directories, just things started with a "PLACE" tag
@@ -218,6 +218,21 @@ public class EmissaryClient {
         }
     }
 
+    /**
+     * Create a client that shares the connection pool and credentials of this one but gives up on a request that has not
+     * been answered within a time limit
+     *
+     * @param millis the most time allowed to get a connection from the pool, to connect and to wait for the response
+     * @return the new client
+     */
+    @SuppressWarnings("deprecation")
+    public EmissaryClient withResponseTimeout(final long millis) {
+        final Timeout timeout = Timeout.ofMilliseconds(millis);
+        // The pool's connect timeout applies to every client sharing it, the request level one overrides it for this client
+        return new EmissaryClient(client, RequestConfig.copy(requestConfig).setConnectionRequestTimeout(timeout).setConnectTimeout(timeout)
+                .setResponseTimeout(timeout).build(), ConnectionConfig.copy(connectionConfig).setConnectTimeout(timeout).build());
+    }
+
     protected CloseableHttpClient getHttpClient() {
         return client;
     }
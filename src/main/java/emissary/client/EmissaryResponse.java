@@ -28,6 +28,7 @@ public class EmissaryResponse {
     final int status;
     @Nullable
     final Object content;
+    final byte[] contentBytes;
     final String contentType;
     final Header[] headers;
     final ObjectMapper objectMapper = new ObjectMapper();
@@ -35,6 +36,7 @@ public class EmissaryResponse {
     public EmissaryResponse(ClassicHttpResponse response) {
         int tempStatus = response.getCode();
         String tempContent;
+        byte[] tempBytes = new byte[0];
         headers = response.getHeaders();
         Header[] contentHeaders = response.getHeaders(HttpHeaders.CONTENT_TYPE);
         if (contentHeaders.length > 0) {
@@ -55,7 +57,8 @@ public class EmissaryResponse {
                 logger.debug("No entity");
                 tempContent = "";
             } else {
-                tempContent = IOUtils.toString(entity.getContent(), StandardCharsets.UTF_8);
+                tempBytes = IOUtils.toByteArray(entity.getContent());
+                tempContent = new String(tempBytes, StandardCharsets.UTF_8);
             }
         } catch (UnsupportedOperationException | IOException e) {
             tempContent = e.getMessage();
@@ -65,6 +68,7 @@ public class EmissaryResponse {
         logger.debug("response was: {} with content: {}", tempStatus, tempContent);
         status = tempStatus;
         content = tempContent;
+        contentBytes = tempBytes;
     }
 
     public int getStatus() {
@@ -88,6 +92,15 @@ public class EmissaryResponse {
         }
     }
 
+    /**
+     * Get the raw content for responses that are not text
+     *
+     * @return the bytes of the response body, empty if there was none or it could not be read
+     */
+    public byte[] getContentBytes() {
+        return contentBytes;
+    }
+
     public <T extends BaseEntity> T getContent(Class<T> mapper) {
         if (content == null) {
             return null;
@@ -86,6 +86,13 @@ public class FeedCommand extends ServiceCommand {
             description = "set the use of file timestamps to control whether a file is new enough to be added to the queue\nDefault: ${DEFAULT-VALUE}")
     private boolean fileTimestamp = false;
 
+    @Option(names = {"--watch"},
+            description = "when looping, only look at files the file system reports as created or modified after the first pass\nDefault: ${DEFAULT-VALUE}")
+    private boolean watch = false;
+
+    @Option(names = {"--discoveryThreads"}, description = "number of threads listing input directories at once\nDefault: ${DEFAULT-VALUE}")
+    private int discoveryThreads = 4;
+
     @Override
     public String getCommandName() {
         return COMMAND_NAME;
@@ -200,4 +207,12 @@ public class FeedCommand extends ServiceCommand {
     public boolean isFileTimestamp() {
         return fileTimestamp;
     }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public int getDiscoveryThreads() {
+        return discoveryThreads;
+    }
 }
@@ -16,10 +16,13 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This configuration utility collection helps to find configuration for various classes and objects. It responds to
@@ -78,6 +81,12 @@ public class ConfigUtil {
 
     public static final String CLASS_NAME = "CLASS_NAME";
 
+    /**
+     * This property turns off caching of parsed config files when set to false. Cached configs are read again when any of
+     * the files that went into them change. The property is set with -D{@value}
+     */
+    public static final String CONFIG_CACHE_PROPERTY = "emissary.config.cache";
+
     /** The package name where config stuff may be found */
     @Nullable
     private static String configPkg = null;
@@ -110,6 +119,12 @@ public class ConfigUtil {
     @Nullable
     private static String configFlavors = null;
 
+    /** Whether parsed configs are cached */
+    private static boolean cacheConfigs = true;
+
+    /** Parsed configs by name, cleared when the config settings are initialized */
+    private static final Map<String, CachedConfig> configCache = new ConcurrentHashMap<>();
+
     /*
      * Perform initialization
      */
@@ -159,6 +174,10 @@ public class ConfigUtil {
         configFlavors = System.getProperty(CONFIG_FLAVOR_PROPERTY, null);
         configPkg = System.getProperty(CONFIG_PKG_PROPERTY, configPkg);
 
+        // the same names may now find different files
+        cacheConfigs = Boolean.parseBoolean(System.getProperty(CONFIG_CACHE_PROPERTY, "true"));
+        configCache.clear();
+
         configDirs = new ArrayList<>();
         final String[] dirs = configDirProperty.split(",");
         for (final String dir : dirs) {
@@ -292,7 +311,7 @@ public class ConfigUtil {
     public static Configurator getConfigInfo(final Class<?> c) throws IOException {
         final String name = c.getName() + CONFIG_FILE_ENDING;
         logger.debug("Loading config for (class) {}", name);
-        return getConfigInfo(getConfigStream(name), name);
+        return getCachedConfigInfo(name);
     }
 
     /**
@@ -344,7 +363,89 @@ public class ConfigUtil {
      */
     public static Configurator getConfigInfo(final String name) throws IOException {
         logger.debug("Loading config for (string) {}", name);
-        return getConfigInfo(getConfigStream(name), name);
+        return getCachedConfigInfo(name);
+    }
+
+    /**
+     * Get the configurator for a name, parsing it only if it is not cached or a file that went into it has changed
+     *
+     * @param name the config name
+     * @return a configurator that is not shared with other callers
+     */
+    private static Configurator getCachedConfigInfo(final String name) throws IOException {
+        if (!cacheConfigs) {
+            return getConfigInfo(getConfigStream(name), name);
+        }
+
+        final CachedConfig cached = configCache.get(name);
+        if (cached != null && cached.isCurrent()) {
+            logger.trace("Using cached config for {}", name);
+            final ServiceConfigGuide copy = new ServiceConfigGuide(cached.config);
+            copy.recreateResources();
+            return copy;
+        }
+
+        final Configurator config = getConfigInfo(getConfigStream(name), name);
+        if (config instanceof ServiceConfigGuide) {
+            final ServiceConfigGuide scg = (ServiceConfigGuide) config;
+            configCache.put(name, new CachedConfig(new ServiceConfigGuide(scg)));
+        }
+        return config;
+    }
+
+    /**
+     * Forget all cached configs so they are read again the next time they are asked for
+     */
+    public static void clearConfigCache() {
+        configCache.clear();
+    }
+
+    /**
+     * A parsed config and the state of each file that went into it when it was read. Substitutions are done while
+     * reading, so the config is also read again when an environment variable or system property it used has changed.
+     */
+    private static final class CachedConfig {
+        private final ServiceConfigGuide config;
+        private final Map<String, List<Long>> fileStates = new HashMap<>();
+
+        private CachedConfig(final ServiceConfigGuide config) {
+            this.config = config;
+            for (final String source : config.getSources()) {
+                fileStates.put(source, getConfigFileState(source));
+            }
+        }
+
+        private boolean isCurrent() {
+            for (final Map.Entry<String, List<Long>> e : fileStates.entrySet()) {
+                if (!e.getValue().equals(getConfigFileState(e.getKey()))) {
+                    logger.debug("Config file {} changed, reading it again", e.getKey());
+                    return false;
+                }
+            }
+            return config.hasCurrentSubstitutions();
+        }
+    }
+
+    /**
+     * Get the modification time and length of the files a config name could be read from. Resources on the classpath
+     * are not expected to change, so only the files are checked.
+     *
+     * @param name the config name
+     * @return the modification time and length of the file found with and without the package, -1 when there is none
+     */
+    private static List<Long> getConfigFileState(final String name) {
+        final List<Long> state = new ArrayList<>(4);
+        for (final String fname : Arrays.asList(getConfigFile(name), getOldStyleConfigFile(name))) {
+            final File f = new File(fname);
+            if (f.isFile()) {
+                state.add(f.lastModified());
+                state.add(f.length());
+            } else {
+                state.add(-1L);
+                state.add(-1L);
+            }
+        }
+        return state;
     }
 
     /**
@@ -376,6 +477,8 @@ public class ConfigUtil {
                 logger.debug("Merged config with {}", flavoredName);
             } catch (IOException iox) {
                 logger.debug("Unable to opt import flavor config {}", flavoredName);
+                // the flavor might be added later
+                scg.addSource(flavoredName);
             }
         }
         return scg;
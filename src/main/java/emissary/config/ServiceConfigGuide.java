@@ -32,8 +32,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Function;
 
 /**
@@ -79,6 +82,17 @@ public class ServiceConfigGuide implements Configurator, Serializable {
     // Map of last values seen
     protected Map<String, String> values = new HashMap<>();
 
+    // Positions of the entries for each key, rebuilt after the entries change
+    @Nullable
+    private transient EntryIndex index = null;
+
+    // Names of the config files read, including imports and flavors that were looked for
+    private final Set<String> sources = new LinkedHashSet<>();
+
+    // Outside values looked up for @{...} and @ENV{'...'} substitutions while reading, with the value each had
+    private final Map<String, String> substitutionInputs = new HashMap<>();
+    private final Map<String, String> envInputs = new HashMap<>();
+
     // Get this once per jvm
     private static final String hostname;
 
@@ -101,6 +115,25 @@ public class ServiceConfigGuide implements Configurator, Serializable {
         initializeValues();
     }
 
+    /**
+     * Copy constructor, the copy has its own entries so changes to either one do not affect the other
+     *
+     * @param other the config to copy
+     */
+    protected ServiceConfigGuide(final ServiceConfigGuide other) {
+        for (final ConfigEntry entry : other.serviceParameters) {
+            this.serviceParameters.add(new ConfigEntry(entry.getKey(), entry.getValue()));
+        }
+        for (final ConfigEntry entry : other.removeParameters) {
+            this.removeParameters.add(new ConfigEntry(entry.getKey(), entry.getValue()));
+        }
+        this.operator = other.operator;
+        this.values.putAll(other.values);
+        this.sources.addAll(other.sources);
+        this.substitutionInputs.putAll(other.substitutionInputs);
+        this.envInputs.putAll(other.envInputs);
+    }
+
     /**
      * Public constructor with dir and filename
      *
@@ -176,18 +209,72 @@ public class ServiceConfigGuide implements Configurator, Serializable {
         }
 
         // used for substitution when reading cfg files
-        this.values.put("CONFIG_DIR", StringUtils.join(ConfigUtil.getConfigDirs(), ","));
-        this.values.put("PRJ_BASE", ConfigUtil.getProjectBase());
-        this.values.put("PROJECT_BASE", ConfigUtil.getProjectBase());
-        this.values.put("OUTPUT_ROOT", ConfigUtil.getOutputRoot());
-        this.values.put("BIN_DIR", ConfigUtil.getBinDir());
-        this.values.put("HOST", hostname);
-        this.values.put("/", File.separator);
-        this.values.put("TMPDIR", System.getProperty("java.io.tmpdir"));
-        this.values.put("NULL", null);
-        this.values.put("OS.NAME", System.getProperty("os.name").replace(' ', '_'));
-        this.values.put("OS.VER", System.getProperty("os.version").replace(' ', '_'));
-        this.values.put("OS.ARCH", System.getProperty("os.arch").replace(' ', '_'));
+        this.values.putAll(computedValues());
+    }
+
+    /**
+     * Get the values for substitution that do not come straight from the environment or system properties
+     *
+     * @return the values by name, they take the place of environment variables and properties with the same name
+     */
+    private static Map<String, String> computedValues() {
+        final Map<String, String> computed = new HashMap<>();
+        computed.put("CONFIG_DIR", StringUtils.join(ConfigUtil.getConfigDirs(), ","));
+        computed.put("PRJ_BASE", ConfigUtil.getProjectBase());
+        computed.put("PROJECT_BASE", ConfigUtil.getProjectBase());
+        computed.put("OUTPUT_ROOT", ConfigUtil.getOutputRoot());
+        computed.put("BIN_DIR", ConfigUtil.getBinDir());
+        computed.put("HOST", hostname);
+        computed.put("/", File.separator);
+        computed.put("TMPDIR", System.getProperty("java.io.tmpdir"));
+        computed.put("NULL", null);
+        computed.put("OS.NAME", System.getProperty("os.name").replace(' ', '_'));
+        computed.put("OS.VER", System.getProperty("os.version").replace(' ', '_'));
+        computed.put("OS.ARCH", System.getProperty("os.arch").replace(' ', '_'));
+        return computed;
+    }
+
+    /**
+     * Get the value a name has before any config file is read, as set up by {@link #initializeValues()}
+     */
+    @Nullable
+    private static String outsideValue(final String name, final Map<String, String> computed) {
+        if (computed.containsKey(name)) {
+            return computed.get(name);
+        }
+        return envValue(name);
+    }
+
+    /**
+     * Get a system property, or an environment variable when there is no such property
+     */
+    @Nullable
+    private static String envValue(final String name) {
+        final String value = System.getProperty(name);
+        return value != null ? value : System.getenv(name);
+    }
+
+    /**
+     * Tell whether the environment variables and system properties used for substitutions while reading still have the
+     * values they had then
+     *
+     * @return true if reading the config again would substitute the same values
+     */
+    boolean hasCurrentSubstitutions() {
+        final Map<String, String> computed = computedValues();
+        for (final Map.Entry<String, String> e : this.substitutionInputs.entrySet()) {
+            if (!Objects.equals(e.getValue(), outsideValue(e.getKey(), computed))) {
+                logger.debug("Substitution value for {} changed", e.getKey());
+                return false;
+            }
+        }
+        for (final Map.Entry<String, String> e : this.envInputs.entrySet()) {
+            if (!Objects.equals(e.getValue(), envValue(e.getKey()))) {
+                logger.debug("Environment value for {} changed", e.getKey());
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -203,6 +290,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
 
 
     protected void readConfigData(final InputStream is, final String filename) throws IOException, ConfigSyntaxException {
+        this.sources.add(filename);
         final Reader r = new BufferedReader(new InputStreamReader(is));
         final StreamTokenizer in = new StreamTokenizer(r);
         int nextToken = StreamTokenizer.TT_WORD;
@@ -297,6 +385,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
             } else {
                 this.serviceParameters.add(anEntry);
             }
+            this.index = null;
 
             // Save this pair in the map
             this.values.put(parmName, sval);
@@ -315,6 +404,8 @@ public class ServiceConfigGuide implements Configurator, Serializable {
             // loop through the files and attempt to read/merger the configurations.
             for (int i = 0; i < fileFlavorList.size(); i++) {
                 final String fileFlavor = fileFlavorList.get(i);
+                // remember imports that are missing too, they might show up later
+                this.sources.add(fileFlavor);
                 // recursion alert: This could lead to getFile being called
                 try {
                     readConfigData(ConfigUtil.getConfigStream(fileFlavor), fileFlavor);
@@ -361,6 +452,9 @@ public class ServiceConfigGuide implements Configurator, Serializable {
             }
             final String tok = sval.substring(ndx + VSTART.length(), edx);
             logger.debug("Replacement token is {}", tok);
+            if (!this.substitutionInputs.containsKey(tok)) {
+                this.substitutionInputs.put(tok, outsideValue(tok, computedValues()));
+            }
             final String mapval = this.values.get(tok);
             if (mapval != null) {
                 sval = sval.substring(0, ndx) + mapval + sval.substring(edx + VEND.length());
@@ -453,10 +547,8 @@ public class ServiceConfigGuide implements Configurator, Serializable {
             // Pull out the env name they specified
             if (stop > start) {
                 final String envName = currentStr.substring(start, stop);
-                String envVal = System.getProperty(envName);
-                if (envVal == null) {
-                    envVal = System.getenv(envName);
-                }
+                final String envVal = envValue(envName);
+                this.envInputs.put(envName, envVal);
                 // We got a replacement, do the subst
                 if (envVal != null) {
                     currentStr = currentStr.substring(0, thisPos) + // before
@@ -531,11 +623,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public Set<String> entryKeys() {
-        final Set<String> set = new HashSet<>();
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            set.add(curEntry.getKey());
-        }
-        return set;
+        return new HashSet<>(getIndex().positions.keySet());
     }
 
     /**
@@ -623,6 +711,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
                             curEntry.getValue())))) {
                 logger.debug("Removing {} = {}", curEntry.getKey(), curEntry.getValue());
                 i.remove();
+                this.index = null;
             }
         }
     }
@@ -651,12 +740,14 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public List<String> findEntries(final String theParameter) {
-        final List<String> matchingEntries = new ArrayList<>();
-
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            if (theParameter.equals(curEntry.getKey())) {
-                matchingEntries.add(curEntry.getValue());
-            }
+        final EntryIndex entryIndex = getIndex();
+        final int[] positions = entryIndex.positions.get(theParameter);
+        if (positions == null) {
+            return new ArrayList<>();
+        }
+        final List<String> matchingEntries = new ArrayList<>(positions.length);
+        for (final int position : positions) {
+            matchingEntries.add(entryIndex.entries.get(position).getValue());
         }
         return matchingEntries;
     }
@@ -673,6 +764,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
             if (theParameter.equals(curEntry.getKey())) {
                 logger.debug("Removing {} = {}", curEntry.getKey(), curEntry.getValue());
                 i.remove();
+                this.index = null;
             }
         }
     }
@@ -686,14 +778,7 @@ public class ServiceConfigGuide implements Configurator, Serializable {
     @Override
     public Set<String> findEntriesAsSet(final String theParameter) {
 
-        final Set<String> matchingEntries = new HashSet<>();
-
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            if (theParameter.equals(curEntry.getKey())) {
-                matchingEntries.add(curEntry.getValue());
-            }
-        }
-        return matchingEntries;
+        return new HashSet<>(findEntries(theParameter));
     }
 
     /**
@@ -705,12 +790,30 @@ public class ServiceConfigGuide implements Configurator, Serializable {
     @Override
     public List<ConfigEntry> findStringMatchEntries(final String theParameter) {
 
-        final List<ConfigEntry> matchingEntries = new ArrayList<>();
-
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            if (curEntry.getKey().startsWith(theParameter)) {
-                matchingEntries.add(curEntry);
+        final EntryIndex entryIndex = getIndex();
+        // Collect the positions of every key with the prefix, then put them back in config order
+        int count = 0;
+        final List<int[]> matches = new ArrayList<>();
+        for (final Map.Entry<String, int[]> e : entryIndex.positions.tailMap(theParameter, true).entrySet()) {
+            if (!e.getKey().startsWith(theParameter)) {
+                break;
             }
+            matches.add(e.getValue());
+            count += e.getValue().length;
+        }
+        final int[] positions = new int[count];
+        int next = 0;
+        for (final int[] match : matches) {
+            System.arraycopy(match, 0, positions, next, match.length);
+            next += match.length;
+        }
+        if (matches.size() > 1) {
+            Arrays.sort(positions);
+        }
+
+        final List<ConfigEntry> matchingEntries = new ArrayList<>(count);
+        for (final int position : positions) {
+            matchingEntries.add(entryIndex.entries.get(position));
         }
         return matchingEntries;
     }
@@ -728,6 +831,8 @@ public class ServiceConfigGuide implements Configurator, Serializable {
         for (final ConfigEntry entry : list) {
             entry.setKey(entry.getKey().substring(theParameter.length()));
         }
+        // the keys of the stored entries were changed
+        this.index = null;
         return list;
     }
 
@@ -974,13 +1079,12 @@ public class ServiceConfigGuide implements Configurator, Serializable {
      */
     @Override
     public String findLastStringEntry(final String theParameter) {
-        String result = "";
-        for (final ConfigEntry curEntry : this.serviceParameters) {
-            if (theParameter.equals(curEntry.getKey())) {
-                result = curEntry.getValue();
-            }
+        final EntryIndex entryIndex = getIndex();
+        final int[] positions = entryIndex.positions.get(theParameter);
+        if (positions == null) {
+            return "";
         }
-        return result;
+        return entryIndex.entries.get(positions[positions.length - 1]).getValue();
     }
 
     /**
@@ -1196,6 +1300,75 @@ public class ServiceConfigGuide implements Configurator, Serializable {
         return i;
     }
 
+    /**
+     * Get the index of the entries, building it if the entries changed since it was built
+     */
+    private EntryIndex getIndex() {
+        EntryIndex current = this.index;
+        if (current == null || current.entries != this.serviceParameters || current.size != this.serviceParameters.size()) {
+            current = new EntryIndex(this.serviceParameters);
+            this.index = current;
+        }
+        return current;
+    }
+
+    /**
+     * The positions of the entries with each key, sorted by key so prefix searches are a range of the map
+     */
+    private static final class EntryIndex {
+        private final List<ConfigEntry> entries;
+        private final int size;
+        private final NavigableMap<String, int[]> positions = new TreeMap<>();
+
+        private EntryIndex(final List<ConfigEntry> entries) {
+            this.entries = entries;
+            this.size = entries.size();
+            final Map<String, List<Integer>> byKey = new HashMap<>();
+            for (int i = 0; i < this.size; i++) {
+                final String key = entries.get(i).getKey();
+                // a null key cannot be looked up
+                if (key != null) {
+                    byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                }
+            }
+            for (final Map.Entry<String, List<Integer>> e : byKey.entrySet()) {
+                this.positions.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+    }
+
+    /**
+     * Get the names of the config files that went into this config, including imports and flavors that were looked for
+     * but not found
+     *
+     * @return the names in the order they were read
+     */
+    Set<String> getSources() {
+        return Collections.unmodifiableSet(this.sources);
+    }
+
+    /**
+     * Remember the name of another config file this config depends on
+     *
+     * @param name the config file name
+     */
+    void addSource(final String name) {
+        this.sources.add(name);
+    }
+
+    /**
+     * Redo the side effects of reading the config, creating the directories and files it asks for
+     */
+    void recreateResources() {
+        for (final ConfigEntry entry : this.serviceParameters) {
+            if ("CREATE_DIRECTORY".equals(entry.getKey()) && !createDirectory(entry.getValue())) {
+                logger.warn("Cannot create directory {}", entry.getValue());
+            } else if ("CREATE_FILE".equals(entry.getKey()) && !createFile(entry.getValue())) {
+                logger.warn("Cannot create file {}", entry.getValue());
+            }
+        }
+    }
+
     public boolean debug() {
         return "TRUE".equalsIgnoreCase(this.values.get("DEBUG"));
     }
@@ -1217,6 +1390,9 @@ public class ServiceConfigGuide implements Configurator, Serializable {
 
         // First handle the remove entries from "other"
         if (other instanceof ServiceConfigGuide) {
+            this.sources.addAll(((ServiceConfigGuide) other).sources);
+            this.substitutionInputs.putAll(((ServiceConfigGuide) other).substitutionInputs);
+            this.envInputs.putAll(((ServiceConfigGuide) other).envInputs);
             for (final ConfigEntry entry : ((ServiceConfigGuide) other).getRemoveEntries()) {
                 handleNewEntry(entry.getKey(), entry.getValue(), "!=", "<merge>", i++, true);
             }
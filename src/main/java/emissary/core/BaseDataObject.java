@@ -195,6 +195,22 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     @Nullable
     protected final IBaseDataObject tld;
 
+    /**
+     * Changed every time the data is replaced
+     */
+    protected long contentVersion = 0L;
+
+    /**
+     * True when the channel factory was replaced since it was last cleared
+     */
+    protected boolean channelFactoryDirty = false;
+
+    /**
+     * The content version each derived value was last computed from
+     */
+    @Nullable
+    protected Map<String, Long> derivedVersions = null;
+
     protected enum DataState {
         NO_DATA, CHANNEL_ONLY, BYTE_ARRAY_ONLY, BYTE_ARRAY_AND_CHANNEL
     }
@@ -304,6 +320,7 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     public void clearData() {
         theData = null;
         seekableByteChannelFactory = null;
+        contentVersion++;
     }
 
     /**
@@ -369,6 +386,45 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
         Validate.notNull(sbcf, "Required: SeekableByteChannelFactory not null");
         this.theData = null;
         this.seekableByteChannelFactory = sbcf;
+        this.contentVersion++;
+        this.channelFactoryDirty = true;
+    }
+
+    @Override
+    public long getContentVersion() {
+        return this.contentVersion;
+    }
+
+    @Override
+    public void markContentChanged() {
+        this.contentVersion++;
+    }
+
+    @Override
+    public boolean isChannelFactoryDirty() {
+        return this.channelFactoryDirty;
+    }
+
+    @Override
+    public void clearChannelFactoryDirty() {
+        this.channelFactoryDirty = false;
+    }
+
+    @Override
+    public void markDerived(final String name) {
+        if (this.derivedVersions == null) {
+            this.derivedVersions = new HashMap<>();
+        }
+        this.derivedVersions.put(name, this.contentVersion);
+    }
+
+    @Override
+    public boolean isDerivedCurrent(final String name) {
+        if (this.derivedVersions == null) {
+            return false;
+        }
+        final Long version = this.derivedVersions.get(name);
+        return version != null && version == this.contentVersion;
     }
 
     /**
@@ -449,6 +505,7 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
     public void setData(@Nullable final byte[] newData) {
         this.seekableByteChannelFactory = null;
         this.theData = newData == null ? new byte[0] : newData;
+        this.contentVersion++;
     }
 
     /**
@@ -475,6 +532,7 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
             this.theData = new byte[length];
             System.arraycopy(newData, offset, this.theData, 0, length);
         }
+        this.contentVersion++;
     }
 
     /**
@@ -1360,6 +1418,13 @@ public class BaseDataObject implements Serializable, Cloneable, Remote, IBaseDat
         // This creates a deep copy Guava style
         c.parameters = LinkedListMultimap.create(this.parameters);
 
+        // Same content, so the same derived values are current
+        c.contentVersion = this.contentVersion;
+        c.channelFactoryDirty = this.channelFactoryDirty;
+        if (this.derivedVersions != null) {
+            c.derivedVersions = new HashMap<>(this.derivedVersions);
+        }
+
         return c;
     }
 
@@ -9,20 +9,29 @@ package emissary.core;
 import emissary.util.ClassLookupCache;
 import emissary.util.ConstructorLookupCache;
 
+import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Factory.create() is one of the main methods that Emissary uses. This method simply constructs objects in the server
  * name space so they may be referred to. Since this implementation is intended to run on a single machine, the create()
  * method simply uses reflection (i.e. Class.forname() and Constructor.newInstance) to create the specified object.
  *
+ * The constructor found for each class and set of argument types is turned into a {@link MethodHandle} once and shared
+ * by all threads, so creating the same kind of object again, such as a payload for each extracted child, calls the
+ * constructor directly without matching the arguments or going through reflection.
+ *
  * In the cases where a name (or handle) is supplied with the constructor arguments, the Namespace.bind method is called
  * to save a reference to the object with that name.
  *
@@ -34,6 +43,45 @@ public class Factory {
 
     private static final Logger logger = LoggerFactory.getLogger(Factory.class);
 
+    private static final Class<?>[] NO_TYPES = new Class<?>[0];
+
+    // Constructor handles taking the arguments as an Object[], by class and argument types
+    private static final Map<Signature, MethodHandle> constructors = new ConcurrentHashMap<>();
+
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /**
+     * A class and the types of the arguments passed to its constructor, a null type standing for a null argument
+     */
+    private static final class Signature {
+        private final Class<?> clazz;
+        private final Class<?>[] types;
+        private final int hash;
+
+        private Signature(final Class<?> clazz, final Class<?>[] types) {
+            this.clazz = clazz;
+            this.types = types;
+            this.hash = 31 * clazz.hashCode() + Arrays.hashCode(types);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Signature)) {
+                return false;
+            }
+            final Signature other = (Signature) o;
+            return clazz == other.clazz && Arrays.equals(types, other.types);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     /**
      * Take away the public constructor
      */
@@ -50,29 +98,24 @@ public class Factory {
         logger.debug("Factory.create1({}, {})", className, Arrays.toString(args));
         try {
             final Class<?> clazz = ClassLookupCache.lookup(className);
-            final List<Class<?>> types = new ArrayList<>();
-            for (Object o : args) {
-                if (o == null) {
-                    types.add(null);
-                } else {
-                    types.add(o.getClass());
-                }
+            final Class<?>[] types = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++) {
+                types[i] = args[i] == null ? null : args[i].getClass();
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("checking:" + Arrays.toString(types));
             }
-            logger.debug("checking:" + types);
 
-            final Constructor<?> constructor = ConstructorLookupCache.lookup(clazz, types.toArray(new Class<?>[0]));
+            final MethodHandle constructor = constructorHandle(clazz, types);
             if (constructor == null) {
-                logger.info("Failed to find constructor for args({}) types ({}) : {}", args.length, types.size(), types);
+                logger.info("Failed to find constructor for args({}) types ({}) : {}", args.length, types.length, Arrays.toString(types));
                 throw new AssertionError("failed to find suitable constructor for class " + className);
             } else {
-                return constructor.newInstance(args);
+                return newInstance(constructor, args);
             }
         } catch (ClassNotFoundException e1) {
             logger.error("Could not find class", e1);
             throw new AssertionError(e1);
-        } catch (InstantiationException e3) {
-            logger.error("Could not instantiate", e3);
-            throw new AssertionError(e3);
         } catch (IllegalAccessException e4) {
             logger.error("Could not call constructor", e4);
             throw new AssertionError(e4);
@@ -99,7 +142,12 @@ public class Factory {
             // directly. When this succeeds, it can avoid the
             // overhead of calling getConstructor() on the Class
             // object.
-            return ClassLookupCache.lookup(className).getDeclaredConstructor().newInstance();
+            final Class<?> clazz = ClassLookupCache.lookup(className);
+            final MethodHandle constructor = constructorHandle(clazz, NO_TYPES);
+            if (constructor != null) {
+                return newInstance(constructor, new Object[0]);
+            }
+            return clazz.getDeclaredConstructor().newInstance();
         } catch (Throwable e) {
             // The simple approach failed, so we'll fall back on a
             // more complicated approach that probably has more
@@ -108,6 +156,52 @@ public class Factory {
         }
     }
 
+    /**
+     * Get a handle for the public constructor of a class that accepts the argument types, looking it up the first time
+     *
+     * @param clazz the class to construct
+     * @param types the argument types, null for a null argument
+     * @return a handle taking the arguments as an Object[] and returning the new object, or null if there is no suitable
+     *         constructor
+     * @throws IllegalAccessException if the constructor cannot be called from here
+     */
+    @Nullable
+    private static MethodHandle constructorHandle(final Class<?> clazz, final Class<?>[] types) throws IllegalAccessException {
+        final Signature signature = new Signature(clazz, types);
+        final MethodHandle cached = constructors.get(signature);
+        if (cached != null) {
+            return cached;
+        }
+        final Constructor<?> constructor = ConstructorLookupCache.lookup(clazz, types);
+        if (constructor == null) {
+            return null;
+        }
+        final MethodHandle handle = MethodHandles.lookup()
+                .unreflectConstructor(constructor)
+                .asFixedArity()
+                .asSpreader(Object[].class, types.length)
+                .asType(SPREAD_TYPE);
+        final MethodHandle existing = constructors.putIfAbsent(signature, handle);
+        return existing != null ? existing : handle;
+    }
+
+    /**
+     * Call a constructor handle, wrapping anything it throws the way {@link Constructor#newInstance(Object...)} does
+     *
+     * @param constructor the handle from {@link #constructorHandle(Class, Class[])}
+     * @param args the constructor arguments
+     * @return the new object
+     * @throws InvocationTargetException if the constructor throws
+     */
+    @SuppressWarnings("AvoidObjectArrays")
+    private static Object newInstance(final MethodHandle constructor, final Object[] args) throws InvocationTargetException {
+        try {
+            return (Object) constructor.invokeExact(args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
     /**
      * Create an object and bind it into the namespace
      * 
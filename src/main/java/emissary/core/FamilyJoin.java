@@ -0,0 +1,185 @@
+package emissary.core;
+
+import emissary.directory.DirectoryEntry;
+
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the parts of a family that an {@link HDMobileAgent} handed to other agents, so the whole family is back
+ * together before the IO phase. Each helper agent reports the payloads it ended up with, including any it sprouted, and
+ * the IO place it stopped short of when it is returned to the pool. Parts come back in the order they were handed out.
+ * <p>
+ * The owner waits for the helpers up to a time limit. A part still out when the limit runs out is given up on: the owner
+ * goes on without it and the helper, told so when it reports back, takes its part through the IO phase itself.
+ */
+final class FamilyJoin {
+
+    private static final Logger logger = LoggerFactory.getLogger(FamilyJoin.class);
+
+    // How long to wait between checks on the helpers
+    private static final long CHECK_MILLIS = 1000L;
+
+    private final List<Part> parts = new ArrayList<>();
+
+    // Where the first part that reached the IO phase wanted to go, found by the last await
+    @Nullable
+    private DirectoryEntry dropOffEntry = null;
+
+    private int dropOffIndex = -1;
+
+    private static final class Part {
+        private final HDMobileAgent helper;
+        private final List<IBaseDataObject> batch;
+        @Nullable
+        private List<IBaseDataObject> result = null;
+        @Nullable
+        private DirectoryEntry dropOffEntry = null;
+
+        private Part(final HDMobileAgent helper, final List<IBaseDataObject> batch) {
+            this.helper = helper;
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * Record a batch handed to a helper agent
+     *
+     * @param helper the agent processing the batch
+     * @param batch the payloads it was given
+     */
+    synchronized void fork(final HDMobileAgent helper, final List<IBaseDataObject> batch) {
+        parts.add(new Part(helper, batch));
+    }
+
+    /**
+     * Called by a helper agent when it has finished with its batch
+     *
+     * @param helper the agent
+     * @param payloads the payloads it carried when it stopped, the first one ready for the IO phase if there is one
+     * @param entry the IO place the helper stopped short of, null if its payloads are finished
+     * @return true if the owner takes the payloads, false if it gave up waiting for them and the helper has to finish them
+     */
+    synchronized boolean done(final HDMobileAgent helper, final List<IBaseDataObject> payloads, @Nullable final DirectoryEntry entry) {
+        for (final Part part : parts) {
+            if (part.helper == helper && part.result == null) {
+                part.result = payloads;
+                part.dropOffEntry = entry;
+                notifyAll();
+                return true;
+            }
+        }
+        logger.warn("Agent {} finished a family batch nobody is waiting for", helper.getName());
+        return false;
+    }
+
+    /**
+     * Check if any batches have been handed out since the last {@link #await()}
+     *
+     * @return true if there is something to wait for
+     */
+    synchronized boolean isForked() {
+        return !parts.isEmpty();
+    }
+
+    /**
+     * Wait for every helper agent to finish, however long it takes
+     *
+     * @return the payloads carried by the helpers, in the order the batches were handed out
+     * @see #await(long)
+     */
+    synchronized List<IBaseDataObject> await() {
+        return await(0L);
+    }
+
+    /**
+     * Wait for every helper agent to finish. A helper that was killed does not report back, so its thread is waited for
+     * instead. The payloads are never taken back while another thread may still be working on them, so being interrupted
+     * does not stop the wait and is passed on once the helpers are done. Parts still out after the time limit are left to
+     * their helpers.
+     *
+     * @param maxMillis the longest time to wait for all of the helpers, 0 or less to wait until they finish
+     * @return the payloads carried by the helpers, in the order the batches were handed out, without the parts given up on
+     */
+    synchronized List<IBaseDataObject> await(final long maxMillis) {
+        final List<IBaseDataObject> joined = new ArrayList<>();
+        dropOffEntry = null;
+        dropOffIndex = -1;
+        boolean interrupted = false;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        while (!isDone()) {
+            long waitMillis = CHECK_MILLIS;
+            if (maxMillis > 0L) {
+                final long left = deadline - System.nanoTime();
+                if (left <= 0L) {
+                    break;
+                }
+                waitMillis = Math.min(waitMillis, Math.max(1L, TimeUnit.NANOSECONDS.toMillis(left)));
+            }
+            try {
+                wait(waitMillis);
+            } catch (InterruptedException e) {
+                if (!interrupted) {
+                    logger.warn("Interrupted waiting for {} family batches, still waiting for the helpers to stop", parts.size());
+                }
+                interrupted = true;
+            }
+        }
+        for (final Part part : parts) {
+            if (part.result != null) {
+                if (part.dropOffEntry != null && dropOffEntry == null) {
+                    dropOffEntry = part.dropOffEntry;
+                    dropOffIndex = joined.size();
+                }
+                joined.addAll(part.result);
+            } else if (part.helper.thread.isAlive()) {
+                // Out of time, the helper still has the payloads and finishes them when it reports back
+                logger.error("Agent {} did not return its family batch of {} payloads within {}ms, leaving it to finish alone",
+                        part.helper.getName(), part.batch.size(), maxMillis);
+            } else {
+                // The helper's thread has stopped, take back what it was carrying
+                final List<IBaseDataObject> left = part.helper.payloadList.isEmpty() ? part.batch : new ArrayList<>(part.helper.payloadList);
+                logger.error("Agent {} did not finish its family batch, {} payloads rejoined as they are", part.helper.getName(), left.size());
+                joined.addAll(left);
+            }
+        }
+        parts.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return joined;
+    }
+
+    /**
+     * Get the IO place the first part ready for the IO phase stopped short of
+     *
+     * @return the entry from the last {@link #await()}, null if no part needs the IO phase
+     */
+    @Nullable
+    synchronized DirectoryEntry getDropOffEntry() {
+        return dropOffEntry;
+    }
+
+    /**
+     * Get the position of the payload ready for the IO phase
+     *
+     * @return the index in the list returned by the last {@link #await()}, -1 if no part needs the IO phase
+     */
+    synchronized int getDropOffIndex() {
+        return dropOffIndex;
+    }
+
+    private boolean isDone() {
+        for (final Part part : parts) {
+            if (part.result == null && part.helper.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,310 @@
+package emissary.core;
+
+import emissary.directory.DirectoryEntry;
+
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the payloads carried by an {@link HDMobileAgent} so the control loop does not have to look at every
+ * payload on every pass.
+ * <p>
+ * Payloads are grouped by the key of the last place they visited and by each form on their current form stack, which
+ * finds the payloads that can ride along with the primary one without checking them all. The next key of a payload that
+ * is finished or only waiting for the IO phase is remembered until the payload is processed again, so it is not routed
+ * again every time the agent looks for more work.
+ * <p>
+ * The agent reports each payload it hands to a place or asks the directory about with {@link #changed(IBaseDataObject)},
+ * since only those can have new forms or history. Results are always in the order of the agent's payload list. If the
+ * list ever holds the same payload twice the scheduler falls back to checking every payload.
+ */
+final class FamilyScheduler {
+
+    // Grouping key for payloads that have not visited any place
+    private static final String NO_PLACE = "";
+
+    private final List<IBaseDataObject> payloads;
+
+    private final Map<IBaseDataObject, Member> members = new IdentityHashMap<>();
+
+    // Last place key to current form to the members having that form on their stack
+    private final Map<String, Map<String, Set<Member>>> groups = new HashMap<>();
+
+    private final Set<Member> dirty = new LinkedHashSet<>();
+
+    // Set when the payload list holds a payload more than once
+    private boolean linear = false;
+
+    private static final class Member {
+        private final IBaseDataObject payload;
+        private int position;
+        @Nullable
+        private String lastPlace;
+        private List<String> forms = new ArrayList<>();
+        private boolean settled = false;
+        @Nullable
+        private DirectoryEntry nextKey;
+
+        private Member(final IBaseDataObject payload, final int position) {
+            this.payload = payload;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Track the payloads on a list
+     *
+     * @param payloads the agent's payload list, read as it changes
+     */
+    FamilyScheduler(final List<IBaseDataObject> payloads) {
+        this.payloads = payloads;
+    }
+
+    /**
+     * Note that a payload may have new forms or history
+     *
+     * @param payload the payload
+     */
+    void changed(final IBaseDataObject payload) {
+        final Member m = members.get(payload);
+        if (m != null) {
+            m.settled = false;
+            dirty.add(m);
+        }
+    }
+
+    /**
+     * Note that payloads may have new forms or history
+     *
+     * @param changedPayloads the payloads
+     */
+    void changed(final Collection<IBaseDataObject> changedPayloads) {
+        for (final IBaseDataObject p : changedPayloads) {
+            changed(p);
+        }
+    }
+
+    /**
+     * Note that any payload may have new forms or history
+     */
+    void changedAll() {
+        for (final Member m : members.values()) {
+            m.settled = false;
+            dirty.add(m);
+        }
+    }
+
+    /**
+     * Note that two payloads traded places on the list
+     *
+     * @param i index of one payload
+     * @param j index of the other
+     */
+    void swapped(final int i, final int j) {
+        final Member a = members.get(payloads.get(i));
+        final Member b = members.get(payloads.get(j));
+        if (a != null && b != null) {
+            a.position = i;
+            b.position = j;
+        }
+    }
+
+    /**
+     * Find the other payloads that have a form on their current form stack and the same last place visited as the primary
+     * payload
+     *
+     * @param primary the payload being processed
+     * @param form the current form of the primary payload
+     * @return the matching payloads in list order
+     */
+    List<IBaseDataObject> riders(final IBaseDataObject primary, final String form) {
+        sync();
+        final List<IBaseDataObject> result = new ArrayList<>();
+        if (linear) {
+            final String lastPlace = lastPlaceOf(primary);
+            for (final IBaseDataObject p : payloads) {
+                if (p != primary && p.searchCurrentForm(form) > -1 && lastPlace.equals(lastPlaceOf(p))) {
+                    result.add(p);
+                }
+            }
+            return result;
+        }
+
+        refresh();
+        final Member pm = members.get(primary);
+        final String lastPlace = pm != null ? pm.lastPlace : lastPlaceOf(primary);
+        final Set<Member> group = groups.getOrDefault(lastPlace, Map.of()).get(form);
+        if (group == null) {
+            return result;
+        }
+        final List<Member> matches = new ArrayList<>(group.size());
+        for (final Member m : group) {
+            if (m != pm) {
+                matches.add(m);
+            }
+        }
+        if (!positionsValid(matches)) {
+            renumber();
+        }
+        matches.sort((a, b) -> Integer.compare(a.position, b.position));
+        for (final Member m : matches) {
+            result.add(m.payload);
+        }
+        return result;
+    }
+
+    /**
+     * Check whether the next key of a payload is known
+     *
+     * @param payload the payload
+     * @return true if the payload has not changed since its next key was remembered
+     */
+    boolean isSettled(final IBaseDataObject payload) {
+        if (linear) {
+            return false;
+        }
+        final Member m = members.get(payload);
+        return m != null && m.settled;
+    }
+
+    /**
+     * Get the remembered next key of a payload
+     *
+     * @param payload the payload
+     * @return the next key, null when the payload is finished
+     */
+    @Nullable
+    DirectoryEntry settledKey(final IBaseDataObject payload) {
+        final Member m = members.get(payload);
+        return m == null ? null : m.nextKey;
+    }
+
+    /**
+     * Remember the next key of a payload, which must not change until the payload is processed again
+     *
+     * @param payload the payload
+     * @param nextKey the next key, null when the payload is finished
+     */
+    void settle(final IBaseDataObject payload, @Nullable final DirectoryEntry nextKey) {
+        sync();
+        final Member m = members.get(payload);
+        if (m == null || linear) {
+            return;
+        }
+        if (dirty.remove(m)) {
+            index(m);
+        }
+        m.nextKey = nextKey;
+        m.settled = true;
+    }
+
+    /**
+     * Pick up payloads added to the end of the list
+     */
+    private void sync() {
+        if (linear) {
+            return;
+        }
+        final int size = payloads.size();
+        if (size < members.size()) {
+            rebuild();
+            return;
+        }
+        for (int i = members.size(); i < size; i++) {
+            final IBaseDataObject p = payloads.get(i);
+            if (members.containsKey(p)) {
+                rebuild();
+                return;
+            }
+            final Member m = new Member(p, i);
+            members.put(p, m);
+            dirty.add(m);
+        }
+    }
+
+    /**
+     * Start over from the current contents of the list
+     */
+    private void rebuild() {
+        members.clear();
+        groups.clear();
+        dirty.clear();
+        for (int i = 0; i < payloads.size(); i++) {
+            final IBaseDataObject p = payloads.get(i);
+            if (members.containsKey(p)) {
+                linear = true;
+                members.clear();
+                groups.clear();
+                dirty.clear();
+                return;
+            }
+            final Member m = new Member(p, i);
+            members.put(p, m);
+            dirty.add(m);
+        }
+    }
+
+    private boolean positionsValid(final List<Member> matches) {
+        for (final Member m : matches) {
+            if (m.position >= payloads.size() || payloads.get(m.position) != m.payload) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void renumber() {
+        for (int i = 0; i < payloads.size(); i++) {
+            final Member m = members.get(payloads.get(i));
+            if (m != null) {
+                m.position = i;
+            }
+        }
+    }
+
+    /**
+     * Regroup the payloads that changed
+     */
+    private void refresh() {
+        for (final Member m : dirty) {
+            index(m);
+        }
+        dirty.clear();
+    }
+
+    private void index(final Member m) {
+        if (m.lastPlace != null) {
+            final Map<String, Set<Member>> byForm = groups.get(m.lastPlace);
+            for (final String form : m.forms) {
+                final Set<Member> group = byForm.get(form);
+                group.remove(m);
+                if (group.isEmpty()) {
+                    byForm.remove(form);
+                }
+            }
+            if (byForm.isEmpty()) {
+                groups.remove(m.lastPlace);
+            }
+        }
+        m.lastPlace = lastPlaceOf(m.payload);
+        m.forms = new ArrayList<>(new HashSet<>(m.payload.getAllCurrentForms()));
+        final Map<String, Set<Member>> byForm = groups.computeIfAbsent(m.lastPlace, k -> new HashMap<>());
+        for (final String form : m.forms) {
+            byForm.computeIfAbsent(form, k -> new LinkedHashSet<>()).add(m);
+        }
+    }
+
+    private static String lastPlaceOf(final IBaseDataObject payload) {
+        final DirectoryEntry last = payload.getLastPlaceVisited();
+        return last == null ? NO_PLACE : last.getKey();
+    }
+}
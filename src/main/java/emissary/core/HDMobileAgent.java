@@ -5,6 +5,7 @@ import emissary.directory.KeyManipulator;
 import emissary.log.MDCConstants;
 import emissary.place.EmptyFormPlace;
 import emissary.place.IServiceProviderPlace;
+import emissary.pool.AgentPool;
 
 import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
@@ -17,6 +18,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This mobile agent carries around an ArrayList of payload that can be added onto instead of sprouting. The agent is
@@ -33,6 +35,28 @@ public class HDMobileAgent extends MobileAgent {
     // What we carry around with us
     protected List<IBaseDataObject> payloadList = Collections.synchronizedList(new ArrayList<>());
 
+    /** Default number of payloads sprouted at once before some are handed to other agents, splitting is off */
+    public static final int DEFAULT_SPLIT_THRESHOLD = 0;
+
+    /** Default number of other agents a batch of sprouts is split across */
+    public static final int DEFAULT_SPLIT_FANOUT = 4;
+
+    /** Default longest wait for the other agents to hand back their parts of a family */
+    public static final long DEFAULT_SPLIT_JOIN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    // Size of a batch of sprouts worth splitting
+    protected int splitThreshold = DEFAULT_SPLIT_THRESHOLD;
+
+    // Most agents to split a batch of sprouts across
+    protected int splitFanout = DEFAULT_SPLIT_FANOUT;
+
+    // Longest wait for the parts of a split family to come back
+    protected long splitJoinMillis = DEFAULT_SPLIT_JOIN_MILLIS;
+
+    // Set while we are processing part of another agent's family
+    @Nullable
+    protected transient FamilyJoin forkedFrom = null;
+
     /**
      * Still have the uncaught exception handler but not really in a true ThreadGroup
      */
@@ -116,6 +140,55 @@ public class HDMobileAgent extends MobileAgent {
         return this.payloadList.size();
     }
 
+    /**
+     * Get the number of payloads sprouted at once that are split across other agents
+     */
+    public int getSplitThreshold() {
+        return this.splitThreshold;
+    }
+
+    /**
+     * Set the number of payloads sprouted at once that are split across other agents
+     *
+     * @param value the batch size, splitting is turned off when less than 2
+     */
+    public void setSplitThreshold(final int value) {
+        this.splitThreshold = value;
+    }
+
+    /**
+     * Get the most agents a batch of sprouts is split across
+     */
+    public int getSplitFanout() {
+        return this.splitFanout;
+    }
+
+    /**
+     * Set the most agents a batch of sprouts is split across
+     *
+     * @param value the number of other agents, splitting is turned off when less than 1
+     */
+    public void setSplitFanout(final int value) {
+        this.splitFanout = value;
+    }
+
+    /**
+     * Get the longest time to wait for the other agents to hand back their parts of a family
+     */
+    public long getSplitJoinMillis() {
+        return this.splitJoinMillis;
+    }
+
+    /**
+     * Set the longest time to wait for the other agents to hand back their parts of a family. Parts still out are left to
+     * the agents processing them, which take them through the IO phase themselves.
+     *
+     * @param value the time in millis, no limit when 0 or less
+     */
+    public void setSplitJoinMillis(final long value) {
+        this.splitJoinMillis = value;
+    }
+
     /**
      * Clear the payloadList and all other state info
      */
@@ -190,9 +263,16 @@ public class HDMobileAgent extends MobileAgent {
         boolean nextKeyRecorded = true;
         boolean controlError = false;
 
+        // Index of the payloads by form and last place visited
+        final FamilyScheduler family = new FamilyScheduler(this.payloadList);
+
+        // Parts of the family handed to other agents
+        final FamilyJoin forks = new FamilyJoin();
+
         while (currentPlace != null && newEntry != null && mypayload != null) {
             // One based loop counter
             loopCount++;
+            family.changed(mypayload);
 
             // Remember the payload's form and last place before
             // doing the processing
@@ -218,6 +298,7 @@ public class HDMobileAgent extends MobileAgent {
                         nextKeyRecorded = true;
                     }
                     atPlaceHD(currentPlace, this.payloadList);
+                    family.changedAll();
                 } else {
                     // Add the primary payload object to a list
                     final List<IBaseDataObject> toBeProcessed = new ArrayList<>();
@@ -225,24 +306,16 @@ public class HDMobileAgent extends MobileAgent {
 
                     // Add any other payload that has the same current form
                     // and last place visited as this one while we are here...
-                    for (final IBaseDataObject slug : this.payloadList) {
-                        final DirectoryEntry slugLastPlaceVisited = slug.getLastPlaceVisited();
-
-                        if (slug != mypayload
-                                && slug.searchCurrentForm(primaryCurrentForm) > -1
-                                && ((primaryLastEntry == null && slugLastPlaceVisited == null) || (primaryLastEntry != null
-                                        && slugLastPlaceVisited != null && slugLastPlaceVisited.getKey().equals(primaryLastEntry.getKey())))) {
-                            // We don't need to call getNextKey but do
-                            // need to simulate this side effect of it...
-                            slug.pullFormToTop(primaryCurrentForm);
-
-                            toBeProcessed.add(slug);
-
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("Adding slug {} with key {} to ride with {} having key {} current form {}", slug.shortName(),
-                                        slugLastPlaceVisited == null ? "null" : slugLastPlaceVisited.getKey(), mypayload.shortName(),
-                                        primaryLastEntry == null ? "null" : primaryLastEntry.getKey(), primaryCurrentForm);
-                            }
+                    for (final IBaseDataObject slug : family.riders(mypayload, primaryCurrentForm)) {
+                        // We don't need to call getNextKey but do
+                        // need to simulate this side effect of it...
+                        slug.pullFormToTop(primaryCurrentForm);
+
+                        toBeProcessed.add(slug);
+
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Adding slug {} to ride with {} having key {} current form {}", slug.shortName(), mypayload.shortName(),
+                                    primaryLastEntry == null ? "null" : primaryLastEntry.getKey(), primaryCurrentForm);
                         }
                     }
 
@@ -259,10 +332,11 @@ public class HDMobileAgent extends MobileAgent {
                         nextKeyRecorded = true;
                     }
                     final List<IBaseDataObject> sprouts = atPlaceHD(currentPlace, toBeProcessed);
+                    family.changed(toBeProcessed);
 
                     // Add any sprouts collected from the payloads
                     if (!sprouts.isEmpty()) {
-                        addPayload(sprouts);
+                        addPayload(fork(forks, currentPlace, sprouts));
                     }
                 }
             }
@@ -270,6 +344,7 @@ public class HDMobileAgent extends MobileAgent {
             // Where to go next...
             controlError = false;
             newEntry = getNextKey(currentPlace, mypayload);
+            family.changed(mypayload);
             nextKeyRecorded = false;
 
             // Defer IO phase for now if there are attachments to process
@@ -291,13 +366,30 @@ public class HDMobileAgent extends MobileAgent {
             int haveDropOffFor = -1;
             if (newEntry == null) {
                 logger.debug("Got null newEntry for {} looking for a better payload...", mypayload.shortName());
+                // The last payload skipped without asking for its next key, whose tracking info is still needed
+                IBaseDataObject untracked = null;
                 for (int i = 0; i < payloadCount(); i++) {
                     final IBaseDataObject p = getPayload(i);
                     if (p == mypayload) {
                         continue;
                     }
+                    if (this.nextKeyQueue.isEmpty() && family.isSettled(p)) {
+                        // Finished or waiting for the IO phase since we last asked
+                        untracked = p;
+                        final DirectoryEntry settledEntry = family.settledKey(p);
+                        if (settledEntry != null && haveDropOffFor == -1) {
+                            haveDropOffFor = i;
+                            dropOffEntry = settledEntry;
+                        }
+                        continue;
+                    }
+                    untracked = null;
                     setParallelTrackingInfoFor(p);
                     newEntry = getNextKey(currentPlace, p);
+                    family.changed(p);
+                    if (isSettled(p, newEntry)) {
+                        family.settle(p, newEntry);
+                    }
                     if (newEntry != null) {
                         // Defer IO Phase until sure we are all done
                         if ("IO".equals(newEntry.getServiceType())) {
@@ -318,12 +410,16 @@ public class HDMobileAgent extends MobileAgent {
                         // Pull it to the top of the list in case we have to move
                         if (i != 0) {
                             switchPrimaryPayload(i);
+                            family.swapped(0, i);
                         }
                         // Remember it for processing
                         mypayload = p;
                         break; // out of the for loop
                     }
                 }
+                if (untracked != null) {
+                    setParallelTrackingInfoFor(untracked);
+                }
             }
 
             // Reset drop off if we deferred it above and found nothing better
@@ -331,6 +427,7 @@ public class HDMobileAgent extends MobileAgent {
                 // Pull entry to top
                 if (haveDropOffFor != 0) {
                     switchPrimaryPayload(haveDropOffFor);
+                    family.swapped(0, haveDropOffFor);
                     mypayload = getPayload(0);
                     setParallelTrackingInfoFor(mypayload);
                     logger.debug("Pulling payload {} to top before IO reinstatement", haveDropOffFor);
@@ -341,6 +438,35 @@ public class HDMobileAgent extends MobileAgent {
                 logger.debug("Resetting newEntry to IO phase");
             }
 
+            // Bring back the parts of the family other agents worked on
+            // before going to the IO phase or finishing
+            if ((newEntry == null || "IO".equals(newEntry.getServiceType())) && forks.isForked()) {
+                final int joinedAt = payloadCount();
+                addPayload(forks.await(this.splitJoinMillis));
+                logger.debug("Rejoined {} family members", payloadCount() - joinedAt);
+                if (newEntry == null && forks.getDropOffEntry() != null) {
+                    final int i = joinedAt + forks.getDropOffIndex();
+                    switchPrimaryPayload(i);
+                    family.swapped(0, i);
+                    mypayload = getPayload(0);
+                    setParallelTrackingInfoFor(mypayload);
+                    newEntry = forks.getDropOffEntry();
+                    logger.debug("Resetting newEntry to IO phase for rejoined payload");
+                }
+            }
+
+            // Part of another agent's family stops short of the IO
+            // phase, which that agent does for the whole family
+            if (newEntry != null && this.forkedFrom != null && "IO".equals(newEntry.getServiceType())) {
+                final FamilyJoin join = this.forkedFrom;
+                this.forkedFrom = null;
+                if (join.done(this, new ArrayList<>(this.payloadList), newEntry)) {
+                    logger.debug("Returned family part to its agent before {}", newEntry);
+                    return;
+                }
+                logger.warn("The agent that split the family stopped waiting, going on to {} with {} payloads", newEntry, payloadCount());
+            }
+
             // Null entry at this point means we are all done
             // with all the payloads, normal processing termination
             if (newEntry == null) {
@@ -378,6 +504,109 @@ public class HDMobileAgent extends MobileAgent {
         }
     }
 
+    /**
+     * Hand parts of a large batch of sprouts to idle agents from the pool. Each one processes its part, along with anything
+     * sprouted from it, until it is ready for the IO phase and then gives it back through the join. Sprouts are only split
+     * by the agent that owns the family.
+     *
+     * @param forks tracks the parts handed out
+     * @param place the place the sprouts came from, used by the other agents to find their next places
+     * @param sprouts the newly sprouted payloads
+     * @return the sprouts left for this agent
+     */
+    protected List<IBaseDataObject> fork(final FamilyJoin forks, final IServiceProviderPlace place, final List<IBaseDataObject> sprouts) {
+        if (this.forkedFrom != null || this.splitFanout < 1 || this.splitThreshold < 2 || sprouts.size() < this.splitThreshold) {
+            return sprouts;
+        }
+
+        final AgentPool pool;
+        try {
+            pool = AgentPool.lookup();
+        } catch (NamespaceException e) {
+            logger.debug("No agent pool to split {} sprouts with", sprouts.size());
+            return sprouts;
+        }
+
+        // Keep the first part and hand out the rest while agents are idle
+        final int partSize = (sprouts.size() + this.splitFanout) / (this.splitFanout + 1);
+        final List<IBaseDataObject> kept = new ArrayList<>(sprouts.subList(0, partSize));
+        boolean idleAgents = true;
+        for (int start = partSize; start < sprouts.size(); start += partSize) {
+            final List<IBaseDataObject> part = sprouts.subList(start, Math.min(start + partSize, sprouts.size()));
+            IMobileAgent agent = idleAgents ? pool.borrowIdleAgent() : null;
+            if (agent != null && !(agent instanceof HDMobileAgent)) {
+                pool.returnAgent(agent);
+                agent = null;
+            }
+            if (agent == null) {
+                idleAgents = false;
+                kept.addAll(part);
+                continue;
+            }
+            final List<IBaseDataObject> handedOut = new ArrayList<>(part);
+            forks.fork((HDMobileAgent) agent, handedOut);
+            ((HDMobileAgent) agent).goForked(forks, handedOut, place, this.moveErrorsOccurred);
+        }
+
+        logger.debug("Split {} sprouts at {}, keeping {}", sprouts.size(), place, kept.size());
+        return kept;
+    }
+
+    /**
+     * Start processing part of another agent's family. The part is routed from the place it was sprouted at and returned
+     * through the join before the IO phase.
+     *
+     * @param join where the part is returned
+     * @param part the payloads to process
+     * @param place the place the part was sprouted at
+     * @param moveErrorCount state transfer from the owning agent
+     */
+    protected synchronized void goForked(final FamilyJoin join, final List<IBaseDataObject> part, final IServiceProviderPlace place,
+            final int moveErrorCount) {
+        clear();
+        this.forkedFrom = join;
+        this.moveErrorsOccurred = moveErrorCount;
+        addPayload(part);
+        setAgentId(getPayload().shortName());
+        setParallelTrackingInfoFor(getPayload());
+        this.idle.set(false);
+        setProcessFirstPlace(false);
+        setArrivalPlace(place);
+        // the run() loop takes over on our own thread
+        notifyAll();
+    }
+
+    /**
+     * Give the payloads back when processing part of another agent's family, then return to the pool
+     */
+    @Override
+    protected synchronized void agentReturn() {
+        final FamilyJoin join = this.forkedFrom;
+        if (join != null) {
+            join.done(this, new ArrayList<>(this.payloadList), null);
+            this.forkedFrom = null;
+        }
+        super.agentReturn();
+    }
+
+    /**
+     * Determine whether asking for the next key of a payload again would give the same answer until it is processed, which
+     * is the case when it is finished or waiting for the IO phase and the last request did not change it
+     *
+     * @param p the payload just routed
+     * @param entry the next key found for it
+     * @return true if the next key can be remembered
+     */
+    private boolean isSettled(final IBaseDataObject p, @Nullable final DirectoryEntry entry) {
+        if (!this.nextKeyQueue.isEmpty() || p.transformHistory().size() > this.maxItinerarySteps) {
+            return false;
+        }
+        if (entry == null) {
+            return p.currentFormSize() < 1 || p.currentForm().startsWith(DONE_FORM);
+        }
+        return "IO".equals(entry.getServiceType()) && !ERROR_FORM.equals(p.currentForm());
+    }
+
     /**
      * Make the payload at the specified index the new primary one and reset the logger context to the new value
      * 
@@ -410,6 +639,7 @@ public class HDMobileAgent extends MobileAgent {
 
         List<IBaseDataObject> ret = Collections.emptyList();
 
+        final VisitTimer visit = startVisit(payloadListArg);
         try (TimedResource tr = resourceWatcherStart(place)) {
             assert tr != null; // to silence an unused resource warning
 
@@ -446,6 +676,9 @@ public class HDMobileAgent extends MobileAgent {
                 p.replaceCurrentForm(MobileAgent.ERROR_FORM);
             }
         } finally {
+            if (visit != null) {
+                visit.stop();
+            }
             if (!(place instanceof EmptyFormPlace)) {
                 for (final IBaseDataObject p : payloadListArg) {
                     if (p.currentFormSize() == 0) {
@@ -48,6 +48,18 @@ public interface IBaseDataObject {
      */
     byte[] data();
 
+    /**
+     * Return a read-only view of the data. Nothing is copied when the data is held as a byte array, and since the array
+     * itself is not handed out there is no way to change it, so callers that only read the data need no checks for unsaved
+     * changes. Like {@link #data()}, data from a channel is limited to Integer.MAX_VALUE bytes.
+     *
+     * @return a read-only buffer over the data, empty when there is none
+     */
+    default ByteBuffer readOnlyDataBuffer() {
+        final byte[] d = data();
+        return d == null ? ByteBuffer.allocate(0).asReadOnlyBuffer() : ByteBuffer.wrap(d).asReadOnlyBuffer();
+    }
+
     /**
      * Set BaseDataObjects data to byte array passed in.
      * 
@@ -83,6 +95,48 @@ public interface IBaseDataObject {
      */
     void setChannelFactory(final SeekableByteChannelFactory sbcf);
 
+    /**
+     * Get the version of the data. The version changes every time the data is replaced through {@link #setData(byte[])},
+     * {@link #setChannelFactory(SeekableByteChannelFactory)} or {@link #clearData()}, so values computed from the data can
+     * be reused while it stays the same. Changes made directly to the array returned by {@link #data()} are not seen, code
+     * that does that must call {@link #markContentChanged()}.
+     *
+     * @return the content version
+     */
+    long getContentVersion();
+
+    /**
+     * Record that the data was changed in place so that values computed from it are no longer current
+     */
+    void markContentChanged();
+
+    /**
+     * Report whether the channel factory was replaced since {@link #clearChannelFactoryDirty()} was last called
+     *
+     * @return true if a new channel factory was set
+     */
+    boolean isChannelFactoryDirty();
+
+    /**
+     * Forget that the channel factory was replaced
+     */
+    void clearChannelFactoryDirty();
+
+    /**
+     * Record that a value derived from the data, such as its hashes, was computed from the current content version
+     *
+     * @param name the name of the derived value
+     */
+    void markDerived(String name);
+
+    /**
+     * Report whether a value derived from the data was computed from the current content version
+     *
+     * @param name the name of the derived value
+     * @return true if the data has not changed since {@link #markDerived(String)} was called for the name
+     */
+    boolean isDerivedCurrent(String name);
+
     /**
      * Returns a new InputStream to the data that this BaseDataObject contains.
      * <p>
@@ -0,0 +1,417 @@
+package emissary.core;
+
+import emissary.core.channels.MemoryMappedChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary form of a family of payloads, for keeping them outside of the heap. Everything an agent carries is
+ * written: the data, forms, parameters, transform history, alternate views, header and footer, extracted records and
+ * the remaining attributes. A member whose top level document is an earlier member of the same family gets it back when
+ * read.
+ * <p>
+ * Data held in a byte array is read back into a new array. Data behind a channel factory is read back as a channel over
+ * the bytes it was read from, so a family read from a mapped file does not copy its channel content onto the heap.
+ * Parameter values that are not strings, numbers or booleans are written as their string form.
+ */
+public final class IBaseDataObjectBinaryCodec {
+
+    private static final int MAGIC = 0x45424446;
+    private static final byte VERSION = 1;
+
+    private static final byte NO_DATA = 0;
+    private static final byte BYTE_ARRAY = 1;
+    private static final byte CHANNEL = 2;
+
+    private static final byte STRING_VALUE = 0;
+    private static final byte LONG_VALUE = 1;
+    private static final byte INTEGER_VALUE = 2;
+    private static final byte DOUBLE_VALUE = 3;
+    private static final byte BOOLEAN_VALUE = 4;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private IBaseDataObjectBinaryCodec() {}
+
+    /**
+     * Write a family
+     *
+     * @param family the payloads, parent first
+     * @param out where to write, not closed
+     * @throws IOException if the data cannot be read or the output cannot be written
+     */
+    public static void encode(final List<IBaseDataObject> family, final OutputStream out) throws IOException {
+        Validate.notNull(family, "Required: family not null");
+        Validate.notNull(out, "Required: out not null");
+
+        final DataOutputStream dos = new DataOutputStream(out);
+        final Map<IBaseDataObject, Integer> index = new IdentityHashMap<>();
+        dos.writeInt(MAGIC);
+        dos.writeByte(VERSION);
+        dos.writeInt(family.size());
+        for (final IBaseDataObject d : family) {
+            // A top level document can only be given back through the constructor, which needs a filename
+            final Integer tld = d.getTld() == null || d.getFilename() == null ? null : index.get(d.getTld());
+            writeMember(dos, d, tld == null ? -1 : tld);
+            index.put(d, index.size());
+        }
+        dos.flush();
+    }
+
+    /**
+     * Read a family, leaving the buffer positioned after it
+     *
+     * @param in the encoded family from its position
+     * @return the payloads in the order they were written
+     * @throws IOException if the bytes are not an encoded family
+     */
+    public static List<IBaseDataObject> decode(final ByteBuffer in) throws IOException {
+        Validate.notNull(in, "Required: in not null");
+
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not an encoded family");
+            }
+            final byte version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported family encoding version " + version);
+            }
+            final int count = readCount(in);
+            final List<IBaseDataObject> family = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                family.add(readMember(in, family));
+            }
+            return family;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated or corrupt family encoding", e);
+        }
+    }
+
+    private static void writeMember(final DataOutputStream out, final IBaseDataObject d, final int tld) throws IOException {
+        out.writeLong(d.getInternalId().getMostSignificantBits());
+        out.writeLong(d.getInternalId().getLeastSignificantBits());
+        out.writeInt(tld);
+        writeString(out, d.getFilename());
+        writeString(out, d.getClassification());
+        writeString(out, d.getFontEncoding());
+        writeString(out, d.getHeaderEncoding());
+        writeString(out, d.getBroken());
+        writeString(out, d.getProcessingError());
+        writeString(out, d.getId());
+        writeString(out, d.getWorkBundleId());
+        writeString(out, d.getTransactionId());
+        out.writeInt(d.getBirthOrder());
+        out.writeInt(d.getNumChildren());
+        out.writeInt(d.getNumSiblings());
+        out.writeInt(d.getPriority());
+        out.writeBoolean(d.isOutputable());
+        final Instant created = d.getCreationTimestamp();
+        out.writeBoolean(created != null);
+        if (created != null) {
+            out.writeLong(created.getEpochSecond());
+            out.writeInt(created.getNano());
+        }
+
+        final List<String> forms = d.getAllCurrentForms();
+        out.writeInt(forms.size());
+        for (final String form : forms) {
+            writeString(out, form);
+        }
+
+        final Map<String, Collection<Object>> parameters = d.getParameters();
+        out.writeInt(parameters.size());
+        for (final Map.Entry<String, Collection<Object>> entry : parameters.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (final Object value : entry.getValue()) {
+                writeValue(out, value);
+            }
+        }
+
+        final Map<String, byte[]> views = d.getAlternateViews();
+        out.writeInt(views.size());
+        for (final Map.Entry<String, byte[]> entry : views.entrySet()) {
+            writeString(out, entry.getKey());
+            writeBytes(out, entry.getValue());
+        }
+        writeBytes(out, d.header());
+        writeBytes(out, d.footer());
+
+        final List<TransformHistory.History> history = d.getTransformHistory().getHistory();
+        out.writeInt(history.size());
+        for (final TransformHistory.History h : history) {
+            writeString(out, h.getKey());
+            out.writeInt(h.getCoordinated().size());
+            for (final String coordinated : h.getCoordinated()) {
+                writeString(out, coordinated);
+            }
+            final TransformHistory.Timing timing = h.getTiming();
+            out.writeBoolean(timing != null);
+            if (timing != null) {
+                out.writeLong(timing.getDurationNanos());
+                out.writeLong(timing.getBytesIn());
+                out.writeLong(timing.getBytesOut());
+                out.writeInt(timing.getChildren());
+            }
+        }
+
+        final List<IBaseDataObject> records = d.getExtractedRecords();
+        out.writeInt(records == null ? -1 : records.size());
+        if (records != null) {
+            for (final IBaseDataObject r : records) {
+                writeMember(out, r, -1);
+            }
+        }
+
+        writeData(out, d);
+    }
+
+    private static IBaseDataObject readMember(final ByteBuffer in, final List<IBaseDataObject> family) throws IOException {
+        final UUID internalId = new UUID(in.getLong(), in.getLong());
+        final int tld = in.getInt();
+        final String filename = readString(in);
+        final IBaseDataObject d;
+        if (tld < 0) {
+            d = DataObjectFactory.getInstance();
+            if (filename != null) {
+                d.setFilename(filename);
+            }
+        } else if (tld < family.size()) {
+            d = DataObjectFactory.getInstance(new byte[0], filename, (String) null, family.get(tld));
+        } else {
+            throw new IOException("Top level document " + tld + " is not an earlier member");
+        }
+        if (d instanceof BaseDataObject) {
+            ((BaseDataObject) d).internalId = internalId;
+        }
+        d.setClassification(readString(in));
+        d.setFontEncoding(readString(in));
+        d.setHeaderEncoding(readString(in));
+        d.setBroken(readString(in));
+        final String processingError = readString(in);
+        if (processingError != null && !processingError.isEmpty()) {
+            // Each error was stored with a trailing newline that adding it back puts on again
+            d.addProcessingError(processingError.substring(0, processingError.length() - 1));
+        }
+        d.setId(readString(in));
+        d.setWorkBundleId(readString(in));
+        d.setTransactionId(readString(in));
+        d.setBirthOrder(in.getInt());
+        d.setNumChildren(in.getInt());
+        d.setNumSiblings(in.getInt());
+        d.setPriority(in.getInt());
+        d.setOutputable(in.get() != 0);
+        if (in.get() != 0) {
+            d.setCreationTimestamp(Instant.ofEpochSecond(in.getLong(), in.getInt()));
+        }
+
+        final int forms = readCount(in);
+        for (int i = 0; i < forms; i++) {
+            d.enqueueCurrentForm(readString(in));
+        }
+
+        final int parameters = readCount(in);
+        for (int i = 0; i < parameters; i++) {
+            final String key = readString(in);
+            final int count = readCount(in);
+            final List<Object> values = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                values.add(readValue(in));
+            }
+            d.putParameter(key, values);
+        }
+
+        final int views = readCount(in);
+        for (int i = 0; i < views; i++) {
+            d.addAlternateView(readString(in), readBytes(in));
+        }
+        d.setHeader(readBytes(in));
+        d.setFooter(readBytes(in));
+
+        final TransformHistory history = new TransformHistory();
+        final int visits = readCount(in);
+        for (int i = 0; i < visits; i++) {
+            history.append(readString(in));
+            final TransformHistory.History visit = history.lastVisit();
+            final int coordinated = readCount(in);
+            for (int j = 0; j < coordinated; j++) {
+                visit.addCoordinated(readString(in));
+            }
+            if (in.get() != 0) {
+                visit.setTiming(new TransformHistory.Timing(in.getLong(), in.getLong(), in.getLong(), in.getInt()));
+            }
+        }
+        d.setHistory(history);
+
+        final int records = in.getInt();
+        if (records >= 0) {
+            final List<IBaseDataObject> extracted = new ArrayList<>(records);
+            for (int i = 0; i < records; i++) {
+                extracted.add(readMember(in, family));
+            }
+            d.setExtractedRecords(extracted);
+        }
+
+        readData(in, d);
+        return d;
+    }
+
+    private static void writeData(final DataOutputStream out, final IBaseDataObject d) throws IOException {
+        if (d instanceof BaseDataObject && ((BaseDataObject) d).getDataState() == BaseDataObject.DataState.CHANNEL_ONLY) {
+            final SeekableByteChannelFactory sbcf = d.getChannelFactory();
+            try (SeekableByteChannel sbc = sbcf.create()) {
+                final long size = sbc.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Channel of " + d.shortName() + " is too large to encode: " + size);
+                }
+                out.writeByte(CHANNEL);
+                out.writeInt((int) size);
+                copy(sbc, size, out, d);
+            }
+            return;
+        }
+        final byte[] data = d.data();
+        if (data == null) {
+            out.writeByte(NO_DATA);
+        } else {
+            out.writeByte(BYTE_ARRAY);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+
+    private static void copy(final SeekableByteChannel sbc, final long size, final DataOutputStream out, final IBaseDataObject d)
+            throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, Math.max(1, size)));
+        long remaining = size;
+        while (remaining > 0) {
+            buf.clear().limit((int) Math.min(buf.capacity(), remaining));
+            final int read = sbc.read(buf);
+            if (read < 0) {
+                throw new IOException("Channel of " + d.shortName() + " ended " + remaining + " bytes early");
+            }
+            out.write(buf.array(), 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static void readData(final ByteBuffer in, final IBaseDataObject d) throws IOException {
+        final byte kind = in.get();
+        if (kind == NO_DATA) {
+            d.clearData();
+        } else if (kind == BYTE_ARRAY) {
+            final byte[] data = new byte[readCount(in)];
+            in.get(data);
+            d.setData(data);
+        } else if (kind == CHANNEL) {
+            final int length = readCount(in);
+            final ByteBuffer region = in.duplicate();
+            region.limit(region.position() + length);
+            in.position(in.position() + length);
+            d.setChannelFactory(MemoryMappedChannelFactory.create(region));
+        } else {
+            throw new IOException("Unknown data kind " + kind);
+        }
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if (value instanceof Long) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER_VALUE);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeByte(STRING_VALUE);
+            writeString(out, String.valueOf(value));
+        }
+    }
+
+    private static Object readValue(final ByteBuffer in) throws IOException {
+        final byte type = in.get();
+        switch (type) {
+            case LONG_VALUE:
+                return in.getLong();
+            case INTEGER_VALUE:
+                return in.getInt();
+            case DOUBLE_VALUE:
+                return in.getDouble();
+            case BOOLEAN_VALUE:
+                return in.get() != 0;
+            case STRING_VALUE:
+                return readString(in);
+            default:
+                throw new IOException("Unknown parameter value type " + type);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, @Nullable final String s) throws IOException {
+        writeBytes(out, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nullable
+    private static String readString(final ByteBuffer in) throws IOException {
+        final byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(final DataOutputStream out, @Nullable final byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Nullable
+    private static byte[] readBytes(final ByteBuffer in) throws IOException {
+        final int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        checkRemaining(in, length);
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static int readCount(final ByteBuffer in) throws IOException {
+        final int count = in.getInt();
+        if (count < 0) {
+            throw new IOException("Negative count " + count);
+        }
+        checkRemaining(in, count);
+        return count;
+    }
+
+    private static void checkRemaining(final ByteBuffer in, final int length) throws IOException {
+        // Every counted item takes at least one byte, so a larger count means the encoding is corrupt
+        if (length > in.remaining()) {
+            throw new IOException("Count " + length + " exceeds the " + in.remaining() + " bytes remaining");
+        }
+    }
+}
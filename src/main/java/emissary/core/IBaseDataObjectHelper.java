@@ -163,8 +163,8 @@ public final class IBaseDataObjectHelper {
             }
         }
 
-        // Copy over the transform history up to this point
-        childIBaseDataObject.setHistory(parentIBaseDataObject.getTransformHistory());
+        // Copy over the transform history up to this point, the timings stay with the parent
+        childIBaseDataObject.setHistory(TransformHistory.inheritedFrom(parentIBaseDataObject.getTransformHistory()));
         childIBaseDataObject.appendTransformHistory(KeyManipulator.makeSproutKey(placeKey));
         try {
             childIBaseDataObject.putParameter(SessionParser.ORIG_DOC_SIZE_KEY,
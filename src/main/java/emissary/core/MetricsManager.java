@@ -2,6 +2,10 @@ package emissary.core;
 
 import emissary.config.ConfigUtil;
 import emissary.config.Configurator;
+import emissary.core.channels.PayloadMemoryBudget;
+import emissary.output.roller.JournaledCoalescer;
+import emissary.pool.AgentPool;
+import emissary.spi.ObjectTracingService;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
@@ -120,7 +124,31 @@ public class MetricsManager {
         this.healthChecks.register("healthcheck.agentpool", new AgentPoolHealthCheck());
     }
 
+    /**
+     * Get the payload bytes carried by active agents of the default pool, the pool may not exist yet
+     *
+     * @return bytes in flight or zero when there is no pool
+     */
+    private static long getPoolInFlightBytes() {
+        try {
+            return AgentPool.lookup().getAdmissionController().getInFlight();
+        } catch (NamespaceException e) {
+            return 0L;
+        }
+    }
+
     protected void initMetrics() {
+        final PayloadMemoryBudget budget = PayloadMemoryBudget.global();
+        this.metrics.register("payload.memory.budget.used", (Gauge<Long>) budget::getUsed);
+        this.metrics.register("payload.memory.budget.limit", (Gauge<Long>) budget::getLimit);
+        this.metrics.register("agent.pool.inflight.bytes", (Gauge<Long>) MetricsManager::getPoolInFlightBytes);
+        this.metrics.register("object.trace.emitted", (Gauge<Long>) ObjectTracingService::getEmittedCount);
+        this.metrics.register("object.trace.overflow", (Gauge<Long>) ObjectTracingService::getOverflowCount);
+        this.metrics.register("object.trace.dropped", (Gauge<Long>) ObjectTracingService::getDroppedCount);
+        this.metrics.register("object.trace.pending", (Gauge<Integer>) ObjectTracingService::getPendingCount);
+        this.metrics.register("output.roll.part.bytes", (Gauge<Long>) JournaledCoalescer::getTotalPartBytes);
+        this.metrics.register("output.roll.rolled.bytes", (Gauge<Long>) JournaledCoalescer::getTotalRolledBytes);
+
         if (this.conf.findBooleanEntry("JVM_METRICS_ENABLED", false)) {
             logger.debug("JVM Metrics are enabled");
             this.metrics.registerAll(new MemoryUsageGaugeSet());
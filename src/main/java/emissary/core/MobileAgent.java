@@ -18,10 +18,12 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -38,6 +40,9 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     // Probe logger
     protected static final Logger probeLogger = LoggerFactory.getLogger(MobileAgent.class.getPackage().toString() + ".PROBE");
 
+    // Slow itinerary logger
+    protected static final Logger profileLogger = LoggerFactory.getLogger(MobileAgent.class.getPackage().toString() + ".PROFILE");
+
     // The thread we plan to run on (we are autonomous, in a limited sense)
     @Nullable
     protected transient Thread thread = null;
@@ -55,6 +60,14 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     public static final int DEFAULT_MAX_ITINERARY_STEPS = 100;
     protected int maxItinerarySteps = DEFAULT_MAX_ITINERARY_STEPS;
 
+    // For finding slow itineraries
+    public static final long DEFAULT_SLOW_ITINERARY_MILLIS = 10000L;
+    protected boolean timeVisits = false;
+    protected long slowItineraryMillis = DEFAULT_SLOW_ITINERARY_MILLIS;
+
+    // Most visits named in a slow itinerary report
+    private static final int SLOWEST_VISITS_REPORTED = 5;
+
     // Stages of processing
     protected static final String ERROR_FORM = Form.ERROR;
     protected static final String DONE_FORM = Form.DONE;
@@ -373,6 +386,7 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     protected void atPlace(final IServiceProviderPlace place, final IBaseDataObject payloadArg) {
         logger.debug("In atPlace {} with {}", place, payloadArg.shortName());
 
+        final VisitTimer visit = startVisit(Collections.singletonList(payloadArg));
         try (TimedResource timer = resourceWatcherStart(place)) {
             assert timer != null; // to silence an unused resource warning
 
@@ -392,6 +406,9 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
             payloadArg.addProcessingError("atPlace(" + place + "): " + problem);
             payloadArg.replaceCurrentForm(ERROR_FORM);
         } finally {
+            if (visit != null) {
+                visit.stop();
+            }
             if (!(place instanceof EmptyFormPlace) && payloadArg.currentFormSize() == 0) {
                 logger.error("Place {} left an empty form stack, changing it to ERROR", place);
                 payloadArg.addProcessingError(place + " left an empty form stack");
@@ -418,6 +435,17 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
         }
     }
 
+    /**
+     * Start timing a visit to a place when visits are being timed
+     *
+     * @param payloads the payloads the place is given
+     * @return the timer, null if visits are not timed
+     */
+    @Nullable
+    protected VisitTimer startVisit(final List<IBaseDataObject> payloads) {
+        return this.timeVisits ? new VisitTimer(payloads) : null;
+    }
+
     protected TimedResource resourceWatcherStart(final IServiceProviderPlace place) {
         TimedResource tr = TimedResource.EMPTY;
         // CoordinationPlaces are tracked individually
@@ -801,6 +829,32 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
         if (dest.isInfoEnabled()) {
             dest.info(PayloadUtil.getPayloadDisplayString(payloadArg));
         }
+        if (this.timeVisits) {
+            logSlowItinerary(payloadArg);
+        }
+    }
+
+    /**
+     * Report a payload whose timed visits took longer than the slow itinerary limit, naming the slowest places
+     *
+     * @param payloadArg the finished payload
+     */
+    protected void logSlowItinerary(final IBaseDataObject payloadArg) {
+        final TransformHistory history = payloadArg.getTransformHistory();
+        final long totalMillis = TimeUnit.NANOSECONDS.toMillis(history.getTotalNanos());
+        if (totalMillis < this.slowItineraryMillis || !profileLogger.isInfoEnabled()) {
+            return;
+        }
+        final StringBuilder slowest = new StringBuilder();
+        for (final TransformHistory.History h : history.slowest(SLOWEST_VISITS_REPORTED)) {
+            final TransformHistory.Timing timing = h.getTiming();
+            if (timing != null) {
+                slowest.append(System.lineSeparator()).append("    ").append(TimeUnit.NANOSECONDS.toMillis(timing.getDurationNanos())).append(" ms ")
+                        .append(h.getKey(true));
+            }
+        }
+        profileLogger.info("Slow itinerary for {} with file type {}: {} ms in {} places, slowest:{}", payloadArg.shortName(),
+                payloadArg.getFileType(), totalMillis, history.size(), slowest);
     }
 
     /**
@@ -931,4 +985,36 @@ public abstract class MobileAgent implements IMobileAgent, MobileAgentMBean {
     public void setMaxItinerarySteps(final int value) {
         this.maxItinerarySteps = value;
     }
+
+    /**
+     * Check if each visit to a place is timed and recorded in the payload's transform history
+     */
+    public boolean isTimeVisits() {
+        return this.timeVisits;
+    }
+
+    /**
+     * Set whether each visit to a place is timed and recorded in the payload's transform history
+     *
+     * @param value true to time visits
+     */
+    public void setTimeVisits(final boolean value) {
+        this.timeVisits = value;
+    }
+
+    /**
+     * Get the total time in places above which a finished payload is reported as slow
+     */
+    public long getSlowItineraryMillis() {
+        return this.slowItineraryMillis;
+    }
+
+    /**
+     * Set the total time in places above which a finished payload is reported as slow, when visits are timed
+     *
+     * @param value the limit in milliseconds
+     */
+    public void setSlowItineraryMillis(final long value) {
+        this.slowItineraryMillis = value;
+    }
 }
@@ -89,7 +89,19 @@ public class ResourceWatcher implements Runnable {
      * @return TimedResource for the place and agent
      */
     public TimedResource starting(final IMobileAgent agent, final IServiceProviderPlace place) {
-        TimedResource tr = new TimedResource(agent, place, getPlaceDuration(place), metrics.timer(place.getPlaceName()));
+        return starting(agent, place, null);
+    }
+
+    /**
+     * Register an agent to start tracking it while the place runs on another thread
+     * 
+     * @param agent the agent to track
+     * @param place place executing
+     * @param thread the thread running the place, interrupted instead of the agent, null for the agent's thread
+     * @return TimedResource for the place and agent
+     */
+    public TimedResource starting(final IMobileAgent agent, final IServiceProviderPlace place, @Nullable final Thread thread) {
+        TimedResource tr = new TimedResource(agent, place, getPlaceDuration(place), metrics.timer(place.getPlaceName()), thread);
         tracking.offer(tr);
         return tr;
     }
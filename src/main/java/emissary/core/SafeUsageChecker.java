@@ -5,11 +5,17 @@ import emissary.config.Configurator;
 import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.util.ByteUtil;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -18,45 +24,108 @@ import java.util.Map;
  * {@link IBaseDataObject#setData(byte[]) setData(byte[])}, {@link IBaseDataObject#setData(byte[], int, int)
  * setData(byte[], int, int)}, or {@link IBaseDataObject#setChannelFactory(SeekableByteChannelFactory)
  * setChannelFactory(SeekableByteChannelFactory)} method.
+ * <p>
+ * By default each snapshot is a SHA-256 hash of the whole array, which is too costly to leave on in production. Setting
+ * {@code HASH = FAST} uses a 64-bit non-cryptographic hash instead, and {@code SAMPLE_THRESHOLD} limits arrays larger
+ * than that many bytes to {@code SAMPLE_BLOCKS} evenly spaced blocks of {@code SAMPLE_BLOCK_SIZE} bytes plus the length.
+ * Sampling can miss a change that falls between the blocks. Places that only read the payload can use
+ * {@link IBaseDataObject#readOnlyDataBuffer()}, which hands out no array and so needs no snapshot.
  */
 public class SafeUsageChecker {
     protected static final Logger LOGGER = LoggerFactory.getLogger(SafeUsageChecker.class);
 
     public static final String ENABLED_KEY = "ENABLED";
+    public static final String HASH_KEY = "HASH";
+    public static final String SAMPLE_THRESHOLD_KEY = "SAMPLE_THRESHOLD";
+    public static final String SAMPLE_BLOCKS_KEY = "SAMPLE_BLOCKS";
+    public static final String SAMPLE_BLOCK_SIZE_KEY = "SAMPLE_BLOCK_SIZE";
     public static final boolean ENABLED_FROM_CONFIGURATION;
+    public static final Hash HASH_FROM_CONFIGURATION;
+    public static final long SAMPLE_THRESHOLD_FROM_CONFIGURATION;
+    public static final int SAMPLE_BLOCKS_FROM_CONFIGURATION;
+    public static final int SAMPLE_BLOCK_SIZE_FROM_CONFIGURATION;
+    public static final long DEFAULT_SAMPLE_THRESHOLD = 0L;
+    public static final int DEFAULT_SAMPLE_BLOCKS = 64;
+    public static final int DEFAULT_SAMPLE_BLOCK_SIZE = 1024;
     public static final String UNSAFE_MODIFICATION_DETECTED = "Detected unsafe changes to IBDO byte array contents";
 
     // to minimize I/O, we only want to read the config file once regardless of the number of instances created
     static {
         boolean enabledFromConfiguration = false;
+        Hash hashFromConfiguration = Hash.SHA256;
+        long sampleThresholdFromConfiguration = DEFAULT_SAMPLE_THRESHOLD;
+        int sampleBlocksFromConfiguration = DEFAULT_SAMPLE_BLOCKS;
+        int sampleBlockSizeFromConfiguration = DEFAULT_SAMPLE_BLOCK_SIZE;
 
         try {
             Configurator configurator = ConfigUtil.getConfigInfo(SafeUsageChecker.class);
 
             enabledFromConfiguration = configurator.findBooleanEntry(ENABLED_KEY, enabledFromConfiguration);
+            hashFromConfiguration = hashOf(configurator, hashFromConfiguration);
+            sampleThresholdFromConfiguration = configurator.findLongEntry(SAMPLE_THRESHOLD_KEY, sampleThresholdFromConfiguration);
+            sampleBlocksFromConfiguration = configurator.findIntEntry(SAMPLE_BLOCKS_KEY, sampleBlocksFromConfiguration);
+            sampleBlockSizeFromConfiguration = configurator.findIntEntry(SAMPLE_BLOCK_SIZE_KEY, sampleBlockSizeFromConfiguration);
         } catch (IOException e) {
             LOGGER.debug("Could not get configuration!", e);
         }
 
         ENABLED_FROM_CONFIGURATION = enabledFromConfiguration;
+        HASH_FROM_CONFIGURATION = hashFromConfiguration;
+        SAMPLE_THRESHOLD_FROM_CONFIGURATION = sampleThresholdFromConfiguration;
+        SAMPLE_BLOCKS_FROM_CONFIGURATION = sampleBlocksFromConfiguration;
+        SAMPLE_BLOCK_SIZE_FROM_CONFIGURATION = sampleBlockSizeFromConfiguration;
     }
 
     /**
-     * Cache that records each {@literal byte[]} reference made available to IBDO clients, along with a sha256 hash of the
-     * array contents. Used for determining whether the clients modify the array contents without explicitly pushing those
+     * How snapshots are taken
+     */
+    public enum Hash {
+        /** SHA-256 of the whole array */
+        SHA256,
+        /** 64-bit non-cryptographic hash, optionally of a sample of large arrays */
+        FAST
+    }
+
+    private static final HashFunction FAST_HASH = Hashing.farmHashFingerprint64();
+
+    /**
+     * Cache that records each {@literal byte[]} reference made available to IBDO clients, along with a hash of the array
+     * contents. Used for determining whether the clients modify the array contents without explicitly pushing those
      * changes back to the IBDO
      */
     @SuppressWarnings("ArrayAsKeyOfSetOrMap")
     private final Map<byte[], String> cache = new HashMap<>();
 
     public final boolean enabled;
+    public final Hash hash;
+    public final long sampleThreshold;
+    public final int sampleBlocks;
+    public final int sampleBlockSize;
 
     public SafeUsageChecker() {
         enabled = ENABLED_FROM_CONFIGURATION;
+        hash = HASH_FROM_CONFIGURATION;
+        sampleThreshold = SAMPLE_THRESHOLD_FROM_CONFIGURATION;
+        sampleBlocks = SAMPLE_BLOCKS_FROM_CONFIGURATION;
+        sampleBlockSize = SAMPLE_BLOCK_SIZE_FROM_CONFIGURATION;
     }
 
     public SafeUsageChecker(Configurator configurator) {
         enabled = configurator.findBooleanEntry(ENABLED_KEY, ENABLED_FROM_CONFIGURATION);
+        hash = hashOf(configurator, HASH_FROM_CONFIGURATION);
+        sampleThreshold = configurator.findLongEntry(SAMPLE_THRESHOLD_KEY, SAMPLE_THRESHOLD_FROM_CONFIGURATION);
+        sampleBlocks = configurator.findIntEntry(SAMPLE_BLOCKS_KEY, SAMPLE_BLOCKS_FROM_CONFIGURATION);
+        sampleBlockSize = configurator.findIntEntry(SAMPLE_BLOCK_SIZE_KEY, SAMPLE_BLOCK_SIZE_FROM_CONFIGURATION);
+    }
+
+    private static Hash hashOf(final Configurator configurator, final Hash defaultHash) {
+        final String name = configurator.findStringEntry(HASH_KEY, defaultHash.name());
+        try {
+            return Hash.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown {} value {}, using {}", HASH_KEY, name, defaultHash);
+            return defaultHash;
+        }
     }
 
     /**
@@ -75,7 +144,7 @@ public class SafeUsageChecker {
      */
     public void recordSnapshot(final byte[] bytes) {
         if (enabled) {
-            cache.put(bytes, ByteUtil.sha256Bytes(bytes));
+            cache.put(bytes, snapshot(bytes));
         }
     }
 
@@ -97,11 +166,35 @@ public class SafeUsageChecker {
      */
     public void checkForUnsafeDataChanges() {
         if (enabled) {
-            boolean isUnsafe = cache.entrySet().stream().anyMatch(e -> !ByteUtil.sha256Bytes(e.getKey()).equals(e.getValue()));
+            boolean isUnsafe = cache.entrySet().stream().anyMatch(e -> !snapshot(e.getKey()).equals(e.getValue()));
             if (isUnsafe) {
                 LOGGER.warn(UNSAFE_MODIFICATION_DETECTED);
             }
             reset();
         }
     }
+
+    /**
+     * Compute the snapshot of an array using the configured hash
+     *
+     * @param bytes the array
+     * @return the snapshot value
+     */
+    String snapshot(final byte[] bytes) {
+        if (hash == Hash.SHA256) {
+            return ByteUtil.sha256Bytes(bytes);
+        }
+        if (sampleThreshold <= 0 || bytes.length <= sampleThreshold || sampleBlocks < 2 || sampleBlockSize < 1
+                || (long) sampleBlocks * sampleBlockSize >= bytes.length) {
+            return FAST_HASH.hashBytes(bytes).toString();
+        }
+        // Evenly spaced blocks, the first at the start and the last at the end of the array, along with the length
+        final List<HashCode> hashes = new ArrayList<>(sampleBlocks + 1);
+        hashes.add(HashCode.fromLong(bytes.length));
+        final long stride = (bytes.length - sampleBlockSize) / (sampleBlocks - 1L);
+        for (int i = 0; i < sampleBlocks; i++) {
+            hashes.add(FAST_HASH.hashBytes(bytes, (int) (i * stride), sampleBlockSize));
+        }
+        return Hashing.combineOrdered(hashes).toString();
+    }
 }
@@ -20,6 +20,8 @@ public class TimedResource implements AutoCloseable {
 
     @Nullable
     private final IMobileAgent agent;
+    @Nullable
+    private final Thread thread;
     private final int payloadCount;
     private final long allowedDuration;
     private final String placeName;
@@ -37,14 +39,30 @@ public class TimedResource implements AutoCloseable {
         started = -1;
         allowedDuration = -1;
         agent = null;
+        thread = null;
         payloadCount = -1;
         placeName = "NOOP";
         timerContext = null;
     }
 
     public TimedResource(final IMobileAgent agent, final IServiceProviderPlace place, final long allowedDuration, final Timer timer) {
+        this(agent, place, allowedDuration, timer, null);
+    }
+
+    /**
+     * Track a place running on a thread other than the agent's own, such as a pool thread the agent handed the place to
+     *
+     * @param agent the agent the place is running for
+     * @param place the place
+     * @param allowedDuration time allowed per payload of the agent
+     * @param timer timer for the place
+     * @param thread the thread interrupted when the time runs out, null for the agent's thread
+     */
+    public TimedResource(final IMobileAgent agent, final IServiceProviderPlace place, final long allowedDuration, final Timer timer,
+            @Nullable final Thread thread) {
         this.started = System.currentTimeMillis();
         this.agent = agent;
+        this.thread = thread;
         this.payloadCount = agent.payloadCount();
         this.placeName = place.getPlaceName();
         this.timerContext = timer.time();
@@ -70,7 +88,11 @@ public class TimedResource implements AutoCloseable {
         try {
             if (!isClosed) {
                 LOG.debug("Found agent that needs interrupting {} in place {}", agent.getName(), placeName);
-                agent.interrupt();
+                if (thread == null) {
+                    agent.interrupt();
+                } else {
+                    thread.interrupt();
+                }
             }
         } catch (RuntimeException e) {
             LOG.error("Unable to interrupt agent {}: {}", agent.getName(), e.getMessage(), e);
@@ -11,8 +11,10 @@ import java.io.Serializable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static emissary.place.IServiceProviderPlace.SPROUT_KEY;
@@ -31,6 +33,21 @@ public class TransformHistory implements Serializable {
         this.history = new ArrayList<>(history.history);
     }
 
+    /**
+     * Get the history a child starts with when sprouted from a payload. The child gets its own copy of each visit, without
+     * the timing, so the time spent on the parent is not counted or reported again for the child.
+     *
+     * @param parent the history of the payload the child was sprouted from
+     * @return a new history
+     */
+    public static TransformHistory inheritedFrom(TransformHistory parent) {
+        TransformHistory inherited = new TransformHistory();
+        for (History h : parent.history) {
+            inherited.history.add(new History(h));
+        }
+        return inherited;
+    }
+
     /**
      * Replace history with the new history
      *
@@ -186,6 +203,35 @@ public class TransformHistory implements Serializable {
         return s.contains(IServiceProviderPlace.SPROUT_KEY);
     }
 
+    /**
+     * Get the total time spent in the places visited, for visits that were timed
+     *
+     * @return the total in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0L;
+        for (final History h : history) {
+            if (h.timing != null) {
+                total += h.timing.getDurationNanos();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Get the timed visits that took longest, slowest first
+     *
+     * @param count the most visits to return
+     * @return the slowest visits
+     */
+    public List<History> slowest(final int count) {
+        return history.stream()
+                .filter(h -> h.timing != null)
+                .sorted(Comparator.comparingLong((History h) -> h.timing.getDurationNanos()).reversed())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
     public int size() {
         return size(false);
     }
@@ -250,6 +296,8 @@ public class TransformHistory implements Serializable {
     public static class History {
         String key;
         List<String> coordinated = new ArrayList<>();
+        @Nullable
+        Timing timing;
 
         /**
          * Needed to support Kryo deserialization
@@ -260,6 +308,16 @@ public class TransformHistory implements Serializable {
             this.key = key;
         }
 
+        /**
+         * Copy the key and coordinated places of a visit, but not its timing
+         *
+         * @param other the visit to copy
+         */
+        History(History other) {
+            this.key = other.key;
+            this.coordinated.addAll(other.coordinated);
+        }
+
         public String getKey() {
             return getKey(false);
         }
@@ -281,6 +339,20 @@ public class TransformHistory implements Serializable {
             coordinated.add(key);
         }
 
+        /**
+         * Get what was measured during the visit
+         *
+         * @return the timing, null if the visit was not timed
+         */
+        @Nullable
+        public Timing getTiming() {
+            return timing;
+        }
+
+        public void setTiming(@Nullable Timing timing) {
+            this.timing = timing;
+        }
+
         protected static String stripUrl(String key) {
             return StringUtils.substringBefore(key, ".http");
         }
@@ -288,10 +360,64 @@ public class TransformHistory implements Serializable {
         @Override
         public String toString() {
             StringBuilder hist = new StringBuilder("        -> " + getKey());
+            if (timing != null) {
+                hist.append(" ").append(timing);
+            }
             for (String coord : coordinated) {
                 hist.append(System.lineSeparator()).append("           +--> ").append(coord);
             }
             return hist.toString();
         }
     }
+
+    /**
+     * What was measured while a payload was at a place
+     */
+    public static class Timing {
+        long durationNanos;
+        long bytesIn;
+        long bytesOut;
+        int children;
+
+        /**
+         * Needed to support Kryo deserialization
+         */
+        private Timing() {}
+
+        /**
+         * Record a visit
+         *
+         * @param durationNanos how long the place took
+         * @param bytesIn the data length before the visit
+         * @param bytesOut the data length after the visit
+         * @param children the number of children sprouted during the visit
+         */
+        public Timing(long durationNanos, long bytesIn, long bytesOut, int children) {
+            this.durationNanos = durationNanos;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.children = children;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public long getBytesIn() {
+            return bytesIn;
+        }
+
+        public long getBytesOut() {
+            return bytesOut;
+        }
+
+        public int getChildren() {
+            return children;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + TimeUnit.NANOSECONDS.toMicros(durationNanos) + " us, " + bytesIn + " -> " + bytesOut + " bytes, " + children + " children)";
+        }
+    }
 }
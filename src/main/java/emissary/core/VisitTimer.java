@@ -0,0 +1,54 @@
+package emissary.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures one visit to a place for the payloads an agent carried there. The time is taken for the whole visit, so
+ * payloads processed together share it, while the data length and children sprouted are taken for each payload. The
+ * result is put on the history entry that was last when the visit started, which is the place being visited, even when
+ * the place adds entries of its own.
+ */
+final class VisitTimer {
+
+    private final List<IBaseDataObject> payloads;
+    private final TransformHistory.History[] visits;
+    private final long[] bytesIn;
+    private final int[] children;
+    private final long start;
+
+    /**
+     * Start timing a visit
+     *
+     * @param payloads the payloads the place is given
+     */
+    VisitTimer(final List<IBaseDataObject> payloads) {
+        this.payloads = new ArrayList<>(payloads);
+        this.visits = new TransformHistory.History[this.payloads.size()];
+        this.bytesIn = new long[this.payloads.size()];
+        this.children = new int[this.payloads.size()];
+        for (int i = 0; i < this.payloads.size(); i++) {
+            final IBaseDataObject p = this.payloads.get(i);
+            visits[i] = p.getTransformHistory().lastVisit();
+            bytesIn[i] = p.dataLength();
+            children[i] = p.getNumChildren();
+        }
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Record the visit on each payload
+     */
+    void stop() {
+        final long elapsed = System.nanoTime() - start;
+        for (int i = 0; i < payloads.size(); i++) {
+            final IBaseDataObject p = payloads.get(i);
+            // The history entries are shared with any copy, so the timing lands on the payload itself. Children sprouted
+            // during the visit have their own entries and do not get it.
+            final TransformHistory.History visit = visits[i];
+            if (visit != null) {
+                visit.setTiming(new TransformHistory.Timing(elapsed, bytesIn[i], p.dataLength(), Math.max(0, p.getNumChildren() - children[i])));
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package emissary.core.channels;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Provide a read-only memory mapped implementation for streaming data to a consumer. The file is mapped once when the
+ * factory is created and every channel shares the mapping, so no data is copied onto the heap. The mapping stays valid
+ * after the file is renamed or deleted and is released when the factory is garbage collected.
+ */
+public final class MemoryMappedChannelFactory {
+
+    /**
+     * Largest file that can be mapped as a single region
+     */
+    public static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+    private MemoryMappedChannelFactory() {}
+
+    /**
+     * Create a new instance of the factory by mapping the entire file referenced by the path
+     *
+     * @param path containing a reference to the file
+     * @return a new instance
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static SeekableByteChannelFactory create(final Path path) throws IOException {
+        Validate.notNull(path, "Required: path not null");
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return create(fileChannel);
+        }
+    }
+
+    /**
+     * Create a new instance of the factory by mapping the entire contents of an open file channel. The channel can be
+     * closed once this method returns.
+     *
+     * @param fileChannel open for reading
+     * @return a new instance
+     * @throws IOException if the channel cannot be mapped
+     */
+    public static SeekableByteChannelFactory create(final FileChannel fileChannel) throws IOException {
+        Validate.notNull(fileChannel, "Required: fileChannel not null");
+        final long size = fileChannel.size();
+        Validate.isTrue(size <= MAX_MAPPED_SIZE, "Required: size <= " + MAX_MAPPED_SIZE);
+
+        return ImmutableChannelFactory.create(new MemoryMappedChannelFactoryImpl(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size)));
+    }
+
+    /**
+     * Create a new instance of the factory over the remaining bytes of a buffer that is already mapped, such as one record
+     * in a larger mapping. The content is shared, not copied, and keeps the whole mapping reachable.
+     *
+     * @param region the bytes from its position to its limit are the content
+     * @return a new instance
+     */
+    public static SeekableByteChannelFactory create(final ByteBuffer region) {
+        Validate.notNull(region, "Required: region not null");
+
+        return ImmutableChannelFactory.create(new MemoryMappedChannelFactoryImpl(region.slice().asReadOnlyBuffer()));
+    }
+
+    /**
+     * Private class to hide implementation details from callers
+     */
+    private static final class MemoryMappedChannelFactoryImpl implements SeekableByteChannelFactory {
+        /**
+         * The mapped region shared by all channels created from this factory.
+         */
+        private final ByteBuffer mapped;
+
+        private MemoryMappedChannelFactoryImpl(final ByteBuffer mapped) {
+            this.mapped = mapped;
+        }
+
+        @Override
+        public SeekableByteChannel create() {
+            return new MemoryMappedSeekableByteChannel(mapped.duplicate());
+        }
+    }
+
+    /**
+     * Channel over a private view of the shared mapped region.
+     */
+    private static final class MemoryMappedSeekableByteChannel extends AbstractSeekableByteChannel {
+        private final ByteBuffer view;
+
+        private MemoryMappedSeekableByteChannel(final ByteBuffer view) {
+            this.view = view;
+        }
+
+        @Override
+        protected void closeImpl() {
+            // Nothing to release, the mapping is shared with the factory
+        }
+
+        @Override
+        protected int readImpl(final ByteBuffer byteBuffer) throws IOException {
+            // AbstractSeekableByteChannel has already limited the buffer to the bytes remaining in the channel
+            final int length = byteBuffer.remaining();
+            final int start = (int) position();
+
+            view.limit(start + length).position(start);
+            byteBuffer.put(view);
+            return length;
+        }
+
+        @Override
+        protected long sizeImpl() {
+            return view.capacity();
+        }
+    }
+}
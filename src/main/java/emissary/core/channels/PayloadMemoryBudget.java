@@ -0,0 +1,128 @@
+package emissary.core.channels;
+
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-wide accounting of payload bytes held on the heap. Channel factories that can keep content either in memory or
+ * elsewhere reserve from this budget before buffering in memory and release when the content is no longer reachable.
+ * <p>
+ * The global budget is read once from PayloadMemoryBudget.cfg:
+ * <ul>
+ * <li>LIMIT_BYTES: size of the budget, takes precedence when set</li>
+ * <li>LIMIT_HEAP_PERCENT: size of the budget as a percentage of max heap, defaults to 25</li>
+ * </ul>
+ */
+public final class PayloadMemoryBudget {
+    private static final Logger logger = LoggerFactory.getLogger(PayloadMemoryBudget.class);
+
+    public static final String LIMIT_BYTES_KEY = "LIMIT_BYTES";
+    public static final String LIMIT_HEAP_PERCENT_KEY = "LIMIT_HEAP_PERCENT";
+    public static final double DEFAULT_HEAP_PERCENT = 25.0;
+
+    private static final PayloadMemoryBudget GLOBAL;
+
+    // to minimize I/O, we only want to read the config file once
+    static {
+        long limit = -1L;
+        double heapPercent = DEFAULT_HEAP_PERCENT;
+
+        try {
+            Configurator configurator = ConfigUtil.getConfigInfo(PayloadMemoryBudget.class);
+
+            limit = configurator.findSizeEntry(LIMIT_BYTES_KEY, limit);
+            heapPercent = configurator.findDoubleEntry(LIMIT_HEAP_PERCENT_KEY, heapPercent);
+        } catch (IOException e) {
+            logger.debug("Could not get configuration!", e);
+        }
+
+        if (limit < 0) {
+            limit = (long) (Runtime.getRuntime().maxMemory() * (heapPercent / 100.0));
+        }
+        GLOBAL = new PayloadMemoryBudget(limit);
+    }
+
+    private final long limit;
+    private final AtomicLong used = new AtomicLong();
+
+    /**
+     * Create a budget with the given limit
+     *
+     * @param limit the most bytes that can be reserved at once (limit &gt;= 0)
+     */
+    public PayloadMemoryBudget(final long limit) {
+        Validate.isTrue(limit >= 0, "Required: limit >= 0");
+        this.limit = limit;
+    }
+
+    /**
+     * Get the node-wide budget
+     *
+     * @return the global budget
+     */
+    public static PayloadMemoryBudget global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Reserve bytes if doing so does not exceed the limit
+     *
+     * @param bytes to reserve (bytes &gt;= 0)
+     * @return true if the bytes were reserved and must later be released
+     */
+    public boolean tryReserve(final long bytes) {
+        Validate.isTrue(bytes >= 0, "Required: bytes >= 0");
+        long current;
+        do {
+            current = used.get();
+            if (current + bytes > limit) {
+                return false;
+            }
+        } while (!used.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    /**
+     * Return previously reserved bytes to the budget
+     *
+     * @param bytes to release (bytes &gt;= 0)
+     */
+    public void release(final long bytes) {
+        Validate.isTrue(bytes >= 0, "Required: bytes >= 0");
+        used.addAndGet(-bytes);
+    }
+
+    /**
+     * Get the limit of this budget
+     *
+     * @return the most bytes that can be reserved at once
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the bytes currently reserved
+     *
+     * @return reserved bytes
+     */
+    public long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * Get the bytes that can still be reserved
+     *
+     * @return unreserved bytes
+     */
+    public long getAvailable() {
+        return Math.max(0, limit - used.get());
+    }
+}
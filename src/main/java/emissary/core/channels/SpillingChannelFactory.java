@@ -0,0 +1,323 @@
+package emissary.core.channels;
+
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Provide an implementation that keeps content in memory up to a per-object threshold and spills the remainder to a
+ * temporary file. Memory is only used while the node-wide {@link PayloadMemoryBudget} allows it, so once the budget is
+ * exhausted new content goes straight to disk. The memory reservation is released and the temporary file deleted when
+ * the factory and every channel created from it are no longer reachable.
+ * <p>
+ * Defaults are read once from SpillingChannelFactory.cfg:
+ * <ul>
+ * <li>MEMORY_THRESHOLD: most bytes of a single object kept in memory, defaults to 1MB</li>
+ * <li>SPILL_DIRECTORY: where spill files are created, defaults to the system temporary directory</li>
+ * </ul>
+ */
+public final class SpillingChannelFactory {
+    private static final Logger logger = LoggerFactory.getLogger(SpillingChannelFactory.class);
+
+    public static final String MEMORY_THRESHOLD_KEY = "MEMORY_THRESHOLD";
+    public static final String SPILL_DIRECTORY_KEY = "SPILL_DIRECTORY";
+    public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final String SPILL_PREFIX = "spill";
+    private static final String SPILL_SUFFIX = ".bin";
+
+    private static final int MEMORY_THRESHOLD;
+    @Nullable
+    private static final Path SPILL_DIRECTORY;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    // to minimize I/O, we only want to read the config file once
+    static {
+        long memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+        String spillDirectory = null;
+
+        try {
+            Configurator configurator = ConfigUtil.getConfigInfo(SpillingChannelFactory.class);
+
+            memoryThreshold = configurator.findSizeEntry(MEMORY_THRESHOLD_KEY, memoryThreshold);
+            spillDirectory = configurator.findStringEntry(SPILL_DIRECTORY_KEY, null);
+        } catch (IOException e) {
+            logger.debug("Could not get configuration!", e);
+        }
+
+        MEMORY_THRESHOLD = (int) Math.max(0, Math.min(memoryThreshold, Integer.MAX_VALUE - 8));
+        SPILL_DIRECTORY = spillDirectory == null ? null : Path.of(spillDirectory);
+    }
+
+    private SpillingChannelFactory() {}
+
+    /**
+     * Create a new instance of the factory from the remaining content of a stream. The stream is not closed.
+     *
+     * @param inputStream containing the content
+     * @return a new instance
+     * @throws IOException if the stream cannot be read or the spill file cannot be written
+     */
+    public static SeekableByteChannelFactory create(final InputStream inputStream) throws IOException {
+        Validate.notNull(inputStream, "Required: inputStream not null");
+
+        final Writer writer = newWriter();
+        try {
+            IOUtils.copy(inputStream, writer);
+        } finally {
+            writer.close();
+        }
+        return writer.toChannelFactory();
+    }
+
+    /**
+     * Create a writer using the configured threshold, spill directory and the global budget
+     *
+     * @return a new writer
+     */
+    public static Writer newWriter() {
+        return newWriter(MEMORY_THRESHOLD, PayloadMemoryBudget.global(), SPILL_DIRECTORY);
+    }
+
+    /**
+     * Create a writer with specific settings
+     *
+     * @param memoryThreshold most bytes of this object kept in memory (memoryThreshold &gt;= 0)
+     * @param budget memory is reserved from
+     * @param spillDirectory where the spill file is created or null for the system temporary directory
+     * @return a new writer
+     */
+    public static Writer newWriter(final int memoryThreshold, final PayloadMemoryBudget budget, @Nullable final Path spillDirectory) {
+        Validate.isTrue(memoryThreshold >= 0, "Required: memoryThreshold >= 0");
+        Validate.notNull(budget, "Required: budget not null");
+
+        return new Writer(memoryThreshold, budget, spillDirectory);
+    }
+
+    /**
+     * Content shared by the writer, the factory and its channels. Cleaned once none of them is reachable.
+     */
+    private static final class Content implements Runnable {
+        private final PayloadMemoryBudget budget;
+        private byte[] memory = new byte[0];
+        private int memorySize = 0;
+        private long reserved = 0;
+        @Nullable
+        private Path spillPath = null;
+        private long spillSize = 0;
+
+        private Content(final PayloadMemoryBudget budget) {
+            this.budget = budget;
+        }
+
+        private long size() {
+            return memorySize + spillSize;
+        }
+
+        @Override
+        public void run() {
+            budget.release(reserved);
+            reserved = 0;
+            if (spillPath != null) {
+                try {
+                    Files.deleteIfExists(spillPath);
+                } catch (IOException e) {
+                    logger.warn("Could not delete spill file {}", spillPath, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects content, in memory first and then in the spill file. Closing the writer makes the factory available.
+     */
+    public static final class Writer extends OutputStream {
+        private final Object anchor = new Object();
+        private final Content content;
+        private final int memoryThreshold;
+        @Nullable
+        private final Path spillDirectory;
+        @Nullable
+        private OutputStream spill = null;
+        @Nullable
+        private SeekableByteChannelFactory result = null;
+
+        private Writer(final int memoryThreshold, final PayloadMemoryBudget budget, @Nullable final Path spillDirectory) {
+            this.content = new Content(budget);
+            this.memoryThreshold = memoryThreshold;
+            this.spillDirectory = spillDirectory;
+            CLEANER.register(anchor, content);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            Validate.isTrue(result == null, "Required: writer not closed");
+            Validate.isTrue(off >= 0 && len >= 0 && off + len <= b.length, "Required: valid range");
+
+            int offset = off;
+            int length = len;
+            if (spill == null) {
+                final int toMemory = Math.min(length, growMemory(content.memorySize + length) - content.memorySize);
+                System.arraycopy(b, offset, content.memory, content.memorySize, toMemory);
+                content.memorySize += toMemory;
+                offset += toMemory;
+                length -= toMemory;
+            }
+
+            if (length > 0) {
+                if (spill == null) {
+                    content.spillPath = spillDirectory == null ? Files.createTempFile(SPILL_PREFIX, SPILL_SUFFIX)
+                            : Files.createTempFile(spillDirectory, SPILL_PREFIX, SPILL_SUFFIX);
+                    spill = new BufferedOutputStream(Files.newOutputStream(content.spillPath));
+                    logger.debug("Spilling content beyond {} bytes to {}", content.memorySize, content.spillPath);
+                }
+                spill.write(b, offset, length);
+                content.spillSize += length;
+            }
+        }
+
+        /**
+         * Grow the memory buffer towards the required size within the threshold and the budget
+         *
+         * @param required total bytes wanted in memory
+         * @return the memory capacity after growing
+         */
+        private int growMemory(final long required) {
+            final int capacity = content.memory.length;
+            if (required <= capacity || capacity >= memoryThreshold) {
+                return capacity;
+            }
+
+            final int target = (int) Math.min(memoryThreshold, Math.max(required, Math.max(INITIAL_BUFFER_SIZE, 2L * capacity)));
+            if (content.budget.tryReserve(target - capacity)) {
+                content.reserved += target - capacity;
+                content.memory = Arrays.copyOf(content.memory, target);
+            }
+            return content.memory.length;
+        }
+
+        /**
+         * Get the bytes written so far
+         *
+         * @return total size of the content
+         */
+        public long size() {
+            return content.size();
+        }
+
+        /**
+         * Finish writing. Further writes are not allowed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (result == null) {
+                if (spill != null) {
+                    spill.close();
+                }
+                result = new SpillingChannelFactoryImpl(anchor, content);
+            }
+        }
+
+        /**
+         * Get the factory over the written content
+         *
+         * @return the factory, only available once the writer is closed
+         */
+        public SeekableByteChannelFactory toChannelFactory() {
+            Validate.isTrue(result != null, "Required: writer closed");
+            return result;
+        }
+    }
+
+    /**
+     * Private class to hide implementation details from callers
+     */
+    private static final class SpillingChannelFactoryImpl implements SeekableByteChannelFactory {
+        /**
+         * Keeps the content from being cleaned while this factory is reachable.
+         */
+        @SuppressWarnings("unused")
+        private final Object anchor;
+        private final Content content;
+
+        private SpillingChannelFactoryImpl(final Object anchor, final Content content) {
+            this.anchor = anchor;
+            this.content = content;
+        }
+
+        @Override
+        public SeekableByteChannel create() {
+            return new SpillingSeekableByteChannel(this);
+        }
+    }
+
+    /**
+     * Channel over the memory content followed by the spilled content.
+     */
+    private static final class SpillingSeekableByteChannel extends AbstractSeekableByteChannel {
+        /**
+         * Keeps the content from being cleaned while this channel is reachable.
+         */
+        private final SpillingChannelFactoryImpl owner;
+        @Nullable
+        private FileChannel spillChannel = null;
+
+        private SpillingSeekableByteChannel(final SpillingChannelFactoryImpl owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        protected void closeImpl() throws IOException {
+            if (spillChannel != null) {
+                spillChannel.close();
+            }
+        }
+
+        @Override
+        protected int readImpl(final ByteBuffer byteBuffer) throws IOException {
+            final Content content = owner.content;
+            final long start = position();
+
+            if (start < content.memorySize) {
+                final int length = (int) Math.min(byteBuffer.remaining(), content.memorySize - start);
+                byteBuffer.put(content.memory, (int) start, length);
+                return length;
+            }
+
+            if (spillChannel == null) {
+                spillChannel = FileChannel.open(content.spillPath, StandardOpenOption.READ);
+            }
+            return spillChannel.read(byteBuffer, start - content.memorySize);
+        }
+
+        @Override
+        protected long sizeImpl() {
+            return owner.content.size();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package emissary.directory;
+
+import jakarta.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The changes to a directory's entries between two sequences of its {@link VersionedDirectoryEntryMap}, or the whole
+ * content of the map when the changes are not known. Zone transfers use this instead of the xml document built by
+ * {@link DirectoryXmlContainer} so a peer only receives what changed since its last transfer.
+ * <p>
+ * The binary form is compact: each key is split into its data type, service name and type, and its service location.
+ * Keys are sorted by location and both parts are stored as the length of the prefix shared with the same part of the
+ * previous key plus the remaining characters, since most keys on a directory share the same host and port, and numbers
+ * are variable length.
+ */
+public class DirectoryEntryDelta {
+
+    private static final int MAGIC = 0xED1D;
+    private static final int FORMAT_VERSION = 1;
+
+    // Keys at the same location are kept together so they share as much as possible
+    private static final Comparator<String> KEY_ORDER = Comparator.comparing((String key) -> key.substring(locationStart(key)))
+            .thenComparing(Comparator.naturalOrder());
+
+    private final long epoch;
+    private final long fromSequence;
+    private final long toSequence;
+    private final boolean full;
+    private final List<DirectoryEntry> entries;
+    private final List<String> removedKeys;
+
+    /**
+     * Create a delta
+     *
+     * @param epoch epoch of the map the changes come from
+     * @param fromSequence changes after this sequence are included, -1 when full
+     * @param toSequence sequence of the latest included change
+     * @param full true if the entries are the whole map rather than changes
+     * @param entries entries added or changed
+     * @param removedKeys keys of entries removed
+     */
+    public DirectoryEntryDelta(final long epoch, final long fromSequence, final long toSequence, final boolean full,
+            final List<DirectoryEntry> entries, final List<String> removedKeys) {
+        this.epoch = epoch;
+        this.fromSequence = fromSequence;
+        this.toSequence = toSequence;
+        this.full = full;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.removedKeys = Collections.unmodifiableList(new ArrayList<>(removedKeys));
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getFromSequence() {
+        return fromSequence;
+    }
+
+    public long getToSequence() {
+        return toSequence;
+    }
+
+    /**
+     * Report whether this is the whole map
+     *
+     * @return true if the entries replace everything known from the source, false if they are changes
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    public List<DirectoryEntry> getEntries() {
+        return entries;
+    }
+
+    public List<String> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    /**
+     * Report whether nothing changed
+     *
+     * @return true if there are no entries and no removals
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty() && removedKeys.isEmpty();
+    }
+
+    /**
+     * Build a map of the added or changed entries
+     *
+     * @return new map holding the entries
+     */
+    public DirectoryEntryMap toEntryMap() {
+        final DirectoryEntryMap map = new DirectoryEntryMap();
+        map.addEntries(entries);
+        return map;
+    }
+
+    /**
+     * Encode into the binary form
+     *
+     * @return the encoded bytes
+     */
+    public byte[] toBytes() {
+        final List<DirectoryEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(DirectoryEntry::getKey, KEY_ORDER));
+        final List<String> sortedRemoved = new ArrayList<>(removedKeys);
+        sortedRemoved.sort(KEY_ORDER);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 32 * (sorted.size() + sortedRemoved.size()));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(epoch);
+            out.writeLong(fromSequence);
+            out.writeLong(toSequence);
+            out.writeBoolean(full);
+
+            writeVarInt(out, sorted.size());
+            String previous = "";
+            for (final DirectoryEntry e : sorted) {
+                writeKey(out, previous, e.getKey());
+                previous = e.getKey();
+                writeVarInt(out, zigZag(e.getCost()));
+                writeVarInt(out, zigZag(e.getQuality()));
+                writeString(out, e.getDescription());
+            }
+
+            writeVarInt(out, sortedRemoved.size());
+            previous = "";
+            for (final String key : sortedRemoved) {
+                writeKey(out, previous, key);
+                previous = key;
+            }
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode from the binary form
+     *
+     * @param data the encoded bytes
+     * @return the delta
+     * @throws IOException if the data is not a valid encoding
+     */
+    public static DirectoryEntryDelta fromBytes(final byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readUnsignedShort() != MAGIC) {
+                throw new IOException("Not a directory entry delta");
+            }
+            final int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported directory entry delta version " + version);
+            }
+            final long epoch = in.readLong();
+            final long fromSequence = in.readLong();
+            final long toSequence = in.readLong();
+            final boolean full = in.readBoolean();
+
+            final int entryCount = readCount(in, data.length);
+            final List<DirectoryEntry> entries = new ArrayList<>(entryCount);
+            String previous = "";
+            for (int i = 0; i < entryCount; i++) {
+                final String key = readKey(in, previous);
+                previous = key;
+                final int cost = unZigZag(readVarInt(in));
+                final int quality = unZigZag(readVarInt(in));
+                final String description = readString(in);
+                entries.add(new DirectoryEntry(key, description, cost, quality));
+            }
+
+            final int removedCount = readCount(in, data.length);
+            final List<String> removed = new ArrayList<>(removedCount);
+            previous = "";
+            for (int i = 0; i < removedCount; i++) {
+                final String key = readKey(in, previous);
+                previous = key;
+                removed.add(key);
+            }
+            return new DirectoryEntryDelta(epoch, fromSequence, toSequence, full, entries, removed);
+        }
+    }
+
+    private static void writeKey(final DataOutputStream out, final String previous, final String key) throws IOException {
+        final int split = locationStart(key);
+        final int previousSplit = locationStart(previous);
+        writeShared(out, previous.substring(0, previousSplit), key.substring(0, split));
+        writeShared(out, previous.substring(previousSplit), key.substring(split));
+    }
+
+    private static String readKey(final DataInputStream in, final String previous) throws IOException {
+        final int previousSplit = locationStart(previous);
+        final String front = readShared(in, previous.substring(0, previousSplit));
+        final String location = readShared(in, previous.substring(previousSplit));
+        return front + location;
+    }
+
+    private static void writeShared(final DataOutputStream out, final String previous, final String s) throws IOException {
+        int shared = 0;
+        final int max = Math.min(previous.length(), s.length());
+        while (shared < max && previous.charAt(shared) == s.charAt(shared)) {
+            shared++;
+        }
+        writeVarInt(out, shared);
+        writeString(out, s.substring(shared));
+    }
+
+    private static String readShared(final DataInputStream in, final String previous) throws IOException {
+        final int shared = readVarInt(in);
+        if (shared < 0 || shared > previous.length()) {
+            throw new IOException("Bad shared key prefix length " + shared);
+        }
+        final String rest = readString(in);
+        if (rest == null) {
+            throw new IOException("Missing key");
+        }
+        return previous.substring(0, shared) + rest;
+    }
+
+    /**
+     * Find where the service location starts, after the data type, service name and service type
+     *
+     * @param key the key
+     * @return the index of the location, the length of the key if it has no location
+     */
+    private static int locationStart(final String key) {
+        int pos = -1;
+        for (int i = 0; i < 3; i++) {
+            pos = key.indexOf('.', pos + 1);
+            if (pos < 0) {
+                return key.length();
+            }
+        }
+        return pos + 1;
+    }
+
+    // Length plus one, zero for null
+    private static void writeString(final DataOutputStream out, @Nullable final String s) throws IOException {
+        if (s == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, b.length + 1);
+        out.write(b);
+    }
+
+    @Nullable
+    private static String readString(final DataInputStream in) throws IOException {
+        final int len = readVarInt(in);
+        if (len == 0) {
+            return null;
+        }
+        if (len < 0 || len - 1 > in.available()) {
+            throw new IOException("Bad string length " + (len - 1));
+        }
+        final byte[] b = new byte[len - 1];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(final DataInputStream in, final int limit) throws IOException {
+        final int count = readVarInt(in);
+        // Every item takes at least one byte
+        if (count < 0 || count > limit) {
+            throw new IOException("Bad count " + count);
+        }
+        return count;
+    }
+
+    private static void writeVarInt(final DataOutputStream out, final int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+
+    private static int zigZag(final int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static int unZigZag(final int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    @Override
+    public String toString() {
+        return (full ? "Full" : "Delta") + " of epoch " + epoch + " from " + fromSequence + " to " + toSequence + " with " + entries.size()
+                + " entries and " + removedKeys.size() + " removals";
+    }
+}
@@ -18,8 +18,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
@@ -47,7 +49,16 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
      * Map of DirectoryEntryList objects by data id. This map contains the actual advertisements seen by this directory and
      * available for MobilAgent/Place use via nextKeys
      */
-    protected DirectoryEntryMap entryMap = new DirectoryEntryMap();
+    protected VersionedDirectoryEntryMap entryMap = new VersionedDirectoryEntryMap();
+
+    /** True if zone transfers with peers ask for changes since the last transfer rather than the whole map */
+    protected boolean deltaZoneTransfer = true;
+
+    /** Epoch and sequence of each peer's map as of the last zone transfer, keyed by peer directory key */
+    protected Map<String, ZoneSequence> peerZoneSequences = new ConcurrentHashMap<>();
+
+    /** Peers that do not support delta zone transfers */
+    protected Set<String> fullZoneTransferPeers = ConcurrentHashMap.newKeySet();
 
     /** Peer directories to this one */
     protected Set<DirectoryEntry> peerDirectories = new CopyOnWriteArraySet<>();
@@ -149,9 +160,18 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
      * <li>HEARTBEAT_INTERVAL_SECONDS, default is 30</li>
      * <li>HEARTBEAT_FAILURE_THRESHOLD, set transient failure count, default owned by HeartbeatManager</li>
      * <li>HEARTBEAT_PERMANENT_FAILURE_THRESHOLD, set permanent failure count, default owned by HeartbeatManager</li>
+     * <li>HEARTBEAT_DEADLINE_MILLIS, most time to wait for a heartbeat answer, default owned by HeartbeatManager</li>
+     * <li>HEARTBEAT_THREADS, number of heartbeats sent at once, default owned by HeartbeatManager</li>
+     * <li>HEARTBEAT_JITTER, fraction of the interval heartbeat rounds are randomly moved by, default owned by
+     * HeartbeatManager</li>
+     * <li>DELTA_ZONE_TRANSFER, ask peers for changes since the last zone transfer, default is true</li>
+     * <li>DELTA_ZONE_TOMBSTONES, removed entries remembered for delta zone transfers, default is 10000</li>
      * </ul>
      */
     private void setupDirectory() {
+        this.deltaZoneTransfer = configG.findBooleanEntry("DELTA_ZONE_TRANSFER", this.deltaZoneTransfer);
+        this.entryMap.setTombstoneLimit(configG.findIntEntry("DELTA_ZONE_TOMBSTONES", VersionedDirectoryEntryMap.DEFAULT_TOMBSTONE_LIMIT));
+
         if (this.emissaryNode.isValid() && !this.emissaryNode.isStandalone()) {
             // Start a heart beat manager with initial and interval seconds
             final int initialSeconds = configG.findIntEntry("HEARTBEAT_DELAY_SECONDS", 30);
@@ -168,6 +188,18 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
             if (heartbeatPermanentFailure > 0) {
                 this.heartbeat.setPermanentFailThreshold(heartbeatPermanentFailure);
             }
+
+            final long heartbeatDeadline = configG.findLongEntry("HEARTBEAT_DEADLINE_MILLIS", -1L);
+            if (heartbeatDeadline > 0) {
+                this.heartbeat.setDeadlineMillis(heartbeatDeadline);
+            }
+
+            final int heartbeatThreads = configG.findIntEntry("HEARTBEAT_THREADS", -1);
+            if (heartbeatThreads > 0) {
+                this.heartbeat.setThreads(heartbeatThreads);
+            }
+
+            this.heartbeat.setJitter(configG.findDoubleEntry("HEARTBEAT_JITTER", HeartbeatManager.DEFAULT_JITTER));
         }
 
         // Set up deferred stuff from ServiceProviderPlace
@@ -410,12 +442,35 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
         // there are stale entries and what they might be.
 
         final long startZone = System.currentTimeMillis();
+        final String peerKey = KeyManipulator.getDefaultDirectoryKey(key);
         DirectoryEntryMap map = null;
         try {
             // Also registers as a peer with them
             // TODO should we need to get the current EmissaryClient to ensure parameters are set correctly
             final DirectoryAdapter da = new DirectoryAdapter();
-            map = da.outboundRegisterPeer(key, myKey);
+            DirectoryEntryDelta delta = null;
+            if (this.deltaZoneTransfer && !this.fullZoneTransferPeers.contains(peerKey)) {
+                final ZoneSequence last = this.peerZoneSequences.getOrDefault(peerKey, ZoneSequence.NONE);
+                delta = da.outboundRegisterPeerDelta(key, myKey, last.epoch, last.sequence);
+                if (delta == null) {
+                    logger.info("Peer {} does not support delta zone transfer, using full transfers", peerKey);
+                    this.fullZoneTransferPeers.add(peerKey);
+                }
+            }
+
+            if (delta != null && !delta.isFull()) {
+                map = loadRemoteDelta(key, delta, loadMap);
+                this.peerZoneSequences.put(peerKey, new ZoneSequence(delta.getEpoch(), delta.getToSequence()));
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Retrieved {} in zone transfer from {} in {} millis", delta, key, System.currentTimeMillis() - startZone);
+                }
+                return map;
+            }
+
+            map = delta != null ? delta.toEntryMap() : da.outboundRegisterPeer(key, myKey);
+            if (delta != null) {
+                this.peerZoneSequences.put(peerKey, new ZoneSequence(delta.getEpoch(), delta.getToSequence()));
+            }
 
             if (logger.isDebugEnabled()) {
                 logger.debug("Retrieved {} entries in zone transfer from {} in {} millis", map.entryCount(), key,
@@ -447,12 +502,62 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
                 logger.info("Unable to zone transfer with {}", key);
             }
             // Failure condition. Trigger state change in heartbeat manager
+            // and start over with a full transfer next time
+            this.peerZoneSequences.remove(peerKey);
             this.heartbeat.setHealthStatus(key, HeartbeatManager.NO_CONTACT, "Remote directory failed zone transfer");
         }
 
         return map;
     }
 
+    /**
+     * Apply the changes from a peer since the last zone transfer to the specified map. Removals are only applied to
+     * entries on the peer itself, entries on other directories are looked after by their own heartbeats.
+     *
+     * @param key key of the remote directory the changes came from
+     * @param delta the changes
+     * @param loadMap the map to load into or null for no load. Observers are notified if loadMap is not null
+     * @return the new and changed entries
+     */
+    private DirectoryEntryMap loadRemoteDelta(final String key, final DirectoryEntryDelta delta, @Nullable final DirectoryEntryMap loadMap) {
+        final DirectoryEntryMap map = delta.toEntryMap();
+        if (loadMap == null) {
+            logger.debug("Skipping load of {} from {} returning entries to caller", delta, key);
+            return map;
+        }
+
+        final String hostMatchKey = KeyManipulator.getHostMatchKey(key);
+        final List<DirectoryEntry> removed = new ArrayList<>();
+        for (final String removedKey : delta.getRemovedKeys()) {
+            if (!isLocal(removedKey) && KeyManipulator.gmatch(removedKey, hostMatchKey)) {
+                final DirectoryEntry d = loadMap.removeEntry(removedKey);
+                if (d != null) {
+                    removed.add(d);
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            logger.debug("Notifying observers of {} entries removed by {}", removed.size(), key);
+            this.observerManager.placeRemoveEntries(removed);
+        }
+
+        if (!map.isEmpty()) {
+            cleanLoadNotifyEntries(map, loadMap, myKey, REMOTE_COST_OVERHEAD);
+        }
+        return map;
+    }
+
+    /**
+     * Get the changes to the local entries a peer has not seen yet
+     *
+     * @param epoch the epoch the peer saw in its last transfer
+     * @param sequence the sequence the peer saw in its last transfer, negative if none
+     * @return the changes, or every entry if the changes since the sequence are not known
+     */
+    public DirectoryEntryDelta getEntryDelta(final long epoch, final long sequence) {
+        return this.entryMap.changesSince(epoch, sequence);
+    }
+
     /**
      * Remove stale entries from the specified map and notify any observers Nothing older than checkpoint time can be
      * considered stale and nothing that is on the incming newEntries list can be considered stale since we would just be
@@ -768,6 +873,9 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
 
         // Handle permanent removal of remote directory
         if (permanent) {
+            // Entries are gone so the next zone transfer has to be full
+            this.peerZoneSequences.remove(dirKey);
+
             // Notify my heartbeat manager so that a normal deregistration
             // followed by a restart will trigger a state transition even
             // if under the timer check time
@@ -1425,4 +1533,19 @@ public class DirectoryPlace extends ServiceProviderPlace implements IRemoteDirec
     public boolean isShutdownInitiated() {
         return this.shutdownInitiated;
     }
+
+    /**
+     * Epoch and sequence of a peer's entry map seen in a zone transfer
+     */
+    protected static final class ZoneSequence {
+        static final ZoneSequence NONE = new ZoneSequence(0L, -1L);
+
+        final long epoch;
+        final long sequence;
+
+        ZoneSequence(final long epoch, final long sequence) {
+            this.epoch = epoch;
+            this.sequence = sequence;
+        }
+    }
 }
@@ -2,10 +2,13 @@ package emissary.directory;
 
 import emissary.client.EmissaryClient;
 import emissary.client.EmissaryResponse;
+import emissary.core.MetricsManager;
 import emissary.core.Namespace;
 import emissary.core.NamespaceException;
 import emissary.server.mvc.adapters.HeartbeatAdapter;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import jakarta.annotation.Nullable;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
@@ -18,12 +21,30 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Facility for directory instances to check up on each other by sending a heartbeat message
+ * <p>
+ * Each round sends a heartbeat to every remote directory at once from a pool of worker threads, so one peer that does
+ * not answer cannot delay failure detection for the others. A heartbeat that has not been answered by the deadline counts
+ * as a failure, and a peer whose previous heartbeat is still outstanding is skipped for the round. Rounds are spaced by
+ * the interval plus or minus a random jitter so a cluster started together does not heartbeat in lock step.
+ * <p>
+ * The round trip time of every answered heartbeat and the time taken by every failed one are recorded in per peer
+ * histograms in the {@link MetricsManager} registry when one is running.
  */
 public class HeartbeatManager {
     // Our logger
@@ -35,9 +56,11 @@ public class HeartbeatManager {
     public static final String BAD_RESPOSNE = "Bad request -> status: 500";
 
 
-    /** The timer drives the tasks and scheduling of heartbeat pings */
-    @Nullable
-    protected Timer timer = null;
+    /** Drives the scheduling of heartbeat rounds */
+    protected ScheduledExecutorService scheduler;
+
+    /** Sends the heartbeats of a round concurrently */
+    protected ThreadPoolExecutor workers;
 
     /** Directory this instance acts on behalf of */
     protected String thisDirectory;
@@ -58,6 +81,25 @@ public class HeartbeatManager {
      */
     protected int intervalSeconds = DEFAULT_INTERVAL_SECONDS;
 
+    /** Default most time to wait for an answer to a heartbeat {@value} */
+    public static final long DEFAULT_DEADLINE_MILLIS = 10000L;
+
+    /**
+     * Configured most time to wait for an answer in millis, default is {@value #DEFAULT_DEADLINE_MILLIS}
+     */
+    protected long deadlineMillis = DEFAULT_DEADLINE_MILLIS;
+
+    /** Default number of heartbeats sent at once {@value} */
+    public static final int DEFAULT_THREADS = 16;
+
+    /** Default fraction of the interval that rounds are randomly moved by {@value} */
+    public static final double DEFAULT_JITTER = 0.1;
+
+    /**
+     * Configured fraction of the interval that rounds are randomly moved by, default is {@value #DEFAULT_JITTER}
+     */
+    protected double jitter = DEFAULT_JITTER;
+
     /** Number of consecutive failures to trigger notice */
     protected int failThreshold = 3;
 
@@ -73,6 +115,12 @@ public class HeartbeatManager {
     /** The remote directories we are checking on and their health */
     protected Map<String, Health> directories = new ConcurrentHashMap<>(100, 0.8f, 3);
 
+    /** Registry the histograms are kept in until the MetricsManager is available */
+    private final MetricRegistry localMetrics = new MetricRegistry();
+
+    @Nullable
+    private MetricRegistry metrics = null;
+
     /**
      * Setup to manage heartbeats to remote directories
      *
@@ -106,8 +154,19 @@ public class HeartbeatManager {
 
         logger.debug("Starting with initialDelay={}, interval={}", initialDelaySeconds, intervalSeconds);
 
-        // new daemon timer
-        this.timer = new Timer("HeartbeatManager", true);
+        // daemon scheduler and worker threads
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "HeartbeatManager");
+            t.setDaemon(true);
+            return t;
+        });
+        final AtomicInteger workerCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            final Thread t = new Thread(r, "HeartbeatManager-" + workerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
 
         // Save directory key
         this.thisDirectory = directoryKey;
@@ -120,8 +179,55 @@ public class HeartbeatManager {
             }
         }
 
-        // "smooth" execution every 30 seconds starting in 2 minutes
-        this.timer.schedule(new HeartbeatTask(), this.initialDelaySeconds * 1000L, this.intervalSeconds * 1000L);
+        scheduleRound(this.initialDelaySeconds * 1000L);
+    }
+
+    /**
+     * Set the most time to wait for an answer to a heartbeat
+     *
+     * @param millis the deadline in millis, must be positive
+     */
+    public void setDeadlineMillis(final long millis) {
+        if (millis > 0) {
+            this.deadlineMillis = millis;
+            logger.debug("Set new heartbeat deadline to {}ms", millis);
+        } else {
+            logger.warn("Ignoring heartbeat deadline of {}ms", millis);
+        }
+    }
+
+    public long getDeadlineMillis() {
+        return this.deadlineMillis;
+    }
+
+    /**
+     * Set the number of heartbeats sent at once
+     *
+     * @param threads the number of worker threads, must be positive
+     */
+    public void setThreads(final int threads) {
+        if (threads <= 0) {
+            logger.warn("Ignoring heartbeat thread count of {}", threads);
+            return;
+        }
+        if (threads > this.workers.getMaximumPoolSize()) {
+            this.workers.setMaximumPoolSize(threads);
+            this.workers.setCorePoolSize(threads);
+        } else {
+            this.workers.setCorePoolSize(threads);
+            this.workers.setMaximumPoolSize(threads);
+        }
+        logger.debug("Set heartbeat threads to {}", threads);
+    }
+
+    /**
+     * Set the random spread of the rounds
+     *
+     * @param jitter fraction of the interval each round is moved earlier or later by at most, from 0 to 1
+     */
+    public void setJitter(final double jitter) {
+        this.jitter = Math.max(0.0, Math.min(1.0, jitter));
+        logger.debug("Set heartbeat jitter to {}", this.jitter);
     }
 
     /**
@@ -144,7 +250,8 @@ public class HeartbeatManager {
      * Shutdown processing
      */
     public void shutDown() {
-        this.timer.cancel();
+        this.scheduler.shutdownNow();
+        this.workers.shutdownNow();
     }
 
     /**
@@ -179,7 +286,12 @@ public class HeartbeatManager {
      * @param key four-tuple for the remote directory
      */
     public void removeRemoteDirectory(final String key) {
-        this.directories.remove(KeyManipulator.getDefaultDirectoryKey(key));
+        final String dkey = KeyManipulator.getDefaultDirectoryKey(key);
+        if (this.directories.remove(dkey) != null) {
+            final MetricRegistry registry = getMetricRegistry();
+            registry.remove(roundTripMetricName(dkey));
+            registry.remove(failureMetricName(dkey));
+        }
     }
 
     /**
@@ -245,13 +357,19 @@ public class HeartbeatManager {
             return;
         }
 
-        final boolean wasAlive = v.isAlive();
-        final boolean wasHealthy = v.isHealthy();
+        final boolean wasAlive;
+        final boolean wasHealthy;
+        final boolean isAlive;
+        final boolean isHealthy;
+        synchronized (v) {
+            wasAlive = v.isAlive();
+            wasHealthy = v.isHealthy();
 
-        v.addReport(status, reason);
+            v.addReport(status, reason);
 
-        final boolean isAlive = v.isAlive();
-        final boolean isHealthy = v.isHealthy();
+            isAlive = v.isAlive();
+            isHealthy = v.isHealthy();
+        }
 
         if (logger.isDebugEnabled()) {
             logger.debug("Reporting on {} status={}, wasAlive/Healthy={}/{}, isAlive/Healthy={}/{}", key, status, wasAlive, wasHealthy, isAlive,
@@ -308,51 +426,212 @@ public class HeartbeatManager {
 
 
     /**
-     * The Task thread, monitors all remote directories
+     * Schedule the next round
+     *
+     * @param delayMillis nominal delay, moved by the jitter
+     */
+    private void scheduleRound(final long delayMillis) {
+        try {
+            this.scheduler.schedule(this::runRound, jitter(delayMillis), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Heartbeats shut down, not scheduling another round");
+        }
+    }
+
+    /**
+     * Move a delay by a random amount of at most the jitter fraction
+     *
+     * @param delayMillis the nominal delay
+     * @return the delay to use
      */
-    class HeartbeatTask extends TimerTask {
-        @Override
-        public void run() {
+    long jitter(final long delayMillis) {
+        if (this.jitter <= 0.0 || delayMillis <= 0) {
+            return delayMillis;
+        }
+        final double spread = delayMillis * this.jitter;
+        return Math.max(0L, Math.round(delayMillis + ThreadLocalRandom.current().nextDouble(-spread, spread)));
+    }
+
+    private void runRound() {
+        try {
+            logger.debug("Running heartbeat round on {} directories", this.directories.size());
+            heartbeatAll();
+        } catch (RuntimeException e) {
+            logger.error("Unexpected problem in heartbeat round", e);
+        } finally {
+            scheduleRound(this.intervalSeconds * 1000L);
+        }
+    }
+
+    /**
+     * Send a heartbeat to every remote directory at once
+     *
+     * @return completes when every heartbeat has been answered, failed or passed its deadline
+     */
+    CompletableFuture<Void> heartbeatAll() {
+        final List<CompletableFuture<Boolean>> round = new ArrayList<>(this.directories.size());
+        for (final String dir : this.directories.keySet()) {
+            round.add(heartbeatAsync(dir));
+        }
+        return CompletableFuture.allOf(round.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Send a heartbeat message to a monitored directory without waiting for the answer. Nothing is sent if the previous
+     * heartbeat to the directory is still outstanding, and the skipped heartbeat counts as a failure.
+     *
+     * @param key key representing the directory to heartbeat
+     * @return completes with true if the directory is up, or with false if nothing was sent
+     */
+    public CompletableFuture<Boolean> heartbeatAsync(final String key) {
+        final Health health = this.directories.get(KeyManipulator.getDefaultDirectoryKey(key));
+        if (health != null && !health.startHeartbeat()) {
+            logger.debug("Previous heartbeat to {} is still outstanding, skipping", key);
             try {
-                logger.debug("Running timer task on {} directories", HeartbeatManager.this.directories.size());
-                for (final String dir : HeartbeatManager.this.directories.keySet()) {
-                    heartbeat(dir);
-                }
-                logger.debug("Ending the HeartbeatTask run method");
+                healthReport(key, false, "Previous heartbeat still outstanding");
             } catch (RuntimeException e) {
-                logger.error("Unexpected problem in heartbeat timer", e);
+                logger.error("Cannot report heartbeat from {}", key, e);
+            }
+            return CompletableFuture.completedFuture(false);
+        }
+
+        final long deadline = this.deadlineMillis;
+        final long start = System.nanoTime();
+        final CompletableFuture<EmissaryResponse> sent;
+        try {
+            sent = CompletableFuture.supplyAsync(() -> {
+                try {
+                    logger.debug("Sending heartbeat msg to {}", key);
+                    return sendHeartbeat(key, deadline);
+                } finally {
+                    if (health != null) {
+                        health.endHeartbeat();
+                    }
+                }
+            }, this.workers);
+        } catch (RejectedExecutionException e) {
+            if (health != null) {
+                health.endHeartbeat();
             }
+            logger.debug("Heartbeats shut down, not contacting {}", key);
+            return CompletableFuture.completedFuture(false);
         }
+        return sent.orTimeout(deadline, TimeUnit.MILLISECONDS).handle((response, error) -> report(key, start, response, error));
     }
 
     /**
      * Send a heartbeat message to the directory represented by key and take follow-on actions as appropriate Called from
-     * the timer task normally, but can be called externally by the impatient
+     * the scheduled rounds normally, but can be called externally by the impatient
      *
      * @see emissary.directory.DirectoryPlace#heartbeatRemoteDirectory(String)
      * @param key key representing the directory to heartbeat
      * @return true if the directory referenced by key is up
      */
     public final boolean heartbeat(final String key) {
-        boolean isup = false;
+        final long start = System.nanoTime();
         try {
             logger.debug("Sending heartbeat msg to {}", key);
-            EmissaryResponse response = getHeartbeat(this.thisDirectory, key);
-            if (response.getStatus() == 200) {
-                healthReport(key, true, response.getContentString());
-                isup = true;
+            return report(key, start, sendHeartbeat(key, this.deadlineMillis), null);
+        } catch (RuntimeException e) {
+            return report(key, start, null, e);
+        }
+    }
+
+    /**
+     * Contact a remote directory. Overridable so the manager can be exercised without a network.
+     *
+     * @param key key representing the directory to heartbeat
+     * @param deadlineMillis most time to wait for the answer
+     * @return the response from the remote directory
+     */
+    protected EmissaryResponse sendHeartbeat(final String key, final long deadlineMillis) {
+        return getHeartbeat(this.thisDirectory, key, new EmissaryClient().withResponseTimeout(deadlineMillis));
+    }
+
+    /**
+     * Record the result of a heartbeat and update the health
+     *
+     * @return true if the directory is up
+     */
+    private boolean report(final String key, final long startNanos, @Nullable final EmissaryResponse response, @Nullable final Throwable error) {
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        final boolean isup;
+        final String message;
+        if (error != null) {
+            final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                message = "No heartbeat response within " + this.deadlineMillis + "ms";
+                logger.debug("Heartbeat to {} timed out", key);
             } else {
-                healthReport(key, false, response.getContentString());
-                isup = false;
+                message = cause.getMessage();
+                logger.error("Cannot perform heartbeat", cause);
             }
-        } catch (RuntimeException e) {
-            logger.error("Cannot perform heartbeat", e);
-            healthReport(key, false, e.getMessage());
             isup = false;
+        } else if (response == null) {
+            message = "No heartbeat response";
+            isup = false;
+        } else {
+            message = response.getContentString();
+            isup = response.getStatus() == 200;
+        }
+
+        final String dirKey = KeyManipulator.getDefaultDirectoryKey(key);
+        if (this.directories.containsKey(dirKey)) {
+            getMetricRegistry().histogram(isup ? roundTripMetricName(dirKey) : failureMetricName(dirKey)).update(elapsedMillis);
+        }
+        try {
+            healthReport(key, isup, message);
+        } catch (RuntimeException e) {
+            logger.error("Cannot report heartbeat from {}", key, e);
         }
         return isup;
     }
 
+    /**
+     * Get the round trip times of answered heartbeats to a directory
+     *
+     * @param key key representing the directory
+     * @return histogram of millis
+     */
+    public Histogram getRoundTripHistogram(final String key) {
+        return getMetricRegistry().histogram(roundTripMetricName(KeyManipulator.getDefaultDirectoryKey(key)));
+    }
+
+    /**
+     * Get the time taken by failed heartbeats to a directory, including the ones that passed the deadline
+     *
+     * @param key key representing the directory
+     * @return histogram of millis
+     */
+    public Histogram getFailureHistogram(final String key) {
+        return getMetricRegistry().histogram(failureMetricName(KeyManipulator.getDefaultDirectoryKey(key)));
+    }
+
+    private static String roundTripMetricName(final String dirKey) {
+        return MetricRegistry.name(HeartbeatManager.class, "rtt", dirKey);
+    }
+
+    private static String failureMetricName(final String dirKey) {
+        return MetricRegistry.name(HeartbeatManager.class, "failures", dirKey);
+    }
+
+    /**
+     * Use the MetricsManager registry once it is running so the histograms are exported with the other metrics
+     */
+    private MetricRegistry getMetricRegistry() {
+        if (this.metrics == null) {
+            if (!Namespace.exists(MetricsManager.DEFAULT_NAMESPACE_NAME)) {
+                return this.localMetrics;
+            }
+            try {
+                this.metrics = MetricsManager.lookup().getMetricRegistry();
+            } catch (NamespaceException | ClassCastException e) {
+                return this.localMetrics;
+            }
+        }
+        return this.metrics;
+    }
+
     public static EmissaryResponse getHeartbeat(String fromPlace, String toPlace) {
         return getHeartbeat(fromPlace, toPlace, new EmissaryClient());
     }
@@ -375,10 +654,13 @@ public class HeartbeatManager {
      * Holder class for the health information for a single remote directory
      */
     class Health {
-        // Count consecutive failures
-        private int failCounter = 0;
+        // Count consecutive failures, updated holding the monitor
+        private volatile int failCounter = 0;
+
+        private volatile String lastMessage;
 
-        private String lastMessage;
+        // True while a heartbeat is being sent
+        private final AtomicBoolean sending = new AtomicBoolean(false);
 
         /**
          * Create a new Health object with the specified status and msg
@@ -396,7 +678,7 @@ public class HeartbeatManager {
          * @param v the most recent status
          * @param msg the most recent message
          */
-        public void addReport(final boolean v, final String msg) {
+        public synchronized void addReport(final boolean v, final String msg) {
             this.lastMessage = msg;
             if (v) {
                 this.failCounter = 0;
@@ -411,7 +693,7 @@ public class HeartbeatManager {
          * @param isAlive false means permanent failure indicated
          * @param message message to asocciate with this statsu
          */
-        void setStatus(final boolean isAlive, final String message) {
+        synchronized void setStatus(final boolean isAlive, final String message) {
             if (!isAlive) {
                 this.failCounter = HeartbeatManager.this.permanentFailThreshold;
                 this.lastMessage = message;
@@ -439,6 +721,19 @@ public class HeartbeatManager {
             return this.failCounter < HeartbeatManager.this.permanentFailThreshold;
         }
 
+        /**
+         * Claim the right to send the next heartbeat
+         *
+         * @return false if a heartbeat is already being sent
+         */
+        boolean startHeartbeat() {
+            return this.sending.compareAndSet(false, true);
+        }
+
+        void endHeartbeat() {
+            this.sending.set(false);
+        }
+
         /**
          * Access to the last saved message
          */
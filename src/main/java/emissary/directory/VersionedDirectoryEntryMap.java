@@ -0,0 +1,218 @@
+package emissary.directory;
+
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A DirectoryEntryMap that keeps a monotonically increasing change sequence so that peers can ask for just the changes
+ * since the last sequence they saw instead of the whole map. Only the latest version of each entry key is kept, removed
+ * entries are remembered as tombstones up to a limit. A peer that is further behind than the oldest forgotten tombstone,
+ * or that last saw a different epoch because this map was recreated, gets the whole map. A deserialized map counts as
+ * recreated: it starts a new epoch with the entries it was written with.
+ */
+public class VersionedDirectoryEntryMap extends DirectoryEntryMap {
+
+    // Serializable
+    static final long serialVersionUID = -3305958420926322148L;
+
+    private static final Logger logger = LoggerFactory.getLogger(VersionedDirectoryEntryMap.class);
+
+    /** Default number of removed entries remembered */
+    public static final int DEFAULT_TOMBSTONE_LIMIT = 10000;
+
+    /** Identifies this instance of the map, a restarted directory has a new epoch */
+    private long epoch = newEpoch();
+
+    // Latest version of each entry key, guarded by itself, rebuilt when deserialized
+    private transient Map<String, Version> versions = new HashMap<>();
+    private long sequence = 0L;
+    private long floor = 0L;
+    private int tombstones = 0;
+    private int tombstoneLimit = DEFAULT_TOMBSTONE_LIMIT;
+
+    private static final class Version {
+        private final long sequence;
+        // null once removed
+        @Nullable
+        private final DirectoryEntry entry;
+
+        private Version(final long sequence, @Nullable final DirectoryEntry entry) {
+            this.sequence = sequence;
+            this.entry = entry;
+        }
+    }
+
+    private static long newEpoch() {
+        return UUID.randomUUID().getMostSignificantBits();
+    }
+
+    /**
+     * Start a new epoch from the entries read, the history of changes was not written so peers get the whole map again
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.epoch = newEpoch();
+        this.versions = new HashMap<>();
+        this.sequence = 0L;
+        this.floor = 0L;
+        this.tombstones = 0;
+        for (final DirectoryEntry d : allEntries()) {
+            record(d.getKey(), d);
+        }
+    }
+
+    /**
+     * Set how many removed entries are remembered
+     *
+     * @param limit the number of tombstones kept before the oldest are forgotten
+     */
+    public void setTombstoneLimit(final int limit) {
+        synchronized (versions) {
+            this.tombstoneLimit = Math.max(1, limit);
+            pruneTombstones();
+        }
+    }
+
+    /**
+     * Get the epoch of this map
+     *
+     * @return the epoch, which changes when the map is recreated
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Get the sequence of the latest change
+     *
+     * @return the current sequence
+     */
+    public long getSequence() {
+        synchronized (versions) {
+            return sequence;
+        }
+    }
+
+    @Override
+    protected void addEntry(final String key, final DirectoryEntry d) {
+        super.addEntry(key, d);
+        // The list keeps the cheapest copy of a key, record whatever it kept
+        final DirectoryEntryList list = get(key);
+        DirectoryEntry kept = null;
+        if (list != null) {
+            for (final DirectoryEntry e : list) {
+                if (e.getKey().equals(d.getKey())) {
+                    kept = e;
+                    break;
+                }
+            }
+        }
+        if (kept != null) {
+            record(kept.getKey(), kept);
+        }
+    }
+
+    @Override
+    public void addEntries(@Nullable final DirectoryEntryMap that) {
+        if (that != null) {
+            for (final DirectoryEntry d : that.allEntries()) {
+                addEntry(d);
+            }
+        }
+    }
+
+    @Override
+    @Nullable
+    protected DirectoryEntry removeEntry(final String key, final String entryKey) {
+        final DirectoryEntry removed = super.removeEntry(key, entryKey);
+        if (removed != null) {
+            record(removed.getKey(), null);
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        final List<DirectoryEntry> all = allEntries();
+        super.clear();
+        for (final DirectoryEntry d : all) {
+            record(d.getKey(), null);
+        }
+    }
+
+    private void record(final String entryKey, @Nullable final DirectoryEntry entry) {
+        synchronized (versions) {
+            final Version previous = versions.put(entryKey, new Version(++sequence, entry));
+            if (previous != null && previous.entry == null) {
+                tombstones--;
+            }
+            if (entry == null) {
+                tombstones++;
+                pruneTombstones();
+            }
+        }
+    }
+
+    // Forget the oldest half of the tombstones once over the limit, called holding the versions lock
+    private void pruneTombstones() {
+        if (tombstones <= tombstoneLimit) {
+            return;
+        }
+        final List<Map.Entry<String, Version>> dead = new ArrayList<>();
+        for (final Map.Entry<String, Version> e : versions.entrySet()) {
+            if (e.getValue().entry == null) {
+                dead.add(e);
+            }
+        }
+        dead.sort(Comparator.comparingLong(e -> e.getValue().sequence));
+        final int forget = dead.size() - (tombstoneLimit / 2);
+        for (int i = 0; i < forget; i++) {
+            final Map.Entry<String, Version> e = dead.get(i);
+            versions.remove(e.getKey());
+            floor = Math.max(floor, e.getValue().sequence);
+        }
+        tombstones -= forget;
+        logger.debug("Forgot {} removed entries, deltas are available after sequence {}", forget, floor);
+    }
+
+    /**
+     * Get the changes a peer has not seen yet
+     *
+     * @param peerEpoch the epoch the peer last saw
+     * @param since the sequence the peer last saw, negative if it has seen nothing
+     * @return the entries added or changed and the keys removed since the sequence, or every entry if the changes are not
+     *         all known anymore
+     */
+    public DirectoryEntryDelta changesSince(final long peerEpoch, final long since) {
+        final List<DirectoryEntry> entries = new ArrayList<>();
+        final List<String> removed = new ArrayList<>();
+        synchronized (versions) {
+            final boolean full = peerEpoch != epoch || since < floor || since > sequence;
+            if (full) {
+                entries.addAll(allEntries());
+            } else {
+                for (final Map.Entry<String, Version> e : versions.entrySet()) {
+                    final Version v = e.getValue();
+                    if (v.sequence > since) {
+                        if (v.entry != null) {
+                            entries.add(v.entry);
+                        } else {
+                            removed.add(e.getKey());
+                        }
+                    }
+                }
+            }
+            return new DirectoryEntryDelta(epoch, full ? -1L : since, sequence, full, entries, removed);
+        }
+    }
+}
@@ -48,28 +48,6 @@ public class EditDistance {
      * terminate if the edit distance is known to exceed MIN_DIST
      */
 
-    private static final int THRESHOLD = 4000; /*
-                                                * worry about allocating more memory only when this # of bytes is exceeded
-                                                */
-
-    private static final int STRLENTHRESHOLD = (THRESHOLD / (Integer.SIZE / 8) - 3) / 2;
-
-    // #define SAFE_ASSIGN(x,y) (((x) != NULL) ? (*(x) = (y)) : (y))
-
-    // #define swap_int(x,y) (_iswap = (x), (x) = (y), (y) = _iswap)
-    private static void swapInt(int[] x, int[] y) {
-        int iswap = x[0];
-        x[0] = y[0];
-        y[0] = iswap;
-    }
-
-    // #define swap_char(x,y) (_cswap = (x), (x) = (y), (y) = _cswap)
-    private static void swapChar(/* ref */byte[][] x, /* ref */byte[][] y) {
-        byte[] cswap = x[0];
-        x[0] = y[0];
-        y[0] = cswap;
-    }
-
     // #define min3(x,y,z) (_mx = (x), _my = (y), _mz = (z), (_mx < _my ? (_mx < _mz ? _mx : _mz) : (_mz < _my) ? _mz :
     // _my))
     private static int min3(int x, int y, int z) {
@@ -89,21 +67,6 @@ public class EditDistance {
     static int insertCost = 1;
     static int deleteCost = 1;
 
-    // dynamic programming counters
-    static int row;
-    static int col;
-    static int index = 0;
-    static int radix; // radix for modular indexing
-    static int low;
-    static int[] buffer; /*
-                          * pointer to storage for one row of the d.p. array
-                          */
-
-    static int[] store = new int[THRESHOLD / (Integer.SIZE / 8)];
-    /*
-     * a small amount of static storage, to be used when the input strings are small enough
-     */
-
     /* Handle trivial cases when one string is empty */
 
     static int ins = 1;
@@ -111,76 +74,33 @@ public class EditDistance {
     static int ch = 3;
     static int swapCost = 5;
 
-    static int fromLen;
-    static int toLen;
-
-    private static int ar(int x, int y, int index) {
-        return (x == 0) ? y * del : (y == 0) ? x * ins : buffer[mod(index)];
-    }
-
-    private static int nw(int x, int y) {
-        return ar(x, y, index + fromLen + 2);
-    }
-
-    private static int n(int x, int y) {
-        return ar(x, y, index + fromLen + 3);
-    }
-
-    private static int w(int x, int y) {
-        return ar(x, y, index + radix - 1);
-    }
-
-    private static int nnww(int x, int y) {
-        return ar(x, y, index + 1);
-    }
-
-    private static int mod(int x) {
-        return x % radix;
+    // #define ar(x,y,index) (((x) == 0) ? (y) * del : (((y) == 0) ? (x) * ins : buffer[mod(index)]))
+    private static int ar(int[] buffer, int x, int y, int index) {
+        return (x == 0) ? y * del : (y == 0) ? x * ins : buffer[index % buffer.length];
     }
 
     /*
      * returns the edit distance between two strings, or -1 on failure
+     *
+     * The dynamic programming state is kept on the stack, so concurrent calls do not interfere and each call starts from a
+     * clean buffer.
      */
     public static int calculateEditDistance(@Nullable byte[] from, int fromLen, @Nullable byte[] to, int toLen) {
-        EditDistance.fromLen = fromLen;
-        EditDistance.toLen = toLen;
-
         if (from == null) {
             if (to == null) {
                 return 0;
             } else {
-                return EditDistance.toLen * insertCost;
+                return toLen * insertCost;
             }
         } else if (to == null) {
-            return EditDistance.fromLen * deleteCost;
+            return fromLen * deleteCost;
         }
 
         /* Initialize registers */
 
-        radix = 2 * EditDistance.fromLen + 3;
-
-        /* Make from short enough to fit in the static storage, if it's at all possible */
-
-        if (EditDistance.fromLen > EditDistance.toLen && EditDistance.fromLen > STRLENTHRESHOLD) {
-            int[] x = new int[1];
-            int[] y = new int[1];
-            x[0] = EditDistance.fromLen;
-            y[0] = EditDistance.toLen;
-            swapInt(x, y);
-            byte[][] xx = new byte[1][];
-            byte[][] yy = new byte[1][];
-            xx[0] = from;
-            yy[0] = to;
-            swapChar(xx, yy);
-        } // if from_len > to_len
-
-        /* Allocate the array storage (from the heap if necessary) */
-
-        if (EditDistance.fromLen <= STRLENTHRESHOLD) {
-            buffer = store;
-        } else {
-            buffer = new int[radix];
-        }
+        final int radix = 2 * fromLen + 3; // radix for modular indexing
+        final int[] buffer = new int[radix]; // storage for one row of the d.p. array
+        int index = 0;
 
         /*
          * Here's where the fun begins. We will find the minimum edit distance using dynamic programming. We only need to store
@@ -202,8 +122,6 @@ public class EditDistance {
          * buffer.
          */
 
-        // /#define ar(x,y,index) (((x) == 0) ? (y) * del : (((y) == 0) ? (x) * ins :
-        // \ buffer[mod(index)]))
         // /#define NW(x,y) ar(x, y, index + from_len + 2)
         // /#define N(x,y) ar(x, y, index + from_len + 3)
         // /#define W(x,y) ar(x, y, index + radix - 1)
@@ -213,8 +131,8 @@ public class EditDistance {
 
         buffer[index++] = min2(ins + del, from[0] == to[0] ? 0 : ch);
 
-        low = buffer[mod(index + radix - 1)];
-        for (col = 1; col < EditDistance.fromLen; col++) {
+        int low = buffer[(index + radix - 1) % radix];
+        for (int col = 1; col < fromLen; col++) {
             buffer[index] = min3(col * del + ((from[col] == to[0]) ? 0 : ch), (col + 1) * del + ins, buffer[index - 1] + del);
             if (buffer[index] < low) {
                 low = buffer[index];
@@ -223,27 +141,26 @@ public class EditDistance {
         }
 
         /* Now handle the rest of the matrix */
-        for (row = 1; row < EditDistance.toLen; row++) {
-            for (col = 0; col < EditDistance.fromLen; col++) {
-                buffer[index] = min3(nw(row, col) + ((from[col] == to[row]) ? 0 : ch), n(row, col + 1) + ins, w(row + 1, col) + del);
+        for (int row = 1; row < toLen; row++) {
+            for (int col = 0; col < fromLen; col++) {
+                buffer[index] = min3(ar(buffer, row, col, index + fromLen + 2) + ((from[col] == to[row]) ? 0 : ch),
+                        ar(buffer, row, col + 1, index + fromLen + 3) + ins, ar(buffer, row + 1, col, index + radix - 1) + del);
 
                 if (from[col] == to[row - 1] && col > 0 && from[col - 1] == to[row]) {
-                    buffer[index] = min2(buffer[index], nnww(row - 1, col - 1) + swapCost);
+                    buffer[index] = min2(buffer[index], ar(buffer, row - 1, col - 1, index + 1) + swapCost);
                 }
 
                 if (buffer[index] < low || col == 0) {
                     low = buffer[index];
                 }
-                index = mod(index + 1);
+                index = (index + 1) % radix;
             }
             if (low > MIN_DIST) {
                 break;
             }
         }
 
-        row = buffer[mod(index + radix - 1)];
-
-        return row;
+        return buffer[(index + radix - 1) % radix];
     } // edit_distn
 
     /** This class is not meant to be instantiated. */
@@ -38,6 +38,8 @@ public class KffDataObjectHandler {
     public static final String KFF_PARAM_DUPE_FILTER_NAME = KFF_PARAM_BASE + "KNOWN_BY";
     public static final String KFF_DUPE_CURRENT_FORM = "KNOWN_FILE";
     public static final String MD5_ORIGINAL = "MD5_ORIGINAL";
+    /** Name the hashes are recorded under with {@link IBaseDataObject#markDerived(String)} */
+    public static final String HASH_DERIVED = "KFF_HASH";
 
     // Our kff impl
     protected KffChain kff = KffChainLoader.getChainInstance();
@@ -208,6 +210,48 @@ public class KffDataObjectHandler {
             return;
         }
 
+        if (isHashCurrent(d, createMurmurHash, murmurHashIdParamName)) {
+            logger.debug("Data of {} has not changed since it was hashed", d.shortName());
+        } else if (!computeHashes(d, useSbc, createMurmurHash, murmurHashIdParamName)) {
+            return;
+        }
+
+        // Set params if we have a hit
+        if (d.hasParameter(KFF_PARAM_KNOWN_FILTER_NAME)) {
+            if (setFileTypeOnKnown) {
+                d.setFileType(KFF_DUPE_CURRENT_FORM);
+            }
+            if (setFormOnKnownData) {
+                d.replaceCurrentForm(KFF_DUPE_CURRENT_FORM);
+            }
+            if (truncateKnownData) {
+                if (useSbc) {
+                    d.setChannelFactory(SeekableByteChannelHelper.EMPTY_CHANNEL_FACTORY);
+                }
+                d.setData(null);
+            }
+        }
+    }
+
+    /**
+     * Report whether the hashes on a data object were computed from its current data
+     *
+     * @param d the data object
+     * @param createMurmurHash whether a murmur hash of hashes is wanted
+     * @param murmurHashIdParamName the name of the parameter holding the murmur hash
+     * @return true if hashing again would produce the same values
+     */
+    static boolean isHashCurrent(final IBaseDataObject d, final boolean createMurmurHash, final String murmurHashIdParamName) {
+        return d.isDerivedCurrent(HASH_DERIVED) && hashPresent(d) && (!createMurmurHash || d.hasParameter(murmurHashIdParamName));
+    }
+
+    /**
+     * Replace the hashes on a data object
+     *
+     * @return false if there is no data to hash
+     */
+    private boolean computeHashes(final IBaseDataObject d, final boolean useSbc, final boolean createMurmurHash,
+            final String murmurHashIdParamName) {
         String originalMD5 = captureOriginalMD5BeforeRehashing(d);
         try {
             removeHash(d);
@@ -218,11 +262,12 @@ public class KffDataObjectHandler {
             } else if (!useSbc && d.dataLength() > 0) {
                 d.putParameters(hashData(d.data(), d.shortName()), MergePolicy.DROP_EXISTING);
             } else {
-                return; // NOSONAR
+                return false; // NOSONAR
             }
             if (createMurmurHash) {
                 d.putParameter(murmurHashIdParamName, createMurmurHash(d));
             }
+            d.markDerived(HASH_DERIVED);
         } catch (IOException e) {
             logger.error("Couldn't hash data {}", d.shortName());
         } finally {
@@ -231,22 +276,7 @@ public class KffDataObjectHandler {
                 d.setParameter(MD5_ORIGINAL, originalMD5);
             }
         }
-
-        // Set params if we have a hit
-        if (d.hasParameter(KFF_PARAM_KNOWN_FILTER_NAME)) {
-            if (setFileTypeOnKnown) {
-                d.setFileType(KFF_DUPE_CURRENT_FORM);
-            }
-            if (setFormOnKnownData) {
-                d.replaceCurrentForm(KFF_DUPE_CURRENT_FORM);
-            }
-            if (truncateKnownData) {
-                if (useSbc) {
-                    d.setChannelFactory(SeekableByteChannelHelper.EMPTY_CHANNEL_FACTORY);
-                }
-                d.setData(null);
-            }
-        }
+        return true;
     }
 
     /**
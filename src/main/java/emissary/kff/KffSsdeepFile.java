@@ -0,0 +1,184 @@
+package emissary.kff;
+
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
+
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * <p>
+ * KffSsdeepFile is a fuzzy known file filter. It loads a corpus of ssdeep signatures into a {@link SsdeepIndex} and
+ * reports a hit when the SSDEEP result of the data scores at least the minimum score against any of them, so near
+ * duplicates of known files can be marked as well as exact copies. The SSDEEP algorithm must be in the KFF_ALG list of
+ * the chain.
+ * </p>
+ * <p>
+ * The corpus file has one signature per line, optionally followed by a comma and a name, which is the output format of
+ * the ssdeep program and of {@link Ssdeep#main(String[])}. Blank lines, lines starting with # and the ssdeep header
+ * line are skipped.
+ * </p>
+ * <p>
+ * Configuration file options are MIN_SCORE: the lowest score from 1 to 100 reported as a hit
+ * </p>
+ */
+public class KffSsdeepFile implements KffFilter {
+    private static final Logger logger = LoggerFactory.getLogger(KffSsdeepFile.class);
+
+    public static final int DEFAULT_MIN_SCORE = 80;
+
+    private static final String SSDEEP_HEADER = "ssdeep,";
+
+    /** String logical name for this filter */
+    protected String filterName = "UNKNOWN";
+
+    protected FilterType ftype = FilterType.UNKNOWN;
+
+    protected int minScore = DEFAULT_MIN_SCORE;
+
+    protected final SsdeepIndex index = new SsdeepIndex();
+
+    /**
+     * Creates a new instance of KffSsdeepFile
+     *
+     * @param filename Name of the text file containing the ssdeep signatures
+     * @param filterName the name of this filter
+     * @param ftype type of this filter
+     * @throws IOException if the file cannot be read
+     */
+    public KffSsdeepFile(String filename, String filterName, FilterType ftype) throws IOException {
+        this.ftype = ftype;
+        this.filterName = filterName;
+
+        try {
+            Configurator configG = ConfigUtil.getConfigInfo(KffSsdeepFile.class);
+            setMinScore(configG.findIntEntry("MIN_SCORE", DEFAULT_MIN_SCORE));
+        } catch (IOException e) {
+            logger.debug("No configuration for {}, using a minimum score of {}", KffSsdeepFile.class.getName(), minScore);
+        }
+
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(filename), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!addLine(line.trim())) {
+                    skipped++;
+                }
+            }
+        }
+        if (skipped > 0) {
+            logger.warn("Skipped {} invalid signatures in {}", skipped, filename);
+        }
+        logger.debug("KFF ssdeep file {} has {} signatures", filename, index.size());
+    }
+
+    /**
+     * Add one line of the corpus file
+     *
+     * @return false if the line held an invalid signature
+     */
+    private boolean addLine(String line) {
+        if (line.isEmpty() || line.startsWith("#") || line.startsWith(SSDEEP_HEADER)) {
+            return true;
+        }
+        String signature = line;
+        String name = line;
+        int comma = line.indexOf(',');
+        if (comma > 0) {
+            signature = line.substring(0, comma);
+            name = unquote(line.substring(comma + 1).trim());
+        }
+        try {
+            index.add(signature, name);
+            return true;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Invalid signature {}", line, e);
+            return false;
+        }
+    }
+
+    private static String unquote(String s) {
+        if (s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"")) {
+            return s.substring(1, s.length() - 1);
+        }
+        return s;
+    }
+
+    /**
+     * Return the filter name
+     */
+    @Override
+    public String getName() {
+        return filterName;
+    }
+
+    /**
+     * Return the filter type
+     */
+    @Override
+    public FilterType getFilterType() {
+        return ftype;
+    }
+
+    /**
+     * Set the filter type
+     *
+     * @param f the new type
+     */
+    public void setFilterType(FilterType f) {
+        ftype = f;
+    }
+
+    /**
+     * Set the lowest score reported as a hit
+     *
+     * @param score from 1 to 100
+     */
+    public void setMinScore(int score) {
+        minScore = Math.max(1, Math.min(100, score));
+    }
+
+    public int getMinScore() {
+        return minScore;
+    }
+
+    /**
+     * Get the number of signatures loaded
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Find the known signature most similar to a signature
+     *
+     * @param signature the ssdeep signature to look for
+     * @return the best match scoring at least the minimum score, or null if there is none
+     */
+    @Nullable
+    public SsdeepIndex.Match bestMatch(String signature) {
+        return index.best(new SpamSumSignature(signature), minScore);
+    }
+
+    @Override
+    public boolean check(String fname, ChecksumResults csum) throws Exception {
+        String ssdeep = csum.getSsdeep();
+        if (ssdeep == null) {
+            logger.warn("Filter cannot be used, SSDEEP not computed on {}", fname);
+            return false;
+        }
+        SsdeepIndex.Match match = bestMatch(ssdeep);
+        if (match != null) {
+            logger.debug("{} is similar to {} with score {}", fname, match.getName(), match.getScore());
+            return true;
+        }
+        return false;
+    }
+}
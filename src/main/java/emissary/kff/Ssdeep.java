@@ -31,11 +31,14 @@ public final class Ssdeep {
     private static final int SPAMSUM_LENGTH = 64;
     private static final int MIN_BLOCKSIZE = 3;
 
+    /** The number of characters in the half length digest before the final one. */
+    private static final int HALF_DIGEST_LIMIT = SPAMSUM_LENGTH / 2 - 1;
+
     @SuppressWarnings("PMD.UselessParentheses")
     public static final int FUZZY_MAX_RESULT = SPAMSUM_LENGTH + (SPAMSUM_LENGTH / 2 + 20);
 
     /** The window size for the rolling hash. */
-    private static final int ROLLING_WINDOW_SIZE = 7;
+    static final int ROLLING_WINDOW_SIZE = 7;
 
     /** The buffer size to use when reading data from a file. */
     private static final int BUFFER_SIZE = 8192;
@@ -65,23 +68,46 @@ public final class Ssdeep {
         return b64Table[((int) v) & 0x3f];
     }
 
+    /**
+     * Computes the signature for every candidate block size in a single pass over the input.
+     *
+     * <p>
+     * The block size is first estimated from the input length. The signature is the one for the largest candidate block
+     * size, starting at the estimate and halving down to {@link #MIN_BLOCKSIZE}, whose main digest has at least half of
+     * {@link #SPAMSUM_LENGTH} characters. Rather than hashing the input again for each smaller candidate, a digest is kept
+     * for each of them at once, plus one for twice the estimate. The first half of the digest for twice a block size, with
+     * its own final character, is the second part of the signature.
+     *
+     * <p>
+     * Reset points for a block size are also reset points for every smaller one, so only the block sizes up to the first
+     * that does not reset are checked at each byte. Once a digest has enough characters to be chosen, the smaller block
+     * sizes can never be chosen and are no longer updated.
+     */
     private static final class SsContext {
 
-        /** A buffer for the main hash output. */
-        private final byte[] fuzzHash1 = new byte[SPAMSUM_LENGTH + 1];
+        /** The block sizes, from {@link #MIN_BLOCKSIZE} up to twice the estimated block size. */
+        private final long[] blockSizes;
 
-        /** A buffer for the secondary hash output. */
-        private final byte[] fuzzHash2 = new byte[SPAMSUM_LENGTH / 2 + 1];
+        /** The digest characters emitted so far for each block size. */
+        private final byte[][] digests;
 
-        /** The count of output bytes currently stored in {@link #fuzzHash1}, initially zero. */
-        private int fuzzLen1;
+        /** The count of characters in each of {@link #digests}. */
+        private final int[] digestLens;
 
-        /** The count of output bytes currently stored in {@link #fuzzHash2}, initially zero. */
-        private int fuzzLen2;
+        /** The sum hash of the bytes since the last emitted character for each block size. */
+        private final int[] sumHashes;
 
-        private long sumHash1; // Initially zero.
-        private long sumHash2; // Initially zero.
-        private long blockSize; // Initialized by constructor.
+        /**
+         * The sum hash for the half length digest of each block size. It is the same as the one in {@link #sumHashes} until
+         * the half length digest is full, so it is only kept up to date after that.
+         */
+        private final int[] halfSumHashes;
+
+        /** The index of the smallest block size that can still be chosen. */
+        private int lowest;
+
+        /** The rolling hash, shared by all block sizes. */
+        private final RollingState rollState = new RollingState();
 
         /**
          * Estimate the block size to use.
@@ -99,234 +125,127 @@ public final class Ssdeep {
         }
 
         /**
-         * Construct a spam sum context to process a file.
+         * Construct a spam sum context.
          *
-         * @param f The file that will be processed, if known. If non-{@code null}, the length of the file is used to guess the
-         *        hash block size to use.
+         * @param expectedInputLength The expected amount of data to be processed, in bytes, used to choose the largest
+         *        candidate block size. A 0 value can be used if the length is unknown.
          */
-        public SsContext(@Nullable final File f) {
-            final long expectedInputLength = (f != null) ? f.length() : 0;
-            this.blockSize = estimateBlockSize(expectedInputLength);
-        }
-
-        /**
-         * Construct a spam sum context to process a byte array.
-         *
-         * @param data The bytes that will be processed, if known. If non-{@code null}, the length of the array is used to guess
-         *        the hash block size to use.
-         */
-        public SsContext(@Nullable final byte[] data) {
-            final long expectedInputLength = (data != null) ? data.length : 0;
-            this.blockSize = estimateBlockSize(expectedInputLength);
-        }
-
-        /**
-         * Construct a spam sum context to process a {@link SeekableByteChannel}
-         *
-         * @param sbcf The channel that will be processed, if known. If non-{@code null}, the length of the channel is used to
-         *        guess the hash block size to use.
-         */
-        public SsContext(final SeekableByteChannelFactory sbcf) {
-            long expectedInputLength = 0;
-
-            try (SeekableByteChannel sbc = sbcf.create()) {
-                expectedInputLength = sbc.size();
-            } catch (final IOException ignored) {
-                // Ignore
+        private SsContext(final long expectedInputLength) {
+            final long largest = estimateBlockSize(expectedInputLength);
+            int count = 2;
+            for (long bs = MIN_BLOCKSIZE; bs < largest; bs *= 2) {
+                count++;
+            }
+            this.blockSizes = new long[count];
+            this.digests = new byte[count][SPAMSUM_LENGTH];
+            this.digestLens = new int[count];
+            this.sumHashes = new int[count];
+            this.halfSumHashes = new int[count];
+            long bs = MIN_BLOCKSIZE;
+            for (int i = 0; i < count; i++) {
+                this.blockSizes[i] = bs;
+                this.sumHashes[i] = (int) HASH_INIT;
+                this.halfSumHashes[i] = (int) HASH_INIT;
+                bs *= 2;
             }
-
-            this.blockSize = estimateBlockSize(expectedInputLength);
-        }
-
-        /**
-         * A simple non-rolling hash, based on the FNV hash
-         * 
-         * @param b The next byte value, assumed to be in the range 0..255.
-         * @param h The existing hash value, 32-bit unsigned.
-         * @return The updated hash value, 32-bit unsigned.
-         */
-        private static long updateSumHash(final int b, final long h) {
-            return ((h * HASH_PRIME) ^ b) & MASK32;
         }
 
         /**
          * Apply some bytes to a SpamSum context.
          *
-         * @param rollState The rolling hash state to use.
          * @param buffer A buffer containing the input bytes.
          * @param start The starting offset in {@code buffer}, inclusive.
          * @param end The ending offset in {@code buffer}, exclusive.
          */
-        @SuppressWarnings("PMD.CollapsibleIfStatements")
-        private void applyBytes(final RollingState rollState, final byte[] buffer, final int start, final int end) {
-            // At each byte we update the rolling hash and the normal
-            // hash. When the rolling hash hits the reset value, we
-            // emit the normal hash as an element of the signature and
-            // reset both hashes.
+        private void applyBytes(final byte[] buffer, final int start, final int end) {
+            final int[] sums = this.sumHashes;
+            final int[] halfSums = this.halfSumHashes;
+            final int[] lens = this.digestLens;
+            final int count = this.blockSizes.length;
             for (int i = start; i < end; i++) {
                 // Get the next input byte and normalize to 0..255.
                 final int nextByte = ((int) buffer[i]) & 0xff;
 
-                // Apply the next byte to the hashes.
-                this.sumHash1 = updateSumHash(nextByte, this.sumHash1);
-                this.sumHash2 = updateSumHash(nextByte, this.sumHash2);
-                final long rollingHash = rollState.roll(nextByte);
-
-                if ((rollingHash % this.blockSize) == (this.blockSize - 1)) {
-                    // We have hit a reset point. We now emit a hash
-                    // which is based on all bytes in the input
-                    // between the last reset point and this one.
-                    if (this.fuzzLen1 < (SPAMSUM_LENGTH - 1)) {
-                        // We can have a problem with the tail
-                        // overflowing. The easiest way to cope with
-                        // this is to only reset the second hash if we
-                        // have room for more characters in our
-                        // signature. This has the effect of combining
-                        // the last few pieces of the message into a
-                        // single piece
-                        this.fuzzHash1[this.fuzzLen1++] = b64EncodeLowBits(this.sumHash1);
-                        this.sumHash1 = HASH_INIT;
+                for (int j = this.lowest; j < count; j++) {
+                    sums[j] = updateSumHash(nextByte, sums[j]);
+                    if (lens[j] > HALF_DIGEST_LIMIT) {
+                        halfSums[j] = updateSumHash(nextByte, halfSums[j]);
                     }
+                }
+                final long rollingHash = this.rollState.roll(nextByte);
 
-                    // This produces a second signature with a block size
-                    // of blockSize*2. By producing dual signatures in
-                    // this way the effect of small changes in the message
-                    // size near a block size boundary is greatly reduced.
-                    //
-                    // NOTE: we only have to check this when the main
-                    // signature has hit a reset point, because
-                    // mathematically:
-                    //
-                    // [ h === -1 (mod 2*bs) ] --implies--> [ h === -1 (mod bs) ]
-                    //
-                    // In other words, if this condition is true then the
-                    // main signature condition must always also be true.
-                    // Therefore this secondary signature condition can
-                    // only potentially be true if the main signature
-                    // condition (which we've already checked) is true.
-                    if ((rollingHash % (this.blockSize * 2)) == ((this.blockSize * 2) - 1)) {
-                        if (this.fuzzLen2 < (SPAMSUM_LENGTH / 2 - 1)) {
-                            this.fuzzHash2[this.fuzzLen2++] = b64EncodeLowBits(this.sumHash2);
-                            this.sumHash2 = HASH_INIT;
-                        }
-                    }
+                // Every block size is twice the previous one, so [ h === -1 (mod 2*bs) ] implies [ h === -1 (mod bs) ] and
+                // the larger block sizes only need to be checked while the smaller ones hit reset points.
+                for (int j = this.lowest; j < count && (rollingHash % this.blockSizes[j]) == (this.blockSizes[j] - 1); j++) {
+                    reset(j);
                 }
             }
         }
 
         /**
-         * Discard any existing hash state and prepare to compute a new hash. This should be followed by calls to
-         * {@link #applyBytes(RollingState, byte[], int, int)} to provide the data, and then
-         * {@link #finishHashing(RollingState)} to complete the computations.
-         */
-        private void beginHashing() {
-            this.fuzzLen1 = 0;
-            this.fuzzLen2 = 0;
-            this.sumHash1 = HASH_INIT;
-            this.sumHash2 = HASH_INIT;
-        }
-
-        /**
-         * Truncate an array if larger than the given length.
+         * Emit a digest character at a reset point. When the digest is nearly full the remaining input is combined into the
+         * last character instead.
          *
-         * @param input The input array.
-         * @param maxLength The desired maximum array length.
-         * @return If {@code input} is no larger than {@code maxLength}, this just returns {@code input}. Otherwise this returns
-         *         a new array with the same content as {@code input} but with the length truncated to {@code maxLength}.
+         * @param j The index of the block size.
          */
-        private static byte[] truncateArray(final byte[] input, final int maxLength) {
-            if (input.length == maxLength) {
-                return input;
-            } else {
-                return Arrays.copyOf(input, maxLength);
-            }
-        }
+        private void reset(final int j) {
+            final int len = this.digestLens[j];
+            if (len < (SPAMSUM_LENGTH - 1)) {
+                if (len == HALF_DIGEST_LIMIT) {
+                    // The half length digest stops here, the rest of its input goes into its last character
+                    this.halfSumHashes[j] = this.sumHashes[j];
+                }
+                this.digests[j][len] = b64EncodeLowBits(this.sumHashes[j]);
+                this.digestLens[j] = len + 1;
+                this.sumHashes[j] = (int) HASH_INIT;
 
-        /**
-         * Finish hashing and generate the final signature. This should be done after all bytes have been applied with
-         * {@link #applyBytes(RollingState, byte[], int, int)}.
-         *
-         * @param rollState The rolling hash state used during hashing.
-         * @return The final signature.
-         */
-        private SpamSumSignature finishHashing(final RollingState rollState) {
-            if (rollState.getHash() != 0) {
-                this.fuzzHash1[this.fuzzLen1++] = b64EncodeLowBits(this.sumHash1);
-                this.fuzzHash2[this.fuzzLen2++] = b64EncodeLowBits(this.sumHash2);
+                if (len + 1 == SPAMSUM_LENGTH / 2 && j < this.blockSizes.length - 1) {
+                    // This block size is long enough to be chosen, so no smaller one can be
+                    this.lowest = Math.max(this.lowest, j);
+                }
             }
-
-            final byte[] finalHash1 = truncateArray(this.fuzzHash1, this.fuzzLen1);
-            final byte[] finalHash2 = truncateArray(this.fuzzHash2, this.fuzzLen2);
-            return new SpamSumSignature(this.blockSize, finalHash1, finalHash2);
         }
 
         /**
-         * Generate the hash for some input.
-         *
-         * <p>
-         * The computations will use the current block size from the context, but any other existing hash state will be
-         * discarded.
+         * Generate the final signature. This should be done after all bytes have been applied with
+         * {@link #applyBytes(byte[], int, int)}.
          *
-         * @param data The bytes to hash.
-         * @return The signature for the given data.
+         * @return The final signature.
          */
-        public SpamSumSignature generateHash(@Nullable final byte[] data) {
-            beginHashing();
-            final RollingState rollState = new RollingState();
-
-            if (data != null) {
-                applyBytes(rollState, data, 0, data.length);
+        private SpamSumSignature finishHashing() {
+            // The partial block at the end of the input gets a character too
+            final int extra = (this.rollState.getHash() != 0) ? 1 : 0;
+
+            // Our blocksize guess may have been way off, use a smaller block size if necessary.
+            int chosen = this.blockSizes.length - 2;
+            while (chosen > this.lowest && (this.digestLens[chosen] + extra) < (SPAMSUM_LENGTH / 2)) {
+                chosen--;
             }
 
-            return finishHashing(rollState);
-        }
-
-        public SpamSumSignature generateHash(final SeekableByteChannelFactory sbcf) {
-            beginHashing();
-            final RollingState rollState = new RollingState();
+            final int len1 = this.digestLens[chosen];
+            final byte[] hash1 = Arrays.copyOf(this.digests[chosen], len1 + extra);
 
-            try (InputStream is = Channels.newInputStream(sbcf.create())) {
-                final byte[] b = new byte[1024];
+            final int half = chosen + 1;
+            final int len2 = Math.min(this.digestLens[half], HALF_DIGEST_LIMIT);
+            final byte[] hash2 = Arrays.copyOf(this.digests[half], len2 + extra);
 
-                int bytesRead;
-                while ((bytesRead = is.read(b)) != -1) {
-                    applyBytes(rollState, b, 0, bytesRead);
-                }
-            } catch (final IOException ignored) {
-                // Ignore
+            if (extra > 0) {
+                hash1[len1] = b64EncodeLowBits(this.sumHashes[chosen]);
+                hash2[len2] = b64EncodeLowBits((this.digestLens[half] > HALF_DIGEST_LIMIT) ? this.halfSumHashes[half] : this.sumHashes[half]);
             }
-
-            return finishHashing(rollState);
+            return new SpamSumSignature(this.blockSizes[chosen], hash1, hash2);
         }
+    }
 
-        /**
-         * Generate the hash for some input.
-         *
-         * <p>
-         * The computations will use the current block size from the context, but any other existing hash state will be
-         * discarded.
-         *
-         * @param stream A file containing the bytes to hash. Assumed non-{@code null}. The processing will start reading at the
-         *        current file position and hash all of the data from there to the end of the file. The file position when this
-         *        returns is unspecified. The file is not closed by this operation.
-         * @return The signature for the given stream content.
-         * @throws IOException If there is some I/O problem while reading the stream.
-         */
-        public SpamSumSignature generateHash(final RandomAccessFile stream) throws IOException {
-            beginHashing();
-            final RollingState rollState = new RollingState();
-
-            final byte[] buffer = new byte[BUFFER_SIZE];
-            while (true) {
-                final int bytesRead = stream.read(buffer, 0, buffer.length);
-                if (bytesRead <= 0) {
-                    break; // No more input.
-                }
-                applyBytes(rollState, buffer, 0, bytesRead);
-            }
-
-            return finishHashing(rollState);
-        }
+    /**
+     * A simple non-rolling hash, based on the FNV hash
+     *
+     * @param b The next byte value, assumed to be in the range 0..255.
+     * @param h The existing hash value, the 32 bits of an unsigned value.
+     * @return The updated hash value, the 32 bits of an unsigned value.
+     */
+    private static int updateSumHash(final int b, final int h) {
+        return (h * (int) HASH_PRIME) ^ b;
     }
 
     /**
@@ -402,38 +321,43 @@ public final class Ssdeep {
      * @param data The bytes to be hashed.
      * @return The SpamSum signature for the bytes.
      */
-    public String fuzzyHash(final byte[] data) {
-        final SsContext ctx = new SsContext(data);
-        while (true) {
-            final SpamSumSignature signature = ctx.generateHash(data);
-
-            // Our blocksize guess may have been way off, repeat with
-            // a smaller block size if necessary.
-            if ((ctx.blockSize > MIN_BLOCKSIZE) && (ctx.fuzzLen1 < (SPAMSUM_LENGTH / 2))) {
-                ctx.blockSize = ctx.blockSize / 2;
-            } else {
-                return signature.toString();
-            }
+    public String fuzzyHash(@Nullable final byte[] data) {
+        final SsContext ctx = new SsContext((data != null) ? data.length : 0);
+        if (data != null) {
+            ctx.applyBytes(data, 0, data.length);
         }
+        return ctx.finishHashing().toString();
     }
 
+    /**
+     * Calculate the SpamSum hash for the content of a channel. The channel is read once.
+     *
+     * @param sbcf The factory for the channel to be hashed.
+     * @return The SpamSum signature for the content.
+     */
     public String fuzzyHash(final SeekableByteChannelFactory sbcf) {
-        final SsContext ctx = new SsContext(sbcf);
-        while (true) {
-            final SpamSumSignature signature = ctx.generateHash(sbcf);
+        long expectedInputLength = 0;
+        try (SeekableByteChannel sbc = sbcf.create()) {
+            expectedInputLength = sbc.size();
+        } catch (final IOException ignored) {
+            // Ignore
+        }
 
-            // Our blocksize guess may have been way off, repeat with
-            // a smaller block size if necessary.
-            if ((ctx.blockSize > MIN_BLOCKSIZE) && (ctx.fuzzLen1 < (SPAMSUM_LENGTH / 2))) {
-                ctx.blockSize = ctx.blockSize / 2;
-            } else {
-                return signature.toString();
+        final SsContext ctx = new SsContext(expectedInputLength);
+        try (InputStream is = Channels.newInputStream(sbcf.create())) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != -1) {
+                ctx.applyBytes(buffer, 0, bytesRead);
             }
+        } catch (final IOException ignored) {
+            // Ignore
         }
+        return ctx.finishHashing().toString();
     }
 
     /**
-     * Calculates the SpamSum hash for specified stream.
+     * Calculates the SpamSum hash for specified stream. The file is read once.
      * 
      * @param file The input file to be hashed.
      * @return The SpamSum signature for the file.
@@ -441,19 +365,16 @@ public final class Ssdeep {
      */
     public String fuzzyHashFile(final File file) throws IOException {
         try (RandomAccessFile stream = new RandomAccessFile(file, "r")) {
-            final SsContext ctx = new SsContext(file);
+            final SsContext ctx = new SsContext(file.length());
+            final byte[] buffer = new byte[BUFFER_SIZE];
             while (true) {
-                stream.seek(0);
-                final SpamSumSignature signature = ctx.generateHash(stream);
-
-                // Our blocksize guess may have been way off, repeat with
-                // a smaller block size if necessary.
-                if ((ctx.blockSize > MIN_BLOCKSIZE) && (ctx.fuzzLen1 < (SPAMSUM_LENGTH / 2))) {
-                    ctx.blockSize = ctx.blockSize / 2;
-                } else {
-                    return signature.toString();
+                final int bytesRead = stream.read(buffer, 0, buffer.length);
+                if (bytesRead <= 0) {
+                    break; // No more input.
                 }
+                ctx.applyBytes(buffer, 0, bytesRead);
             }
+            return ctx.finishHashing().toString();
         }
     }
 
@@ -536,7 +457,7 @@ public final class Ssdeep {
      * @return An array containing the same content as {@code in}, except that any sequences of more than 3 identical bytes
      *         are truncated to 3 bytes. For example "aaabbbbcddddd" becomes "aaabbbcddd".
      */
-    private static byte[] eliminateLongSequences(final byte[] in) {
+    static byte[] eliminateLongSequences(final byte[] in) {
         if (in.length < 4) {
             return in; // There is not enough input to require any change.
         }
@@ -0,0 +1,231 @@
+package emissary.kff;
+
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in memory index of ssdeep signatures that finds the signatures most similar to a given one without comparing it to
+ * every signature in the index.
+ * <p>
+ * {@link Ssdeep#compare(SpamSumSignature, SpamSumSignature)} scores two signatures as zero unless a pair of their digests
+ * computed at the same block size share a run of {@link Ssdeep#ROLLING_WINDOW_SIZE} characters. Each signature holds a
+ * digest at its block size and one at twice its block size, so the index keeps, for every block size, an inverted list
+ * from each 7 character run to the signatures with a digest containing it. Only the signatures sharing a run with the
+ * query are scored, which gives the same results as comparing against every signature.
+ */
+public class SsdeepIndex {
+
+    private final Ssdeep ssdeep = new Ssdeep();
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    // Block size to 7 character run to the entries with a digest at that block size containing the run
+    private final Map<Long, Map<Long, Postings>> grams = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private static final class Entry {
+        private final SpamSumSignature signature;
+        private final String name;
+
+        private Entry(final SpamSumSignature signature, final String name) {
+            this.signature = signature;
+            this.name = name;
+        }
+    }
+
+    /**
+     * A growable list of entry ids
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size = 0;
+
+        private void add(final int id) {
+            // Runs repeated within one digest are only listed once
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * A signature found by a search
+     */
+    public static final class Match {
+        private final String name;
+        private final SpamSumSignature signature;
+        private final int score;
+
+        Match(final String name, final SpamSumSignature signature, final int score) {
+            this.name = name;
+            this.signature = signature;
+            this.score = score;
+        }
+
+        /**
+         * Get the name the signature was added with
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        public SpamSumSignature getSignature() {
+            return signature;
+        }
+
+        /**
+         * Get the similarity score
+         *
+         * @return the score from 0 to 100 where 100 is the best match
+         */
+        public int getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + score;
+        }
+    }
+
+    /**
+     * Add a signature
+     *
+     * @param signature the signature in the usual blocksize:hash:hash form
+     * @param name identifies the signature in search results
+     * @throws IllegalArgumentException if the signature is not valid
+     */
+    public void add(final String signature, final String name) {
+        add(new SpamSumSignature(signature), name);
+    }
+
+    /**
+     * Add a signature
+     *
+     * @param signature the signature
+     * @param name identifies the signature in search results
+     */
+    public void add(final SpamSumSignature signature, final String name) {
+        lock.writeLock().lock();
+        try {
+            final int id = entries.size();
+            entries.add(new Entry(signature, name));
+            addGrams(signature.getBlockSize(), signature.getHashPart1(), id);
+            addGrams(signature.getBlockSize() * 2, signature.getHashPart2(), id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addGrams(final long blockSize, final byte[] digest, final int id) {
+        final byte[] s = Ssdeep.eliminateLongSequences(digest);
+        if (s.length < Ssdeep.ROLLING_WINDOW_SIZE) {
+            return;
+        }
+        final Map<Long, Postings> lists = grams.computeIfAbsent(blockSize, k -> new HashMap<>());
+        for (int i = 0; i <= s.length - Ssdeep.ROLLING_WINDOW_SIZE; i++) {
+            lists.computeIfAbsent(gram(s, i), k -> new Postings()).add(id);
+        }
+    }
+
+    /**
+     * Pack a run of digest characters into a key
+     */
+    private static long gram(final byte[] s, final int start) {
+        long key = 0L;
+        for (int i = start; i < start + Ssdeep.ROLLING_WINDOW_SIZE; i++) {
+            key = (key << 8) | (s[i] & 0xff);
+        }
+        return key;
+    }
+
+    /**
+     * Get the number of signatures in the index
+     *
+     * @return the number of signatures added
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the signatures most similar to a signature
+     *
+     * @param signature the signature to look for
+     * @param minScore the lowest score returned, at least 1
+     * @param maxResults the most matches returned
+     * @return the matches, best first
+     */
+    public List<Match> search(final SpamSumSignature signature, final int minScore, final int maxResults) {
+        final int threshold = Math.max(1, minScore);
+        final List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            final Set<Integer> candidates = new HashSet<>();
+            findCandidates(signature.getBlockSize(), signature.getHashPart1(), candidates);
+            findCandidates(signature.getBlockSize() * 2, signature.getHashPart2(), candidates);
+            for (final Integer id : candidates) {
+                final Entry e = entries.get(id);
+                final int score = ssdeep.compare(signature, e.signature);
+                if (score >= threshold) {
+                    matches.add(new Match(e.name, e.signature, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(Match::getScore).reversed().thenComparing(Match::getName));
+        return matches.size() > maxResults ? new ArrayList<>(matches.subList(0, Math.max(0, maxResults))) : matches;
+    }
+
+    /**
+     * Find the signature most similar to a signature
+     *
+     * @param signature the signature to look for
+     * @param minScore the lowest score returned, at least 1
+     * @return the best match or null if no signature scores at least minScore
+     */
+    @Nullable
+    public Match best(final SpamSumSignature signature, final int minScore) {
+        final List<Match> matches = search(signature, minScore, 1);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    private void findCandidates(final long blockSize, final byte[] digest, final Set<Integer> candidates) {
+        final Map<Long, Postings> lists = grams.get(blockSize);
+        if (lists == null) {
+            return;
+        }
+        final byte[] s = Ssdeep.eliminateLongSequences(digest);
+        for (int i = 0; i <= s.length - Ssdeep.ROLLING_WINDOW_SIZE; i++) {
+            final Postings p = lists.get(gram(s, i));
+            if (p != null) {
+                for (int j = 0; j < p.size; j++) {
+                    candidates.add(p.ids[j]);
+                }
+            }
+        }
+    }
+}
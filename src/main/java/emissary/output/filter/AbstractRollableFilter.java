@@ -4,6 +4,7 @@ import emissary.config.ConfigUtil;
 import emissary.config.Configurator;
 import emissary.core.IBaseDataObject;
 import emissary.output.io.DateStampFilenameGenerator;
+import emissary.output.roller.BlockCompressor;
 import emissary.output.roller.IJournaler;
 import emissary.output.roller.JournaledCoalescer;
 import emissary.output.roller.journal.KeyedOutput;
@@ -14,6 +15,7 @@ import emissary.spi.ObjectTracing;
 import emissary.spi.ObjectTracingService;
 import emissary.util.io.FileNameGenerator;
 
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
@@ -37,6 +39,11 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
     public static final String MAX_OUTPUT_APPENDERS = "MAX_OUTPUT_APPENDERS";
     public static final String ROLL_INTERVAL_UNIT = "ROLL_INTERVAL_UNIT";
     public static final String ENABLE_OBJECT_TRACE = "ENABLE_OBJECT_TRACE";
+    public static final String ROLL_COMPRESSION = "ROLL_COMPRESSION";
+    public static final String ROLL_COMPRESSION_LEVEL = "ROLL_COMPRESSION_LEVEL";
+    public static final String ROLL_COMPRESSION_BLOCK_SIZE = "ROLL_COMPRESSION_BLOCK_SIZE";
+    public static final String ROLL_COMPRESSION_THREADS = "ROLL_COMPRESSION_THREADS";
+    public static final String ROLL_CHECKSUM = "ROLL_CHECKSUM";
 
     protected String defaultOutputPath = "./out";
     protected Path outputPath;
@@ -49,6 +56,12 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
     protected FileNameGenerator fileNameGenerator;
     protected boolean appendNewLine = true;
     protected boolean enableObjectTrace = false;
+    @Nullable
+    protected BlockCompressor.Format rollCompression = null;
+    protected int rollCompressionLevel = BlockCompressor.DEFAULT_LEVEL;
+    protected int rollCompressionBlockSize = BlockCompressor.DEFAULT_BLOCK_SIZE;
+    protected int rollCompressionThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+    protected boolean rollChecksum = false;
 
     /**
      * Method to convert payload(s) to an output type
@@ -102,6 +115,11 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
         this.rollInterval = this.filterConfig.findLongEntry(CFG_ROLL_INTERVAL, rollInterval);
         this.rollIntervalUnits = TimeUnit.valueOf(this.filterConfig.findStringEntry(ROLL_INTERVAL_UNIT, rollIntervalUnits.toString()));
         this.enableObjectTrace = this.filterConfig.findBooleanEntry(ENABLE_OBJECT_TRACE, enableObjectTrace);
+        this.rollCompression = BlockCompressor.formatOf(this.filterConfig.findStringEntry(ROLL_COMPRESSION, "NONE"));
+        this.rollCompressionLevel = this.filterConfig.findIntEntry(ROLL_COMPRESSION_LEVEL, rollCompressionLevel);
+        this.rollCompressionBlockSize = (int) this.filterConfig.findSizeEntry(ROLL_COMPRESSION_BLOCK_SIZE, rollCompressionBlockSize);
+        this.rollCompressionThreads = this.filterConfig.findIntEntry(ROLL_COMPRESSION_THREADS, rollCompressionThreads);
+        this.rollChecksum = this.filterConfig.findBooleanEntry(ROLL_CHECKSUM, rollChecksum);
     }
 
     /**
@@ -148,7 +166,22 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
      * @throws InterruptedException if the journal is interrupted
      */
     protected IJournaler createRollable() throws IOException, InterruptedException {
-        return new JournaledCoalescer(this.outputPath, this.fileNameGenerator, this.maxOutputAppenders);
+        if (this.rollCompression == null) {
+            return new JournaledCoalescer(this.outputPath, this.fileNameGenerator, this.maxOutputAppenders, null, this.rollChecksum);
+        }
+        logger.info("{} output will be compressed as {} in {} byte blocks on {} threads", getFilterName(), this.rollCompression,
+                this.rollCompressionBlockSize, this.rollCompressionThreads);
+        return new JournaledCoalescer(this.outputPath, this.fileNameGenerator, this.maxOutputAppenders,
+                new BlockCompressor(this.rollCompression, this.rollCompressionLevel, this.rollCompressionBlockSize, this.rollCompressionThreads));
+    }
+
+    /**
+     * Get the extension the roller adds to output file names
+     *
+     * @return the extension of the compressed format, or an empty string
+     */
+    protected String getRolledExtension() {
+        return this.rollCompression == null ? "" : this.rollCompression.getExtension();
     }
 
     /**
@@ -181,7 +214,7 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
     public int filter(final List<IBaseDataObject> payloadList, final Map<String, Object> params) {
         int code;
         try (KeyedOutput ko = this.rollable.getOutput()) {
-            params.put("CONTENT_URI_" + getFilterName(), "file://" + ko.getFinalDestination().toString());
+            params.put("CONTENT_URI_" + getFilterName(), "file://" + ko.getFinalDestination().toString() + getRolledExtension());
             params.put("CONTENT_FORMAT_" + getFilterName(), getFilterName());
             code = filter(payloadList, params, ko);
             if (code == STATUS_SUCCESS) {
@@ -192,7 +225,7 @@ public abstract class AbstractRollableFilter extends AbstractFilter {
             if (enableObjectTrace) {
                 for (IBaseDataObject d : payloadList) {
                     ObjectTracingService.emitLifecycleEvent(d, d.getFilename(), ObjectTracing.Stage.DROP_OFF, true, this.filterName,
-                            String.valueOf(ko.getFinalDestination().getFileName()));
+                            ko.getFinalDestination().getFileName() + getRolledExtension());
                 }
             }
         } catch (IOException e) {
@@ -2,6 +2,7 @@ package emissary.output.filter;
 
 import emissary.config.Configurator;
 import emissary.core.IBaseDataObject;
+import emissary.core.TransformHistory;
 import emissary.core.channels.SeekableByteChannelFactory;
 import emissary.directory.DirectoryEntry;
 import emissary.output.io.DateFilterFilenameGenerator;
@@ -39,7 +40,9 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
 
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_DEFAULT;
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY;
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
 
 /**
  * JSON Output filter using Jackson
@@ -87,6 +90,8 @@ public class JsonOutputFilter extends AbstractRollableFilter {
         jsonMapper.registerModule(new IbdoModule());
         jsonMapper.registerModule(new JavaTimeModule());
         jsonMapper.addMixIn(IBaseDataObject.class, emitPayload ? IbdoPayloadMixin.class : IbdoParameterMixin.class);
+        jsonMapper.addMixIn(TransformHistory.class, TransformHistoryMixin.class);
+        jsonMapper.addMixIn(TransformHistory.History.class, HistoryMixin.class);
         // the id in addFilter must match the annotation for JsonFilter
         jsonMapper.setFilterProvider(new SimpleFilterProvider().addFilter("param_filter", new IbdoParameterFilter()));
     }
@@ -353,4 +358,19 @@ public class JsonOutputFilter extends AbstractRollableFilter {
         @JsonInclude(NON_EMPTY)
         abstract Map<String, byte[]> getAlternateViews();
     }
+
+    /**
+     * Only write the time spent in places when visits were timed
+     */
+    abstract static class TransformHistoryMixin {
+        @JsonProperty("totalNanos")
+        @JsonInclude(NON_DEFAULT)
+        abstract long getTotalNanos();
+    }
+
+    abstract static class HistoryMixin {
+        @JsonProperty("timing")
+        @JsonInclude(NON_NULL)
+        abstract TransformHistory.Timing getTiming();
+    }
 }
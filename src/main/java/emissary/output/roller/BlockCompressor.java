@@ -0,0 +1,184 @@
+package emissary.output.roller;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Checksum;
+
+/**
+ * Compresses rolled output in fixed size blocks on a small pool of threads. Each block becomes a complete gzip member
+ * and the members are written in order, which gzip readers treat as one stream. Blocks are compressed independently so
+ * several can be worked on at once, the same approach pigz takes, and only a few blocks are held in memory at a time.
+ */
+public class BlockCompressor implements Closeable {
+
+    /**
+     * Supported output formats
+     */
+    public enum Format {
+        GZIP(".gz");
+
+        private final String extension;
+
+        Format(final String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    public static final int DEFAULT_LEVEL = 6;
+
+    private final Format format;
+    private final int level;
+    private final int blockSize;
+    private final int threads;
+    private final ExecutorService pool;
+
+    /**
+     * Create a compressor
+     *
+     * @param format the output format
+     * @param level the compression level from 1 to 9
+     * @param blockSize the number of input bytes in each block
+     * @param threads the number of threads compressing blocks
+     */
+    public BlockCompressor(final Format format, final int level, final int blockSize, final int threads) {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("Compression level must be from 1 to 9: " + level);
+        }
+        if (blockSize < 1 || threads < 1) {
+            throw new IllegalArgumentException("Block size and threads must be positive: " + blockSize + ", " + threads);
+        }
+        this.format = format;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.threads = threads;
+        final AtomicInteger count = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = new Thread(r, "BlockCompressor-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Look up a format by name
+     *
+     * @param name the format name, or NONE
+     * @return the format, or null for NONE or a blank name
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    @Nullable
+    public static Format formatOf(@Nullable final String name) {
+        if (name == null || name.isBlank() || "NONE".equalsIgnoreCase(name.trim())) {
+            return null;
+        }
+        return Format.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public String getExtension() {
+        return format.getExtension();
+    }
+
+    /**
+     * Compress bytes from one channel to another
+     *
+     * @param in where to read, from its current position
+     * @param count the number of bytes to read
+     * @param out where to write the compressed blocks
+     * @param checksum updated with the bytes read
+     * @return the number of compressed bytes written
+     * @throws IOException if reading or writing fails, or fewer than count bytes can be read
+     */
+    public long compress(final ReadableByteChannel in, final long count, final WritableByteChannel out, final Checksum checksum) throws IOException {
+        final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        final int window = threads * 2;
+        long remaining = count;
+        long written = 0L;
+        try {
+            while (remaining > 0L) {
+                final byte[] block = read(in, (int) Math.min(blockSize, remaining), count - remaining, count);
+                checksum.update(block, 0, block.length);
+                remaining -= block.length;
+                pending.add(pool.submit(() -> compressBlock(block)));
+                if (pending.size() >= window) {
+                    written += write(pending.poll(), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                written += write(pending.poll(), out);
+            }
+            return written;
+        } finally {
+            for (final Future<byte[]> f : pending) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    private static byte[] read(final ReadableByteChannel in, final int length, final long done, final long count) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (in.read(buf) < 0) {
+                throw new IOException("Premature EOF. Expected " + count + ", but only read " + (done + buf.position()));
+            }
+        }
+        return buf.array();
+    }
+
+    private static long write(final Future<byte[]> result, final WritableByteChannel out) throws IOException {
+        final byte[] compressed;
+        try {
+            compressed = result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted compressing output");
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to compress output block", e.getCause());
+        }
+        final ByteBuffer buf = ByteBuffer.wrap(compressed);
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        return compressed.length;
+    }
+
+    private byte[] compressBlock(final byte[] block) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(block.length / 4 + 64);
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setCompressionLevel(level);
+        try (GzipCompressorOutputStream gzip = new GzipCompressorOutputStream(bytes, parameters)) {
+            gzip.write(block);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -7,12 +7,14 @@ import emissary.output.roller.journal.JournaledChannelPool;
 import emissary.output.roller.journal.KeyedOutput;
 import emissary.util.io.FileNameGenerator;
 
+import jakarta.annotation.Nullable;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.DirectoryStream;
@@ -22,7 +24,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
 
 import static emissary.output.roller.journal.Journal.EXT;
 import static emissary.output.roller.journal.JournaledChannelPool.EXTENSION;
@@ -40,7 +44,10 @@ import static java.nio.file.StandardOpenOption.WRITE;
  * Journal serves as a write ahead log and records positions of all open file handles until rolled.
  * <p>
  * During a roll, all Journals are identified and their outputs are combined into a destination filename denoted by the
- * FileNameGenerator.
+ * FileNameGenerator. When a {@link BlockCompressor} is given the combined output is compressed as it is written and the
+ * rolled file gets the extension of the compressed format. The size of each part added to a rolled file is logged,
+ * with its CRC32 when compressing or when asked to checksum uncompressed parts. Otherwise uncompressed parts are copied
+ * with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} and never pass through the heap.
  *
  */
 public class JournaledCoalescer implements IJournaler, ICoalescer {
@@ -86,6 +93,27 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
      * Part/journal file matcher
      */
     private static final String PART_GLOB = "*{" + EXTENSION + "," + EXT + "}";
+    /**
+     * Compresses the combined output, null to copy the part files as they are
+     */
+    @Nullable
+    private final BlockCompressor compressor;
+    /**
+     * Buffer size used to copy and checksum uncompressed part files
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    /**
+     * Reused to copy uncompressed parts when they are checksummed, null to transfer them directly. Rolls run one at a time.
+     */
+    @Nullable
+    private final ByteBuffer copyBuffer;
+    /**
+     * Bytes read from part files and bytes written to rolled files, by this object and by all of them
+     */
+    private final AtomicLong partBytes = new AtomicLong();
+    private final AtomicLong rolledBytes = new AtomicLong();
+    private static final AtomicLong totalPartBytes = new AtomicLong();
+    private static final AtomicLong totalRolledBytes = new AtomicLong();
 
     /**
      * @see JournaledCoalescer#JournaledCoalescer(java.nio.file.Path, FileNameGenerator, int)
@@ -105,9 +133,41 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
      * @param poolsize The max number of outputs for the pool.
      */
     public JournaledCoalescer(final Path outPath, final FileNameGenerator fileNameGenerator, int poolsize) throws IOException {
+        this(outPath, fileNameGenerator, poolsize, null);
+    }
+
+    /**
+     * The Rollable with take all files in a Path and combine them into a single, optionally compressed, destination file on
+     * each roll.
+     *
+     * @param outPath The Path to use for reading input and writing combined output
+     * @param fileNameGenerator The FileNameGenerator to use for unique destination file names
+     * @param poolsize The max number of outputs for the pool.
+     * @param compressor compresses the combined output, closed with this object, or null to leave it uncompressed
+     */
+    public JournaledCoalescer(final Path outPath, final FileNameGenerator fileNameGenerator, int poolsize, @Nullable BlockCompressor compressor)
+            throws IOException {
+        this(outPath, fileNameGenerator, poolsize, compressor, false);
+    }
+
+    /**
+     * The Rollable with take all files in a Path and combine them into a single, optionally compressed, destination file on
+     * each roll.
+     *
+     * @param outPath The Path to use for reading input and writing combined output
+     * @param fileNameGenerator The FileNameGenerator to use for unique destination file names
+     * @param poolsize The max number of outputs for the pool.
+     * @param compressor compresses the combined output, closed with this object, or null to leave it uncompressed
+     * @param checksum true to log the CRC32 of uncompressed parts, which copies them through a buffer instead of
+     *        transferring them directly. Compressed parts are always checksummed.
+     */
+    public JournaledCoalescer(final Path outPath, final FileNameGenerator fileNameGenerator, int poolsize, @Nullable BlockCompressor compressor,
+            boolean checksum) throws IOException {
         this.outputPath = outPath.toAbsolutePath();
         this.fileNameGenerator = fileNameGenerator;
         this.poolsize = poolsize;
+        this.compressor = compressor;
+        this.copyBuffer = (compressor == null && checksum) ? ByteBuffer.allocateDirect(COPY_BUFFER_SIZE) : null;
         validateOutputPath();
         cleanupOrphanedRolledFiles();
         initializeNextPool();
@@ -136,7 +196,7 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
             for (Path entry : stream) {
                 String finalOutputFilename = FilenameUtils.getBaseName(entry.toString());
                 if (isOrphanedFile(finalOutputFilename)) {
-                    finalizeRoll(entry, outputPath.resolve(finalOutputFilename));
+                    finalizeRoll(entry, outputPath.resolve(finalOutputFilename + getExtension()));
                 }
             }
         } catch (IOException e) {
@@ -188,6 +248,54 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
     @Override
     public void close() throws IOException {
         roll();
+        if (compressor != null) {
+            compressor.close();
+        }
+    }
+
+    /**
+     * Get the extension added to rolled file names
+     *
+     * @return the extension of the compressed format, or an empty string when the output is not compressed
+     */
+    public String getExtension() {
+        return compressor == null ? "" : compressor.getExtension();
+    }
+
+    /**
+     * Get the number of bytes read from part files
+     *
+     * @return the total since this object was created
+     */
+    public long getPartBytes() {
+        return partBytes.get();
+    }
+
+    /**
+     * Get the number of bytes written to rolled files, which is less than the part bytes when compressing
+     *
+     * @return the total since this object was created
+     */
+    public long getRolledBytes() {
+        return rolledBytes.get();
+    }
+
+    /**
+     * Get the number of bytes read from part files by all coalescers
+     *
+     * @return the total since startup
+     */
+    public static long getTotalPartBytes() {
+        return totalPartBytes.get();
+    }
+
+    /**
+     * Get the number of bytes written to rolled files by all coalescers
+     *
+     * @return the total since startup
+     */
+    public static long getTotalRolledBytes() {
+        return totalRolledBytes.get();
     }
 
     @Override
@@ -238,7 +346,7 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
     protected void coalesceFiles(String key, Collection<Journal> journals) {
         try {
             // Create the path to the final outputFile
-            Path finalOutputPath = this.outputPath.resolve(key);
+            Path finalOutputPath = this.outputPath.resolve(key + getExtension());
             Path rolledOutputPath = this.outputPath.resolve(key + ROLLED_EXT);
 
             // Check to see if we already rolled files successfully and crashed on deletion
@@ -262,7 +370,8 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
             }
 
             Files.move(workingOutputPath, rolledOutputPath);
-            LOG.info("Successfully coalesced {} files into: {}. Size: {}", journals.size(), rolledOutputPath, Files.size(rolledOutputPath));
+            LOG.info("Successfully coalesced {} files into: {}. Size: {}{}", journals.size(), rolledOutputPath, Files.size(rolledOutputPath),
+                    compressor == null ? "" : " compressed as " + compressor.getFormat());
 
             finalizeRoll(journals, rolledOutputPath, finalOutputPath);
         } catch (IOException ex) {
@@ -294,17 +403,25 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
                 LOG.warn("The bgpart file, {}, likely lost data due to a crash. Part size: {}, Expected {}, Actual: {}", last.getVal(), partSize,
                         last.getOffset(), offset);
             }
-            long xfer;
-            // for loop due to contract of channel.transferTo()
-            for (long count = offset; count > 0L;) {
-                xfer = part.transferTo(part.position(), count, rolledOutput);
-                part.position(part.position() + xfer);
-                count -= xfer;
-                if (part.position() == partSize && count > 0L) {
-                    throw new IOException("Premature EOF. Expected " + offset + ", but only transferred " + partSize);
+            long written;
+            if (compressor == null && copyBuffer == null) {
+                transfer(part, offset, partSize, rolledOutput);
+                written = rolledOutput.position() - startPos;
+                LOG.info("Appended {} bytes from {} to output file.", offset, p);
+            } else {
+                CRC32 crc = new CRC32();
+                if (compressor == null) {
+                    copy(part, offset, partSize, rolledOutput, copyBuffer, crc);
+                } else {
+                    compressor.compress(part, offset, rolledOutput, crc);
                 }
+                written = rolledOutput.position() - startPos;
+                LOG.info("Appended {} bytes, crc32 {}, from {} to output file as {} bytes.", offset, Long.toHexString(crc.getValue()), p, written);
             }
-            LOG.debug("Successfully appended {} bytes from {} to output file.", offset, p);
+            partBytes.addAndGet(offset);
+            rolledBytes.addAndGet(written);
+            totalPartBytes.addAndGet(offset);
+            totalRolledBytes.addAndGet(written);
         } catch (IOException ex) {
             LOG.error("Exception attempting to transfer {} bytes from {} to output", offset, p.toString(), ex);
             renameToError(p);
@@ -314,6 +431,36 @@ public class JournaledCoalescer implements IJournaler, ICoalescer {
         }
     }
 
+    private static void transfer(FileChannel part, long offset, long partSize, SeekableByteChannel rolledOutput) throws IOException {
+        long xfer;
+        // for loop due to contract of channel.transferTo()
+        for (long count = offset; count > 0L;) {
+            xfer = part.transferTo(part.position(), count, rolledOutput);
+            part.position(part.position() + xfer);
+            count -= xfer;
+            if (part.position() == partSize && count > 0L) {
+                throw new IOException("Premature EOF. Expected " + offset + ", but only transferred " + partSize);
+            }
+        }
+    }
+
+    private static void copy(FileChannel part, long offset, long partSize, SeekableByteChannel rolledOutput, ByteBuffer buf, CRC32 crc)
+            throws IOException {
+        // the bytes are copied through a buffer rather than with transferTo() so they can be checksummed on the way
+        for (long count = offset; count > 0L;) {
+            buf.clear().limit((int) Math.min(buf.capacity(), count));
+            if (part.read(buf) < 0) {
+                throw new IOException("Premature EOF. Expected " + offset + ", but only transferred " + partSize);
+            }
+            buf.flip();
+            count -= buf.remaining();
+            crc.update(buf.duplicate());
+            while (buf.hasRemaining()) {
+                rolledOutput.write(buf);
+            }
+        }
+    }
+
     @Override
     public boolean isRolling() {
         return this.rolling;
@@ -1,5 +1,7 @@
 package emissary.parser;
 
+import emissary.core.channels.SeekableByteChannelFactory;
+
 import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +16,9 @@ import java.util.Arrays;
  * zero or more complete sessions within it. The chunk buffer will begin at minChunkSize, but grow as large as
  * maxChunkSize in order to accomodate a complete session. Sessions larger than maxChunkSize will lead to
  * ParserExceptions
+ * <p>
+ * When a source channel factory describing the same bytes as the channel is supplied, the parser runs in zero-copy mode
+ * and sessions reference segments of that factory instead of carrying copies of their data.
  */
 public abstract class NIOSessionParser extends SessionParser {
     // Logger
@@ -24,6 +29,10 @@ public abstract class NIOSessionParser extends SessionParser {
     /** The data source for this parser */
     protected SeekableByteChannel channel;
 
+    /** Optional factory over the same bytes as the channel, enables zero-copy sessions when set */
+    @Nullable
+    protected SeekableByteChannelFactory sourceChannelFactory = null;
+
     /** The start position of the current chunk relative to the data source */
     protected int chunkStart = 0;
 
@@ -68,6 +77,35 @@ public abstract class NIOSessionParser extends SessionParser {
         }
     }
 
+    /**
+     * Get the factory that session data segments are created from
+     *
+     * @return the source channel factory or null when not in zero-copy mode
+     */
+    @Nullable
+    public SeekableByteChannelFactory getSourceChannelFactory() {
+        return sourceChannelFactory;
+    }
+
+    /**
+     * Supply a factory over the same bytes as the channel being parsed. When set, sessions are produced with a
+     * {@link DecomposedSession#getDataChannelFactory()} that is a segment of this factory and no data bytes are copied.
+     *
+     * @param sbcf the factory over the parser input or null to copy session data
+     */
+    public void setSourceChannelFactory(@Nullable SeekableByteChannelFactory sbcf) {
+        sourceChannelFactory = sbcf;
+    }
+
+    /**
+     * Indicate whether sessions are produced as references into the source channel factory
+     *
+     * @return true when in zero-copy mode
+     */
+    public boolean isZeroCopy() {
+        return sourceChannelFactory != null;
+    }
+
     /**
      * Read more data, starting where the last read left off. Read in <code>chunksize</code> bytes.
      *
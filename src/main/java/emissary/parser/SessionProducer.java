@@ -2,6 +2,7 @@ package emissary.parser;
 
 import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
+import emissary.core.channels.SeekableByteChannelFactory;
 
 import jakarta.annotation.Nullable;
 
@@ -90,7 +91,16 @@ public class SessionProducer {
             sName = defaultSessionName;
         }
 
-        IBaseDataObject dataObject = DataObjectFactory.getInstance(new Object[] {theData, sName});
+        IBaseDataObject dataObject;
+        SeekableByteChannelFactory dataChannelFactory = session.getDataChannelFactory();
+        if (dataChannelFactory != null) {
+            // Zero-copy session, the data stays in the parser input
+            dataObject = DataObjectFactory.getInstance();
+            dataObject.setFilename(sName);
+            dataObject.setChannelFactory(dataChannelFactory);
+        } else {
+            dataObject = DataObjectFactory.getInstance(new Object[] {theData, sName});
+        }
 
         // Pop default form if we have something to say
         if (initialForms != null && !initialForms.isEmpty()) {
@@ -1,5 +1,9 @@
 package emissary.parser;
 
+import emissary.core.channels.ConcatenateChannelFactory;
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SegmentChannelFactory;
+
 import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,8 +50,14 @@ public class SimpleNioParser extends NIOSessionParser {
 
                 d.setFooter(makeDataSlice(session.getFooter()));
 
-                d.setData(makeDataSlice(session.getData()));
-                long length = d.getData() == null ? -1L : d.getData().length;
+                long length;
+                if (isZeroCopy()) {
+                    d.setDataChannelFactory(makeChannelSlice(session.getData()));
+                    length = d.hasDataChannelFactory() ? totalLength(session.getData()) : -1L;
+                } else {
+                    d.setData(makeDataSlice(session.getData()));
+                    length = d.getData() == null ? -1L : d.getData().length;
+                }
 
                 // Cook the raw metadata and transfer to DecomposedSession
                 Map<String, Object> md = session.getMetaData();
@@ -208,4 +218,36 @@ public class SimpleNioParser extends NIOSessionParser {
         return n.array();
     }
 
+    /**
+     * Reference data in the source channel factory based on a list of position records without copying any bytes
+     *
+     * @param records the list of position records indicating absolute offsets
+     * @return a factory over the referenced segments or null if there are no records
+     */
+    @Nullable
+    SeekableByteChannelFactory makeChannelSlice(@Nullable List<PositionRecord> records) {
+        if (records == null || records.isEmpty() || sourceChannelFactory == null) {
+            return null;
+        }
+
+        SeekableByteChannelFactory slice = null;
+        for (PositionRecord r : records) {
+            SeekableByteChannelFactory segment = SegmentChannelFactory.create(sourceChannelFactory, r.getPosition(), r.getLength());
+            slice = slice == null ? segment : ConcatenateChannelFactory.create(slice, segment);
+        }
+        return slice;
+    }
+
+    /**
+     * Total number of bytes described by a list of position records
+     *
+     * @param records the list of position records
+     */
+    static long totalLength(List<PositionRecord> records) {
+        long total = 0;
+        for (PositionRecord r : records) {
+            total += r.getLength();
+        }
+        return total;
+    }
 }
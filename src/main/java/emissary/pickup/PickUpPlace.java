@@ -8,7 +8,10 @@ import emissary.core.IBaseDataObject;
 import emissary.core.IMobileAgent;
 import emissary.core.NamespaceException;
 import emissary.core.channels.InMemoryChannelFactory;
+import emissary.core.channels.MemoryMappedChannelFactory;
 import emissary.log.MDCConstants;
+import emissary.parser.DecomposedSession;
+import emissary.parser.NIOSessionParser;
 import emissary.parser.ParserEOFException;
 import emissary.parser.ParserException;
 import emissary.parser.ParserFactory;
@@ -18,6 +21,7 @@ import emissary.place.AgentsNotSupportedPlace;
 import emissary.place.IServiceProviderPlace;
 import emissary.place.ServiceProviderPlace;
 import emissary.pool.AgentPool;
+import emissary.pool.PayloadAdmissionController;
 import emissary.spi.ObjectTracing;
 import emissary.spi.ObjectTracingService;
 import emissary.util.ClassComparator;
@@ -39,6 +43,13 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static emissary.core.constants.Parameters.FILE_DATE;
 import static emissary.core.constants.Parameters.FILE_NAME;
@@ -58,6 +69,10 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
     protected long maximumContentLength = 1048567;
     protected String oversizeArea = "OversizeData";
 
+    // True sends files that cannot fit within the agent pool
+    // in flight payload limit down the oversize path
+    protected boolean oversizeOverInFlightLimit = false;
+
     // Directory store original data while processing
     protected String holdingArea;
 
@@ -75,6 +90,21 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
     // the simple parsers
     protected boolean simpleMode = false;
 
+    // True maps session files and hands out segments of the
+    // mapping instead of copying session data onto the heap
+    protected boolean zeroCopySessions = false;
+
+    // Threads that build and dispatch sessions while the parser
+    // scans ahead, zero keeps session production on the caller
+    protected int sessionPipelineThreads = 0;
+
+    // Most sessions parsed ahead of dispatch in pipelined mode
+    protected int sessionPipelineDepth = 0;
+
+    // Pool for pipelined session production
+    @Nullable
+    protected ExecutorService sessionPipelineExecutor = null;
+
     // Reference to global agent pool for out payloads
     protected AgentPool agentPool;
 
@@ -168,10 +198,15 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
      * <li>MINIMUM_DATA_SIZE: min size in bytes of a file</li>
      * <li>MAXIMUM_DATA_SIZE: max size in bytes of a file, -1 for unlimited</li>
      * <li>OVERSIZE_DATA_HOLDING_AREA: where to put oversize data</li>
+     * <li>OVERSIZE_OVER_INFLIGHT_LIMIT: boolean when true files larger than the agent pool in flight payload limit are
+     * treated as oversize instead of waiting to run alone</li>
      * <li>HOLDING_AREA: where to put data while inprocess</li>
      * <li>ERROR_DATA: where to put things that have errors</li>
      * <li>DONE_DATA: where it goes when done</li>
      * <li>SIMPLE_MODE: boolean when true turns off DataIdentification engine</li>
+     * <li>ZERO_COPY_SESSIONS: boolean when true session data references the mapped input file instead of being copied</li>
+     * <li>SESSION_PIPELINE_THREADS: threads building and dispatching sessions of one file, 0 to disable</li>
+     * <li>SESSION_PIPELINE_DEPTH: most sessions parsed ahead of dispatch, defaults to twice the threads</li>
      * <li>INITIAL_FORM: one or more forms for new payloads</li>
      * </ul>
      */
@@ -179,8 +214,11 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
         minimumContentLength = configG.findIntEntry("MINIMUM_DATA_SIZE", minimumContentLength);
         maximumContentLength = configG.findSizeEntry("MAXIMUM_DATA_SIZE", maximumContentLength);
         oversizeArea = configG.findStringEntry("OVERSIZE_DATA_HOLDING_AREA", oversizeArea);
+        oversizeOverInFlightLimit = configG.findBooleanEntry("OVERSIZE_OVER_INFLIGHT_LIMIT", oversizeOverInFlightLimit);
 
         simpleMode = configG.findBooleanEntry("SIMPLE_MODE", false);
+        zeroCopySessions = configG.findBooleanEntry("ZERO_COPY_SESSIONS", zeroCopySessions);
+        configureSessionPipeline();
         holdingArea = configG.findCanonicalFileNameEntry("HOLDING_AREA", null);
         doneArea = configG.findCanonicalFileNameEntry("DONE_DATA", doneArea);
         errorArea = configG.findCanonicalFileNameEntry("ERROR_DATA", "errorArea");
@@ -213,6 +251,41 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
         configureDiskSpaceMonitoring();
     }
 
+    /**
+     * Create the pool used to build and dispatch sessions when SESSION_PIPELINE_THREADS is positive
+     */
+    protected void configureSessionPipeline() {
+        sessionPipelineThreads = configG.findIntEntry("SESSION_PIPELINE_THREADS", sessionPipelineThreads);
+        if (sessionPipelineThreads <= 0) {
+            return;
+        }
+
+        sessionPipelineDepth = configG.findIntEntry("SESSION_PIPELINE_DEPTH", 2 * sessionPipelineThreads);
+        if (sessionPipelineDepth < sessionPipelineThreads) {
+            sessionPipelineDepth = sessionPipelineThreads;
+        }
+
+        String threadPrefix = "SessionPipeline-" + getClass().getSimpleName() + "-";
+        AtomicInteger threadCount = new AtomicInteger();
+        sessionPipelineExecutor = Executors.newFixedThreadPool(sessionPipelineThreads, r -> {
+            Thread thread = new Thread(r, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Session pipeline configured with {} threads and depth {}", sessionPipelineThreads, sessionPipelineDepth);
+    }
+
+    /**
+     * Stop the session pipeline pool
+     */
+    @Override
+    public void shutDown() {
+        if (sessionPipelineExecutor != null) {
+            sessionPipelineExecutor.shutdownNow();
+        }
+        super.shutDown();
+    }
+
     /**
      * Configures disk space monitoring if enabled in the configuration. When disk space exceeds the configured threshold,
      * {@link #onDiskSpaceExceeded(Path, double, long)} will be called. When disk space returns below the resume threshold,
@@ -463,11 +536,25 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
             isOversize = true;
             // Let it continue on knowing it is too big
             // as we may need a record of the file
+        } else if (exceedsInFlightLimit(f.length())) {
+            logger.warn("Sorry, This file is larger than the in flight payload limit ({}): {}", f.length(), f.getPath());
+            isOversize = true;
         }
         String fixedName = fixFileName(f.getName());
         return processDataFile(f, fixedName, isOversize, simpleMode, getDoneArea());
     }
 
+    /**
+     * Determine whether content of this size should take the oversize path because it can never fit within the in flight
+     * payload limit of the agent pool
+     *
+     * @param length size of the content in bytes
+     * @return true if configured to do so and the content exceeds the limit
+     */
+    protected boolean exceedsInFlightLimit(long length) {
+        return oversizeOverInFlightLimit && agentPool != null && agentPool.getAdmissionController().exceedsBudget(length);
+    }
+
     /**
      * Call back from a data server or queue server when a new file is ready to process
      * 
@@ -770,10 +857,17 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
             // Get the right type of session parser
             SessionParser sp = parserFactory.makeSessionParser(raf.getChannel());
             logger.debug("Using session parser from raf ident {}", sp.getClass().getName());
+            if (zeroCopySessions) {
+                enableZeroCopy(sp, raf, theFile);
+            }
 
             // ... and a session producer to crank out the data objects...
             SessionProducer dof = new SessionProducer(sp);
 
+            if (sessionPipelineExecutor != null) {
+                return processSessionsPipelined(sp, dof, theFile, fixedName);
+            }
+
             long fileStart = System.currentTimeMillis();
             long totalSize = 0;
 
@@ -789,9 +883,10 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
                     logger.debug("Pulled session {} from {} shortName={}", sessionName, theFile.getName(), dataObject.shortName());
                     sessionNum++;
                     long sessionEnd = System.currentTimeMillis();
-                    totalSize += dataObject.data().length;
+                    int sessionSize = dataObject.dataLength();
+                    totalSize += sessionSize;
                     logger.info("sessionParseMetric:{},{},{},{},{},{}", sessionEnd - sessionStart, sp.getClass().getName(), theFile, sessionName,
-                            sessionNum, dataObject.data().length);
+                            sessionNum, sessionSize);
                     processDataObject(dataObject, sessionName, theFile, false);
                 } catch (ParserEOFException eof) {
                     // expected at end of file
@@ -809,6 +904,105 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
         return sessionNum;
     }
 
+    /**
+     * Parse out sessions on the calling thread while the session pipeline pool builds the data objects and waits for
+     * agents. At most SESSION_PIPELINE_DEPTH sessions are parsed ahead of dispatch. Returns only once every parsed session
+     * has been dispatched, so the file can then be handled as done or in error as usual. Sessions may reach agents out of
+     * order, and {@link SessionParser#getSessionName(DecomposedSession)} is called from the pool threads.
+     *
+     * @param sp the session parser for the file
+     * @param dof the producer building data objects from the sessions
+     * @param theFile file being processed
+     * @param fixedName the good short name of the file
+     * @return count of sessions parsed
+     * @throws ParserException if the file cannot be parsed or a session cannot be dispatched
+     */
+    protected int processSessionsPipelined(SessionParser sp, SessionProducer dof, File theFile, String fixedName) throws ParserException {
+        final Semaphore inFlight = new Semaphore(sessionPipelineDepth);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final AtomicLong totalSize = new AtomicLong();
+        final String parserName = sp.getClass().getName();
+        final long fileStart = System.currentTimeMillis();
+        int sessionNum = 0;
+
+        try {
+            while (failure.get() == null) {
+                final long sessionStart = System.currentTimeMillis();
+                final DecomposedSession session;
+                try {
+                    session = sp.getNextSession();
+                } catch (ParserEOFException eof) {
+                    // expected at end of file
+                    break;
+                }
+
+                sessionNum++;
+                final int thisSession = sessionNum;
+                final String sessionName = fixedName + "-" + thisSession;
+                inFlight.acquire();
+                try {
+                    sessionPipelineExecutor.execute(() -> {
+                        try {
+                            IBaseDataObject dataObject = dof.createAndLoadDataObject(session, sessionName);
+                            int sessionSize = dataObject.dataLength();
+                            totalSize.addAndGet(sessionSize);
+                            logger.info("sessionParseMetric:{},{},{},{},{},{}", System.currentTimeMillis() - sessionStart, parserName, theFile,
+                                    sessionName, thisSession, sessionSize);
+                            processDataObject(dataObject, sessionName, theFile, false);
+                        } catch (EmissaryException | RuntimeException ex) {
+                            failure.compareAndSet(null, ex);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    inFlight.release();
+                    throw new ParserException("Session pipeline is shut down, could not process " + theFile.getName(), ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ParserException("Interrupted while processing " + theFile.getName(), ex);
+        } finally {
+            // Every parsed session must be dispatched before the file is moved
+            inFlight.acquireUninterruptibly(sessionPipelineDepth);
+            inFlight.release(sessionPipelineDepth);
+        }
+
+        if (failure.get() != null) {
+            logger.error("Could not dispatch {}", theFile.getName(), failure.get());
+            throw new ParserException("Could not process" + theFile.getName(), failure.get());
+        }
+
+        logger.info("fileParseMetric:{},{},{},{},{}", System.currentTimeMillis() - fileStart, parserName, theFile, sessionNum, totalSize.get());
+        logger.debug("Done processing {} pipelined sessions from {}", sessionNum, theFile.getName());
+        return sessionNum;
+    }
+
+    /**
+     * Switch the parser to zero-copy mode by mapping the file it is reading. The mapping outlives the file being moved to
+     * the done area or deleted, so payloads stay readable after this place has finished with the file. Parsers that do not
+     * support it, or files too large to map, are left copying session data.
+     *
+     * @param sp the session parser for the file
+     * @param raf the open file
+     * @param theFile the file being parsed
+     * @return true if zero-copy mode was enabled
+     * @throws IOException If there is some I/O problem.
+     */
+    protected boolean enableZeroCopy(SessionParser sp, RandomAccessFile raf, File theFile) throws IOException {
+        if (!(sp instanceof NIOSessionParser)) {
+            logger.debug("Parser {} does not support zero-copy sessions for {}", sp.getClass().getName(), theFile.getName());
+            return false;
+        }
+        if (raf.length() > MemoryMappedChannelFactory.MAX_MAPPED_SIZE) {
+            logger.debug("File {} is too large to map, copying session data", theFile.getName());
+            return false;
+        }
+        ((NIOSessionParser) sp).setSourceChannelFactory(MemoryMappedChannelFactory.create(raf.getChannel()));
+        return true;
+    }
+
     /**
      * Parse out sessions and process data from a byte array
      * 
@@ -889,7 +1083,9 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
     }
 
     /**
-     * Retrieve and agent from the specified pool and assign the payload to it
+     * Retrieve and agent from the specified pool and assign the payload to it. The payload is first admitted against the in
+     * flight payload limit of the pool, blocking while too many payload bytes are being carried by active agents. The bytes
+     * are released when the agent is returned to the pool.
      * 
      * @param payload the payload for the agent
      * @param agentPool the pool of agents
@@ -915,22 +1111,44 @@ public abstract class PickUpPlace extends ServiceProviderPlace implements IPickU
                 agentPool = AgentPool.lookup();
             }
 
-            do {
-                loopCount++;
-                try {
-                    agent = agentPool.borrowAgent();
-                } catch (Exception e) {
-                    if (!warningGiven) {
-                        slogger.debug("Cannot get agent from pool, trying again ", e);
-                        warningGiven = true;
+            long payloadBytes = PayloadAdmissionController.sizeOf(payload);
+            PayloadAdmissionController admission = agentPool.getAdmissionController();
+            try {
+                if (!admission.admit(payloadBytes, timeoutMs)) {
+                    throw new EmissaryException("No room in flight for " + payloadBytes + " bytes of " + payload.shortName() + ", " + admission);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmissaryException("Interrupted waiting for room in flight for " + payload.shortName(), e);
+            }
+
+            boolean charged = false;
+            try {
+                do {
+                    loopCount++;
+                    try {
+                        agent = agentPool.borrowAgent();
+                    } catch (Exception e) {
+                        if (!warningGiven) {
+                            slogger.debug("Cannot get agent from pool, trying again ", e);
+                            warningGiven = true;
+                        }
                     }
+                } while (agent == null && (timeoutMs < 0 || (startTime + timeoutMs) < System.currentTimeMillis()));
+
+                if (agent == null) {
+                    throw new EmissaryException("No agent found for " + payload.shortName() + " after " + loopCount + " tries.");
+                } else if (loopCount > 1) {
+                    slogger.info("Found agent after {} tries", loopCount);
                 }
-            } while (agent == null && (timeoutMs < 0 || (startTime + timeoutMs) < System.currentTimeMillis()));
 
-            if (agent == null) {
-                throw new EmissaryException("No agent found for " + payload.shortName() + " after " + loopCount + " tries.");
-            } else if (loopCount > 1) {
-                slogger.info("Found agent after {} tries", loopCount);
+                // Charge before go, the agent may finish and return itself before go returns
+                agentPool.chargeAgent(agent, payloadBytes);
+                charged = true;
+            } finally {
+                if (!charged) {
+                    admission.release(payloadBytes);
+                }
             }
 
             agent.go(payload, startingLocation);
@@ -10,9 +10,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of a pick up place that talks to a one or more WorkSpace instances for obtaining distributed work.
+ * <p>
+ * When LEASE_MAX_BUNDLES is positive, work is pulled several bundles at a time under a lease that is renewed in the
+ * background until each bundle is completed, and an idle space is long-polled instead of waiting to be notified again.
  */
 public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
     // List of workspace instances to interact with
@@ -28,7 +35,27 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
     protected Map<String, Integer> lastBundleSize = new HashMap<>();
 
     // Map of pending bundles to workspace name to facilitate replying
-    protected Map<String, String> pendingBundles = new HashMap<>();
+    protected Map<String, String> pendingBundles = new ConcurrentHashMap<>();
+
+    // Map of pending bundles held under a lease to workspace name
+    protected Map<String, String> leasedBundles = new ConcurrentHashMap<>();
+
+    // Most bundles to lease from a space per take, zero takes
+    // one bundle at a time without a lease
+    protected int leaseMaxBundles = 0;
+
+    // Most total file size to lease from a space per take, -1 for no limit
+    protected long leaseMaxBytes = -1L;
+
+    // How long leased bundles are held without renewing
+    protected long leaseMillis = 300000L;
+
+    // How long a space waits for work when it has none
+    protected long leaseWaitMillis = 10000L;
+
+    // Renews the leases on bundles still being processed
+    @Nullable
+    protected ScheduledExecutorService leaseRenewer = null;
 
     // Number of consecutive take errors that cause space to close
     protected static final int TAKE_ERROR_MAX = 10;
@@ -38,6 +65,7 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
      */
     public PickUpSpace() throws IOException {
         super();
+        configureLeases();
     }
 
     /**
@@ -49,6 +77,7 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
      */
     public PickUpSpace(String configInfo, @Nullable String dir, String placeLocation) throws IOException {
         super(configInfo, dir, placeLocation);
+        configureLeases();
     }
 
     /**
@@ -63,6 +92,7 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
 
     public PickUpSpace(InputStream configInfo) throws IOException {
         super(configInfo);
+        configureLeases();
     }
 
     /**
@@ -74,6 +104,50 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
      */
     public PickUpSpace(InputStream configStream, String theDir, String thePlaceLocation) throws IOException {
         super(configStream, theDir, thePlaceLocation);
+        configureLeases();
+    }
+
+    /**
+     * Configure leased pulling of work
+     * <ul>
+     * <li>LEASE_MAX_BUNDLES: most bundles to lease from a space per take, 0 to take one bundle at a time without a
+     * lease</li>
+     * <li>LEASE_MAX_BYTES: most total file size to lease from a space per take, -1 for no limit</li>
+     * <li>LEASE_MILLIS: how long leased bundles are held without renewing, default 300000</li>
+     * <li>LEASE_WAIT_MILLIS: how long a space waits for work when it has none, default 10000. Must be less than the
+     * client socket timeout</li>
+     * </ul>
+     */
+    protected void configureLeases() {
+        leaseMaxBundles = configG.findIntEntry("LEASE_MAX_BUNDLES", leaseMaxBundles);
+        leaseMaxBytes = configG.findSizeEntry("LEASE_MAX_BYTES", leaseMaxBytes);
+        leaseMillis = configG.findLongEntry("LEASE_MILLIS", leaseMillis);
+        leaseWaitMillis = configG.findLongEntry("LEASE_WAIT_MILLIS", leaseWaitMillis);
+        if (leaseMaxBundles <= 0 || leaseMillis <= 0) {
+            return;
+        }
+
+        // Renew often enough that one failed renewal does not lose the lease
+        final long renewInterval = Math.max(1L, leaseMillis / 3);
+        final String threadName = "LeaseRenewer-" + getClass().getSimpleName();
+        leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        leaseRenewer.scheduleWithFixedDelay(this::renewLeases, renewInterval, renewInterval, TimeUnit.MILLISECONDS);
+        logger.info("Leasing up to {} bundles for {}ms, renewing every {}ms", leaseMaxBundles, leaseMillis, renewInterval);
+    }
+
+    /**
+     * Stop renewing leases
+     */
+    @Override
+    public void shutDown() {
+        if (leaseRenewer != null) {
+            leaseRenewer.shutdownNow();
+        }
+        super.shutDown();
     }
 
     /**
@@ -147,6 +221,10 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
             return false;
         }
 
+        if (leaseMaxBundles > 0) {
+            return takeLeased();
+        }
+
         // Keep track of space we may have to close
         List<String> closers = new ArrayList<>();
 
@@ -182,6 +260,88 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
         return countTaken > 0;
     }
 
+    /**
+     * Lease up to LEASE_MAX_BUNDLES from each space that is active, limited by the room left on our queue. Spaces without
+     * work wait for some to arrive, sharing LEASE_WAIT_MILLIS between them. This can result in workspace instances being
+     * removed from the list if we get a close message from one or if the threshold of consecutive errors is crossed
+     * 
+     * @return true if we got at least one
+     */
+    protected boolean takeLeased() {
+        List<String> closers = new ArrayList<>();
+        List<String> spaces = new ArrayList<>(openSpaceNames);
+        int maxBundles = Math.max(1, Math.min(leaseMaxBundles, getQueueRoom()));
+        long waitMillis = leaseWaitMillis / spaces.size();
+
+        int countTaken = 0;
+        for (String openSpaceName : spaces) {
+            List<WorkBundle> paths = null;
+            try {
+                paths = tpa.outboundWorkSpaceLease(openSpaceName, myKey, maxBundles, leaseMaxBytes, leaseMillis, waitMillis);
+            } catch (RuntimeException ex) {
+                logger.error("Failed to lease work from " + openSpaceName, ex);
+            }
+
+            if (paths == null) {
+                // Error, record it, but might be transient
+                logger.error("Got a null WorkBundle lease from " + openSpaceName);
+                numConsecutiveTakeErrors.put(openSpaceName, numConsecutiveTakeErrors.get(openSpaceName) + 1);
+                continue;
+            }
+
+            numConsecutiveTakeErrors.put(openSpaceName, 0);
+            for (WorkBundle path : paths) {
+                if (path.size() == 0) {
+                    // Close out message
+                    closers.add(openSpaceName);
+                    continue;
+                }
+                logger.debug("Leased bundle of " + path.size() + " from " + openSpaceName);
+                lastBundleSize.put(openSpaceName, path.size());
+                pendingBundles.put(path.getBundleId(), openSpaceName);
+                leasedBundles.put(path.getBundleId(), openSpaceName);
+                if (!enque(path)) {
+                    // Stop renewing so the lease runs out and the space hands the bundle out again
+                    leasedBundles.remove(path.getBundleId());
+                    pendingBundles.remove(path.getBundleId());
+                    logger.error("Unable to enqueue bundle " + path.getBundleId() + " from " + openSpaceName + ", leaving its lease to expire.");
+                    continue;
+                }
+                countTaken++;
+            }
+        }
+        cleanupFailedSpaces(closers);
+        return countTaken > 0;
+    }
+
+    /**
+     * Renew the leases on bundles still being processed, one message per space
+     */
+    protected void renewLeases() {
+        Map<String, List<String>> bySpace = new HashMap<>();
+        for (Map.Entry<String, String> entry : leasedBundles.entrySet()) {
+            bySpace.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+        }
+        for (Map.Entry<String, List<String>> entry : bySpace.entrySet()) {
+            try {
+                if (!tpa.outboundLeaseRenewal(entry.getKey(), myKey, entry.getValue(), leaseMillis)) {
+                    logger.warn("Failed to renew {} leases with {}", entry.getValue().size(), entry.getKey());
+                }
+            } catch (RuntimeException ex) {
+                logger.error("Failed to renew leases with " + entry.getKey(), ex);
+            }
+        }
+    }
+
+    /**
+     * How many more bundles our queue can hold, limits the number of bundles leased at once
+     * 
+     * @return room on the queue
+     */
+    protected int getQueueRoom() {
+        return 1;
+    }
+
     /**
      * Clean up any spaces that have crosse the consecutive error message threshold and any that are specified in the
      * argument
@@ -214,6 +374,7 @@ public abstract class PickUpSpace extends PickUpPlace implements IPickUpSpace {
      */
     @Override
     public void bundleCompleted(String bundleId, boolean itWorked) {
+        leasedBundles.remove(bundleId);
         String openSpaceName = pendingBundles.get(bundleId);
         if (openSpaceName == null) {
             logger.debug("Space is gone before we could notify " + " bundle completion for " + bundleId);
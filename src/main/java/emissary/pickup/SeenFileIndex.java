@@ -0,0 +1,141 @@
+package emissary.pickup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of file names handed out by a WorkSpace with the modification time they had at the time. Files stay in the
+ * index while their bundle is outstanding. Files of a bundle that was discarded are marked with {@link #discard(String)}
+ * and dropped by {@link #prune()} once they have been discarded for longer than the maximum age, so they do not stay in
+ * the index forever. A pruned file that is still in the input area is collected again.
+ */
+public class SeenFileIndex {
+
+    /** Returned by {@link #getModified(String)} for a file that is not in the index */
+    public static final long NOT_SEEN = Long.MIN_VALUE;
+
+    private static final long NOT_DISCARDED = Long.MIN_VALUE;
+
+    private final long maxAgeMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        private final long modified;
+        private final long discarded;
+
+        private Entry(final long modified, final long discarded) {
+            this.modified = modified;
+            this.discarded = discarded;
+        }
+    }
+
+    /**
+     * Create an index without an age limit
+     */
+    public SeenFileIndex() {
+        this(-1L);
+    }
+
+    /**
+     * Create an index
+     *
+     * @param maxAgeMillis how long a discarded entry is kept, zero or less to keep entries until removed
+     */
+    public SeenFileIndex(final long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Add or replace a file
+     *
+     * @param fileName the file name
+     * @param modified the modification time of the file
+     */
+    public void put(final String fileName, final long modified) {
+        entries.put(fileName, new Entry(modified, NOT_DISCARDED));
+    }
+
+    /**
+     * Report whether a file is in the index
+     *
+     * @param fileName the file name
+     * @return true if present
+     */
+    public boolean contains(final String fileName) {
+        return entries.containsKey(fileName);
+    }
+
+    /**
+     * Get the modification time a file had when it was added
+     *
+     * @param fileName the file name
+     * @return the modification time or {@link #NOT_SEEN}
+     */
+    public long getModified(final String fileName) {
+        final Entry entry = entries.get(fileName);
+        return entry == null ? NOT_SEEN : entry.modified;
+    }
+
+    /**
+     * Remove a file
+     *
+     * @param fileName the file name
+     * @return true if the file was in the index
+     */
+    public boolean remove(final String fileName) {
+        return entries.remove(fileName) != null;
+    }
+
+    /**
+     * Mark a file whose bundle was discarded so it can be pruned. The file is still treated as seen until then.
+     *
+     * @param fileName the file name
+     * @return true if the file was in the index
+     */
+    public boolean discard(final String fileName) {
+        final long now = System.currentTimeMillis();
+        return entries.computeIfPresent(fileName, (k, e) -> e.discarded == NOT_DISCARDED ? new Entry(e.modified, now) : e) != null;
+    }
+
+    /**
+     * Drop discarded entries older than the maximum age
+     *
+     * @return the number of entries dropped
+     */
+    public int prune() {
+        return maxAgeMillis > 0 ? prune(System.currentTimeMillis() - maxAgeMillis) : 0;
+    }
+
+    /**
+     * Drop entries discarded before a time. Entries that were not discarded are kept.
+     *
+     * @param discardedBefore entries discarded before this time are dropped
+     * @return the number of entries dropped
+     */
+    public int prune(final long discardedBefore) {
+        int count = 0;
+        for (final Map.Entry<String, Entry> e : entries.entrySet()) {
+            final long discarded = e.getValue().discarded;
+            if (discarded != NOT_DISCARDED && discarded < discardedBefore && entries.remove(e.getKey(), e.getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getMaxAge() {
+        return maxAgeMillis;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
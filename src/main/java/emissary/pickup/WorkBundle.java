@@ -567,6 +567,26 @@ public final class WorkBundle implements Comparable<WorkBundle> {
     }
 
     public String toXml() {
+        Document jdom = new Document(toElement());
+        return SaferJDOMUtil.toString(jdom);
+    }
+
+    /**
+     * Provide xml for a list of bundles, as handed out under a lease
+     *
+     * @param bundles the bundles to include
+     * @return the xml string representing the list
+     */
+    public static String toXml(List<WorkBundle> bundles) {
+        Element root = new Element("workBundles");
+        for (WorkBundle wb : bundles) {
+            root.addContent(wb.toElement());
+        }
+        Document jdom = new Document(root);
+        return SaferJDOMUtil.toString(jdom);
+    }
+
+    private Element toElement() {
         Element root = new Element("workBundle");
         root.addContent(SaferJDOMUtil.simpleElement("bundleId", getBundleId()));
         root.addContent(SaferJDOMUtil.simpleElement("outputRoot", getOutputRoot()));
@@ -591,9 +611,7 @@ public final class WorkBundle implements Comparable<WorkBundle> {
 
             root.addContent(workunit);
         }
-
-        Document jdom = new Document(root);
-        return SaferJDOMUtil.toString(jdom);
+        return root;
     }
 
     /**
@@ -614,6 +632,32 @@ public final class WorkBundle implements Comparable<WorkBundle> {
         }
     }
 
+    /**
+     * Build a list of WorkBundle objects from xml produced by {@link #toXml(List)}
+     * 
+     * @param xml the xml string representing a list of WorkBundle objects
+     * @return the constructed list or null on error
+     */
+    @Nullable
+    public static List<WorkBundle> buildWorkBundles(String xml) {
+        try {
+            Document jdoc = SaferJDOMUtil.createDocument(xml);
+            Element root = jdoc.getRootElement();
+            if (root == null) {
+                logger.error("Document does not have a root element!");
+                return null;
+            }
+            List<WorkBundle> bundles = new ArrayList<>();
+            for (Element wb : root.getChildren("workBundle")) {
+                bundles.add(buildWorkBundle(wb));
+            }
+            return bundles;
+        } catch (Exception ex) {
+            logger.error("Cannot make WorkBundle list from " + xml, ex);
+            return null;
+        }
+    }
+
     /**
      * Build a WorkBundle object from a jdom document
      * 
@@ -627,6 +671,16 @@ public final class WorkBundle implements Comparable<WorkBundle> {
             logger.error("Document does not have a root element!");
             return null;
         }
+        return buildWorkBundle(root);
+    }
+
+    /**
+     * Build a WorkBundle object from a jdom element
+     * 
+     * @param root the jdom element representing a work bundle object
+     * @return the constructed WorkBundle
+     */
+    private static WorkBundle buildWorkBundle(Element root) {
 
         WorkBundle wb = new WorkBundle();
         wb.setBundleId(root.getChildTextTrim("bundleId"));
@@ -0,0 +1,197 @@
+package emissary.pickup;
+
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound queue of work bundles sharded by priority. Each priority level has its own concurrent queue so producers and
+ * consumers do not contend on a single lock, and bundles are always taken from the highest priority (lowest number)
+ * level that has work. Within a level bundles are taken in arrival order unless an ordering is supplied.
+ * <p>
+ * Consumers can wait for work to arrive, adding work only touches a lock when someone is waiting.
+ */
+public class WorkBundleQueue {
+
+    // One queue per priority level, iterated from high to low priority
+    private final ConcurrentSkipListMap<Integer, Queue<WorkBundle>> shards = new ConcurrentSkipListMap<>();
+
+    // Ordering within a priority level or null for arrival order
+    @Nullable
+    private final Comparator<WorkBundle> order;
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition added = lock.newCondition();
+
+    /**
+     * Create a queue taking bundles of the same priority in arrival order
+     */
+    public WorkBundleQueue() {
+        this(null);
+    }
+
+    /**
+     * Create a queue with an ordering within each priority level
+     *
+     * @param order comparator for bundles of the same priority, null for arrival order
+     */
+    public WorkBundleQueue(@Nullable Comparator<WorkBundle> order) {
+        this.order = order;
+    }
+
+    private Queue<WorkBundle> newShard() {
+        return order == null ? new ConcurrentLinkedQueue<>() : new PriorityBlockingQueue<>(11, order);
+    }
+
+    /**
+     * Add a bundle and wake up any consumer waiting for work
+     *
+     * @param bundle the bundle to add
+     */
+    public void add(WorkBundle bundle) {
+        shards.computeIfAbsent(bundle.getPriority(), p -> newShard()).add(bundle);
+        size.incrementAndGet();
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                added.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Take the next bundle in priority order
+     *
+     * @return the bundle or null if the queue is empty
+     */
+    @Nullable
+    public WorkBundle poll() {
+        for (Queue<WorkBundle> shard : shards.values()) {
+            WorkBundle bundle = shard.poll();
+            if (bundle != null) {
+                size.decrementAndGet();
+                return bundle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Look at the next bundle in priority order without taking it
+     *
+     * @return the bundle or null if the queue is empty
+     */
+    @Nullable
+    public WorkBundle peek() {
+        for (Queue<WorkBundle> shard : shards.values()) {
+            WorkBundle bundle = shard.peek();
+            if (bundle != null) {
+                return bundle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take bundles in priority order up to a count and a total file size. At least one bundle is taken when available even
+     * if it alone exceeds the size limit.
+     *
+     * @param maxBundles most bundles to take
+     * @param maxBytes most total file size to take, -1 for no limit
+     * @return the bundles taken, empty if the queue is empty
+     */
+    public List<WorkBundle> drain(int maxBundles, long maxBytes) {
+        List<WorkBundle> bundles = new ArrayList<>();
+        long bytes = 0L;
+        for (Queue<WorkBundle> shard : shards.values()) {
+            while (bundles.size() < maxBundles) {
+                WorkBundle next = shard.peek();
+                if (next == null) {
+                    break;
+                }
+                if (!bundles.isEmpty() && maxBytes > -1 && bytes + next.getTotalFileSize() > maxBytes) {
+                    return bundles;
+                }
+                // Another consumer may have taken the one we looked at, use whatever we get
+                WorkBundle bundle = shard.poll();
+                if (bundle == null) {
+                    break;
+                }
+                size.decrementAndGet();
+                bundles.add(bundle);
+                bytes += bundle.getTotalFileSize();
+            }
+            if (bundles.size() >= maxBundles) {
+                break;
+            }
+        }
+        return bundles;
+    }
+
+    /**
+     * Take bundles as in {@link #drain(int, long)}, waiting for work to arrive if the queue is empty
+     *
+     * @param maxBundles most bundles to take
+     * @param maxBytes most total file size to take, -1 for no limit
+     * @param timeout how long to wait for work
+     * @param unit the unit of the timeout
+     * @return the bundles taken, empty if no work arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<WorkBundle> drain(int maxBundles, long maxBytes, long timeout, TimeUnit unit) throws InterruptedException {
+        List<WorkBundle> bundles = drain(maxBundles, maxBytes);
+        if (!bundles.isEmpty() || timeout <= 0) {
+            return bundles;
+        }
+
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        // Count as waiting before looking again so an add after this look will signal
+        waiters.incrementAndGet();
+        try {
+            while (remaining > 0) {
+                bundles = drain(maxBundles, maxBytes);
+                if (!bundles.isEmpty()) {
+                    break;
+                }
+                remaining = added.awaitNanos(remaining);
+            }
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+        return bundles;
+    }
+
+    /**
+     * Number of bundles in the queue
+     *
+     * @return the size, approximate while bundles are being added or taken
+     */
+    public int size() {
+        return Math.max(0, size.get());
+    }
+
+    /**
+     * Report whether the queue is empty
+     *
+     * @return true if there are no bundles
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
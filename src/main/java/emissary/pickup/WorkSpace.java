@@ -17,7 +17,8 @@ import emissary.pool.AgentPool;
 import emissary.server.EmissaryServer;
 import emissary.server.mvc.adapters.WorkSpaceAdapter;
 import emissary.util.Version;
-import emissary.util.io.FileFind;
+import emissary.util.io.DirectoryChangeWatcher;
+import emissary.util.io.FileDiscovery;
 
 import jakarta.annotation.Nullable;
 import org.apache.hc.core5.http.HttpStatus;
@@ -26,10 +27,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -42,7 +43,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Recursively process input and distribute files to one or more remote PickUp client instances when they ask for a
@@ -53,6 +57,10 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * queue tagged with the consumer id until the consumer notifies this WorkSpace that the work has been completed. If the
  * consumer goes away without notification, then the work is moved back to the outbound queue and given to another
  * consumer.
+ * <p>
+ * Consumers can also lease several bundles at once with {@link #takeLeased(String, int, long, long, long)}, waiting for
+ * work when the outbound queue is empty. Leased bundles that are neither completed nor renewed before the lease deadline
+ * are moved back to the outbound queue.
  */
 public class WorkSpace implements Runnable {
     /** Our logger */
@@ -82,6 +90,8 @@ public class WorkSpace implements Runnable {
     protected String eatPrefix = System.getProperty("eatPrefix", null);
     protected int numberOfBundlesToSkip = Integer.getInteger(CLZ + ".skip", 0);
     protected boolean skipDotFiles = Boolean.getBoolean(CLZ + ".skipDotFiles");
+    protected int discoveryThreads = Integer.getInteger(CLZ + ".discoveryThreads", 4);
+    protected boolean watchMode = Boolean.getBoolean(CLZ + ".watch");
     protected boolean loop = false;
     protected boolean useRetryStrategy = false;
     protected static final int MAX_BUNDLE_RETRIES = 5;
@@ -125,20 +135,29 @@ public class WorkSpace implements Runnable {
     protected boolean caseClosed = false;
 
     // List of WorkBundle objects we are going to distribute
-    protected PriorityQueue<WorkBundle> outbound = new PriorityQueue<>();
+    protected WorkBundleQueue outbound = new WorkBundleQueue();
 
     // List of WorkBundle objects that are pending completion notice
     // Keyed by bundleId to quickly remove items that are processed
     // normally (the expected case)
-    protected Map<String, WorkBundle> pending = new HashMap<>();
+    protected Map<String, WorkBundle> pending = new ConcurrentHashMap<>();
+
+    // Lease deadlines for pending bundles handed out under a lease
+    // Keyed by bundleId, bundles taken without a lease are not here
+    protected Map<String, Long> leaseDeadlines = new ConcurrentHashMap<>();
+
+    // Next time expired leases are looked for
+    protected final AtomicLong nextLeaseCheck = new AtomicLong();
+    protected static final long LEASE_CHECK_INTERVAL = 1000L;
 
     // Keep track of files we have seen that are either outbound or pending
-    // so that we can avoid using file timestamps in the collector loop
-    protected Map<String, Long> filesSeen = new HashMap<>();
-    protected Map<String, Long> filesDone = new HashMap<>();
+    // so that we can avoid using file timestamps in the collector loop,
+    // files of discarded bundles are dropped by the collector after the max age
+    protected SeenFileIndex filesSeen = new SeenFileIndex(Long.getLong(CLZ + ".seenFileMaxAge", 86400000L));
+    protected Map<String, Long> filesDone = new ConcurrentHashMap<>();
 
-    // Used to synchronize access to the pending and outbound queues
-    // One lock to rule them all
+    // Used to synchronize the collector bookkeeping and counters,
+    // the outbound and pending queues are concurrent on their own
     @SuppressWarnings("ConstantField")
     protected final Object QLOCK = new Object(); // NOSONAR
 
@@ -188,11 +207,13 @@ public class WorkSpace implements Runnable {
         this.dataCaseId = this.feedCommand.getCaseId();
         this.setSkipDotFiles(this.feedCommand.isSkipDotFile());
         this.wantDirectories = this.feedCommand.isIncludeDirs();
+        this.setWatchMode(this.feedCommand.isWatch());
+        this.setDiscoveryThreads(this.feedCommand.getDiscoveryThreads());
         this.setSimpleMode(this.feedCommand.isSimple());
         this.myDirectories.addAll(this.feedCommand.getPriorityDirectories());
 
         if (null != this.feedCommand.getSort()) {
-            this.outbound = new PriorityQueue<>(11, this.feedCommand.getSort());
+            this.outbound = new WorkBundleQueue(this.feedCommand.getSort());
         }
 
         startJetty();
@@ -465,6 +486,32 @@ public class WorkSpace implements Runnable {
         this.skipDotFiles = value;
     }
 
+    /**
+     * Set watch mode. When looping, each input directory is walked once and afterwards only files reported as created or
+     * modified by the file system are collected. The whole directory is walked again if changes were lost.
+     *
+     * @param value the new value for watch mode
+     */
+    public void setWatchMode(final boolean value) {
+        this.watchMode = value;
+    }
+
+    /**
+     * Get the value of the watch mode indicator
+     */
+    public boolean getWatchMode() {
+        return this.watchMode;
+    }
+
+    /**
+     * Set the number of threads each collector uses to list directories
+     *
+     * @param threads the number of threads (threads &gt; 0)
+     */
+    public void setDiscoveryThreads(final int threads) {
+        this.discoveryThreads = Math.max(1, threads);
+    }
+
     /**
      * Set the debug flag
      *
@@ -687,27 +734,11 @@ public class WorkSpace implements Runnable {
         }
         int pendCount = 0;
         final String remoteName = KeyManipulator.getServiceHost(remoteKey);
-        synchronized (this.QLOCK) {
-            // NB: no enhanced for loop with Iterator.remove()
-            for (Iterator<String> i = this.pending.keySet().iterator(); i.hasNext();) {
-                final String id = i.next();
-                final WorkBundle wb = this.pending.get(id);
-                if (remoteName.equals(wb.getSentTo())) {
-                    i.remove(); // remove from pending
-                    wb.setSentTo(null); // clear in progress indicator
-                    this.retryCount++;
-                    if (wb.incrementErrorCount() <= MAX_BUNDLE_RETRIES) {
-                        logger.debug("Removing pending bundle {} from pending pool, re-adding to outbound with errorCount={}", wb.getBundleId(),
-                                wb.getErrorCount());
-                        addOutboundBundle(wb); // send to outbound again
-                        pendCount++;
-
-                        // Set overall counts back to normal
-                        this.bundlesProcessed--;
-                    } else {
-                        logger.error("Bundle {} associated with too many failures, permanently discarding", wb);
-                    }
-                }
+        for (final Map.Entry<String, WorkBundle> entry : this.pending.entrySet()) {
+            final WorkBundle wb = entry.getValue();
+            // Only the one that removes it from pending may requeue it
+            if (remoteName.equals(wb.getSentTo()) && this.pending.remove(entry.getKey(), wb) && requeuePendingBundle(wb)) {
+                pendCount++;
             }
         }
         if (pendCount > 0) {
@@ -715,6 +746,36 @@ public class WorkSpace implements Runnable {
         }
     }
 
+    /**
+     * Move a bundle that was removed from the pending queue back to the outbound queue unless it has failed too often
+     *
+     * @param wb the bundle no longer pending
+     * @return true if the bundle was moved back to the outbound queue
+     */
+    protected boolean requeuePendingBundle(final WorkBundle wb) {
+        this.leaseDeadlines.remove(wb.getBundleId());
+        wb.setSentTo(null); // clear in progress indicator
+        synchronized (this.QLOCK) {
+            this.retryCount++;
+        }
+        if (wb.incrementErrorCount() <= MAX_BUNDLE_RETRIES) {
+            logger.debug("Removing pending bundle {} from pending pool, re-adding to outbound with errorCount={}", wb.getBundleId(),
+                    wb.getErrorCount());
+            addOutboundBundle(wb); // send to outbound again
+
+            // Set overall counts back to normal
+            synchronized (this.QLOCK) {
+                this.bundlesProcessed--;
+            }
+            return true;
+        }
+        logger.error("Bundle {} associated with too many failures, permanently discarding", wb);
+        for (final String fn : wb.getFileNameList()) {
+            this.filesSeen.discard(fn);
+        }
+        return false;
+    }
+
     /**
      * Method called by remote PickUp client instances when they are ready to receive data from this WorkSpace Access via
      * emissary.comms.http.WorkSpaceApapter
@@ -724,32 +785,144 @@ public class WorkSpace implements Runnable {
      */
     public WorkBundle take(final String remoteKey) {
         final String remoteName = KeyManipulator.getServiceHost(remoteKey);
-        WorkBundle item;
-        synchronized (this.QLOCK) {
-            if (getOutboundQueueSize() == 0) {
+        WorkBundle item = this.outbound.poll();
+        if (item == null) {
+            // Empty WorkBundle will let them know to stop asking us
+            logger.info("Sent shutdown msg to {}", remoteName);
+            this.stats.shutDownSent(remoteName);
+            item = new WorkBundle();
+        } else {
+            // transfer from outbound to pending list and
+            // record who the work was given to track
+            // completion status
+            givePendingBundle(item, remoteName);
+            final WorkBundle nextItem = this.outbound.peek();
+            if (nextItem != null && logger.isInfoEnabled()) {
+                logger.info("After take: new top differs to prior by [oldest/youngest/size]=[{}/{}/{}]",
+                        nextItem.getOldestFileModificationTime() - item.getOldestFileModificationTime(),
+                        nextItem.getYoungestFileModificationTime() - item.getYoungestFileModificationTime(),
+                        nextItem.getTotalFileSize() - item.getTotalFileSize());
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Method called by remote PickUp client instances to lease several bundles at once. The bundles stay pending under the
+     * lease until completed, and are moved back to the outbound queue if the lease is not renewed before its deadline. When
+     * the outbound queue is empty the caller waits up to waitMillis for work to arrive.
+     *
+     * @param remoteKey key of the requesting PickUp place
+     * @param maxBundles most bundles to hand out
+     * @param maxBytes most total file size to hand out, -1 for no limit. At least one bundle is handed out when available.
+     * @param leaseMillis how long the client holds the bundles without renewing
+     * @param waitMillis how long to wait for work when there is none
+     * @return the leased bundles, empty if no work arrived in time, or a single empty WorkBundle when no more work will come
+     */
+    public List<WorkBundle> takeLeased(final String remoteKey, final int maxBundles, final long maxBytes, final long leaseMillis,
+            final long waitMillis) {
+        final String remoteName = KeyManipulator.getServiceHost(remoteKey);
+        expireLeases();
+
+        List<WorkBundle> items;
+        try {
+            items = this.outbound.drain(Math.max(1, maxBundles), maxBytes, waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            items = this.outbound.drain(Math.max(1, maxBundles), maxBytes);
+        }
+
+        if (items.isEmpty()) {
+            if (isWorkFinished()) {
                 // Empty WorkBundle will let them know to stop asking us
                 logger.info("Sent shutdown msg to {}", remoteName);
                 this.stats.shutDownSent(remoteName);
-                item = new WorkBundle();
-            } else {
-                // transfer from outbound to pending list and
-                // record who the work was given to track
-                // completion status
-                this.stats.bump(remoteName);
-                item = this.outbound.poll();
-                item.setSentTo(remoteName);
-                this.pending.put(item.getBundleId(), item);
-                logger.info("Gave bundle {} to {}", item, remoteName);
-                final WorkBundle nextItem = this.outbound.peek();
-                if (nextItem != null && logger.isInfoEnabled()) {
-                    logger.info("After take: new top differs to prior by [oldest/youngest/size]=[{}/{}/{}]",
-                            nextItem.getOldestFileModificationTime() - item.getOldestFileModificationTime(),
-                            nextItem.getYoungestFileModificationTime() - item.getYoungestFileModificationTime(),
-                            nextItem.getTotalFileSize() - item.getTotalFileSize());
+                items.add(new WorkBundle());
+            }
+            return items;
+        }
+
+        final long deadline = System.currentTimeMillis() + leaseMillis;
+        for (final WorkBundle item : items) {
+            this.leaseDeadlines.put(item.getBundleId(), deadline);
+            givePendingBundle(item, remoteName);
+        }
+        return items;
+    }
+
+    /**
+     * Extend the lease on bundles still held by a client
+     *
+     * @param remoteKey key of the PickUp place holding the bundles
+     * @param bundleIds the bundles to renew
+     * @param leaseMillis how long from now the client holds the bundles without renewing again
+     * @return number of bundles renewed, bundles already moved back to the outbound queue are not
+     */
+    public int renewLeases(final String remoteKey, final Collection<String> bundleIds, final long leaseMillis) {
+        final String remoteName = KeyManipulator.getServiceHost(remoteKey);
+        final long deadline = System.currentTimeMillis() + leaseMillis;
+        int renewed = 0;
+        for (final String bundleId : bundleIds) {
+            final WorkBundle item = this.pending.get(bundleId);
+            if (item != null && remoteName.equals(item.getSentTo()) && this.leaseDeadlines.replace(bundleId, deadline) != null) {
+                renewed++;
+            }
+        }
+        logger.debug("Renewed {} of {} leases for {}", renewed, bundleIds.size(), remoteName);
+        return renewed;
+    }
+
+    /**
+     * Move leased bundles whose deadline has passed back to the outbound queue. Runs at most once per
+     * {@link #LEASE_CHECK_INTERVAL} unless forced.
+     *
+     * @return number of bundles moved back to the outbound queue
+     */
+    protected int expireLeases() {
+        final long now = System.currentTimeMillis();
+        final long next = this.nextLeaseCheck.get();
+        if (now < next || !this.nextLeaseCheck.compareAndSet(next, now + LEASE_CHECK_INTERVAL)) {
+            return 0;
+        }
+
+        int expired = 0;
+        for (final Map.Entry<String, Long> entry : this.leaseDeadlines.entrySet()) {
+            if (entry.getValue() < now && this.leaseDeadlines.remove(entry.getKey(), entry.getValue())) {
+                final WorkBundle wb = this.pending.remove(entry.getKey());
+                if (wb != null) {
+                    logger.warn("Lease expired on bundle {} held by {}", wb.getBundleId(), wb.getSentTo());
+                    if (requeuePendingBundle(wb)) {
+                        expired++;
+                    }
                 }
             }
         }
-        return item;
+        if (expired > 0) {
+            logger.info("Moved {} items with expired leases back to outbound queue", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Record a bundle taken from the outbound queue as pending completion by a client
+     *
+     * @param item the bundle
+     * @param remoteName the client it was given to
+     */
+    protected void givePendingBundle(final WorkBundle item, final String remoteName) {
+        this.stats.bump(remoteName);
+        item.setSentTo(remoteName);
+        this.pending.put(item.getBundleId(), item);
+        logger.info("Gave bundle {} to {}", item, remoteName);
+    }
+
+    /**
+     * Report whether no more work will be added to the outbound queue
+     *
+     * @return true if the collectors have finished and are not looping
+     */
+    protected boolean isWorkFinished() {
+        return this.outbound.isEmpty() && (this.timeToQuit || (this.collectorThreadHasQuit && !this.loop));
     }
 
     /**
@@ -758,13 +931,12 @@ public class WorkSpace implements Runnable {
      * @param wb the new bundle
      */
     protected void addOutboundBundle(final WorkBundle wb) {
-        int sz;
         synchronized (this.QLOCK) {
             this.bundlesProcessed++;
-            sz = this.outbound.size();
-            this.outbound.add(wb);
-            addFilesSeen(wb.getFileNameList());
         }
+        addFilesSeen(wb.getFileNameList());
+        final int sz = this.outbound.size();
+        this.outbound.add(wb);
 
         if (logger.isInfoEnabled()) {
             logger.info("Adding workbundle {} size {} filesSeen {}", wb, sz + 1, this.filesSeen.size());
@@ -787,10 +959,8 @@ public class WorkSpace implements Runnable {
      */
     public List<String> showPendingItemsList() {
         final List<String> list = new ArrayList<>();
-        synchronized (this.QLOCK) {
-            for (final Map.Entry<String, WorkBundle> entry : this.pending.entrySet()) {
-                list.add(entry.getValue().toString());
-            }
+        for (final Map.Entry<String, WorkBundle> entry : this.pending.entrySet()) {
+            list.add(entry.getValue().toString());
         }
         return list;
     }
@@ -804,14 +974,15 @@ public class WorkSpace implements Runnable {
         final int size = getPendingQueueSize();
 
         if (size > 0) {
-            synchronized (this.QLOCK) {
-                logger.debug("Clearing pending queue of {} items", size);
-                for (final Map.Entry<String, WorkBundle> entry : this.pending.entrySet()) {
-                    removeFilesSeen(entry.getValue().getFileNameList());
+            logger.debug("Clearing pending queue of {} items", size);
+            for (final String id : this.pending.keySet()) {
+                final WorkBundle wb = this.pending.remove(id);
+                if (wb != null) {
+                    this.leaseDeadlines.remove(id);
+                    removeFilesSeen(wb.getFileNameList());
                 }
-                this.pending.clear();
-                logger.debug("Cleared filesSeen leaving {} items", this.filesSeen.size());
             }
+            logger.debug("Cleared filesSeen leaving {} items", this.filesSeen.size());
         }
         return size;
     }
@@ -826,15 +997,15 @@ public class WorkSpace implements Runnable {
      * @return true if the item was removed from the pending list
      */
     public boolean workCompleted(final String remoteName, final String bundleId, final boolean itWorked) {
-        WorkBundle item;
-
-        synchronized (this.QLOCK) {
-            item = this.pending.remove(bundleId);
-            if (item != null) {
+        final WorkBundle item = this.pending.remove(bundleId);
+        if (item != null) {
+            this.leaseDeadlines.remove(bundleId);
+            // Move the files from seen to done in one step so the collector never finds them in neither
+            synchronized (this.QLOCK) {
                 addFilesDone(item.getFileNameList());
                 removeFilesSeen(item.getFileNameList());
-                logger.debug("Removed {} from filesSeen leaving {}", item.size(), this.filesSeen.size());
             }
+            logger.debug("Removed {} from filesSeen leaving {}", item.size(), this.filesSeen.size());
         }
         if (item == null) {
             logger.info("Unknown bundle completed: {}", bundleId);
@@ -881,24 +1052,27 @@ public class WorkSpace implements Runnable {
     }
 
     /**
-     * Add each fileName and its respective lastModifiedDate to the filesSeen list
+     * Add each fileName and its respective lastModifiedDate to the filesSeen list. Files already on the list, such as those
+     * recorded by the collector, keep the date they were recorded with.
      *
      * @param fileNames the collection of file name strings to add
      */
     protected void addFilesSeen(final Collection<String> fileNames) {
         for (final String fn : fileNames) {
-            this.filesSeen.put(fn, getFileModificationDate(fn));
+            if (!this.filesSeen.contains(fn)) {
+                this.filesSeen.put(fn, getFileModificationDate(fn));
+            }
         }
     }
 
     /**
-     * Add each fileName and its respective lastModifiedDate to the filesDone list
+     * Add each fileName and the lastModifiedDate it was seen with to the filesDone list
      *
      * @param fileNames the collection of file name strings to add
      */
     protected void addFilesDone(final Collection<String> fileNames) {
         for (final String fn : fileNames) {
-            this.filesDone.put(fn, getFileModificationDate(fn));
+            this.filesDone.put(fn, this.filesSeen.getModified(fn));
         }
     }
 
@@ -937,6 +1111,7 @@ public class WorkSpace implements Runnable {
         // Do while outbound or pending work exists or collector is
         // still running
         while (true) {
+            expireLeases();
             final int outboundSize = getOutboundQueueSize();
             int pendingSize = getPendingQueueSize();
             final boolean reallyQuit = this.timeToQuit && (outboundSize == 0) && (pendingSize == 0);
@@ -1043,9 +1218,7 @@ public class WorkSpace implements Runnable {
      * Return size of outbound queue
      */
     public int getOutboundQueueSize() {
-        synchronized (this.QLOCK) {
-            return this.outbound.size();
-        }
+        return this.outbound.size();
     }
 
     public int getRetriedCount() {
@@ -1056,9 +1229,7 @@ public class WorkSpace implements Runnable {
      * Return size of pending completion queue
      */
     public int getPendingQueueSize() {
-        synchronized (this.QLOCK) {
-            return this.pending.size();
-        }
+        return this.pending.size();
     }
 
     /**
@@ -1117,6 +1288,14 @@ public class WorkSpace implements Runnable {
 
         protected PriorityDirectory myDirectory;
 
+        // Lists directories for this collector, created when the collector runs
+        @Nullable
+        protected FileDiscovery discovery = null;
+
+        // The first walk is sorted and single threaded so the bundles are numbered the same way every run and a restart can
+        // skip the ones already sent. Later walks use the parallel discovery.
+        protected boolean sortedWalk = true;
+
         /**
          * Create the collector runnable
          */
@@ -1141,82 +1320,178 @@ public class WorkSpace implements Runnable {
 
             logger.info("Running Workspace from {}", getVersionString());
 
-            do {
-                start = System.currentTimeMillis();
-                // every hour
-                if (start - versionOutputTime > 3600000) {
-                    logger.info("Continuing Workspace from {}", getVersionString());
-                    versionOutputTime = start;
-                }
+            this.discovery = new FileDiscovery(WorkSpace.this.discoveryThreads);
 
-                final WorkBundle paths = new WorkBundle(WorkSpace.this.outputRootPath, WorkSpace.this.eatPrefix);
-                paths.setCaseId(WorkSpace.this.dataCaseId);
-                paths.setSimpleMode(getSimpleMode());
+            // Watch before the first walk so nothing created during the walk is missed
+            final DirectoryChangeWatcher changeWatcher = WorkSpace.this.watchMode && WorkSpace.this.loop ? startWatching() : null;
+            boolean fullWalk = true;
 
-                logger.debug("Processing files in {}", this.myDirectory.getDirectoryName());
+            try {
+                do {
+                    start = System.currentTimeMillis();
+                    // every hour
+                    if (start - versionOutputTime > 3600000) {
+                        logger.info("Continuing Workspace from {}", getVersionString());
+                        versionOutputTime = start;
+                    }
 
-                final int collectCount =
-                        collectFiles(this.myDirectory, WorkSpace.this.wantDirectories, paths, WorkSpace.this.numberOfBundlesToSkip, minFileTime,
-                                WorkSpace.this.skipDotFiles);
+                    final int pruned = WorkSpace.this.filesSeen.prune();
+                    if (pruned > 0) {
+                        logger.info("Dropped {} files discarded more than {}ms ago from filesSeen", pruned, WorkSpace.this.filesSeen.getMaxAge());
+                    }
 
-                // Set times, so we don't redistribute files next loop
-                // if configured to use timestamps
-                if (WorkSpace.this.useFileTimestamps) {
-                    lastFileCollect = System.currentTimeMillis();
-                }
-                stop = System.currentTimeMillis();
-                loopCount++;
+                    final WorkBundle paths = new WorkBundle(WorkSpace.this.outputRootPath, WorkSpace.this.eatPrefix);
+                    paths.setCaseId(WorkSpace.this.dataCaseId);
+                    paths.setSimpleMode(getSimpleMode());
 
-                // We can only skip bundles on the first time through
-                WorkSpace.this.numberOfBundlesToSkip = 0;
+                    final int collectCount;
+                    if (fullWalk) {
+                        logger.debug("Processing files in {}", this.myDirectory.getDirectoryName());
+                        collectCount = collectFiles(this.myDirectory, WorkSpace.this.wantDirectories, paths, WorkSpace.this.numberOfBundlesToSkip,
+                                minFileTime, WorkSpace.this.skipDotFiles);
+                    } else {
+                        final DirectoryChangeWatcher.Changes changes = changeWatcher.poll(WorkSpace.this.loopPauseTime, TimeUnit.MILLISECONDS);
+                        if (changes.isOverflow()) {
+                            logger.info("Changes were lost, processing all files in {}", this.myDirectory.getDirectoryName());
+                            collectCount = collectFiles(this.myDirectory, WorkSpace.this.wantDirectories, paths, 0, minFileTime,
+                                    WorkSpace.this.skipDotFiles);
+                        } else {
+                            logger.debug("Processing {} changes in {}", changes.getPaths().size(), this.myDirectory.getDirectoryName());
+                            collectCount = collectFiles(readChanges(changes.getPaths()), this.myDirectory, paths, 0, minFileTime,
+                                    WorkSpace.this.skipDotFiles);
+                        }
+                    }
+                    fullWalk = changeWatcher == null;
+
+                    // Set times, so we don't redistribute files next loop
+                    // if configured to use timestamps
+                    if (WorkSpace.this.useFileTimestamps) {
+                        lastFileCollect = System.currentTimeMillis();
+                    }
+                    stop = System.currentTimeMillis();
+                    loopCount++;
 
-                logger.info("Collected {} file bundles in {}s in loop iteration {}, {} items in outbound queue", collectCount,
-                        (stop - start) / 1000.0, loopCount, WorkSpace.this.outbound.size());
+                    // We can only skip bundles on the first time through
+                    WorkSpace.this.numberOfBundlesToSkip = 0;
 
-                if ((collectCount == 0) && WorkSpace.this.loop) {
-                    // Wait pause time seconds and try again if looping
-                    try {
+                    logger.info("Collected {} file bundles in {}s in loop iteration {}, {} items in outbound queue", collectCount,
+                            (stop - start) / 1000.0, loopCount, WorkSpace.this.outbound.size());
+
+                    // When watching the wait for changes is the pause
+                    if ((collectCount == 0) && WorkSpace.this.loop && changeWatcher == null) {
+                        // Wait pause time seconds and try again if looping
                         Thread.sleep(WorkSpace.this.loopPauseTime);
-                    } catch (InterruptedException ioex) {
-                        Thread.currentThread().interrupt();
+                        continue;
                     }
-                    continue;
-                }
 
-                // time shift for next loop if configured to use tstamps
-                if (WorkSpace.this.useFileTimestamps) {
-                    minFileTime = lastFileCollect;
-                }
+                    // time shift for next loop if configured to use tstamps
+                    if (WorkSpace.this.useFileTimestamps) {
+                        minFileTime = lastFileCollect;
+                    }
 
-            } while (WorkSpace.this.loop && !WorkSpace.this.timeToQuit);
+                } while (WorkSpace.this.loop && !WorkSpace.this.timeToQuit);
+            } catch (InterruptedException ioex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                this.discovery.close();
+                if (changeWatcher != null) {
+                    try {
+                        changeWatcher.close();
+                    } catch (IOException e) {
+                        logger.debug("Cannot close the watcher on {}", this.myDirectory, e);
+                    }
+                }
+            }
 
             logger.debug("Off the end of the WorkSpaceCollector run method");
             WorkSpace.this.collectorThreadHasQuit = true;
         }
 
         /**
-         * Load WorkBundle objects into our linked list of bundles Also process all directories if so instructed
+         * Watch this collector's directory for changes
+         *
+         * @return the watcher or null if the directory cannot be watched, in which case every loop walks the directory
+         */
+        @Nullable
+        protected DirectoryChangeWatcher startWatching() {
+            try {
+                final DirectoryChangeWatcher changeWatcher = new DirectoryChangeWatcher(Path.of(this.myDirectory.getDirectoryName()));
+                logger.info("Watching {} directories in {}", changeWatcher.getWatchedDirectoryCount(), this.myDirectory);
+                return changeWatcher;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Cannot watch {}, walking the whole directory each loop", this.myDirectory, e);
+                return null;
+            }
+        }
+
+        /**
+         * Read the attributes of changed paths, skipping those that have gone away
+         *
+         * @param changed the paths reported as created or modified
+         * @return the files and directories that still exist
+         */
+        protected Iterator<FileDiscovery.DiscoveredFile> readChanges(final Collection<Path> changed) {
+            final List<FileDiscovery.DiscoveredFile> files = new ArrayList<>(changed.size());
+            for (final Path p : changed) {
+                try {
+                    final FileDiscovery.DiscoveredFile file = FileDiscovery.DiscoveredFile.read(p);
+                    if (file.isRegularFile() || (file.isDirectory() && WorkSpace.this.wantDirectories)) {
+                        files.add(file);
+                    }
+                } catch (IOException e) {
+                    logger.debug("Changed file {} is gone", p);
+                }
+            }
+            return files.iterator();
+        }
+
+        /**
+         * Load WorkBundle objects into our linked list of bundles Also process all directories if so instructed. The first call
+         * walks the directory in sorted order so that numberOfBundlesToSkipArg counts the same bundles on every run.
          *
          * @return count of how many bundles collected for outbound queue
          */
         protected int collectFiles(final PriorityDirectory dir, final boolean wantDirectories, final WorkBundle basePath,
                 final int numberOfBundlesToSkipArg, final long minFileTime, final boolean skipDotFilesArg) {
+            if (this.discovery == null) {
+                this.discovery = new FileDiscovery(WorkSpace.this.discoveryThreads);
+            }
+            try {
+                if (this.sortedWalk) {
+                    this.sortedWalk = false;
+                    return collectFiles(FileDiscovery.sortedWalk(Path.of(dir.getDirectoryName()), wantDirectories), dir, basePath,
+                            numberOfBundlesToSkipArg, minFileTime, skipDotFilesArg);
+                }
+                try (FileDiscovery.Walk walk = this.discovery.walk(Path.of(dir.getDirectoryName()), wantDirectories)) {
+                    final int collected = collectFiles(walk, dir, basePath, numberOfBundlesToSkipArg, minFileTime, skipDotFilesArg);
+                    logger.debug("Listed {} directories in {}", walk.getDirectoryCount(), dir);
+                    return collected;
+                }
+            } catch (IOException e) {
+                logger.error("System error", e);
+                return 0;
+            }
+        }
+
+        /**
+         * Load WorkBundle objects into our linked list of bundles from files that have already been found, using the
+         * attributes read when they were found. Also process all directories if so instructed
+         *
+         * @return count of how many bundles collected for outbound queue
+         */
+        protected int collectFiles(final Iterator<FileDiscovery.DiscoveredFile> f, final PriorityDirectory dir, final WorkBundle basePath,
+                final int numberOfBundlesToSkipArg, final long minFileTime, final boolean skipDotFilesArg) {
             int skipped = 0;
             int collected = 0;
             int fileCount = 0;
             long bytesInBundle = 0;
 
             try {
-                int ffOptions = FileFind.FILES_FLAG;
-                if (wantDirectories) {
-                    ffOptions |= FileFind.DIRECTORIES_FLAG;
-                }
-                final FileFind ff = new FileFind(ffOptions);
-                final Iterator<?> f = ff.find(dir.getDirectoryName());
-
                 WorkBundle paths = new WorkBundle(basePath);
                 paths.setPriority(dir.getPriority());
                 paths.setSimpleMode(getSimpleMode());
+                // Modification times of the files in the bundle being filled
+                final Map<String, Long> pathsSeen = new HashMap<>();
 
                 while (f.hasNext()) {
                     // If the outbound queue has a lot of stuff pending
@@ -1224,42 +1499,37 @@ public class WorkSpace implements Runnable {
                     // the situation eases
                     pauseCollector();
 
-                    final File next = (File) f.next();
-                    final String fileName = next.getPath();
+                    final FileDiscovery.DiscoveredFile next = f.next();
+                    final String fileName = next.getPath().toString();
 
                     // We should only be getting these if we asked for them.
                     // We should only use them if we are not resuming a previous run.
                     if (next.isDirectory() && numberOfBundlesToSkipArg == 0) {
                         logger.debug("Doing directory {}", fileName);
-                        processDirectory(next);
+                        processDirectory(next.getPath().toFile());
                         continue;
                     }
 
-                    // Can we read the file?
-                    if (!next.isFile() && !next.canRead()) {
-                        logger.debug("Cannot access file: {}", fileName);
-                        continue;
-                    }
+                    // No separate readability check: discovery only returns regular files and directories,
+                    // so the non-file entries the old !isFile() && !canRead() test skipped never get here
 
                     // Skip dot files possibly
-                    // TODO Maybe we want to change this to explicitly look for "." instead of isHidden
-                    if (skipDotFilesArg && Files.isHidden(Path.of(fileName))) {
+                    if (skipDotFilesArg && next.isDotFile()) {
                         logger.debug("Skipping dot file {}", fileName);
                         continue;
                     }
 
                     // Is file too old? (If we aren't configured to use
                     // tstamps minFileTime will always be 0L
-                    if (next.lastModified() < minFileTime) {
+                    if (next.getLastModified() < minFileTime) {
                         continue;
                     }
 
                     synchronized (WorkSpace.this.QLOCK) {
-                        if (WorkSpace.this.filesDone.containsKey(fileName)) {
-                            WorkSpace.this.filesDone.remove(fileName);
+                        if (WorkSpace.this.filesDone.remove(fileName) != null) {
                             continue;
-                        } else if (WorkSpace.this.filesSeen.containsKey(fileName)
-                                && WorkSpace.this.filesSeen.get(fileName) == next.lastModified()) {
+                        }
+                        if (WorkSpace.this.filesSeen.getModified(fileName) == next.getLastModified()) {
                             logger.debug("Skipping file already seen {}, touch file to force add", fileName);
                             continue;
                         }
@@ -1270,11 +1540,12 @@ public class WorkSpace implements Runnable {
                     // add file to workbundle (at least 1)
                     if (workbundleHasRoom(paths, bytesInBundle)) {
                         logger.debug("Added file to workbundle: {}", fileName);
-                        paths.addFileName(fileName, getFileModificationDate(fileName), getFileSize(fileName));
-                        bytesInBundle += next.length();
+                        paths.addFileName(fileName, next.getLastModified(), next.getSize());
+                        pathsSeen.put(fileName, next.getLastModified());
+                        bytesInBundle += next.getSize();
                         WorkSpace.this.filesProcessed++; // overall
                         fileCount++; // this loop
-                        WorkSpace.this.bytesProcessed += next.length(); // overall
+                        WorkSpace.this.bytesProcessed += next.getSize(); // overall
                     }
                     // if bundle is full, create a new empty and
                     // move it to the outbound queue.
@@ -1283,13 +1554,14 @@ public class WorkSpace implements Runnable {
                         if (skipped < numberOfBundlesToSkipArg) {
                             skipped++;
                         } else {
-                            addOutboundBundle(paths);
+                            addCollectedBundle(paths, pathsSeen);
                             collected++;
                         }
                         // create new empty work bundle
                         paths = new WorkBundle(basePath);
                         paths.setPriority(dir.getPriority());
                         paths.setSimpleMode(getSimpleMode());
+                        pathsSeen.clear();
                         bytesInBundle = 0;
                     }
 
@@ -1300,14 +1572,12 @@ public class WorkSpace implements Runnable {
                     if (skipped < numberOfBundlesToSkipArg) {
                         logger.info("Skipping last bundle");
                     } else {
-                        addOutboundBundle(paths);
+                        addCollectedBundle(paths, pathsSeen);
                         collected++;
                     }
                 }
                 // clear the files done list
-                synchronized (WorkSpace.this.QLOCK) {
-                    WorkSpace.this.filesDone.clear();
-                }
+                WorkSpace.this.filesDone.clear();
             } catch (Exception e) {
                 logger.error("System error", e);
                 return collected;
@@ -1319,6 +1589,20 @@ public class WorkSpace implements Runnable {
             return collected;
         }
 
+        /**
+         * Record the files of a collected bundle as seen with the modification times they were found with, so they do not
+         * have to be looked up again, and put the bundle on the outbound queue
+         *
+         * @param bundle the collected bundle
+         * @param modified the modification time of each file in the bundle
+         */
+        protected void addCollectedBundle(final WorkBundle bundle, final Map<String, Long> modified) {
+            for (final Map.Entry<String, Long> entry : modified.entrySet()) {
+                WorkSpace.this.filesSeen.put(entry.getKey(), entry.getValue());
+            }
+            addOutboundBundle(bundle);
+        }
+
         /**
          * Convenience method to check if there is room in the work bundle to add more files.
          *
@@ -1375,8 +1659,8 @@ public class WorkSpace implements Runnable {
      * Collect per pickup statistics for this run
      */
     public static class WorkSpaceStats {
-        final Map<String, Integer> remoteMap = new HashMap<>();
-        final Set<String> shutDownSent = new HashSet<>();
+        final Map<String, Integer> remoteMap = new ConcurrentHashMap<>();
+        final Set<String> shutDownSent = ConcurrentHashMap.newKeySet();
 
         /**
          * Increment the bundle count for the machine when it takes one
@@ -1384,13 +1668,7 @@ public class WorkSpace implements Runnable {
          * @param machine the remote pickup
          */
         public void bump(final String machine) {
-            Integer count = this.remoteMap.get(machine);
-            if (count == null) {
-                count = 1;
-            } else {
-                count = count + 1;
-            }
-            this.remoteMap.put(machine, count);
+            this.remoteMap.merge(machine, 1, Integer::sum);
         }
 
         /**
@@ -274,6 +274,9 @@ public class FilePickUpClient extends PickUpSpace implements IPickUp {
                 isOversize = true;
                 // Let it continue on knowing it is too big
                 // as we may need a record of the file
+            } else if (exceedsInFlightLimit(f.length())) {
+                logger.warn("Sorry, This file is larger than the in flight payload limit (" + f.length() + "): " + path);
+                isOversize = true;
             }
 
             // Possibly rename the file to a holding area
@@ -349,6 +352,16 @@ public class FilePickUpClient extends PickUpSpace implements IPickUp {
         return queServer.getQueSize();
     }
 
+    /**
+     * Lease no more bundles than the queue has room for
+     *
+     * @return room on the queue
+     */
+    @Override
+    protected int getQueueRoom() {
+        return Math.max(0, maxQueSize - getQueSize());
+    }
+
     /**
      * A little thread class to wake up once in a while and check the queue for data objects.
      */
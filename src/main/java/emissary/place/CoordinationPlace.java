@@ -4,6 +4,8 @@ import emissary.admin.PlaceStarter;
 import emissary.core.EmissaryException;
 import emissary.core.Form;
 import emissary.core.IBaseDataObject;
+import emissary.core.IBaseDataObjectHelper;
+import emissary.core.IMobileAgent;
 import emissary.core.Namespace;
 import emissary.core.NamespaceException;
 import emissary.core.ResourceException;
@@ -11,6 +13,7 @@ import emissary.core.ResourceWatcher;
 import emissary.core.TimedResource;
 import emissary.directory.DirectoryEntry;
 import emissary.directory.KeyManipulator;
+import emissary.pool.FamilyProcessingPool;
 
 import jakarta.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
@@ -18,9 +21,19 @@ import org.apache.commons.collections4.CollectionUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import static emissary.core.constants.Configurations.OUTPUT_FORM;
 
@@ -33,6 +46,12 @@ import static emissary.core.constants.Configurations.OUTPUT_FORM;
  *
  * We only coordinate among places in the local Namespace. If the place specified is not initially in the local
  * namespace we attempt to create it. If it cannot be created it is not used.
+ *
+ * Several places named in one SERVICE_COORDINATION entry, separated by commas, make up a stage. The places in a stage
+ * run at the same time on the {@link FamilyProcessingPool}, each against its own copy of the payload, so they should
+ * only read the payload and add to it. When they are all done, their parameters, alternate views, processing errors and
+ * sprouts are merged into the payload in the order the places are listed, using the COORDINATION_MERGE_POLICY for the
+ * parameters. Other changes they make, including to the current forms, are dropped except for a current form of ERROR.
  */
 public class CoordinationPlace extends ServiceProviderPlace {
 
@@ -42,6 +61,12 @@ public class CoordinationPlace extends ServiceProviderPlace {
     // The list of place references we coordinate for
     protected List<IServiceProviderPlace> placeRefs;
 
+    // The stage of each place that runs alongside others, consecutive places in the same stage run together
+    protected Map<IServiceProviderPlace, Integer> placeStages = new IdentityHashMap<>();
+
+    // How the output of places run together is merged
+    protected IBaseDataObject.MergePolicy mergePolicy = IBaseDataObject.MergePolicy.DISTINCT;
+
 
     @Nullable
     protected String outputForm = null; // What we call it when we are finished
@@ -99,48 +124,82 @@ public class CoordinationPlace extends ServiceProviderPlace {
      * <li>OUTPUT_FORM: default=null, output form for final step of coordination</li>
      * <li>PUSH_OUTPUT_FORM: default=true, calls pushOutputForm when true, setOutputForm otherwise</li>
      * <li>SERVICE_COORDINATION: place entries to use for this coordination place, an ordered list of places that must
-     * already be constructed</li>
+     * already be constructed. An entry naming several places separated by commas is a stage of places run at the same
+     * time</li>
+     * <li>COORDINATION_MERGE_POLICY: default=DISTINCT, how parameters from the places in a stage are merged, one of
+     * {@link IBaseDataObject.MergePolicy}</li>
      * </ul>
      */
     protected void configurePlace() {
         outputForm = configG.findStringEntry(OUTPUT_FORM, null);
         pushForm = configG.findBooleanEntry("PUSH_OUTPUT_FORM", true);
         updateTransformHistory = configG.findBooleanEntry("UPDATE_TRANSFORM_HISTORY", false);
-
-        placeKeys = configG.findEntries("SERVICE_COORDINATION");
-        placeKeys.addAll(configG.findEntries("APPEND_SERVICE_COORDINATION"));
+        mergePolicy = IBaseDataObject.MergePolicy.valueOf(configG.findStringEntry("COORDINATION_MERGE_POLICY", "DISTINCT"));
+
+        List<String> entries = configG.findEntries("SERVICE_COORDINATION");
+        entries.addAll(configG.findEntries("APPEND_SERVICE_COORDINATION"));
+
+        // Each entry is one place or a stage of places
+        placeKeys = new ArrayList<>();
+        Map<String, Integer> stageOf = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            List<String> stage = Arrays.asList(entries.get(i).split(","));
+            for (String key : stage) {
+                key = key.trim();
+                if (!key.isEmpty()) {
+                    placeKeys.add(key);
+                    if (stage.size() > 1) {
+                        stageOf.put(key, i);
+                    }
+                }
+            }
+        }
         placeKeys.removeAll(configG.findEntries("DENY_SERVICE_COORDINATION"));
         logger.debug("We got {} entries to coordinate", placeKeys.size());
 
         placeRefs = new ArrayList<>();
+        placeStages = new IdentityHashMap<>();
         for (String s : placeKeys) {
+            int before = placeRefs.size();
+            addPlaceRef(s);
+            if (placeRefs.size() > before && stageOf.containsKey(s)) {
+                placeStages.put(placeRefs.get(before), stageOf.get(s));
+            }
+        }
+    }
+
+    /**
+     * Find or create a coordinated place and add it to the place references
+     *
+     * @param s the place name
+     */
+    private void addPlaceRef(String s) {
+        try {
+            // See if the place already exists
+            Object ref = Namespace.lookup(s);
+            if (ref instanceof IServiceProviderPlace) {
+                placeRefs.add((IServiceProviderPlace) ref);
+                logger.debug("Added reference for {}:{}", s, ref);
+            } else {
+                logger.error("Referenced place {} is of the wrong type: {}", s, ref.getClass().getName());
+            }
+        } catch (NamespaceException ex) {
+            // Try creating the place
             try {
-                // See if the place already exists
-                Object ref = Namespace.lookup(s);
-                if (ref instanceof IServiceProviderPlace) {
-                    placeRefs.add((IServiceProviderPlace) ref);
-                    logger.debug("Added reference for {}:{}", s, ref);
+                String skey = KeyManipulator.getServiceHostUrl(keys.get(0)) + s;
+                logger.debug("No such place {}, creating as {}", s, skey, ex);
+                String sclz = PlaceStarter.getClassString(skey);
+                IServiceProviderPlace p = PlaceStarter.createPlace(skey, null, sclz, dirPlace);
+                if (p != null) {
+                    placeRefs.add(p);
+                    logger.debug("Place created: {}", p);
                 } else {
-                    logger.error("Referenced place {} is of the wrong type: {}", s, ref.getClass().getName());
-                }
-            } catch (NamespaceException ex) {
-                // Try creating the place
-                try {
-                    String skey = KeyManipulator.getServiceHostUrl(keys.get(0)) + s;
-                    logger.debug("No such place {}, creating as {}", s, skey, ex);
-                    String sclz = PlaceStarter.getClassString(skey);
-                    IServiceProviderPlace p = PlaceStarter.createPlace(skey, null, sclz, dirPlace);
-                    if (p != null) {
-                        placeRefs.add(p);
-                        logger.debug("Place created: {}", p);
-                    } else {
-                        failedCoordPlaceCreation.add(s + " in " + configG.findStringEntry("PLACE_NAME"));
-                        logger.error("Place does not exist and cannot be created: {}", s);
-                    }
-                } catch (RuntimeException e) {
                     failedCoordPlaceCreation.add(s + " in " + configG.findStringEntry("PLACE_NAME"));
-                    logger.error("Place does not exist and cannot be created: {}", s, e);
+                    logger.error("Place does not exist and cannot be created: {}", s);
                 }
+            } catch (RuntimeException e) {
+                failedCoordPlaceCreation.add(s + " in " + configG.findStringEntry("PLACE_NAME"));
+                logger.error("Place does not exist and cannot be created: {}", s, e);
             }
         }
     }
@@ -214,7 +273,21 @@ public class CoordinationPlace extends ServiceProviderPlace {
         boolean errorOccurred = false;
 
         // Iterate over the configured places
-        for (IServiceProviderPlace p : placeRefs) {
+        for (int i = 0; i < placeRefs.size();) {
+            List<IServiceProviderPlace> stage = stageAt(i);
+            i += stage.size();
+            if (stage.size() > 1) {
+                StageOutcome outcome = coordinateStage(d, stage, hd, sproutCollection);
+                if (outcome.ran) {
+                    errorOccurred = outcome.errorOccurred;
+                }
+                if (outcome.stop) {
+                    break;
+                }
+                continue;
+            }
+
+            IServiceProviderPlace p = stage.get(0);
             // Let derived classed decide to quit or continue this loop
             if (!shouldContinue(d, p)) {
                 break;
@@ -267,6 +340,219 @@ public class CoordinationPlace extends ServiceProviderPlace {
         return sproutCollection;
     }
 
+    /**
+     * Get the places starting at a position that run together
+     *
+     * @param start index into the place references
+     * @return the place at start along with the places in the same stage that follow it
+     */
+    private List<IServiceProviderPlace> stageAt(int start) {
+        IServiceProviderPlace first = placeRefs.get(start);
+        Integer stage = placeStages.get(first);
+        if (stage == null) {
+            return List.of(first);
+        }
+        int end = start + 1;
+        while (end < placeRefs.size() && stage.equals(placeStages.get(placeRefs.get(end)))) {
+            end++;
+        }
+        return placeRefs.subList(start, end);
+    }
+
+    /**
+     * What happened when a stage of places ran together
+     */
+    private static final class StageOutcome {
+        // true if any place in the stage was run
+        private boolean ran = false;
+        // the error state of the last place whose output was kept
+        private boolean errorOccurred = false;
+        // true if coordination should not go on to the next place
+        private boolean stop = false;
+    }
+
+    /**
+     * Run a stage of places at the same time, each on its own copy of the payload, then merge their output in order. Each
+     * place is checked with {@link #shouldContinue(IBaseDataObject, IServiceProviderPlace)} and
+     * {@link #shouldSkip(IBaseDataObject, IServiceProviderPlace)} before the stage starts and with
+     * {@link #shouldContinue(IServiceProviderPlace, boolean)} as its output is merged, and output from places after one that
+     * stops coordination is dropped.
+     *
+     * @param d the payload
+     * @param stage the places to run
+     * @param hd true if doing heavy-duty processing
+     * @param sproutCollection where sprouts are added
+     * @return the outcome of the stage
+     */
+    private StageOutcome coordinateStage(IBaseDataObject d, List<IServiceProviderPlace> stage, boolean hd, List<IBaseDataObject> sproutCollection) {
+        StageOutcome outcome = new StageOutcome();
+
+        // Decide which places run before any of them start
+        List<IServiceProviderPlace> running = new ArrayList<>();
+        for (IServiceProviderPlace p : stage) {
+            if (!shouldContinue(d, p)) {
+                outcome.stop = true;
+                break;
+            } else if (shouldSkip(d, p)) {
+                continue;
+            }
+            updateTransformHistory(d, p);
+            running.add(p);
+        }
+        if (running.isEmpty()) {
+            return outcome;
+        }
+        outcome.ran = true;
+
+        // Remember the payload as it was so each place's additions can be found
+        Map<String, List<Object>> baseParameters = new HashMap<>();
+        for (Map.Entry<String, Collection<Object>> e : d.getParameters().entrySet()) {
+            baseParameters.put(e.getKey(), new ArrayList<>(e.getValue()));
+        }
+        Map<String, byte[]> baseViews = new HashMap<>(d.getAlternateViews());
+        String baseErrors = Objects.toString(d.getProcessingError(), "");
+
+        // The places run on pool threads, so each one is timed on the thread running it
+        IMobileAgent agent = null;
+        try {
+            agent = getAgent();
+        } catch (NamespaceException e) {
+            logger.debug("No agent to time stage {} for", running);
+        }
+        IMobileAgent timedAgent = agent;
+
+        List<IBaseDataObject> views = new ArrayList<>();
+        List<Callable<List<IBaseDataObject>>> work = new ArrayList<>();
+        for (IServiceProviderPlace p : running) {
+            IBaseDataObject view = IBaseDataObjectHelper.clone(d);
+            views.add(view);
+            work.add(() -> {
+                try (TimedResource tr = resourceWatcherStart(timedAgent, p, Thread.currentThread())) {
+                    assert tr != null; // to silence an unused resource warning
+                    if (hd) {
+                        // Do the normal HD processing
+                        return p.agentProcessHeavyDuty(view);
+                    }
+                    // Do the normal Non-HD processing
+                    p.agentProcessCall(view);
+                    return null;
+                }
+            });
+        }
+        // When this coordinate call is itself running on a pool thread, such as for a member of a family processed
+        // concurrently, the stage runs on this thread so the pool cannot fill up with threads waiting on each other
+        FamilyProcessingPool.Batch<List<IBaseDataObject>> batch = FamilyProcessingPool.run(work);
+
+        List<List<IBaseDataObject>> sprouts = new ArrayList<>();
+        boolean[] errors = new boolean[running.size()];
+        boolean interrupted = false;
+        for (int k = 0; k < running.size(); k++) {
+            IServiceProviderPlace p = running.get(k);
+            List<IBaseDataObject> placeSprouts = null;
+            try {
+                placeSprouts = batch.get(k).get();
+                errors[k] = Form.ERROR.equals(views.get(k).currentForm());
+            } catch (InterruptedException e) {
+                logger.warn("Interrupted while place {} was running, cancelling the rest of its stage", p);
+                interrupted = true;
+                batch.cancel();
+                errors[k] = handlePlaceException(p, hd, e);
+            } catch (CancellationException e) {
+                errors[k] = handlePlaceException(p, hd, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                errors[k] = handlePlaceException(p, hd, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+            sprouts.add(placeSprouts);
+        }
+
+        // A cancelled place only stops once it notices the interrupt, wait for it so nothing is left running on a copy
+        if (batch.awaitStopped()) {
+            interrupted = true;
+        }
+        if (interrupted || Thread.interrupted()) {
+            logger.warn("Stage {} was interrupted during execution.", running);
+        }
+
+        // Merge in the order the places are listed
+        for (int k = 0; k < running.size(); k++) {
+            mergeStageOutput(d, views.get(k), baseParameters, baseViews, baseErrors);
+            outcome.errorOccurred = errors[k];
+            if (!shouldContinue(running.get(k), errors[k])) {
+                outcome.stop = true;
+                break;
+            }
+            if (CollectionUtils.isNotEmpty(sprouts.get(k))) {
+                sproutCollection.addAll(sprouts.get(k));
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * Merge what one place in a stage added to its copy of the payload
+     *
+     * @param d the payload
+     * @param view the copy the place worked on
+     * @param baseParameters the parameters of the payload before the stage
+     * @param baseViews the alternate views of the payload before the stage
+     * @param baseErrors the processing errors of the payload before the stage
+     */
+    private void mergeStageOutput(IBaseDataObject d, IBaseDataObject view, Map<String, List<Object>> baseParameters, Map<String, byte[]> baseViews,
+            String baseErrors) {
+        Map<String, List<Object>> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Collection<Object>> e : view.getParameters().entrySet()) {
+            List<Object> base = baseParameters.get(e.getKey());
+            List<Object> values = new ArrayList<>(e.getValue());
+            if (base == null) {
+                changed.put(e.getKey(), values);
+            } else if (!base.equals(values)) {
+                // Only add what was appended when keeping all values
+                boolean appended = values.size() > base.size() && values.subList(0, base.size()).equals(base);
+                changed.put(e.getKey(), mergePolicy == IBaseDataObject.MergePolicy.KEEP_ALL && appended ? values.subList(base.size(), values.size()) : values);
+            }
+        }
+        d.putParameters(changed, mergePolicy);
+
+        boolean keepExisting = mergePolicy == IBaseDataObject.MergePolicy.KEEP_EXISTING;
+        if (!keepExisting) {
+            for (String key : baseParameters.keySet()) {
+                if (!view.hasParameter(key)) {
+                    d.deleteParameter(key);
+                }
+            }
+        }
+
+        Map<String, byte[]> altViews = view.getAlternateViews();
+        for (Map.Entry<String, byte[]> e : altViews.entrySet()) {
+            if (e.getValue() != baseViews.get(e.getKey()) && !(keepExisting && d.getAlternateView(e.getKey()) != null)) {
+                d.addAlternateView(e.getKey(), e.getValue());
+            }
+        }
+        if (!keepExisting) {
+            for (String name : baseViews.keySet()) {
+                if (!altViews.containsKey(name)) {
+                    d.addAlternateView(name, null);
+                }
+            }
+        }
+
+        String errors = Objects.toString(view.getProcessingError(), "");
+        if (errors.length() > baseErrors.length() && errors.startsWith(baseErrors)) {
+            for (String error : errors.substring(baseErrors.length()).split("\n")) {
+                if (!error.isEmpty()) {
+                    d.addProcessingError(error);
+                }
+            }
+        }
+
+        if (Form.ERROR.equals(view.currentForm()) && !Form.ERROR.equals(d.currentForm())) {
+            d.pushCurrentForm(Form.ERROR);
+        }
+    }
+
     /**
      * Allow derived classes a shot to handle a place exception
      *
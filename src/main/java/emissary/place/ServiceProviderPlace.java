@@ -3,19 +3,23 @@ package emissary.place;
 import emissary.config.ConfigEntry;
 import emissary.config.Configurator;
 import emissary.config.ServiceConfigGuide;
+import emissary.core.EmissaryException;
 import emissary.core.Family;
 import emissary.core.Form;
 import emissary.core.HDMobileAgent;
 import emissary.core.IBaseDataObject;
+import emissary.core.IMobileAgent;
 import emissary.core.MobileAgent;
 import emissary.core.Namespace;
 import emissary.core.NamespaceException;
 import emissary.core.ResourceException;
 import emissary.core.ResourceWatcher;
+import emissary.core.TimedResource;
 import emissary.directory.DirectoryProviderPlace;
 import emissary.kff.KffDataObjectHandler;
 import emissary.log.MDCConstants;
 import emissary.parser.SessionParser;
+import emissary.pool.FamilyProcessingPool;
 import emissary.util.JMXUtil;
 
 import com.codahale.metrics.Timer;
@@ -31,7 +35,13 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
+import static emissary.core.constants.Configurations.CONCURRENT_FAMILY_MINIMUM;
+import static emissary.core.constants.Configurations.CONCURRENT_FAMILY_PROCESSING;
 import static emissary.core.constants.Configurations.PLACE_RESOURCE_LIMIT_MILLIS;
 
 /**
@@ -71,6 +81,20 @@ public abstract class ServiceProviderPlace extends DirectoryProviderPlace implem
     protected boolean processMethodImplemented = false;
     protected boolean heavyDutyMethodImplemented = false;
 
+    /** Default smallest family processed concurrently {@value} */
+    public static final int DEFAULT_CONCURRENT_FAMILY_MINIMUM = 4;
+
+    /**
+     * True if the payloads of a family are processed at the same time, from CONCURRENT_FAMILY_PROCESSING in the config
+     * and on by default for a {@link ThreadSafePlace}
+     */
+    protected boolean concurrentFamilyProcessing = false;
+
+    /**
+     * Smaller families are processed one payload at a time, from CONCURRENT_FAMILY_MINIMUM in the config
+     */
+    protected int concurrentFamilyMinimum = DEFAULT_CONCURRENT_FAMILY_MINIMUM;
+
     /**
      * Create a place and register it in the local directory. The default config must contain at least one SERVICE_KEY
      * element used to know where that is and how to name it. If the old style config with SERVICE_PROXY etc is used then
@@ -218,6 +242,11 @@ public abstract class ServiceProviderPlace extends DirectoryProviderPlace implem
             initKff();
         }
 
+        if (configG != null) {
+            concurrentFamilyProcessing = configG.findBooleanEntry(CONCURRENT_FAMILY_PROCESSING, this instanceof ThreadSafePlace);
+            concurrentFamilyMinimum = configG.findIntEntry(CONCURRENT_FAMILY_MINIMUM, DEFAULT_CONCURRENT_FAMILY_MINIMUM);
+        }
+
         setupPlacePostHook(register);
 
         // register MBean with JMX
@@ -257,6 +286,10 @@ public abstract class ServiceProviderPlace extends DirectoryProviderPlace implem
      * "HD" agent calls this method when visiting the place. If you use emissary.core.MobileAgent this method is never
      * called. Should be overridden by concrete places that wish to process bulk data in a different manner than one payload
      * at a time.
+     * <p>
+     * When concurrent family processing is on and the list is large enough the payloads are processed at the same time on
+     * the shared {@link FamilyProcessingPool}. The children are still returned in the order of their parents and the child
+     * counts and error forms are set on the calling thread exactly as when processing one payload at a time.
      *
      * @param payloadList list of IBaseDataObject from an HDMobileAgent
      * @return list of IBaseDataObject "sprouts"
@@ -268,21 +301,17 @@ public abstract class ServiceProviderPlace extends DirectoryProviderPlace implem
 
         List<IBaseDataObject> list = new ArrayList<>();
 
-        // For each incoming payload object
-        for (IBaseDataObject dataObject : payloadList) {
-            try {
-                // Process the payload item
-                List<IBaseDataObject> l = agentProcessHeavyDuty(dataObject);
-                if (!l.isEmpty()) {
-                    dataObject.setNumChildren(dataObject.getNumChildren() + l.size());
+        if (isConcurrentFamily(payloadList)) {
+            processConcurrently(payloadList, list);
+        } else {
+            // For each incoming payload object
+            for (IBaseDataObject dataObject : payloadList) {
+                try {
+                    // Process the payload item
+                    addChildren(dataObject, agentProcessHeavyDuty(dataObject), list);
+                } catch (Exception e) {
+                    markProcessingError(dataObject, e);
                 }
-
-                // Accumulate results in a list to return
-                list.addAll(l);
-            } catch (Exception e) {
-                logger.error("Place.process exception", e);
-                dataObject.addProcessingError("agentProcessHD(" + keys.get(0) + "): " + e);
-                dataObject.replaceCurrentForm(Form.ERROR);
             }
         }
 
@@ -296,6 +325,119 @@ public abstract class ServiceProviderPlace extends DirectoryProviderPlace implem
         return list;
     }
 
+    /**
+     * Report whether a list of payloads is processed concurrently
+     *
+     * @param payloadList the payloads
+     * @return true if enabled for this place and the list is large enough
+     */
+    protected boolean isConcurrentFamily(List<IBaseDataObject> payloadList) {
+        return concurrentFamilyProcessing && payloadList.size() > 1 && payloadList.size() >= concurrentFamilyMinimum;
+    }
+
+    /**
+     * Process every payload on the shared pool and collect the results in the order of the list
+     *
+     * @param payloadList the payloads to process
+     * @param list where the children are added
+     */
+    private void processConcurrently(List<IBaseDataObject> payloadList, List<IBaseDataObject> list) throws InterruptedException {
+        final Map<String, String> mdc = MDC.getCopyOfContextMap();
+
+        // The payloads are processed on pool threads, so each one is timed on the thread processing it
+        IMobileAgent agent = null;
+        try {
+            agent = getAgent();
+        } catch (NamespaceException e) {
+            logger.debug("No agent to time {} for", this);
+        }
+        final IMobileAgent timedAgent = agent;
+
+        final List<Callable<List<IBaseDataObject>>> work = new ArrayList<>(payloadList.size());
+        for (IBaseDataObject dataObject : payloadList) {
+            work.add(() -> {
+                final Map<String, String> previous = MDC.getCopyOfContextMap();
+                if (mdc != null) {
+                    MDC.setContextMap(mdc);
+                }
+                try (TimedResource tr = resourceWatcherStart(timedAgent, this, Thread.currentThread())) {
+                    assert tr != null; // to silence an unused resource warning
+                    return agentProcessHeavyDuty(dataObject);
+                } finally {
+                    if (previous == null) {
+                        MDC.clear();
+                    } else {
+                        MDC.setContextMap(previous);
+                    }
+                }
+            });
+        }
+        final FamilyProcessingPool.Batch<List<IBaseDataObject>> batch = FamilyProcessingPool.run(work);
+
+        try {
+            for (int i = 0; i < payloadList.size(); i++) {
+                final IBaseDataObject dataObject = payloadList.get(i);
+                try {
+                    addChildren(dataObject, batch.get(i).get(), list);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error) {
+                        // Same as when processed on this thread
+                        throw (Error) e.getCause();
+                    }
+                    markProcessingError(dataObject, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                } catch (CancellationException e) {
+                    markProcessingError(dataObject, e);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    markProcessingError(dataObject, e);
+                }
+            }
+        } finally {
+            // Do not leave work running on the payloads when interrupted
+            batch.cancel();
+            if (batch.awaitStopped()) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Start timing a place that runs on a thread other than the agent's, so running out of time interrupts that thread
+     *
+     * @param agent the agent the place runs for, null if there is none
+     * @param place the place
+     * @param thread the thread running the place
+     * @return the resource to close when the place is done
+     */
+    protected TimedResource resourceWatcherStart(@Nullable final IMobileAgent agent, final IServiceProviderPlace place, final Thread thread) {
+        if (agent == null) {
+            return TimedResource.EMPTY;
+        }
+        TimedResource tr = TimedResource.EMPTY;
+        try {
+            tr = ResourceWatcher.lookup().starting(agent, place, thread);
+        } catch (EmissaryException ex) {
+            logger.debug("No resource monitoring enabled");
+        }
+        return (tr == null) ? TimedResource.EMPTY : tr;
+    }
+
+    private static void addChildren(IBaseDataObject dataObject, List<IBaseDataObject> l, List<IBaseDataObject> list) {
+        if (!l.isEmpty()) {
+            dataObject.setNumChildren(dataObject.getNumChildren() + l.size());
+        }
+
+        // Accumulate results in a list to return
+        list.addAll(l);
+    }
+
+    private void markProcessingError(IBaseDataObject dataObject, Exception e) {
+        logger.error("Place.process exception", e);
+        dataObject.addProcessingError("agentProcessHD(" + keys.get(0) + "): " + e);
+        dataObject.replaceCurrentForm(Form.ERROR);
+    }
+
     /**
      * "HD" method called only by HDMobileAgent for a single incoming payload
      *
@@ -0,0 +1,11 @@
+package emissary.place;
+
+/**
+ * Marker interface to let the framework process the payloads of a family at the same time when an HDMobileAgent visits
+ * the place. Implementations must be safe to call from several threads at once, typically because they keep no state
+ * between calls. The same behavior can be turned on or off in the place config with CONCURRENT_FAMILY_PROCESSING.
+ *
+ * @see emissary.place.ServiceProviderPlace#agentProcessHeavyDuty(java.util.List)
+ */
+public interface ThreadSafePlace extends IServiceProviderPlace {
+}
@@ -1,5 +1,7 @@
 package emissary.pool;
 
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
 import emissary.core.IMobileAgent;
 import emissary.core.Namespace;
 import emissary.core.NamespaceException;
@@ -9,7 +11,10 @@ import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Extends the GenericObjectPool to hold MobileAgents, each on it's own thread.
@@ -18,6 +23,7 @@ public class AgentPool extends GenericObjectPool<IMobileAgent> {
 
     private static final int MAX_CALCULATED_AGENT_COUNT = 50;
     private static final int BYTES_IN_GIGABYTES = 1073741824;
+    private static final double DEFAULT_INFLIGHT_HEAP_PERCENT = 50.0;
 
     /**
      * The default name by which we register into the namespace
@@ -41,6 +47,16 @@ public class AgentPool extends GenericObjectPool<IMobileAgent> {
 
     private final int initialPoolSize;
 
+    /**
+     * Limits the payload bytes carried by active agents
+     */
+    protected final PayloadAdmissionController admissionController;
+
+    /**
+     * Bytes each active agent was admitted with, released when the agent is returned
+     */
+    private final Map<IMobileAgent, Long> agentCharges = new ConcurrentHashMap<>();
+
     /**
      * Compute the default size for the pool
      * 
@@ -77,6 +93,42 @@ public class AgentPool extends GenericObjectPool<IMobileAgent> {
         return computePoolSize(maxMemoryInBytes, poolSizeProperty);
     }
 
+    /**
+     * Compute the payload bytes allowed in flight across all active agents
+     *
+     * @param maxMemoryInBytes System max memory used in calculating the budget
+     * @param limitBytes configured budget in bytes, takes precedence when not negative
+     * @param heapPercent configured budget as a percentage of max memory, negative to disable
+     * @return the budget in bytes, negative when unlimited
+     */
+    protected static long computeInFlightLimit(final long maxMemoryInBytes, final long limitBytes, final double heapPercent) {
+        if (limitBytes >= 0) {
+            return limitBytes;
+        }
+        if (heapPercent < 0) {
+            return -1L;
+        }
+        return (long) (maxMemoryInBytes * (heapPercent / 100.0));
+    }
+
+    /**
+     * Compute the payload bytes allowed in flight from AgentPool.cfg
+     */
+    public static long computeInFlightLimit() {
+        long limitBytes = -1L;
+        double heapPercent = DEFAULT_INFLIGHT_HEAP_PERCENT;
+        try {
+            Configurator conf = ConfigUtil.getConfigInfo(AgentPool.class);
+            limitBytes = conf.findSizeEntry("agent.inflight.limit_bytes", limitBytes);
+            heapPercent = conf.findDoubleEntry("agent.inflight.heap_percent", heapPercent);
+        } catch (IOException e) {
+            logger.debug("Cannot read AgentPool.cfg, taking default in flight limit");
+        }
+        final long limit = computeInFlightLimit(Runtime.getRuntime().maxMemory(), limitBytes, heapPercent);
+        logger.debug("Computed in flight payload limit of {} bytes", limit);
+        return limit;
+    }
+
     /**
      * Create and configure the pool using the default name and size
      * 
@@ -105,8 +157,21 @@ public class AgentPool extends GenericObjectPool<IMobileAgent> {
      * @param name name of the pool in the namespace
      */
     public AgentPool(MobileAgentFactory factory, int maxActive, String name) {
+        this(factory, maxActive, name, new PayloadAdmissionController(computeInFlightLimit()));
+    }
+
+    /**
+     * Create and configure the pool using the specified name and payload admission
+     *
+     * @param factory pool object producer
+     * @param maxActive max pool size
+     * @param name name of the pool in the namespace
+     * @param admissionController limits the payload bytes carried by active agents
+     */
+    public AgentPool(MobileAgentFactory factory, int maxActive, String name, PayloadAdmissionController admissionController) {
         super(factory);
         this.factory = factory;
+        this.admissionController = admissionController;
         initialPoolSize = maxActive;
         configurePool(name);
     }
@@ -195,6 +260,26 @@ public class AgentPool extends GenericObjectPool<IMobileAgent> {
         }
     }
 
+    /**
+     * Get an agent from the pool only if one is idle right now
+     *
+     * @return the agent or null if none are idle
+     */
+    @Nullable
+    public IMobileAgent borrowIdleAgent() {
+        if (getNumIdle() == 0) {
+            return null;
+        }
+        try {
+            IMobileAgent a = borrowObject(Duration.ZERO);
+            logger.trace("POOL borrow idle active={}", getNumActive());
+            return a;
+        } catch (Exception e) {
+            logger.trace("No idle agent to borrow", e);
+            return null;
+        }
+    }
+
     /*
      * Get the total current agents in the pool
      */
@@ -274,11 +359,45 @@ public class AgentPool extends GenericObjectPool<IMobileAgent> {
         logger.info("Done killing the agent pool");
     }
 
+    /**
+     * Get the controller limiting the payload bytes carried by active agents
+     */
+    public PayloadAdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * Record the bytes an agent was admitted with so they are released when the agent is returned
+     *
+     * @param agent the borrowed agent
+     * @param bytes admitted through {@link #getAdmissionController()}
+     */
+    public void chargeAgent(IMobileAgent agent, long bytes) {
+        Long previous = agentCharges.put(agent, bytes);
+        if (previous != null) {
+            logger.warn("Agent {} was already charged {} bytes", agent.getName(), previous);
+            admissionController.release(previous);
+        }
+    }
+
+    /**
+     * Release the bytes an agent was admitted with, if any
+     *
+     * @param agent the agent being returned
+     */
+    protected void releaseAgentCharge(IMobileAgent agent) {
+        Long charge = agentCharges.remove(agent);
+        if (charge != null) {
+            admissionController.release(charge);
+        }
+    }
+
     /**
      * Return an agent to the pool
      */
     public void returnAgent(IMobileAgent agent) {
         logger.trace("Returning {}", agent.getName());
+        releaseAgentCharge(agent);
         returnObject(agent);
         logger.trace("POOL return active={}", getNumActive());
     }
@@ -302,7 +421,7 @@ public class AgentPool extends GenericObjectPool<IMobileAgent> {
      */
     @Override
     public synchronized String toString() {
-        return "Poolsize active/idle = " + getNumActive() + "/" + getNumIdle() + " - " + getPoolName();
+        return "Poolsize active/idle = " + getNumActive() + "/" + getNumIdle() + " - " + getPoolName() + " - " + admissionController;
     }
 
     /**
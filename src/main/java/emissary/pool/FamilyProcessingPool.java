@@ -0,0 +1,178 @@
+package emissary.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The fork/join pool shared by every place that processes the members of a family at the same time. The pool is bounded
+ * so that many agents visiting such places at once cannot start more threads than the node has processors, by default.
+ * The size can be set with the {@code family.parallelism} system property.
+ *
+ * @see emissary.place.ThreadSafePlace
+ */
+public final class FamilyProcessingPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(FamilyProcessingPool.class);
+
+    /** System property holding the number of threads */
+    public static final String PARALLELISM_PROPERTY = "family.parallelism";
+
+    private static final class Holder {
+        private static final ForkJoinPool POOL = create(computeParallelism());
+    }
+
+    private FamilyProcessingPool() {}
+
+    /**
+     * Get the shared pool, starting it on first use
+     *
+     * @return the pool
+     */
+    public static ForkJoinPool getPool() {
+        return Holder.POOL;
+    }
+
+    /**
+     * Compute the number of threads for the pool
+     *
+     * @param override configured size, used when positive
+     * @param processors number of processors available
+     * @return the parallelism
+     */
+    static int computeParallelism(final int override, final int processors) {
+        if (override > 0) {
+            return override;
+        }
+        return Math.max(1, processors);
+    }
+
+    /**
+     * Run tasks on the pool. A thread of a fork/join pool runs them itself one after the other instead, since the pool
+     * does not add threads for a worker blocked waiting on tasks queued behind it, and enough such workers at once would
+     * leave no thread to run the tasks.
+     *
+     * @param work the tasks, in order
+     * @param <T> the result type
+     * @return the started tasks
+     */
+    public static <T> Batch<T> run(final List<Callable<T>> work) {
+        final Batch<T> batch = new Batch<>(work);
+        final boolean inline = ForkJoinTask.inForkJoinPool();
+        for (final FutureTask<T> task : batch.tasks) {
+            if (inline) {
+                batch.runHere(task);
+                continue;
+            }
+            try {
+                getPool().execute(() -> batch.runOnPool(task));
+            } catch (RejectedExecutionException e) {
+                // Pool is shut down, finish the rest here
+                logger.warn("Family processing pool rejected work, running it on the calling thread", e);
+                batch.runHere(task);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Tasks started together by {@link #run(List)}. Unlike a fork/join task, cancelling one interrupts the thread running
+     * it.
+     *
+     * @param <T> the result type
+     */
+    public static final class Batch<T> {
+        private final List<FutureTask<T>> tasks;
+        private final CountDownLatch stopped;
+
+        private Batch(final List<Callable<T>> work) {
+            this.tasks = new ArrayList<>(work.size());
+            for (final Callable<T> c : work) {
+                tasks.add(new FutureTask<>(c));
+            }
+            this.stopped = new CountDownLatch(work.size());
+        }
+
+        private void runOnPool(final FutureTask<T> task) {
+            try {
+                task.run();
+            } finally {
+                // Do not carry a time out or cancellation into the next task on this thread
+                Thread.interrupted();
+                stopped.countDown();
+            }
+        }
+
+        private void runHere(final FutureTask<T> task) {
+            try {
+                if (Thread.currentThread().isInterrupted()) {
+                    task.cancel(false);
+                } else {
+                    task.run();
+                }
+            } finally {
+                stopped.countDown();
+            }
+        }
+
+        /**
+         * Get one of the tasks
+         *
+         * @param index position of the task in the list it was started from
+         * @return the task
+         */
+        public Future<T> get(final int index) {
+            return tasks.get(index);
+        }
+
+        /**
+         * Cancel the tasks that are not done, interrupting the ones that are running
+         */
+        public void cancel() {
+            for (final FutureTask<T> task : tasks) {
+                task.cancel(true);
+            }
+        }
+
+        /**
+         * Wait until no task is running any more. A cancelled task only stops once it notices the interrupt.
+         *
+         * @return true if the calling thread was interrupted while waiting, the caller decides whether to interrupt it again
+         */
+        public boolean awaitStopped() {
+            boolean interrupted = false;
+            while (stopped.getCount() > 0) {
+                try {
+                    stopped.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return interrupted;
+        }
+    }
+
+    private static int computeParallelism() {
+        return computeParallelism(Integer.getInteger(PARALLELISM_PROPERTY, -1), Runtime.getRuntime().availableProcessors());
+    }
+
+    private static ForkJoinPool create(final int parallelism) {
+        logger.debug("Starting family processing pool with parallelism {}", parallelism);
+        return new ForkJoinPool(parallelism, pool -> {
+            final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("FamilyProcessing-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+}
@@ -3,6 +3,7 @@ package emissary.pool;
 import emissary.config.ConfigUtil;
 import emissary.config.Configurator;
 import emissary.core.Factory;
+import emissary.core.HDMobileAgent;
 import emissary.core.IMobileAgent;
 import emissary.core.MobileAgent;
 import emissary.core.Namespace;
@@ -31,6 +32,11 @@ public class MobileAgentFactory implements PooledObjectFactory<IMobileAgent> {
 
     int maxAgentMoveErrors;
     int maxAgentItinerary;
+    int splitThreshold = HDMobileAgent.DEFAULT_SPLIT_THRESHOLD;
+    int splitFanout = HDMobileAgent.DEFAULT_SPLIT_FANOUT;
+    long splitJoinMillis = HDMobileAgent.DEFAULT_SPLIT_JOIN_MILLIS;
+    boolean timeVisits = false;
+    long slowItineraryMillis = MobileAgent.DEFAULT_SLOW_ITINERARY_MILLIS;
 
     private static final Logger logger = LoggerFactory.getLogger(MobileAgentFactory.class);
 
@@ -51,6 +57,11 @@ public class MobileAgentFactory implements PooledObjectFactory<IMobileAgent> {
 
             maxAgentMoveErrors = conf.findIntEntry("agent.move.errors", MobileAgent.DEFAULT_MAX_MOVE_ERRORS);
             maxAgentItinerary = conf.findIntEntry("agent.max.itinerary", MobileAgent.DEFAULT_MAX_ITINERARY_STEPS);
+            splitThreshold = conf.findIntEntry("agent.split.threshold", HDMobileAgent.DEFAULT_SPLIT_THRESHOLD);
+            splitFanout = conf.findIntEntry("agent.split.fanout", HDMobileAgent.DEFAULT_SPLIT_FANOUT);
+            splitJoinMillis = conf.findLongEntry("agent.split.join.millis", HDMobileAgent.DEFAULT_SPLIT_JOIN_MILLIS);
+            timeVisits = conf.findBooleanEntry("agent.time.visits", false);
+            slowItineraryMillis = conf.findLongEntry("agent.slow.itinerary.millis", MobileAgent.DEFAULT_SLOW_ITINERARY_MILLIS);
         } catch (IOException e) {
             logger.debug("Cannot read AgentPool.cfg, taking default values");
         }
@@ -104,6 +115,15 @@ public class MobileAgentFactory implements PooledObjectFactory<IMobileAgent> {
             }
             agent.setMaxItinerarySteps(maxAgentItinerary);
             agent.setMaxMoveErrors(maxAgentMoveErrors);
+            if (agent instanceof HDMobileAgent) {
+                ((HDMobileAgent) agent).setSplitThreshold(splitThreshold);
+                ((HDMobileAgent) agent).setSplitFanout(splitFanout);
+                ((HDMobileAgent) agent).setSplitJoinMillis(splitJoinMillis);
+            }
+            if (agent instanceof MobileAgent) {
+                ((MobileAgent) agent).setTimeVisits(timeVisits);
+                ((MobileAgent) agent).setSlowItineraryMillis(slowItineraryMillis);
+            }
         } catch (Throwable t) {
             logger.error("Unable to Factory.create(" + getClassString() + ") with a threadGroup argument", t);
             if (useNamespace) {
@@ -1,5 +1,7 @@
 package emissary.pool;
 
+import emissary.config.ConfigUtil;
+import emissary.config.Configurator;
 import emissary.core.IMobileAgent;
 import emissary.core.Namespace;
 import emissary.core.NamespaceException;
@@ -13,6 +15,8 @@ import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
@@ -23,6 +27,11 @@ import java.util.Map;
  * Provide a storage area for incoming "moveTo(here)" payloads so that the http transfer can become more asnychronous.
  * This class provides a FIFO for payloads that are arriving and a thread that will put them into agents from the pool
  * as agents become available
+ * <p>
+ * When {@code spool.overflow.dir} is set in MoveSpool.cfg, payloads queued while the heap in use is above
+ * {@code spool.overflow.heap_percent} or the spool holds {@code spool.overflow.max_items} are written to an
+ * {@link OverflowSpool} in that directory instead. Once anything is on disk, later payloads follow it there so they keep
+ * their order, and they are read back as agents become available once the payloads held on the heap are gone.
  */
 
 public class MoveSpool implements Runnable {
@@ -45,6 +54,18 @@ public class MoveSpool implements Runnable {
     // How we want to be registerd in the namespace
     public static final String NAMESPACE_NAME = "ArrivalSpool";
 
+    public static final long DEFAULT_OVERFLOW_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final double DEFAULT_OVERFLOW_HEAP_PERCENT = 75.0;
+    public static final int DEFAULT_OVERFLOW_MAX_ITEMS = 1000;
+
+    // Disk storage for payloads queued under memory pressure, null when not configured
+    @Nullable
+    final OverflowSpool overflow;
+
+    // When to start putting payloads on disk
+    final double overflowHeapPercent;
+    final int overflowMaxItems;
+
     // Stats on how many moves and for what types arrived here
     public final Map<String, Integer> moveCountMap = new HashMap<>();
 
@@ -68,12 +89,39 @@ public class MoveSpool implements Runnable {
      * Make one and bind it in the namespace
      */
     public MoveSpool() {
+        Configurator conf = null;
+        try {
+            conf = ConfigUtil.getConfigInfo(MoveSpool.class);
+        } catch (IOException e) {
+            logger.debug("Cannot read MoveSpool.cfg, payloads are kept on the heap");
+        }
+        overflow = conf == null ? null : createOverflow(conf);
+        overflowHeapPercent = conf == null ? DEFAULT_OVERFLOW_HEAP_PERCENT
+                : conf.findDoubleEntry("spool.overflow.heap_percent", DEFAULT_OVERFLOW_HEAP_PERCENT);
+        overflowMaxItems = conf == null ? DEFAULT_OVERFLOW_MAX_ITEMS : conf.findIntEntry("spool.overflow.max_items", DEFAULT_OVERFLOW_MAX_ITEMS);
         configure();
 
         // register this pool in the namespace
         Namespace.bind(NAMESPACE_NAME, this);
     }
 
+    @Nullable
+    private static OverflowSpool createOverflow(final Configurator conf) {
+        final String dir = conf.findStringEntry("spool.overflow.dir", null);
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+        final long segmentBytes = conf.findSizeEntry("spool.overflow.segment_bytes", DEFAULT_OVERFLOW_SEGMENT_BYTES);
+        try {
+            final OverflowSpool spool = new OverflowSpool(Paths.get(dir), segmentBytes);
+            logger.info("Payloads queued under memory pressure will be spooled to {}", dir);
+            return spool;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Unable to create the overflow spool in {}, payloads are kept on the heap", dir, e);
+            return null;
+        }
+    }
+
     /**
      * Configure stuff
      */
@@ -110,6 +158,9 @@ public class MoveSpool implements Runnable {
             }
             spool.notifyAll();
         }
+        if (overflow != null) {
+            overflow.close();
+        }
         timeToQuit = true;
         Namespace.unbind(NAMESPACE_NAME);
         logger.info("Done stopping the move spool");
@@ -152,6 +203,7 @@ public class MoveSpool implements Runnable {
             synchronized (spool) {
                 sz = spool.size();
             }
+            sz += getOverflowSize();
 
             if (sz == 0) {
                 // No payloads to look at. Sleep a while
@@ -160,7 +212,7 @@ public class MoveSpool implements Runnable {
                     logger.debug("Nothing in spool, time to wait...");
                     Thread.yield();
                     synchronized (spool) {
-                        if (spool.isEmpty()) {
+                        if (spool.isEmpty() && getOverflowSize() == 0) {
                             spool.wait(60000);
                         }
                     }
@@ -244,6 +296,7 @@ public class MoveSpool implements Runnable {
      *
      * @return SpoolItem from the spool
      */
+    @Nullable
     protected SpoolItem removeFirstPayload() {
         SpoolItem s = null;
         synchronized (spool) {
@@ -252,8 +305,19 @@ public class MoveSpool implements Runnable {
                 highWaterMark = spool.size();
             }
 
-            s = spool.removeFirst();
-            dequeCount++;
+            if (overflow == null || !spool.isEmpty()) {
+                s = spool.removeFirst();
+                dequeCount++;
+                return s;
+            }
+        }
+
+        // Everything held on the heap is older, so only now read back from disk
+        s = overflow.poll();
+        if (s != null) {
+            synchronized (spool) {
+                dequeCount++;
+            }
         }
         return s;
     }
@@ -313,12 +377,16 @@ public class MoveSpool implements Runnable {
         SpoolItem s = new SpoolItem(method, payload, place, errorCount, itineraryItems);
         int size = 0;
 
+        final boolean spilled = overflow != null && isUnderPressure() && overflow.offer(s);
         synchronized (spool) {
-            spool.addLast(s);
+            if (!spilled) {
+                spool.addLast(s);
+            }
             enqueCount++;
             size = spool.size();
             spool.notifyAll();
         }
+        size += getOverflowSize();
 
         // Collect the stats
         synchronized (moveCountMap) {
@@ -336,6 +404,25 @@ public class MoveSpool implements Runnable {
     }
 
 
+    /**
+     * Determine whether queued payloads should go to disk
+     *
+     * @return true if payloads are already on disk, the spool is full or the heap in use, including garbage not yet
+     *         collected, is over the limit
+     */
+    private boolean isUnderPressure() {
+        if (getOverflowSize() > 0) {
+            return true;
+        }
+        synchronized (spool) {
+            if (spool.size() >= overflowMaxItems) {
+                return true;
+            }
+        }
+        final Runtime rt = Runtime.getRuntime();
+        return (rt.totalMemory() - rt.freeMemory()) * 100.0 / rt.maxMemory() >= overflowHeapPercent;
+    }
+
     /**
      * Look up the instance in the namespace
      */
@@ -381,8 +468,8 @@ public class MoveSpool implements Runnable {
     @Override
     public String toString() {
         // Spool size is deliberately not synchronized
-        return "MoveSpool current/high " + spool.size() + "/" + highWaterMark + ", en/dequeue " + enqueCount + "/" + dequeCount + ", serviceNames="
-                + getStatPairs();
+        return "MoveSpool current/high " + spool.size() + "/" + highWaterMark + ", overflow " + getOverflowSize() + ", en/dequeue " + enqueCount
+                + "/" + dequeCount + ", serviceNames=" + getStatPairs();
     }
 
     /**
@@ -493,4 +580,13 @@ public class MoveSpool implements Runnable {
     public int getCurrentSpoolSize() {
         return spool.size();
     }
+
+    /**
+     * Get the number of payloads waiting on disk
+     *
+     * @return the payloads in the overflow spool, 0 when it is not configured
+     */
+    public int getOverflowSize() {
+        return overflow == null ? 0 : overflow.size();
+    }
 }
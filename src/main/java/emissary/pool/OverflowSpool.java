@@ -0,0 +1,433 @@
+package emissary.pool;
+
+import emissary.core.IBaseDataObject;
+import emissary.core.IBaseDataObjectBinaryCodec;
+import emissary.directory.DirectoryEntry;
+import emissary.place.IServiceProviderPlace;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Disk storage for the move spool, so queued payloads can leave the heap during a burst. Entries are appended to segment
+ * files in the order they are offered and read back in the same order. A segment is closed to new entries once it
+ * reaches the segment size, or when the reader catches up with it, and is then mapped read-only and read through the
+ * mapping. Payload data behind a channel factory stays in the mapping when read back instead of being copied to the
+ * heap. A segment file is deleted once all of its entries have been read.
+ * <p>
+ * Only entries that can be rebuilt are accepted: the payload must be a data object or a list of them no larger than the
+ * segment size, and the place, if any, must be a local place that can be found again by its key. Anything else stays on
+ * the heap.
+ * <p>
+ * Entries do not survive a restart; segment files left in the directory are removed when the spool is created.
+ */
+final class OverflowSpool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverflowSpool.class);
+
+    /** Largest segment size, so that a segment and the entry that fills it can be mapped as one region */
+    static final long MAX_SEGMENT_BYTES = 512L * 1024 * 1024;
+
+    private static final String SUFFIX = ".seg";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private static final class Segment {
+        private final Path path;
+        private int entries = 0;
+
+        private Segment(final Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Buffers the entry being written to the open segment, so a failed entry can be dropped before it is written
+     */
+    private final class SegmentOutput extends OutputStream {
+        private final byte[] buf = new byte[WRITE_BUFFER_SIZE];
+        private int count = 0;
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (count == buf.length) {
+                flush();
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (len > buf.length - count) {
+                flush();
+            }
+            if (len >= buf.length) {
+                writeFully(ByteBuffer.wrap(b, off, len));
+            } else {
+                System.arraycopy(b, off, buf, count, len);
+                count += len;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeFully(ByteBuffer.wrap(buf, 0, count));
+            count = 0;
+        }
+
+        private void discard() {
+            count = 0;
+        }
+
+        private void writeFully(final ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                writer.write(bytes);
+            }
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private final SegmentOutput output = new SegmentOutput();
+    private final DataOutputStream out = new DataOutputStream(output);
+
+    @Nullable
+    private Segment writing;
+    @Nullable
+    private FileChannel writer;
+    @Nullable
+    private Segment reading;
+    @Nullable
+    private ByteBuffer mapped;
+    private long sequence = 0;
+    private int size = 0;
+    private boolean closed = false;
+
+    /**
+     * Create a spool in a directory
+     *
+     * @param directory where segment files are written, created if needed
+     * @param segmentBytes the size at which a segment is closed to new entries
+     * @throws IOException if the directory cannot be created or cleared
+     */
+    OverflowSpool(final Path directory, final long segmentBytes) throws IOException {
+        Validate.notNull(directory, "Required: directory not null");
+        Validate.isTrue(segmentBytes > 0 && segmentBytes <= MAX_SEGMENT_BYTES, "Required: 0 < segmentBytes <= " + MAX_SEGMENT_BYTES);
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        removeSegments();
+    }
+
+    /**
+     * Write an entry to disk if it can be rebuilt
+     *
+     * @param item the entry
+     * @return true if written, false if it must stay on the heap
+     */
+    synchronized boolean offer(final MoveSpool.SpoolItem item) {
+        if (closed || !isSpillable(item)) {
+            return false;
+        }
+        long start = -1L;
+        try {
+            if (writer == null) {
+                writing = new Segment(directory.resolve(String.format("spool-%012d%s", sequence++, SUFFIX)));
+                writer = FileChannel.open(writing.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            start = writer.position();
+            writeEntry(item);
+            writing.entries++;
+            size++;
+            if (writer.position() >= segmentBytes) {
+                seal();
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to spool {} to disk, keeping it on the heap", item.getServiceName(), e);
+            discardPartial(start);
+            return false;
+        }
+    }
+
+    /**
+     * Read the oldest entry
+     *
+     * @return the entry, or null if there is none
+     */
+    @Nullable
+    synchronized MoveSpool.SpoolItem poll() {
+        while (!closed && size > 0) {
+            if (mapped == null && !openNext()) {
+                return null;
+            }
+            if (reading.entries > 0) {
+                try {
+                    final MoveSpool.SpoolItem item = readEntry(mapped);
+                    reading.entries--;
+                    size--;
+                    if (reading.entries == 0) {
+                        finishReading();
+                    }
+                    return item;
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Dropping {} spooled entries from unreadable segment {}", reading.entries, reading.path, e);
+                    size -= reading.entries;
+                    reading.entries = 0;
+                }
+            }
+            finishReading();
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of entries on disk
+     *
+     * @return the entries not yet read
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Remove every entry and segment file. Nothing more is accepted afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        closeWriter();
+        writing = null;
+        reading = null;
+        mapped = null;
+        sealed.clear();
+        size = 0;
+        try {
+            removeSegments();
+        } catch (IOException e) {
+            logger.warn("Unable to remove spool segments from {}", directory, e);
+        }
+    }
+
+    private boolean isSpillable(final MoveSpool.SpoolItem item) {
+        final List<IBaseDataObject> family = family(item.getPayload());
+        if (family == null) {
+            return false;
+        }
+        long bytes = 0L;
+        for (final IBaseDataObject d : family) {
+            bytes += PayloadAdmissionController.sizeOf(d);
+        }
+        if (bytes > segmentBytes) {
+            return false;
+        }
+        final IServiceProviderPlace place = item.getPlace();
+        return place == null || resolve(place.getKey()) == place;
+    }
+
+    /**
+     * Get the members of a payload that can be written
+     *
+     * @param payload a data object or a list of them
+     * @return the members, or null if the payload is anything else
+     */
+    @Nullable
+    private static List<IBaseDataObject> family(final Object payload) {
+        if (payload instanceof IBaseDataObject) {
+            return Collections.singletonList((IBaseDataObject) payload);
+        }
+        if (!(payload instanceof List)) {
+            return null;
+        }
+        final List<IBaseDataObject> family = new ArrayList<>();
+        for (final Object o : (List<?>) payload) {
+            if (!(o instanceof IBaseDataObject)) {
+                return null;
+            }
+            family.add((IBaseDataObject) o);
+        }
+        return family;
+    }
+
+    @Nullable
+    private static IServiceProviderPlace resolve(@Nullable final String key) {
+        if (key == null) {
+            return null;
+        }
+        final DirectoryEntry entry = new DirectoryEntry(key);
+        return entry.isLocal() ? entry.getLocalPlace() : null;
+    }
+
+    private void writeEntry(final MoveSpool.SpoolItem item) throws IOException {
+        out.writeByte(item.getMethod().ordinal());
+        writeString(out, item.getPlace() == null ? null : item.getPlace().getKey());
+        out.writeInt(item.getErrorCount());
+        final List<DirectoryEntry> itinerary = item.getItineraryItems();
+        out.writeInt(itinerary == null ? -1 : itinerary.size());
+        if (itinerary != null) {
+            for (final DirectoryEntry de : itinerary) {
+                writeString(out, de.getKey());
+                writeString(out, de.getDescription());
+                out.writeInt(de.getCost());
+                out.writeInt(de.getQuality());
+            }
+        }
+        out.writeBoolean(item.getPayload() instanceof IBaseDataObject);
+        IBaseDataObjectBinaryCodec.encode(family(item.getPayload()), out);
+        out.flush();
+    }
+
+    private static MoveSpool.SpoolItem readEntry(final ByteBuffer in) throws IOException {
+        final MoveSpool.Method method = MoveSpool.Method.values()[in.get()];
+        final String placeKey = readString(in);
+        final int errorCount = in.getInt();
+        final int count = in.getInt();
+        List<DirectoryEntry> itinerary = null;
+        if (count >= 0) {
+            itinerary = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                itinerary.add(new DirectoryEntry(readString(in), readString(in), in.getInt(), in.getInt()));
+            }
+        }
+        final boolean single = in.get() != 0;
+        final List<IBaseDataObject> family = IBaseDataObjectBinaryCodec.decode(in);
+
+        final IServiceProviderPlace place = resolve(placeKey);
+        if (placeKey != null && place == null) {
+            logger.warn("Place {} of a spooled payload is no longer available", placeKey);
+        }
+        final Object payload = single && family.size() == 1 ? family.get(0) : family;
+        return new MoveSpool.SpoolItem(method, payload, place, errorCount, itinerary);
+    }
+
+    private boolean openNext() {
+        if (sealed.isEmpty() && writing != null && writing.entries > 0) {
+            seal();
+        }
+        Segment next;
+        while ((next = sealed.poll()) != null) {
+            try (FileChannel channel = FileChannel.open(next.path, StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                reading = next;
+                return true;
+            } catch (IOException e) {
+                logger.error("Dropping {} spooled entries from segment {} that cannot be mapped", next.entries, next.path, e);
+                size -= next.entries;
+                delete(next.path);
+            }
+        }
+        return false;
+    }
+
+    private void finishReading() {
+        if (reading != null) {
+            // Payloads read from the segment keep the mapping, which outlives the file
+            delete(reading.path);
+        }
+        reading = null;
+        mapped = null;
+    }
+
+    private void seal() {
+        closeWriter();
+        if (writing != null) {
+            sealed.add(writing);
+            writing = null;
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close spool segment", e);
+            }
+            writer = null;
+        }
+    }
+
+    private void discardPartial(final long start) {
+        output.discard();
+        if (writer == null || start < 0) {
+            return;
+        }
+        try {
+            writer.truncate(start);
+            writer.position(start);
+        } catch (IOException e) {
+            logger.error("Unable to remove a partial entry from {}, closing the segment", writing.path, e);
+            // The partial entry is at the end, after the last entry the reader will look for
+            seal();
+        }
+    }
+
+    private void removeSegments() throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (final Path path : paths) {
+                Files.deleteIfExists(path);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.warn("Removed {} spool segments from {}", removed, directory);
+        }
+    }
+
+    private static void delete(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Unable to delete spool segment {}", path, e);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, @Nullable final String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Nullable
+    private static String readString(final ByteBuffer in) throws IOException {
+        final int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IOException("String of " + length + " bytes exceeds the " + in.remaining() + " bytes remaining");
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "OverflowSpool " + directory + " entries " + size + ", segments " + (sealed.size() + (writing == null ? 0 : 1));
+    }
+}
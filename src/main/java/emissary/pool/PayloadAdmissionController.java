@@ -0,0 +1,189 @@
+package emissary.pool;
+
+import emissary.core.IBaseDataObject;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Track the payload bytes in flight across active agents and hold back new work while a byte budget is exceeded. This
+ * complements the agent count of the pool: a few huge payloads can exhaust memory long before every agent is busy, while
+ * many tiny payloads should not be limited by it at all.
+ * <p>
+ * A payload larger than the whole budget is still admitted once nothing else is in flight so it can never starve.
+ */
+public class PayloadAdmissionController {
+
+    protected static final Logger logger = LoggerFactory.getLogger(PayloadAdmissionController.class);
+
+    private final long limit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long inFlight = 0;
+    private int admitted = 0;
+
+    /**
+     * Create a controller with the given budget
+     *
+     * @param limit the most payload bytes in flight at once, or a negative value for no limit
+     */
+    public PayloadAdmissionController(final long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Determine the number of bytes a payload will hold while in flight
+     *
+     * @param payload the payload to measure
+     * @return size of the channel, or the length of the data if the channel cannot be read
+     */
+    public static long sizeOf(final IBaseDataObject payload) {
+        try {
+            return payload.getChannelSize();
+        } catch (IOException e) {
+            logger.debug("Cannot get channel size of {}", payload.shortName(), e);
+            return payload.dataLength();
+        }
+    }
+
+    /**
+     * Report whether the budget is enabled
+     *
+     * @return true if admissions are limited
+     */
+    public boolean isEnabled() {
+        return limit >= 0;
+    }
+
+    /**
+     * Report whether a payload of this size can never fit into the budget alongside other work
+     *
+     * @param bytes size of the payload
+     * @return true if the payload exceeds the whole budget
+     */
+    public boolean exceedsBudget(final long bytes) {
+        return isEnabled() && bytes > limit;
+    }
+
+    /**
+     * Admit a payload if the budget allows it right now
+     *
+     * @param bytes size of the payload (bytes &gt;= 0)
+     * @return true if admitted, the bytes must later be released
+     */
+    public boolean tryAdmit(final long bytes) {
+        Validate.isTrue(bytes >= 0, "Required: bytes >= 0");
+        lock.lock();
+        try {
+            return admitLocked(bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admit a payload, waiting for bytes in flight to be released if the budget does not allow it yet
+     *
+     * @param bytes size of the payload (bytes &gt;= 0)
+     * @param timeoutMs maximum time in millis to wait, -1 to wait forever
+     * @return true if admitted, the bytes must later be released
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean admit(final long bytes, final long timeoutMs) throws InterruptedException {
+        Validate.isTrue(bytes >= 0, "Required: bytes >= 0");
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean warningGiven = false;
+        lock.lockInterruptibly();
+        try {
+            while (!admitLocked(bytes)) {
+                if (!warningGiven) {
+                    logger.debug("Waiting to admit {} bytes with {} of {} bytes in flight", bytes, inFlight, limit);
+                    warningGiven = true;
+                }
+                if (timeoutMs < 0) {
+                    released.await();
+                } else if (remainingNanos <= 0) {
+                    return false;
+                } else {
+                    remainingNanos = released.awaitNanos(remainingNanos);
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean admitLocked(final long bytes) {
+        if (isEnabled() && admitted > 0 && inFlight + bytes > limit) {
+            return false;
+        }
+        inFlight += bytes;
+        admitted++;
+        return true;
+    }
+
+    /**
+     * Release the bytes of a previously admitted payload and wake up waiting producers
+     *
+     * @param bytes size the payload was admitted with
+     */
+    public void release(final long bytes) {
+        lock.lock();
+        try {
+            inFlight = Math.max(0, inFlight - bytes);
+            admitted = Math.max(0, admitted - 1);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the budget
+     *
+     * @return the most payload bytes in flight at once, negative when unlimited
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the payload bytes currently in flight
+     *
+     * @return admitted bytes not yet released
+     */
+    public long getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of payloads currently in flight
+     *
+     * @return admitted payloads not yet released
+     */
+    public int getAdmitted() {
+        lock.lock();
+        try {
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "In flight bytes/limit = " + getInFlight() + "/" + limit;
+    }
+}
@@ -1,6 +1,5 @@
 package emissary.server.api;
 
-import emissary.client.EmissaryClient;
 import emissary.client.response.Agent;
 import emissary.client.response.AgentList;
 import emissary.client.response.AgentsFormatter;
@@ -17,14 +16,12 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.StringJoiner;
 
 import static emissary.server.api.ApiUtils.lookupPeers;
-import static emissary.server.api.ApiUtils.stripPeerString;
 
 /**
  * The agents Emissary API endpoint. Currently, contains the local (/api/agents) call and cluster (/api/clusterAgents)
@@ -77,10 +74,7 @@ public class Agents {
             entity.setLocal(lookupAgents().getLocal());
 
             // Get all of our peers
-            EmissaryClient client = new EmissaryClient();
-            for (String peer : lookupPeers()) {
-                String remoteEndPoint = stripPeerString(peer) + AGENTS_ENDPOINT;
-                AgentsResponseEntity remoteEntity = client.send(new HttpGet(remoteEndPoint)).getContent(AgentsResponseEntity.class);
+            for (AgentsResponseEntity remoteEntity : ClusterQuery.gather(lookupPeers(), AGENTS_ENDPOINT, AgentsResponseEntity.class)) {
                 entity.append(remoteEntity);
             }
             return Response.ok().entity(entity).build();
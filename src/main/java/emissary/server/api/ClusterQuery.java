@@ -0,0 +1,269 @@
+package emissary.server.api;
+
+import emissary.client.EmissaryClient;
+import emissary.client.response.BaseEntity;
+
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static emissary.server.api.ApiUtils.stripPeerString;
+
+/**
+ * Asks every peer for the same API endpoint at once, for the cluster endpoints. Whatever has arrived when the deadline
+ * passes is returned, and each peer that did not answer in time or failed is represented by an empty entity carrying an
+ * error naming the peer.
+ * <p>
+ * Good answers are kept for a short time, so a dashboard polling the cluster endpoints every few seconds does not send a
+ * request to every node each time. A request for an endpoint that is already being fetched waits for that fetch instead
+ * of starting another, unless that fetch was started by an earlier query that already gave up on it.
+ * <p>
+ * Failures are kept longer, so an unreachable peer holds at most one request thread each time it is retried. Retries are
+ * queued behind the requests to the other peers so they cannot hold up the answers from healthy ones.
+ * <p>
+ * The deadline, how long answers and failures are kept and the number of request threads are set with the
+ * {@code cluster.query.deadlineMillis}, {@code cluster.query.cacheMillis}, {@code cluster.query.retryMillis} and
+ * {@code cluster.query.threads} system properties.
+ */
+public final class ClusterQuery {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterQuery.class);
+
+    /** System property holding the most time to wait for all peers */
+    public static final String DEADLINE_PROPERTY = "cluster.query.deadlineMillis";
+
+    /** System property holding how long a peer's answer is reused */
+    public static final String CACHE_PROPERTY = "cluster.query.cacheMillis";
+
+    /** System property holding how long a failed peer is left alone before it is asked again */
+    public static final String RETRY_PROPERTY = "cluster.query.retryMillis";
+
+    /** System property holding the number of threads sending requests */
+    public static final String THREADS_PROPERTY = "cluster.query.threads";
+
+    public static final long DEFAULT_DEADLINE_MILLIS = 5000L;
+    public static final long DEFAULT_CACHE_MILLIS = 2000L;
+    public static final long DEFAULT_RETRY_MILLIS = 30000L;
+    public static final int DEFAULT_THREADS = 16;
+
+    /**
+     * Gets one entity from a peer
+     */
+    @FunctionalInterface
+    interface Fetcher {
+        /**
+         * Send the request
+         *
+         * @param url the full endpoint url
+         * @param type the type of entity expected
+         * @param timeoutMillis the most time the request should take
+         * @return the entity, null if there was no content
+         */
+        @Nullable
+        BaseEntity fetch(String url, Class<? extends BaseEntity> type, long timeoutMillis);
+    }
+
+    private static final class Holder {
+        private static final ClusterQuery DEFAULT = new ClusterQuery(Long.getLong(DEADLINE_PROPERTY, DEFAULT_DEADLINE_MILLIS),
+                Long.getLong(CACHE_PROPERTY, DEFAULT_CACHE_MILLIS), Long.getLong(RETRY_PROPERTY, DEFAULT_RETRY_MILLIS),
+                createExecutor(Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS)), ClusterQuery::send);
+    }
+
+    private static final class Snapshot {
+        private final CompletableFuture<BaseEntity> answer;
+        private final long started = System.nanoTime();
+        private volatile long arrived = 0L;
+
+        private Snapshot(final CompletableFuture<BaseEntity> answer) {
+            this.answer = answer;
+        }
+    }
+
+    private final long deadlineMillis;
+    private final long cacheMillis;
+    private final long retryMillis;
+    private final Executor executor;
+    private final Fetcher fetcher;
+
+    // Latest answer or fetch in progress, by endpoint url
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    ClusterQuery(final long deadlineMillis, final long cacheMillis, final long retryMillis, final Executor executor, final Fetcher fetcher) {
+        this.deadlineMillis = deadlineMillis;
+        this.cacheMillis = cacheMillis;
+        this.retryMillis = retryMillis;
+        this.executor = executor;
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Ask every peer for an endpoint using the shared settings
+     *
+     * @param peers the peer directory keys
+     * @param endpoint the endpoint, such as {@code api/places}
+     * @param type the type of entity the endpoint returns
+     * @param <T> the entity type
+     * @return one entity for each peer in order, an empty one with an error for a peer that did not answer
+     */
+    public static <T extends BaseEntity> List<T> gather(final Collection<String> peers, final String endpoint, final Class<T> type) {
+        return Holder.DEFAULT.query(peers, endpoint, type);
+    }
+
+    /**
+     * Ask every peer for an endpoint
+     *
+     * @param peers the peer directory keys
+     * @param endpoint the endpoint, such as {@code api/places}
+     * @param type the type of entity the endpoint returns
+     * @param <T> the entity type
+     * @return one entity for each peer in order, an empty one with an error for a peer that did not answer
+     */
+    <T extends BaseEntity> List<T> query(final Collection<String> peers, final String endpoint, final Class<T> type) {
+        final long now = System.nanoTime();
+        final long deadline = now + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        final List<String> urls = new ArrayList<>(peers.size());
+        final List<Snapshot> answers = new ArrayList<>(peers.size());
+        final List<Runnable> retries = new ArrayList<>();
+        for (final String peer : peers) {
+            final String url = stripPeerString(peer) + endpoint;
+            urls.add(url);
+            answers.add(answer(url, type, retries));
+        }
+        // Peers that failed last time are asked after the others
+        retries.forEach(Runnable::run);
+
+        final List<T> results = new ArrayList<>(answers.size());
+        for (int i = 0; i < answers.size(); i++) {
+            final String url = urls.get(i);
+            final Snapshot snapshot = answers.get(i);
+            if (!snapshot.answer.isDone() && now - snapshot.started >= TimeUnit.MILLISECONDS.toNanos(deadlineMillis)) {
+                // An earlier query already waited its whole deadline for this one
+                results.add(errorEntity(type, "ERROR - Earlier request to " + url + " is still outstanding"));
+                continue;
+            }
+            try {
+                final long remaining = Math.max(0L, deadline - System.nanoTime());
+                final BaseEntity entity = snapshot.answer.get(remaining, TimeUnit.NANOSECONDS);
+                if (type.isInstance(entity)) {
+                    results.add(type.cast(entity));
+                } else {
+                    results.add(errorEntity(type, "ERROR - No content from " + url));
+                }
+            } catch (TimeoutException e) {
+                logger.warn("No response from {} within {} ms", url, deadlineMillis);
+                results.add(errorEntity(type, "ERROR - No response from " + url + " within " + deadlineMillis + " ms"));
+            } catch (ExecutionException e) {
+                logger.warn("Request to {} failed", url, e.getCause());
+                results.add(errorEntity(type, "ERROR - Request to " + url + " failed: " + e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(errorEntity(type, "ERROR - Interrupted waiting for " + url));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Forget every kept answer
+     */
+    void clear() {
+        snapshots.clear();
+    }
+
+    /**
+     * Find the answer for an endpoint, reusing a recent one or one on the way
+     *
+     * @param retries where the fetch is added instead of being started when the last one failed
+     */
+    private Snapshot answer(final String url, final Class<? extends BaseEntity> type, final List<Runnable> retries) {
+        while (true) {
+            final Snapshot current = snapshots.get(url);
+            if (current != null && isUsable(current)) {
+                return current;
+            }
+            final Snapshot next = new Snapshot(new CompletableFuture<>());
+            final boolean won = current == null ? snapshots.putIfAbsent(url, next) == null : snapshots.replace(url, current, next);
+            if (won) {
+                if (current != null && isFailed(current)) {
+                    retries.add(() -> start(url, type, next));
+                } else {
+                    start(url, type, next);
+                }
+                return next;
+            }
+        }
+    }
+
+    private boolean isUsable(final Snapshot snapshot) {
+        if (!snapshot.answer.isDone()) {
+            return true;
+        }
+        final long keepMillis = isFailed(snapshot) ? retryMillis : cacheMillis;
+        return System.nanoTime() - snapshot.arrived < TimeUnit.MILLISECONDS.toNanos(keepMillis);
+    }
+
+    private static boolean isFailed(final Snapshot snapshot) {
+        return snapshot.answer.isCompletedExceptionally() || snapshot.answer.getNow(null) == null;
+    }
+
+    private void start(final String url, final Class<? extends BaseEntity> type, final Snapshot snapshot) {
+        try {
+            executor.execute(() -> {
+                try {
+                    final BaseEntity entity = fetcher.fetch(url, type, deadlineMillis);
+                    snapshot.arrived = System.nanoTime();
+                    snapshot.answer.complete(entity);
+                } catch (RuntimeException e) {
+                    snapshot.arrived = System.nanoTime();
+                    snapshot.answer.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            snapshot.arrived = System.nanoTime();
+            snapshot.answer.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Fetch an entity, giving up when connecting or waiting for the answer takes longer than the time allowed
+     */
+    private static BaseEntity send(final String url, final Class<? extends BaseEntity> type, final long timeoutMillis) {
+        return new EmissaryClient().withResponseTimeout(timeoutMillis).send(new HttpGet(url)).getContent(type);
+    }
+
+    private static <T extends BaseEntity> T errorEntity(final Class<T> type, final String error) {
+        try {
+            final T entity = type.getDeclaredConstructor().newInstance();
+            entity.addError(error);
+            return entity;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + type.getName(), e);
+        }
+    }
+
+    private static Executor createExecutor(final int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            final Thread t = new Thread(r, "ClusterQuery-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -1,6 +1,5 @@
 package emissary.server.api;
 
-import emissary.client.EmissaryClient;
 import emissary.client.response.PeerList;
 import emissary.client.response.PeersResponseEntity;
 import emissary.core.EmissaryException;
@@ -10,7 +9,6 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,7 +16,6 @@ import java.util.Set;
 
 import static emissary.server.api.ApiUtils.getHostAndPort;
 import static emissary.server.api.ApiUtils.lookupPeers;
-import static emissary.server.api.ApiUtils.stripPeerString;
 
 /**
  * The peers Emissary API endpoint.
@@ -53,10 +50,7 @@ public class Peers {
             // Get our local mobile agents
             entity.setLocal(new PeerList(getHostAndPort(), peers));
             // Get all of our peers
-            EmissaryClient client = new EmissaryClient();
-            for (String peer : peers) {
-                String remoteEndPoint = stripPeerString(peer) + "api/peers";
-                PeersResponseEntity remoteEntity = client.send(new HttpGet(remoteEndPoint)).getContent(PeersResponseEntity.class);
+            for (PeersResponseEntity remoteEntity : ClusterQuery.gather(peers, "api/peers", PeersResponseEntity.class)) {
                 entity.append(remoteEntity);
             }
         } catch (EmissaryException e) {
@@ -1,6 +1,5 @@
 package emissary.server.api;
 
-import emissary.client.EmissaryClient;
 import emissary.client.response.MapResponseEntity;
 import emissary.core.EmissaryException;
 import emissary.core.Namespace;
@@ -15,14 +14,12 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Locale;
 
 import static emissary.server.api.ApiUtils.lookupPeers;
-import static emissary.server.api.ApiUtils.stripPeerString;
 
 /**
  * The agents Emissary API endpoint. Currently contains the local (/api/pool) call and cluster (/api/clusterPool) calls.
@@ -51,10 +48,7 @@ public class Pool {
             // Get our local mobile agents
             entity.append(this.lookupPool());
             // Get all of our peers agents
-            EmissaryClient client = new EmissaryClient();
-            for (String peer : lookupPeers()) {
-                String remoteEndPoint = stripPeerString(peer) + "api/pool";
-                MapResponseEntity remoteEntity = client.send(new HttpGet(remoteEndPoint)).getContent(MapResponseEntity.class);
+            for (MapResponseEntity remoteEntity : ClusterQuery.gather(lookupPeers(), POOL_ENDPOINT, MapResponseEntity.class)) {
                 entity.append(remoteEntity);
             }
             return Response.ok().entity(entity).build();
@@ -1,6 +1,5 @@
 package emissary.server.api;
 
-import emissary.client.EmissaryClient;
 import emissary.client.response.MapResponseEntity;
 import emissary.core.EmissaryException;
 import emissary.core.Namespace;
@@ -14,14 +13,12 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Set;
 
 import static emissary.server.api.ApiUtils.lookupPeers;
-import static emissary.server.api.ApiUtils.stripPeerString;
 
 /**
  * The version Emissary API endpoint. Currently, contains the local (/api/version) call and cluster
@@ -53,10 +50,7 @@ public class Version {
 
             // Get all of our peers
             Set<String> peers = lookupPeers();
-            EmissaryClient client = new EmissaryClient();
-            for (String peer : peers) {
-                String remoteEndPoint = stripPeerString(peer) + "api/version";
-                MapResponseEntity remoteEntity = client.send(new HttpGet(remoteEndPoint)).getContent(MapResponseEntity.class);
+            for (MapResponseEntity remoteEntity : ClusterQuery.gather(peers, "api/version", MapResponseEntity.class)) {
                 entity.append(remoteEntity);
             }
             return Response.ok().entity(entity).build();
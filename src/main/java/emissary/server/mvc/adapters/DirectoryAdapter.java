@@ -6,6 +6,7 @@ import emissary.config.ConfigUtil;
 import emissary.config.Configurator;
 import emissary.core.EmissaryException;
 import emissary.directory.DirectoryEntry;
+import emissary.directory.DirectoryEntryDelta;
 import emissary.directory.DirectoryEntryMap;
 import emissary.directory.DirectoryXmlContainer;
 import emissary.directory.IRemoteDirectory;
@@ -53,6 +54,8 @@ public class DirectoryAdapter extends EmissaryClient {
     public static final String FAILED_DIRECTORY_NAME = "dirFailName";
     public static final String DIRECTORY_NAME = "directoryName";
     public static final String ADD_ENTRIES = "dirAddEntries";
+    public static final String DELTA_EPOCH = "dirDeltaEpoch";
+    public static final String DELTA_SEQUENCE = "dirDeltaSeq";
     public static final String DIRECTORY_KEY = "EMISSARY_DIRECTORY_SERVICES::STUDY";
     public static final String FILE_PICKUP_KEY = "INITIAL::INPUT";
     // These two parameters will cause each node to only have copies of its own places.
@@ -288,6 +291,71 @@ public class DirectoryAdapter extends EmissaryClient {
         }
     }
 
+    /**
+     * Request the changes to a remote directory peer since the last transfer in the binary delta form. Register the caller
+     * as a peer of the destination as part of the transfer.
+     *
+     * @param key the key of the remote directory to request the changes from
+     * @param peerKey the key of the peer requesting the changes
+     * @param epoch the epoch of the remote directory seen in the last transfer, or 0 if none
+     * @param sequence the sequence of the remote directory seen in the last transfer, or -1 if none
+     * @return the changes, or the whole map if the remote cannot supply changes, or null if the remote does not support
+     *         delta transfers
+     * @throws EmissaryException if remote returns an error
+     */
+    @Nullable
+    public DirectoryEntryDelta outboundRegisterPeerDelta(final String key, final String peerKey, final long epoch, final long sequence)
+            throws EmissaryException {
+        final HttpPost method = createHttpPost(KeyManipulator.getServiceHostUrl(key), context, "/RegisterPeerDelta.action");
+
+        final List<NameValuePair> nvps = new ArrayList<>();
+        nvps.add(new BasicNameValuePair(TARGET_DIRECTORY, KeyManipulator.getServiceLocation(key)));
+        nvps.add(new BasicNameValuePair(DIRECTORY_NAME, peerKey));
+        nvps.add(new BasicNameValuePair(DELTA_EPOCH, Long.toString(epoch)));
+        nvps.add(new BasicNameValuePair(DELTA_SEQUENCE, Long.toString(sequence)));
+        method.setEntity(new UrlEncodedFormEntity(nvps, StandardCharsets.UTF_8));
+
+        final EmissaryResponse ws = send(method);
+
+        if (ws.getStatus() == HttpStatus.SC_NOT_FOUND || ws.getStatus() == HttpStatus.SC_METHOD_NOT_ALLOWED) {
+            logger.debug("Remote directory {} does not support delta zone transfer", key);
+            return null;
+        }
+        if (ws.getStatus() != HttpStatus.SC_OK) {
+            throw new EmissaryException("Unable to perform delta zone transfer to " + key + ", isError=" + ws.getStatus() + ", msgBody="
+                    + ws.getContentString());
+        }
+
+        final DirectoryEntryDelta delta;
+        try {
+            delta = DirectoryEntryDelta.fromBytes(ws.getContentBytes());
+        } catch (IOException ex) {
+            throw new EmissaryException("Unable to read delta zone transfer from " + key, ex);
+        }
+
+        // This ensures each node only has knowledge of all DirectoryPlace and FilePickupPlace entries
+        if (filterDirectoryEntryMap) {
+            final List<DirectoryEntry> entries = new ArrayList<>();
+            for (final DirectoryEntry e : delta.getEntries()) {
+                if (isUnfilteredDataId(e.getDataId())) {
+                    entries.add(e);
+                }
+            }
+            final List<String> removed = new ArrayList<>();
+            for (final String k : delta.getRemovedKeys()) {
+                if (isUnfilteredDataId(KeyManipulator.getDataId(k))) {
+                    removed.add(k);
+                }
+            }
+            return new DirectoryEntryDelta(delta.getEpoch(), delta.getFromSequence(), delta.getToSequence(), delta.isFull(), entries, removed);
+        }
+        return delta;
+    }
+
+    private static boolean isUnfilteredDataId(final String dataId) {
+        return DIRECTORY_KEY.equals(dataId) || FILE_PICKUP_KEY.equals(dataId);
+    }
+
     private static DirectoryEntryMap filterDirectoryEntryMap(DirectoryEntryMap map) {
         DirectoryEntryMap filtered = new DirectoryEntryMap();
         if (map.containsKey(DIRECTORY_KEY)) {
@@ -5,6 +5,7 @@ import emissary.client.EmissaryResponse;
 import emissary.directory.KeyManipulator;
 import emissary.pickup.WorkBundle;
 
+import jakarta.annotation.Nullable;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
 import org.apache.hc.core5.http.HttpStatus;
@@ -15,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -28,6 +30,10 @@ public class WorkSpaceAdapter extends EmissaryClient {
     public static final String SPACE_NAME = "workSpaceName";
     public static final String WORK_BUNDLE_ID = "tpId";
     public static final String WORK_BUNDLE_STATUS = "tpStatus";
+    public static final String LEASE_MAX_BUNDLES = "leaseMaxBundles";
+    public static final String LEASE_MAX_BYTES = "leaseMaxBytes";
+    public static final String LEASE_MILLIS = "leaseMillis";
+    public static final String LEASE_WAIT_MILLIS = "leaseWaitMillis";
 
     /**
      * Outbound open tells a remote WorkSpace to start pulling data
@@ -78,6 +84,69 @@ public class WorkSpaceAdapter extends EmissaryClient {
         return path;
     }
 
+    /**
+     * Outbound lease grabs several WorkBundles from a remote WorkSpace, waiting for work if there is none
+     * 
+     * @param space the remote space to contact
+     * @param place the name of the requesting place
+     * @param maxBundles most bundles to lease
+     * @param maxBytes most total file size to lease, -1 for no limit
+     * @param leaseMillis how long the bundles are held without renewing
+     * @param waitMillis how long the remote space waits for work when it has none, must be less than the socket timeout
+     * @return the leased bundles, or null on error
+     */
+    @Nullable
+    public List<WorkBundle> outboundWorkSpaceLease(final String space, final String place, final int maxBundles, final long maxBytes,
+            final long leaseMillis, final long waitMillis) {
+
+        final String placeUrl = KeyManipulator.getServiceHostUrl(space);
+        final HttpPost method = createHttpPost(placeUrl, context, "/WorkSpaceClientSpaceLease.action");
+
+        final List<NameValuePair> nvps = new ArrayList<>();
+        nvps.add(new BasicNameValuePair(CLIENT_NAME, place));
+        nvps.add(new BasicNameValuePair(SPACE_NAME, space));
+        nvps.add(new BasicNameValuePair(LEASE_MAX_BUNDLES, Integer.toString(maxBundles)));
+        nvps.add(new BasicNameValuePair(LEASE_MAX_BYTES, Long.toString(maxBytes)));
+        nvps.add(new BasicNameValuePair(LEASE_MILLIS, Long.toString(leaseMillis)));
+        nvps.add(new BasicNameValuePair(LEASE_WAIT_MILLIS, Long.toString(waitMillis)));
+
+        method.setEntity(new UrlEncodedFormEntity(nvps, StandardCharsets.UTF_8));
+        final EmissaryResponse status = send(method);
+
+        List<WorkBundle> paths = null;
+        if (status.getStatus() != HttpStatus.SC_OK) {
+            logger.debug("Lease from space {} was an error: {}", space, status.getContentString());
+        } else {
+            paths = WorkBundle.buildWorkBundles(status.getContentString());
+        }
+        return paths;
+    }
+
+    /**
+     * Outbound renewal of the leases on bundles still being processed
+     * 
+     * @param space the remote space to contact
+     * @param place the name of the place holding the bundles
+     * @param bundleIds the ids of the leased bundles
+     * @param leaseMillis how long from now the bundles are held without renewing again
+     * @return true if the message was sent
+     */
+    public boolean outboundLeaseRenewal(final String space, final String place, final Collection<String> bundleIds, final long leaseMillis) {
+        final String placeUrl = KeyManipulator.getServiceHostUrl(space);
+        final HttpPost method = createHttpPost(placeUrl, context, "/WorkSpaceClientLeaseRenew.action");
+
+        final List<NameValuePair> nvps = new ArrayList<>();
+        nvps.add(new BasicNameValuePair(CLIENT_NAME, place));
+        nvps.add(new BasicNameValuePair(SPACE_NAME, space));
+        nvps.add(new BasicNameValuePair(LEASE_MILLIS, Long.toString(leaseMillis)));
+        for (final String bundleId : bundleIds) {
+            nvps.add(new BasicNameValuePair(WORK_BUNDLE_ID, bundleId));
+        }
+        method.setEntity(new UrlEncodedFormEntity(nvps, StandardCharsets.UTF_8));
+        final EmissaryResponse status = send(method);
+        return status.getStatus() == HttpStatus.SC_OK;
+    }
+
     /**
      * Outbound notice that bundle was completed
      * 
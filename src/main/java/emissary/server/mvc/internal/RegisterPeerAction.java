@@ -2,6 +2,7 @@ package emissary.server.mvc.internal;
 
 import emissary.core.Namespace;
 import emissary.core.NamespaceException;
+import emissary.directory.DirectoryEntryDelta;
 import emissary.directory.DirectoryPlace;
 import emissary.directory.DirectoryXmlContainer;
 import emissary.directory.IRemoteDirectory;
@@ -10,7 +11,9 @@ import emissary.log.MDCConstants;
 import emissary.server.mvc.adapters.RequestUtil;
 import emissary.util.web.HtmlEscaper;
 
+import jakarta.annotation.Nullable;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.FormParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
@@ -25,6 +28,8 @@ import org.slf4j.MDC;
 import java.util.HashSet;
 import java.util.Set;
 
+import static emissary.server.mvc.adapters.DirectoryAdapter.DELTA_EPOCH;
+import static emissary.server.mvc.adapters.DirectoryAdapter.DELTA_SEQUENCE;
 import static emissary.server.mvc.adapters.DirectoryAdapter.DIRECTORY_NAME;
 import static emissary.server.mvc.adapters.DirectoryAdapter.TARGET_DIRECTORY;
 
@@ -56,8 +61,49 @@ public class RegisterPeerAction {
         return processRegisterPeer(cleanDirectoryName, cleanTargetDirectory);
     }
 
+    @POST
+    @Path("/RegisterPeerDelta.action")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response registerPeerDeltaPost(@FormParam(DIRECTORY_NAME) String directoryName, @FormParam(TARGET_DIRECTORY) String targetDirectory,
+            @FormParam(DELTA_EPOCH) @DefaultValue("0") long epoch, @FormParam(DELTA_SEQUENCE) @DefaultValue("-1") long sequence) {
+        String cleanDirectoryName = RequestUtil.sanitizeParameter(directoryName);
+        String cleanTargetDirectory = RequestUtil.sanitizeParameter(targetDirectory);
+        if (StringUtils.isBlank(cleanDirectoryName) || StringUtils.isBlank(cleanTargetDirectory)) {
+            return Response.serverError().entity(HtmlEscaper.escapeHtml(
+                    "Bad Params: " + DIRECTORY_NAME + " - " + cleanDirectoryName + ", " + TARGET_DIRECTORY + " - " + cleanTargetDirectory)).build();
+        }
+
+        final IRemoteDirectory dir = new IRemoteDirectory.Lookup().getLocalDirectory(cleanTargetDirectory);
+        final Response failure = registerPeer(cleanDirectoryName, cleanTargetDirectory, dir);
+        if (failure != null) {
+            return failure;
+        }
+
+        if (!(dir instanceof DirectoryPlace)) {
+            return Response.serverError().entity("Delta transfer not available from " + HtmlEscaper.escapeHtml(cleanTargetDirectory)).build();
+        }
+        final DirectoryEntryDelta delta = ((DirectoryPlace) dir).getEntryDelta(epoch, sequence);
+        logger.debug("Sending {} to peer {}", delta, cleanDirectoryName);
+        return Response.ok().entity(delta.toBytes()).build();
+    }
+
     private Response processRegisterPeer(String peerKey, String dirName) {
         final IRemoteDirectory dir = new IRemoteDirectory.Lookup().getLocalDirectory(dirName);
+        final Response failure = registerPeer(peerKey, dirName, dir);
+        if (failure != null) {
+            return failure;
+        }
+        return Response.ok().entity(DirectoryXmlContainer.toXmlString(dir)).build();
+    }
+
+    /**
+     * Register a peer with the local directory
+     *
+     * @return the failure response or null if the peer was registered
+     */
+    @Nullable
+    private Response registerPeer(String peerKey, String dirName, @Nullable IRemoteDirectory dir) {
         if (dir == null) {
             // If we get here, there was a problem looking up the IRemoteDirectory
             // old RegisterPlaceWorker failure
@@ -89,7 +135,6 @@ public class RegisterPeerAction {
         }
 
         logger.info("Registered peer {}", peerKey);
-
-        return Response.ok().entity(DirectoryXmlContainer.toXmlString(dir)).build();
+        return null;
     }
 }
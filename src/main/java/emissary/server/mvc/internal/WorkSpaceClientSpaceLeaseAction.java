@@ -0,0 +1,113 @@
+package emissary.server.mvc.internal;
+
+import emissary.core.Namespace;
+import emissary.core.NamespaceException;
+import emissary.pickup.WorkBundle;
+import emissary.pickup.WorkSpace;
+import emissary.server.mvc.adapters.RequestUtil;
+import emissary.util.web.HtmlEscaper;
+
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.FormParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static emissary.server.mvc.adapters.WorkSpaceAdapter.CLIENT_NAME;
+import static emissary.server.mvc.adapters.WorkSpaceAdapter.LEASE_MAX_BUNDLES;
+import static emissary.server.mvc.adapters.WorkSpaceAdapter.LEASE_MAX_BYTES;
+import static emissary.server.mvc.adapters.WorkSpaceAdapter.LEASE_MILLIS;
+import static emissary.server.mvc.adapters.WorkSpaceAdapter.LEASE_WAIT_MILLIS;
+import static emissary.server.mvc.adapters.WorkSpaceAdapter.SPACE_NAME;
+import static emissary.server.mvc.adapters.WorkSpaceAdapter.WORK_BUNDLE_ID;
+
+/**
+ * Web-tier worker to lease several work bundles from a WorkSpace at once and to renew those leases
+ */
+@Path("")
+// context is /emissary, set in EmissaryServer
+public class WorkSpaceClientSpaceLeaseAction {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final String WORKSPACE_PREFIX = "WORKSPACE.WORK_SPACE.INPUT.";
+
+    @POST
+    @Path("/WorkSpaceClientSpaceLease.action")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.APPLICATION_XML)
+    public Response clientSpaceLease(@FormParam(CLIENT_NAME) String placeName, @FormParam(SPACE_NAME) String spaceName,
+            @FormParam(LEASE_MAX_BUNDLES) @DefaultValue("1") int maxBundles, @FormParam(LEASE_MAX_BYTES) @DefaultValue("-1") long maxBytes,
+            @FormParam(LEASE_MILLIS) long leaseMillis, @FormParam(LEASE_WAIT_MILLIS) @DefaultValue("0") long waitMillis) {
+        String cleanPlaceName = RequestUtil.sanitizeParameter(placeName);
+        String cleanSpaceName = RequestUtil.sanitizeParameter(spaceName);
+        if (StringUtils.isBlank(cleanPlaceName) || StringUtils.isBlank(cleanSpaceName) || !cleanSpaceName.startsWith(WORKSPACE_PREFIX)
+                || maxBundles <= 0 || leaseMillis <= 0) {
+            return Response.serverError().entity(HtmlEscaper.escapeHtml(
+                    "Bad params: " + CLIENT_NAME + " - " + cleanPlaceName + ", " + SPACE_NAME + " - " + cleanSpaceName + ", " + LEASE_MAX_BUNDLES
+                            + " - " + maxBundles + ", or " + LEASE_MILLIS + " - " + leaseMillis))
+                    .build();
+        }
+
+        try {
+            final List<WorkBundle> bundles = lookupSpace(cleanSpaceName).takeLeased(cleanPlaceName, maxBundles, maxBytes, leaseMillis, waitMillis);
+            return Response.ok().entity(WorkBundle.toXml(bundles)).build();
+        } catch (NamespaceException | IllegalArgumentException e) {
+            logger.warn("There was an exception in the WorkSpaceClientSpaceLease", e);
+            return Response.serverError().entity("There was an exception in the WorkSpaceClientSpaceLease").build();
+        }
+    }
+
+    @POST
+    @Path("/WorkSpaceClientLeaseRenew.action")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response clientLeaseRenew(@FormParam(CLIENT_NAME) String placeName, @FormParam(SPACE_NAME) String spaceName,
+            @FormParam(LEASE_MILLIS) long leaseMillis, @FormParam(WORK_BUNDLE_ID) List<String> bundleIds) {
+        String cleanPlaceName = RequestUtil.sanitizeParameter(placeName);
+        String cleanSpaceName = RequestUtil.sanitizeParameter(spaceName);
+        if (StringUtils.isBlank(cleanPlaceName) || StringUtils.isBlank(cleanSpaceName) || !cleanSpaceName.startsWith(WORKSPACE_PREFIX)
+                || leaseMillis <= 0) {
+            return Response.serverError().entity(HtmlEscaper.escapeHtml(
+                    "Bad params: " + CLIENT_NAME + " - " + cleanPlaceName + ", " + SPACE_NAME + " - " + cleanSpaceName + ", or " + LEASE_MILLIS
+                            + " - " + leaseMillis))
+                    .build();
+        }
+
+        final List<String> cleanBundleIds = new ArrayList<>();
+        if (bundleIds != null) {
+            for (String bundleId : bundleIds) {
+                String cleanBundleId = RequestUtil.sanitizeParameter(bundleId);
+                if (StringUtils.isNotBlank(cleanBundleId)) {
+                    cleanBundleIds.add(cleanBundleId);
+                }
+            }
+        }
+
+        try {
+            final int renewed = lookupSpace(cleanSpaceName).renewLeases(cleanPlaceName, cleanBundleIds, leaseMillis);
+            return Response.ok().entity(Integer.toString(renewed)).build();
+        } catch (NamespaceException | IllegalArgumentException e) {
+            logger.warn("There was an exception in the WorkSpaceClientLeaseRenew", e);
+            return Response.serverError().entity("There was an exception in the WorkSpaceClientLeaseRenew").build();
+        }
+    }
+
+    private static WorkSpace lookupSpace(String spaceName) throws NamespaceException {
+        // The space is bound in the namespace without the key prefix
+        final String workspaceKey = spaceName.substring(WORKSPACE_PREFIX.length());
+        final WorkSpace space = (WorkSpace) Namespace.lookup(workspaceKey);
+        if (space == null) {
+            throw new IllegalArgumentException("No WorkSpace found using name " + spaceName);
+        }
+        return space;
+    }
+}
@@ -0,0 +1,132 @@
+package emissary.spi;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded ring buffer that any number of threads can add to without taking a lock. Each slot carries a sequence
+ * number telling producers when it is free and the consumer when it is filled, so a producer only competes with other
+ * producers for the next position. When the buffer is full the item is refused rather than waiting for space.
+ * <p>
+ * Taking items out is serialized, so the buffer can be drained by a background writer and by a final flush.
+ *
+ * @param <E> the type of item held
+ */
+final class ObjectTraceBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    // Next position a producer will claim
+    private final AtomicLong tail = new AtomicLong();
+
+    // Next position to take, only changed while holding the lock
+    private volatile long head = 0L;
+
+    /**
+     * Create a buffer
+     *
+     * @param requested the number of items to hold, rounded up to a power of two
+     */
+    ObjectTraceBuffer(final int requested) {
+        final int capacity = capacityFor(requested);
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Compute the capacity used for a requested size
+     *
+     * @param requested the requested number of items
+     * @return the smallest power of two holding that many, at least 2 and at most 2^30
+     */
+    static int capacityFor(final int requested) {
+        if (requested <= 2) {
+            return 2;
+        }
+        if (requested >= (1 << 30)) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit(requested - 1) << 1;
+    }
+
+    /**
+     * Add an item without waiting
+     *
+     * @param item the item
+     * @return false if the buffer is full
+     */
+    boolean offer(final E item) {
+        long pos = tail.get();
+        while (true) {
+            final int idx = (int) (pos & mask);
+            final long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(idx, item);
+                    // Publish the item to the consumer
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // The slot still holds an item from the previous lap
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Move the items that are ready to a list
+     *
+     * @param out where to put the items, in the order they were added
+     * @param max the most items to take
+     * @return the number of items taken
+     */
+    synchronized int drain(final List<E> out, final int max) {
+        long pos = head;
+        int count = 0;
+        while (count < max) {
+            final int idx = (int) (pos & mask);
+            if (sequences.get(idx) != pos + 1) {
+                break;
+            }
+            final E item = slots.get(idx);
+            slots.lazySet(idx, null);
+            // Hand the slot back to the producers for the next lap
+            sequences.set(idx, pos + mask + 1);
+            out.add(item);
+            pos++;
+            count++;
+        }
+        head = pos;
+        return count;
+    }
+
+    /**
+     * Get the number of items claimed but not yet taken
+     *
+     * @return the item count
+     */
+    int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+
+    /**
+     * Get the number of items the buffer holds
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return mask + 1;
+    }
+}
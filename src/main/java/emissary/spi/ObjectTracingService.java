@@ -6,46 +6,205 @@ import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import static net.logstash.logback.marker.Markers.appendEntries;
 
+/**
+ * Emits object trace events to the {@code objectTrace} logger.
+ * <p>
+ * The fields of an event are gathered from the {@link ObjectTracing} providers on the calling thread, since the payload
+ * may change once the call returns. The event is then put on a bounded ring buffer and a background thread remaps the
+ * field names and logs it in batches, so agent threads never wait on each other or on the appender. When the buffer is
+ * full the event is counted as an overflow and discarded.
+ * <p>
+ * The buffer size is set with the {@code objectTrace.bufferSize} system property. Setting {@code objectTrace.async} to
+ * false logs each event on the calling thread instead.
+ */
 public class ObjectTracingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ObjectTracingService.class);
+    private static final Logger objectTraceLogger = LoggerFactory.getLogger("objectTrace");
+
+    /** System property holding the number of events the buffer holds */
+    public static final String BUFFER_SIZE_PROPERTY = "objectTrace.bufferSize";
+
+    /** System property turning the background writer on or off */
+    public static final String ASYNC_PROPERTY = "objectTrace.async";
+
+    public static final int DEFAULT_BUFFER_SIZE = 16384;
+
+    // Most events logged before checking the buffer again
+    private static final int BATCH_SIZE = 512;
+
+    // How long the writer sleeps when there is nothing to log
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private static final AtomicLong overflowCount = new AtomicLong();
+    private static final AtomicLong droppedCount = new AtomicLong();
+    private static final AtomicLong emittedCount = new AtomicLong();
+
+    // The buffer once the writer is running, read by the metrics without starting it
     @Nullable
     @SuppressWarnings("NonFinalStaticField")
-    private static ServiceLoader<ObjectTracing> loader = null;
-    private static final Logger objectTraceLogger = LoggerFactory.getLogger("objectTrace");
+    private static volatile ObjectTraceBuffer<Map<String, String>> running = null;
+
+    private static final class Providers {
+        private static final List<ObjectTracing> ALL = load();
+    }
+
+    private static final class Pipeline {
+        private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty(ASYNC_PROPERTY, "true"));
+        @Nullable
+        private static final ObjectTraceBuffer<Map<String, String>> BUFFER = ASYNC ? start() : null;
+    }
 
     private ObjectTracingService() {}
 
-    public static synchronized void emitLifecycleEvent(IBaseDataObject d, String filename, ObjectTracing.Stage stage, boolean useObjectTracing) {
+    public static void emitLifecycleEvent(IBaseDataObject d, String filename, ObjectTracing.Stage stage, boolean useObjectTracing) {
         emitLifecycleEvent(d, filename, stage, useObjectTracing, null, null);
     }
 
-    public static synchronized void emitLifecycleEvent(IBaseDataObject d, String filename, ObjectTracing.Stage stage, boolean useObjectTracing,
+    public static void emitLifecycleEvent(IBaseDataObject d, String filename, ObjectTracing.Stage stage, boolean useObjectTracing,
             @Nullable String filterName, @Nullable String outputFileName) {
-        if (useObjectTracing) {
-            if (loader == null) {
-                loader = ServiceLoader.load(ObjectTracing.class);
+        if (!useObjectTracing || !objectTraceLogger.isInfoEnabled()) {
+            return;
+        }
+
+        // have the appropriate providers add fields
+        Map<String, String> jsonFieldMap = new HashMap<>();
+        for (ObjectTracing tracing : Providers.ALL) {
+            if (stage.equals(ObjectTracing.Stage.PICK_UP)) {
+                tracing.getObjectTracePickUpFields(d, filename, stage, jsonFieldMap);
+            } else {
+                tracing.getObjectTraceDropOffFields(d, filename, stage, filterName, outputFileName, jsonFieldMap);
+            }
+        }
+
+        final ObjectTraceBuffer<Map<String, String>> buffer = Pipeline.BUFFER;
+        if (buffer == null) {
+            write(jsonFieldMap);
+        } else if (!buffer.offer(jsonFieldMap)) {
+            if (overflowCount.getAndIncrement() == 0) {
+                logger.warn("Object trace buffer of {} events is full, events are being discarded", buffer.capacity());
+            }
+        }
+    }
+
+    /**
+     * Log every event waiting in the buffer on the calling thread
+     */
+    public static void flush() {
+        final ObjectTraceBuffer<Map<String, String>> buffer = Pipeline.BUFFER;
+        if (buffer != null) {
+            drain(buffer);
+        }
+    }
+
+    /**
+     * Get the number of events discarded because the buffer was full
+     *
+     * @return the overflow count
+     */
+    public static long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * Get the number of events that could not be logged
+     *
+     * @return the dropped count
+     */
+    public static long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Get the number of events logged
+     *
+     * @return the emitted count
+     */
+    public static long getEmittedCount() {
+        return emittedCount.get();
+    }
+
+    /**
+     * Get the number of events waiting to be logged
+     *
+     * @return the pending count, zero if the writer is not running
+     */
+    public static int getPendingCount() {
+        final ObjectTraceBuffer<Map<String, String>> buffer = running;
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    private static List<ObjectTracing> load() {
+        final List<ObjectTracing> providers = new ArrayList<>();
+        for (ObjectTracing tracing : ServiceLoader.load(ObjectTracing.class)) {
+            providers.add(tracing);
+        }
+        return providers;
+    }
+
+    private static ObjectTraceBuffer<Map<String, String>> start() {
+        final ObjectTraceBuffer<Map<String, String>> buffer = new ObjectTraceBuffer<>(Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE));
+        final Thread writer = new Thread(() -> run(buffer), "ObjectTraceWriter");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> drain(buffer), "ObjectTraceFlush"));
+        logger.debug("Started object trace writer with a buffer of {} events", buffer.capacity());
+        running = buffer;
+        return buffer;
+    }
+
+    private static void run(final ObjectTraceBuffer<Map<String, String>> buffer) {
+        final List<Map<String, String>> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            if (writeBatch(buffer, batch) == 0) {
+                LockSupport.parkNanos(IDLE_NANOS);
             }
+        }
+    }
 
-            // have the appropriate providers add fields
-            Map<String, String> jsonFieldMap = new HashMap<>();
-            for (ObjectTracing tracing : loader) {
-                if (stage.equals(ObjectTracing.Stage.PICK_UP)) {
-                    tracing.getObjectTracePickUpFields(d, filename, stage, jsonFieldMap);
-                } else {
-                    tracing.getObjectTraceDropOffFields(d, filename, stage, filterName, outputFileName, jsonFieldMap);
-                }
+    private static void drain(final ObjectTraceBuffer<Map<String, String>> buffer) {
+        final List<Map<String, String>> batch = new ArrayList<>(BATCH_SIZE);
+        while (writeBatch(buffer, batch) > 0) {
+            // keep going until the buffer is empty
+        }
+    }
+
+    /**
+     * Take a batch of events and log them, holding the buffer so a flush waits for a batch the writer has already taken
+     */
+    private static int writeBatch(final ObjectTraceBuffer<Map<String, String>> buffer, final List<Map<String, String>> batch) {
+        synchronized (buffer) {
+            final int count = buffer.drain(batch, BATCH_SIZE);
+            for (Map<String, String> event : batch) {
+                write(event);
             }
+            batch.clear();
+            return count;
+        }
+    }
+
+    private static void write(final Map<String, String> jsonFieldMap) {
+        try {
             // once we have added fields from all providers, perform remapping of field names as appropriate
-            for (ObjectTracing tracing : loader) {
+            for (ObjectTracing tracing : Providers.ALL) {
                 tracing.mapFieldNames(jsonFieldMap);
             }
             objectTraceLogger.info(appendEntries(jsonFieldMap), "");
+            emittedCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            droppedCount.incrementAndGet();
+            logger.warn("Could not log object trace event {}", jsonFieldMap, e);
         }
     }
 }
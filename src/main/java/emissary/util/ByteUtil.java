@@ -303,16 +303,7 @@ public class ByteUtil {
      * @return whether or not there were non-printable values.
      */
     public static boolean hasNonPrintableValues(final byte[] bytes) {
-        boolean badCharacters = false;
-
-        for (byte aByte : bytes) {
-            if (aByte < 9 || (aByte > 13 && aByte < 32)) {
-                badCharacters = true;
-                break;
-            }
-        }
-
-        return badCharacters;
+        return TextStats.hasNonPrintable(bytes, 0, bytes.length);
     }
 
     /**
@@ -349,8 +340,13 @@ public class ByteUtil {
      * @return whether there were non-indexable characters
      */
     public static boolean containsNonIndexableBytes(final byte[] utf8Bytes) {
-        // Wrap the byte array in a ByteArrayInputStream
-        final InputStream inputStream = new ByteArrayInputStream(utf8Bytes);
+        // Indexable ASCII is checked directly, decoding only starts at the first byte that needs a closer look
+        final int start = TextStats.skipIndexableAscii(utf8Bytes, 0, utf8Bytes.length);
+        if (start == utf8Bytes.length) {
+            return false;
+        }
+        // Wrap the rest of the byte array in a ByteArrayInputStream
+        final InputStream inputStream = new ByteArrayInputStream(utf8Bytes, start, utf8Bytes.length - start);
         return containsNonIndexableBytes(inputStream);
     }
 
@@ -247,6 +247,11 @@ public class CharsetUtil {
         while (pos < dlen) {
             try {
                 final int val = data[pos] & 0xff;
+                if (val < 0x80) {
+                    // skip the whole run of ascii
+                    pos = TextStats.skipAscii(data, pos + 1, Math.min(dlen, data.length));
+                    continue;
+                }
                 final int len = trailingBytesForUtF8[val] + 1;
                 int srcptr = pos + len;
 
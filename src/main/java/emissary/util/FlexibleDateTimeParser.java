@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.text.ParsePosition;
 import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -21,10 +22,14 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +39,12 @@ import static java.util.stream.Collectors.toList;
  * Attempt to parse a date in an unknown format. This will loop through a set of configured formats and convert it into
  * a {@link ZonedDateTime}.
  * <p>
+ * Most strings only fit a few of the formats, so each string is classified by its shape: the separator characters it
+ * contains and whether it has digits and letters. Formats with a required literal or field the shape does not have are
+ * skipped, and the formats left for each shape are cached. The rest are checked with a {@link ParsePosition} so a
+ * format that does not fit is rejected without throwing an exception. The formats are still tried in order, so the
+ * result is the same as trying every format.
+ * <p>
  * Other parsing libs:
  * <p>
  * Natty - It handled a good chunk of the formats but not all.
@@ -77,8 +88,32 @@ public final class FlexibleDateTimeParser {
     /* Extra date time formats - list to try if our main list has failed - vars: FORMAT_DATETIME_EXTRA */
     private static final List<DateTimeFormatter> dateFormatsExtra;
 
+    /* Shape bits a string must have for each configured format to parse it, filled in while loading the config */
+    private static final Map<DateTimeFormatter, Long> requiredShapes = new IdentityHashMap<>();
+
+    /* Formats to try for each shape of string */
+    private static final ShapeIndex mainIndex;
+    private static final ShapeIndex extraIndex;
+
+    /* Most shapes remembered for each list of formats */
+    private static final int MAX_CACHED_SHAPES = 4096;
+
+    /* Shape bits for a digit and a letter, the low bits are for the printable ASCII separator characters */
+    private static final long SHAPE_DIGIT = 1L << 62;
+    private static final long SHAPE_LETTER = 1L << 61;
+
+    /* The printable ASCII characters that are not letters or digits, each given the bit of its index here */
+    private static final String SEPARATORS = " !\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+
+    /* Shape bit for each ASCII character, 0 for letters, digits and control characters */
+    private static final long[] SEPARATOR_BITS = new long[128];
+
     /* init */
     static {
+        for (int i = 0; i < SEPARATORS.length(); i++) {
+            SEPARATOR_BITS[SEPARATORS.charAt(i)] = 1L << i;
+        }
+
         try {
             // fire up the configurator
             Configurator configurator = ConfigUtil.getConfigInfo(FlexibleDateTimeParser.class);
@@ -90,6 +125,9 @@ public final class FlexibleDateTimeParser {
             List<ConfigEntry> configEntriesExtra = configurator.findStringMatchEntries(CFG_FORMAT_EXTRA);
             dateFormatsExtra = setupDateFormats(configEntriesExtra, getConfigFormats(configEntriesExtra));
 
+            mainIndex = new ShapeIndex(dateFormatsMain);
+            extraIndex = new ShapeIndex(dateFormatsExtra);
+
             String removeRegex = configurator.findStringEntry(CFG_REMOVE_REGEX, "<.+?>$|=0D$|\\(|\\)|\"|\\[|]|\\W+$|^\\W+");
             remove = Pattern.compile(removeRegex, Pattern.DOTALL);
 
@@ -165,12 +203,26 @@ public final class FlexibleDateTimeParser {
             return null;
         }
 
-        for (DateTimeFormatter formatter : formats) {
-            if (formatter == null) {
-                continue;
-            }
+        final ShapeIndex index;
+        if (formats == dateFormatsMain) {
+            index = mainIndex;
+        } else if (formats == dateFormatsExtra) {
+            index = extraIndex;
+        } else {
+            index = new ShapeIndex(formats);
+        }
 
+        final ParsePosition position = new ParsePosition(0);
+        for (DateTimeFormatter formatter : index.candidates(shapeOf(cleanedDateString))) {
             try {
+                // check the format fits the whole string before resolving it, this fails without an exception
+                position.setIndex(0);
+                position.setErrorIndex(-1);
+                if (formatter.parseUnresolved(cleanedDateString, position) == null || position.getErrorIndex() >= 0
+                        || position.getIndex() < cleanedDateString.length()) {
+                    continue;
+                }
+
                 // try for a zoned date (has timezone), local date time (no time zone), or just a local date (no time)
                 TemporalAccessor accessor =
                         formatter.parseBest(cleanedDateString, ZonedDateTime::from, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
@@ -192,6 +244,24 @@ public final class FlexibleDateTimeParser {
         return null;
     }
 
+    /**
+     * Get the main list of configured formats
+     *
+     * @return the formats tried first
+     */
+    static List<DateTimeFormatter> getMainFormats() {
+        return dateFormatsMain;
+    }
+
+    /**
+     * Get the extra list of configured formats
+     *
+     * @return the formats tried when extensive parsing is requested
+     */
+    static List<DateTimeFormatter> getExtraFormats() {
+        return dateFormatsExtra;
+    }
+
     /* Private Methods */
 
     /**
@@ -298,8 +368,10 @@ public final class FlexibleDateTimeParser {
     @Nullable
     private static DateTimeFormatter getFormatter(ConfigEntry entry) {
         try {
-            return new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(entry.getValue())
+            DateTimeFormatter formatter = new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(entry.getValue())
                     .toFormatter(Locale.getDefault());
+            requiredShapes.put(formatter, requiredShape(entry.getValue()));
+            return formatter;
         } catch (IllegalArgumentException e) {
             // log the bad one and move on because there could be other possible patterns
             logger.error("Error parsing pattern [{}]: {}", entry.getValue(), e.getLocalizedMessage());
@@ -307,13 +379,196 @@ public final class FlexibleDateTimeParser {
         return null;
     }
 
+    /**
+     * Get the bit for a printable ASCII separator character
+     *
+     * @param c the character
+     * @return the bit, or 0 for letters, digits and other characters
+     */
+    private static long separatorBit(final char c) {
+        return c < SEPARATOR_BITS.length ? SEPARATOR_BITS[c] : 0L;
+    }
+
+    /**
+     * Classify a string by the separators it contains and whether it has digits and letters
+     *
+     * @param date the cleaned date string
+     * @return the shape bits
+     */
+    static long shapeOf(final String date) {
+        long shape = 0L;
+        for (int i = 0; i < date.length(); i++) {
+            final char c = date.charAt(i);
+            if (c >= '0' && c <= '9') {
+                shape |= SHAPE_DIGIT;
+            } else if (Character.isLetter(c)) {
+                shape |= SHAPE_LETTER;
+            } else {
+                shape |= separatorBit(c);
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Work out the shape bits a string must have to be parsed by a pattern: the literals and fields outside of optional
+     * sections. Numeric fields need a digit and text fields need a letter. Anything that is not understood is not required
+     * so the result is never stricter than the pattern.
+     *
+     * @param pattern the pattern used to build the formatter
+     * @return the required shape bits
+     */
+    static long requiredShape(final String pattern) {
+        long required = 0L;
+        int optionalDepth = 0;
+        int i = 0;
+        while (i < pattern.length()) {
+            final char c = pattern.charAt(i);
+            if (c == '\'') {
+                // quoted literal, two quotes are a literal quote
+                int end = i + 1;
+                final StringBuilder literal = new StringBuilder();
+                while (end < pattern.length()) {
+                    if (pattern.charAt(end) == '\'') {
+                        if (end + 1 < pattern.length() && pattern.charAt(end + 1) == '\'') {
+                            literal.append('\'');
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    literal.append(pattern.charAt(end++));
+                }
+                if (end == i + 1 && end < pattern.length()) {
+                    literal.append('\'');
+                }
+                if (optionalDepth == 0) {
+                    required |= requiredLiteral(literal);
+                }
+                i = end + 1;
+            } else if (c == '[') {
+                optionalDepth++;
+                i++;
+            } else if (c == ']') {
+                optionalDepth = Math.max(0, optionalDepth - 1);
+                i++;
+            } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                int count = 1;
+                while (i + count < pattern.length() && pattern.charAt(i + count) == c) {
+                    count++;
+                }
+                if (optionalDepth == 0) {
+                    required |= requiredField(c, count);
+                }
+                i += count;
+            } else {
+                if (optionalDepth == 0 && c != '{' && c != '}' && c != '#') {
+                    required |= requiredLiteral(String.valueOf(c));
+                }
+                i++;
+            }
+        }
+        return required;
+    }
+
+    private static long requiredLiteral(final CharSequence literal) {
+        long required = 0L;
+        for (int i = 0; i < literal.length(); i++) {
+            final char c = literal.charAt(i);
+            if (c >= '0' && c <= '9') {
+                required |= SHAPE_DIGIT;
+            } else if (Character.isLetter(c)) {
+                required |= SHAPE_LETTER;
+            } else {
+                required |= separatorBit(c);
+            }
+        }
+        return required;
+    }
+
+    private static long requiredField(final char letter, final int count) {
+        switch (letter) {
+            case 'M':
+            case 'L':
+            case 'Q':
+            case 'q':
+            case 'e':
+            case 'c':
+                return count >= 3 ? SHAPE_LETTER : SHAPE_DIGIT;
+            case 'E':
+            case 'a':
+            case 'G':
+                return SHAPE_LETTER;
+            case 'y':
+            case 'u':
+            case 'Y':
+            case 'd':
+            case 'D':
+            case 'F':
+            case 'w':
+            case 'W':
+            case 'H':
+            case 'h':
+            case 'K':
+            case 'k':
+            case 'm':
+            case 's':
+            case 'S':
+            case 'n':
+            case 'N':
+            case 'A':
+                return SHAPE_DIGIT;
+            default:
+                // zones, offsets, padding and anything else are not required to look like anything
+                return 0L;
+        }
+    }
+
+    /**
+     * A list of formats with the formats that can parse each shape of string, in the original order
+     */
+    private static final class ShapeIndex {
+        private final List<DateTimeFormatter> formats = new ArrayList<>();
+        private final long[] required;
+        private final Map<Long, List<DateTimeFormatter>> byShape = new ConcurrentHashMap<>();
+
+        ShapeIndex(final List<DateTimeFormatter> list) {
+            for (DateTimeFormatter formatter : list) {
+                if (formatter != null) {
+                    formats.add(formatter);
+                }
+            }
+            required = new long[formats.size()];
+            for (int i = 0; i < required.length; i++) {
+                // formats that did not come from the config could parse anything
+                required[i] = requiredShapes.getOrDefault(formats.get(i), 0L);
+            }
+        }
+
+        List<DateTimeFormatter> candidates(final long shape) {
+            List<DateTimeFormatter> candidates = byShape.get(shape);
+            if (candidates == null) {
+                candidates = new ArrayList<>();
+                for (int i = 0; i < required.length; i++) {
+                    if ((required[i] & shape) == required[i]) {
+                        candidates.add(formats.get(i));
+                    }
+                }
+                if (byShape.size() < MAX_CACHED_SHAPES) {
+                    byShape.put(shape, candidates);
+                }
+            }
+            return candidates;
+        }
+    }
+
     /**
      * Clean up the date string for processing (remove extra spaces, tabs, html, ...)
      *
      * @param date the date string to clean
      * @return the scrubbed date string
      */
-    private static String cleanDateString(final String date) {
+    static String cleanDateString(final String date) {
         if (StringUtils.isBlank(date)) {
             return date;
         }
@@ -0,0 +1,276 @@
+package emissary.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Statistics used to tell text from binary data, gathered in one pass over the bytes: a byte histogram, the entropy, the
+ * printable byte count and whether the bytes are ASCII or valid UTF-8.
+ * <p>
+ * The static scanning methods read eight bytes at a time as a {@code long} and test all eight at once with masks, so
+ * runs of ordinary text are skipped quickly. They are shared by {@link CharsetUtil}, {@link ByteUtil} and
+ * {@link Entropy}.
+ */
+public final class TextStats {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Masks of each byte's high bit and low seven bits
+    private static final long HIGH = 0x8080808080808080L;
+    private static final long LOW = 0x7f7f7f7f7f7f7f7fL;
+
+    // Adding 0x80 - n to a byte with the high bit clear sets the high bit when the byte is at least n
+    private static final long AT_LEAST_9 = 0x7777777777777777L;
+    private static final long AT_LEAST_14 = 0x7272727272727272L;
+    private static final long AT_LEAST_32 = 0x6060606060606060L;
+    private static final long AT_LEAST_127 = 0x0101010101010101L;
+
+    private final int length;
+    private final int[] histogram;
+    private final int printable;
+    private final boolean ascii;
+    private final boolean utf8;
+
+    private TextStats(final byte[] data, final int offset, final int length) {
+        this.length = length;
+        this.histogram = histogram(data, offset, length);
+        int count = 0;
+        for (int b = 9; b <= 13; b++) {
+            count += histogram[b];
+        }
+        int high = 0;
+        for (int b = 32; b < 256; b++) {
+            if (b < 128) {
+                count += histogram[b];
+            } else {
+                high += histogram[b];
+            }
+        }
+        this.printable = count;
+        this.ascii = high == 0;
+        this.utf8 = ascii || CharsetUtil.isUtf8(data, offset, offset + length);
+    }
+
+    /**
+     * Gather the statistics for the bytes
+     *
+     * @param data the bytes
+     * @return the statistics
+     */
+    public static TextStats of(final byte[] data) {
+        return new TextStats(data, 0, data.length);
+    }
+
+    /**
+     * Gather the statistics for part of the bytes
+     *
+     * @param data the bytes
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @return the statistics
+     * @throws IndexOutOfBoundsException if the range is not within the data
+     */
+    public static TextStats of(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", actual length " + data.length);
+        }
+        return new TextStats(data, offset, length);
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get how many times a byte value occurs
+     *
+     * @param b the byte value from 0 to 255
+     * @return the count
+     */
+    public int getCount(final int b) {
+        return histogram[b & 0xff];
+    }
+
+    /**
+     * Get the byte histogram
+     *
+     * @return a copy of the count of each byte value from 0 to 255
+     */
+    public int[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Get the number of printable bytes, the same bytes {@link ByteUtil#hasNonPrintableValues(byte[])} accepts: tab
+     * through carriage return and 32 through 127
+     *
+     * @return the printable byte count
+     */
+    public int getPrintableCount() {
+        return printable;
+    }
+
+    /**
+     * Get the fraction of the bytes that are printable
+     *
+     * @return from 0 to 1, or 1 when there are no bytes
+     */
+    public double getPrintableRatio() {
+        return length == 0 ? 1.0 : (double) printable / length;
+    }
+
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    /**
+     * Report whether the bytes are valid UTF-8 as checked by {@link CharsetUtil#isUtf8(byte[], int, int)}
+     *
+     * @return true if valid utf8
+     */
+    public boolean isUtf8() {
+        return utf8;
+    }
+
+    /**
+     * Get the entropy of the bytes
+     *
+     * @return bits per byte from 0 to 8
+     */
+    public double getEntropy() {
+        return entropy(histogram, length);
+    }
+
+    /**
+     * Count each byte value
+     *
+     * @param data the bytes
+     * @param offset index of the first byte
+     * @param length number of bytes, nothing is counted when not positive
+     * @return the count of each byte value from 0 to 255
+     */
+    static int[] histogram(final byte[] data, final int offset, final int length) {
+        final int end = offset + Math.max(0, length);
+        // Counting into four tables keeps runs of the same byte from waiting on the previous increment
+        final int[] counts = new int[4 * 256];
+        int i = offset;
+        for (; i <= end - 4; i += 4) {
+            counts[data[i] & 0xff]++;
+            counts[256 + (data[i + 1] & 0xff)]++;
+            counts[512 + (data[i + 2] & 0xff)]++;
+            counts[768 + (data[i + 3] & 0xff)]++;
+        }
+        for (; i < end; i++) {
+            counts[data[i] & 0xff]++;
+        }
+        final int[] histogram = new int[256];
+        for (int b = 0; b < 256; b++) {
+            histogram[b] = counts[b] + counts[256 + b] + counts[512 + b] + counts[768 + b];
+        }
+        return histogram;
+    }
+
+    /**
+     * Compute the entropy from a byte histogram
+     *
+     * @param histogram the count of each byte value
+     * @param total the number of bytes counted
+     * @return bits per byte from 0 to 8
+     */
+    static double entropy(final int[] histogram, final int total) {
+        double entropy = 0;
+        for (int i = 0; i < 256; ++i) {
+            if (histogram[i] != 0 && total > 0) {
+                final double relativeFreq = (double) histogram[i] / (double) total;
+                entropy = entropy + (relativeFreq * Math.log(1 / relativeFreq));
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    /**
+     * Find the first byte that is not ASCII
+     *
+     * @param data the bytes
+     * @param from index to start at
+     * @param to index to stop before
+     * @return the index of the first byte with the high bit set, or to if there is none
+     */
+    static int skipAscii(final byte[] data, final int from, final int to) {
+        int i = from;
+        for (; i <= to - Long.BYTES; i += Long.BYTES) {
+            final long high = (long) LONGS.get(data, i) & HIGH;
+            if (high != 0) {
+                return i + (Long.numberOfTrailingZeros(high) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (data[i] < 0) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Check for bytes other than tab through carriage return and 32 through 127
+     *
+     * @param data the bytes
+     * @param from index to start at
+     * @param to index to stop before
+     * @return true if any byte is not printable
+     */
+    static boolean hasNonPrintable(final byte[] data, final int from, final int to) {
+        int i = from;
+        for (; i <= to - Long.BYTES; i += Long.BYTES) {
+            final long w = (long) LONGS.get(data, i);
+            final long x = w & LOW;
+            final long atLeast9 = x + AT_LEAST_9;
+            final long atLeast14 = x + AT_LEAST_14;
+            final long atLeast32 = x + AT_LEAST_32;
+            // High bytes, and control bytes other than tab through carriage return
+            if (((w | ~(atLeast32 | (atLeast9 & ~atLeast14))) & HIGH) != 0) {
+                return true;
+            }
+        }
+        for (; i < to; i++) {
+            final byte b = data[i];
+            if (b < 9 || (b > 13 && b < 32)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the first byte that is not ASCII, or that is an ASCII control character other than tab through carriage return
+     *
+     * @param data the bytes
+     * @param from index to start at
+     * @param to index to stop before
+     * @return the index of the byte, or to if there is none
+     */
+    static int skipIndexableAscii(final byte[] data, final int from, final int to) {
+        int i = from;
+        for (; i <= to - Long.BYTES; i += Long.BYTES) {
+            final long w = (long) LONGS.get(data, i);
+            final long x = w & LOW;
+            final long atLeast9 = x + AT_LEAST_9;
+            final long atLeast14 = x + AT_LEAST_14;
+            final long atLeast32 = x + AT_LEAST_32;
+            final long delete = x + AT_LEAST_127;
+            final long stop = (w | ~atLeast9 | (atLeast14 & ~atLeast32) | delete) & HIGH;
+            if (stop != 0) {
+                return i + (Long.numberOfTrailingZeros(stop) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            final byte b = data[i];
+            if (b < 9 || (b > 13 && b < 32) || b == 127) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,187 @@
+package emissary.util.io;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report files created or modified below a root directory using a {@link WatchService}, so a tree that was walked once
+ * does not have to be walked again to find new work. Directories created below the root are registered as they appear
+ * and any files already in them are reported.
+ * <p>
+ * When the watch service loses events the change set is marked as overflowed and the caller should walk the whole tree
+ * again. Not every file system supports watching, network file systems in particular may never report changes.
+ */
+public class DirectoryChangeWatcher implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryChangeWatcher.class);
+
+    private final Path root;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Start watching a tree
+     *
+     * @param root the directory to watch, including everything below it
+     * @throws IOException if the tree cannot be registered
+     */
+    public DirectoryChangeWatcher(final Path root) throws IOException {
+        Validate.isTrue(Files.isDirectory(root), "Required: root is a directory");
+        this.root = root;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerTree(root, null);
+    }
+
+    /**
+     * Register a directory and every directory below it
+     *
+     * @param dir the top of the tree to register
+     * @param created if not null, files already in the tree are added here
+     */
+    private void registerTree(final Path dir, @Nullable final Set<Path> created) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path d, final BasicFileAttributes attrs) throws IOException {
+                final WatchKey key = d.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, d);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (created != null) {
+                    created.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                logger.debug("Cannot visit {}", file, exc);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Wait for changes and collect every change that is available
+     *
+     * @param timeout how long to wait for the first change
+     * @param unit the unit of the timeout
+     * @return the changes, empty if nothing changed in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Changes poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final Set<Path> paths = new LinkedHashSet<>();
+        boolean overflow = false;
+
+        WatchKey key = watchService.poll(timeout, unit);
+        while (key != null) {
+            final Path dir = keys.get(key);
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+                if (dir == null) {
+                    continue;
+                }
+                final Path child = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                    try {
+                        registerTree(child, paths);
+                    } catch (IOException e) {
+                        logger.debug("Cannot watch new directory {}", child, e);
+                        overflow = true;
+                    }
+                }
+                paths.add(child);
+            }
+            if (!key.reset()) {
+                // Directory is gone or no longer accessible
+                keys.remove(key);
+            }
+            key = watchService.poll();
+        }
+        return new Changes(paths, overflow);
+    }
+
+    /**
+     * Get the root of the watched tree
+     *
+     * @return the root directory
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Get the number of directories being watched
+     *
+     * @return watched directories
+     */
+    public int getWatchedDirectoryCount() {
+        return keys.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        keys.clear();
+    }
+
+    /**
+     * Paths created or modified since the last poll
+     */
+    public static final class Changes {
+        private final Set<Path> paths;
+        private final boolean overflow;
+
+        Changes(final Set<Path> paths, final boolean overflow) {
+            this.paths = Collections.unmodifiableSet(paths);
+            this.overflow = overflow;
+        }
+
+        /**
+         * Get the changed paths, files and directories, which may since have been removed
+         *
+         * @return the paths in the order the changes were seen
+         */
+        public Set<Path> getPaths() {
+            return paths;
+        }
+
+        /**
+         * Report whether changes were lost
+         *
+         * @return true if the whole tree should be walked again
+         */
+        public boolean isOverflow() {
+            return overflow;
+        }
+
+        public boolean isEmpty() {
+            return paths.isEmpty() && !overflow;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package emissary.util.io;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walk directory trees using several threads, one directory listing per task, reading the attributes of every entry
+ * exactly once. Entries are handed to the caller through a bounded queue as they are found so a huge tree never has to
+ * be held in memory and the caller can start working before the walk completes.
+ * <p>
+ * Unlike {@link FileFind} the order of the entries is not defined. Use {@link #sortedWalk(Path, boolean)} on the calling
+ * thread when the same tree must come back in the same order every time.
+ */
+public class FileDiscovery implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FileDiscovery.class);
+
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    private static final long OFFER_WAIT_MILLIS = 100L;
+
+    private final ExecutorService pool;
+    private final int queueSize;
+
+    /**
+     * Create a discovery engine
+     *
+     * @param threads number of directories listed at once (threads &gt; 0)
+     */
+    public FileDiscovery(final int threads) {
+        this(threads, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Create a discovery engine
+     *
+     * @param threads number of directories listed at once (threads &gt; 0)
+     * @param queueSize most entries found but not yet taken by the caller of a walk (queueSize &gt; 0)
+     */
+    public FileDiscovery(final int threads, final int queueSize) {
+        Validate.isTrue(threads > 0, "Required: threads > 0");
+        Validate.isTrue(queueSize > 0, "Required: queueSize > 0");
+        this.queueSize = queueSize;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = new Thread(r, "FileDiscovery-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start walking a tree
+     *
+     * @param root the file or directory to start from
+     * @param wantDirectories true if directories, including the root, should be returned as well as files
+     * @return the walk, which should be closed if it is not iterated to the end
+     * @throws IOException if the root cannot be read
+     */
+    public Walk walk(final Path root, final boolean wantDirectories) throws IOException {
+        final DiscoveredFile top = DiscoveredFile.read(root);
+        final Walk walk = new Walk(wantDirectories, queueSize);
+        // The queue is empty so adding the root cannot block
+        if (!top.isDirectory() || wantDirectories) {
+            walk.found.add(top);
+        }
+        if (top.isDirectory()) {
+            walk.submit(root);
+        }
+        walk.finished();
+        return walk;
+    }
+
+    /**
+     * Walk a tree on the calling thread, depth first with the entries of each directory sorted by name, so an unchanged
+     * tree always comes back in the same order. Only one directory listing is held per level of the tree.
+     *
+     * @param root the file or directory to start from
+     * @param wantDirectories true if directories, including the root, should be returned as well as files
+     * @return the entries in sorted order
+     * @throws IOException if the root cannot be read
+     */
+    public static Iterator<DiscoveredFile> sortedWalk(final Path root, final boolean wantDirectories) throws IOException {
+        return new SortedWalk(DiscoveredFile.read(root), wantDirectories);
+    }
+
+    /**
+     * Stop the threads. Walks in progress end early.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * A file system entry with the attributes read when it was found
+     */
+    public static final class DiscoveredFile {
+        private final Path path;
+        private final boolean directory;
+        private final boolean regularFile;
+        private final long lastModified;
+        private final long size;
+
+        DiscoveredFile(final Path path, final BasicFileAttributes attrs) {
+            this.path = path;
+            this.directory = attrs.isDirectory();
+            this.regularFile = attrs.isRegularFile();
+            this.lastModified = attrs.lastModifiedTime().toMillis();
+            this.size = attrs.size();
+        }
+
+        /**
+         * Read the attributes of a path, following links
+         *
+         * @param path the path to read
+         * @return the entry
+         * @throws IOException if the attributes cannot be read
+         */
+        public static DiscoveredFile read(final Path path) throws IOException {
+            return new DiscoveredFile(path, Files.readAttributes(path, BasicFileAttributes.class));
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public boolean isRegularFile() {
+            return regularFile;
+        }
+
+        /**
+         * Get the last modified time in the same form as {@link java.io.File#lastModified()}
+         *
+         * @return millis since the epoch
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Report whether the name starts with a dot
+         *
+         * @return true for dot files
+         */
+        public boolean isDotFile() {
+            final Path name = path.getFileName();
+            return name != null && name.toString().startsWith(".");
+        }
+
+        @Override
+        public String toString() {
+            return path.toString();
+        }
+    }
+
+    /**
+     * A single threaded walk in sorted order
+     */
+    private static final class SortedWalk implements Iterator<DiscoveredFile> {
+        private final boolean wantDirectories;
+        // The rest of the sorted listing of each directory between the root and the current entry
+        private final Deque<Iterator<Path>> listings = new ArrayDeque<>();
+        @Nullable
+        private DiscoveredFile next;
+
+        private SortedWalk(final DiscoveredFile top, final boolean wantDirectories) {
+            this.wantDirectories = wantDirectories;
+            if (top.isDirectory()) {
+                push(top.getPath());
+            }
+            this.next = (!top.isDirectory() || wantDirectories) ? top : null;
+        }
+
+        private void push(final Path dir) {
+            final List<Path> entries = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                stream.forEach(entries::add);
+            } catch (IOException e) {
+                logger.debug("Cannot list directory {}", dir, e);
+                return;
+            }
+            Collections.sort(entries);
+            listings.push(entries.iterator());
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !listings.isEmpty()) {
+                final Iterator<Path> listing = listings.peek();
+                if (!listing.hasNext()) {
+                    listings.pop();
+                    continue;
+                }
+                final Path entry = listing.next();
+                final DiscoveredFile file;
+                try {
+                    file = DiscoveredFile.read(entry);
+                } catch (NoSuchFileException e) {
+                    // Removed between listing and reading
+                    continue;
+                } catch (IOException e) {
+                    logger.debug("Cannot read attributes of {}", entry, e);
+                    continue;
+                }
+                if (file.isDirectory()) {
+                    push(entry);
+                    if (wantDirectories) {
+                        next = file;
+                    }
+                } else if (file.isRegularFile()) {
+                    next = file;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public DiscoveredFile next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final DiscoveredFile result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * The entries found by one walk, in the order they were found. Iteration blocks until the next entry is found or the
+     * walk completes.
+     */
+    public final class Walk implements Iterator<DiscoveredFile>, Closeable {
+        private final boolean wantDirectories;
+        private final BlockingQueue<DiscoveredFile> found;
+        // Directories submitted but not yet listed, plus one for the walk setup
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private final AtomicInteger directories = new AtomicInteger();
+        private volatile boolean done = false;
+        private volatile boolean closed = false;
+        @Nullable
+        private DiscoveredFile next = null;
+
+        private Walk(final boolean wantDirectories, final int queueSize) {
+            this.wantDirectories = wantDirectories;
+            this.found = new LinkedBlockingQueue<>(queueSize);
+        }
+
+        private void submit(final Path dir) {
+            outstanding.incrementAndGet();
+            try {
+                pool.execute(() -> list(dir));
+            } catch (RejectedExecutionException e) {
+                logger.debug("Discovery stopped before listing {}", dir);
+                finished();
+            }
+        }
+
+        private void list(final Path dir) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                directories.incrementAndGet();
+                for (final Path entry : entries) {
+                    if (closed) {
+                        break;
+                    }
+                    final DiscoveredFile file;
+                    try {
+                        file = DiscoveredFile.read(entry);
+                    } catch (NoSuchFileException e) {
+                        // Removed between listing and reading
+                        continue;
+                    } catch (IOException e) {
+                        logger.debug("Cannot read attributes of {}", entry, e);
+                        continue;
+                    }
+                    if (file.isDirectory()) {
+                        submit(entry);
+                        if (wantDirectories) {
+                            emit(file);
+                        }
+                    } else if (file.isRegularFile()) {
+                        emit(file);
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Cannot list directory {}", dir, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                finished();
+            }
+        }
+
+        private void emit(final DiscoveredFile file) throws InterruptedException {
+            while (!closed && !found.offer(file, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                // Wait for the caller to catch up
+            }
+        }
+
+        private void finished() {
+            if (outstanding.decrementAndGet() == 0) {
+                done = true;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                next = found.poll();
+                if (next != null) {
+                    break;
+                }
+                if (done || closed) {
+                    // Everything found was queued before done was set
+                    next = found.poll();
+                    return next != null;
+                }
+                try {
+                    next = found.poll(OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public DiscoveredFile next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final DiscoveredFile result = next;
+            next = null;
+            return result;
+        }
+
+        /**
+         * Get the number of directories listed so far
+         *
+         * @return directories listed
+         */
+        public int getDirectoryCount() {
+            return directories.get();
+        }
+
+        /**
+         * Stop the walk early, entries not yet taken are dropped
+         */
+        @Override
+        public void close() {
+            closed = true;
+            found.clear();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package emissary.util.shell;
 
 import emissary.config.Configurator;
 import emissary.config.ServiceConfigGuide;
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SpillingChannelFactory;
 import emissary.directory.KeyManipulator;
 import emissary.util.io.FileManipulator;
 
@@ -28,6 +30,7 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Map;
@@ -366,6 +369,22 @@ public class Executrix {
         }
     }
 
+    /**
+     * Read data from file name passed in into a channel factory that keeps small content in memory and spills large
+     * content to disk under the node-wide payload memory budget. Suited to large command output that would otherwise be
+     * read entirely onto the heap.
+     * 
+     * @param theFileName disk location to read from
+     * @return channel factory over a copy of the file content
+     * @throws IOException on error reading the file or writing the spill file
+     * @see SpillingChannelFactory
+     */
+    public static SeekableByteChannelFactory readFileToChannelFactory(final String theFileName) throws IOException {
+        try (InputStream is = Files.newInputStream(Path.of(theFileName))) {
+            return SpillingChannelFactory.create(is);
+        }
+    }
+
     /**
      * Read data from random access file passed in and return data read in a byte array.
      * 
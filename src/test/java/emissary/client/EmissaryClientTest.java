@@ -114,4 +114,17 @@ class EmissaryClientTest extends UnitTest {
         assertEquals(Timeout.ofMilliseconds(valueInCfgOnClasspath), new EmissaryClient().getConnectionConfig().getConnectTimeout());
     }
 
+    @Test
+    void testResponseTimeout() {
+        EmissaryClient.configure();
+        EmissaryClient client = new EmissaryClient().withResponseTimeout(250L);
+
+        Timeout timeout = Timeout.ofMilliseconds(250L);
+        assertEquals(timeout, client.getRequestConfig().getConnectionRequestTimeout());
+        assertEquals(timeout, client.getRequestConfig().getResponseTimeout());
+        assertEquals(timeout, client.getConnectionConfig().getConnectTimeout());
+        // ensure it didn't override config for new instances
+        assertEquals(Timeout.ofMilliseconds(TimeUnit.MINUTES.toMillis(10)), new EmissaryClient().getConnectionConfig().getConnectTimeout());
+    }
+
 }
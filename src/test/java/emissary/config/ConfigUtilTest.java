@@ -30,6 +30,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -647,6 +648,59 @@ class ConfigUtilTest extends UnitTest {
         assertEquals(result, noImportExpectedMessage, "IMPORT_FAIL Message Not What Was Expected.");
     }
 
+    @Test
+    void testCachedConfig() throws IOException, EmissaryException {
+        System.setProperty(ConfigUtil.CONFIG_FLAVOR_PROPERTY, "TESTFLAVOR");
+        ConfigUtil.initialize();
+
+        final Path baseFile = createFileAndPopulate(configPath, "emissary.blubber.Dolphin.cfg", "FOO = \"BAR\"\n");
+
+        final Configurator first = ConfigUtil.getConfigInfo("emissary.blubber.Dolphin.cfg");
+        assertEquals("BAR", first.findStringEntry("FOO"));
+
+        // changes to one copy are not seen by the next caller
+        first.addEntry("FOO", "CHANGED");
+        first.findStringMatchList("FO");
+        final Configurator second = ConfigUtil.getConfigInfo("emissary.blubber.Dolphin.cfg");
+        assertNotSame(first, second);
+        assertEquals(List.of("BAR"), second.findEntries("FOO"));
+
+        // a changed file is read again
+        Files.write(baseFile, "FOO = \"BARBAR\"\n".getBytes());
+        assertEquals("BARBAR", ConfigUtil.getConfigInfo("emissary.blubber.Dolphin.cfg").findStringEntry("FOO"));
+
+        // so is a flavor that was missing
+        createFileAndPopulate(configPath, "emissary.blubber.Dolphin-TESTFLAVOR.cfg", "FOO = \"FLAVORED\"\n");
+        assertEquals("FLAVORED", ConfigUtil.getConfigInfo("emissary.blubber.Dolphin.cfg").findStringEntry("FOO"));
+
+        // and a removed file is not found
+        Files.delete(baseFile);
+        assertThrows(IOException.class, () -> ConfigUtil.getConfigInfo("emissary.blubber.Dolphin.cfg"));
+    }
+
+    @Test
+    void testCachedConfigSubstitutions() throws IOException, EmissaryException {
+        System.setProperty("emissary.test.dolphin.pod", "ONE");
+        System.setProperty("emissary.test.dolphin.env", "ONE");
+        try {
+            ConfigUtil.initialize();
+            createFileAndPopulate(configPath, "emissary.blubber.Porpoise.cfg",
+                    "POD = \"@{emissary.test.dolphin.pod}\"\nENV = \"@ENV{'emissary.test.dolphin.env'}\"\n");
+            Configurator first = ConfigUtil.getConfigInfo("emissary.blubber.Porpoise.cfg");
+            assertEquals("ONE", first.findStringEntry("POD"));
+            assertEquals("ONE", first.findStringEntry("ENV"));
+
+            // a property set after the first read is seen just as when nothing is cached
+            System.setProperty("emissary.test.dolphin.pod", "TWO");
+            assertEquals("TWO", ConfigUtil.getConfigInfo("emissary.blubber.Porpoise.cfg").findStringEntry("POD"));
+            System.setProperty("emissary.test.dolphin.env", "TWO");
+            assertEquals("TWO", ConfigUtil.getConfigInfo("emissary.blubber.Porpoise.cfg").findStringEntry("ENV"));
+        } finally {
+            System.clearProperty("emissary.test.dolphin.pod");
+            System.clearProperty("emissary.test.dolphin.env");
+        }
+    }
+
     private Path createTmpSubDir(final String name) throws IOException {
         final Path dir = Path.of(configPath.toString(), name);
         Files.createDirectory(dir);
@@ -709,6 +709,40 @@ class ServiceConfigGuideTest extends UnitTest {
 
     }
 
+    @Test
+    void testLookupsFollowChanges() {
+        ServiceConfigGuide config = new ServiceConfigGuide();
+        config.addEntry("PREFIX_B", "1");
+        config.addEntry("OTHER", "2");
+        config.addEntry("PREFIX_A", "3");
+        config.addEntry("PREFIX_B", "4");
+        config.addEntry("PREFIX", "5");
+
+        assertEquals(List.of("1", "4"), config.findEntries("PREFIX_B"));
+        assertEquals("4", config.findLastStringEntry("PREFIX_B"));
+        assertEquals("", config.findLastStringEntry("MISSING"));
+        assertEquals(Set.of("PREFIX_B", "OTHER", "PREFIX_A", "PREFIX"), config.entryKeys());
+
+        // prefix matches keep the order of the config, not of the keys
+        List<String> values = new ArrayList<>();
+        for (ConfigEntry entry : config.findStringMatchEntries("PREFIX")) {
+            values.add(entry.getValue());
+        }
+        assertEquals(List.of("1", "3", "4", "5"), values);
+
+        config.removeEntry("PREFIX_B", "1");
+        assertEquals(List.of("4"), config.findEntries("PREFIX_B"));
+        config.addEntry("PREFIX_B", "6");
+        assertEquals("4", config.findStringEntry("PREFIX_B"));
+        config.removeEntry("PREFIX_B", "*");
+        assertTrue(config.findEntries("PREFIX_B").isEmpty());
+
+        // stripping the prefix changes the stored keys
+        assertEquals(2, config.findStringMatchList("PREFIX").size());
+        assertEquals(List.of("3"), config.findEntries("_A"));
+        assertTrue(config.findEntries("PREFIX_A").isEmpty());
+    }
+
     private enum TestType {
         DEFAULT_VALUE, MATCH_VALUE
     }
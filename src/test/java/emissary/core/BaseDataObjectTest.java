@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
@@ -298,6 +299,21 @@ class BaseDataObjectTest extends UnitTest {
         assertNull(this.b.getAlternateView("TESTVIEW"), "Byte buffer on removed view");
     }
 
+    @Test
+    void testReadOnlyDataBuffer() {
+        final ByteBuffer buf = this.b.readOnlyDataBuffer();
+        assertTrue(buf.isReadOnly(), "Buffer should be read only");
+        assertEquals("This is a test", UTF_8.decode(buf).toString(), "Buffer contents");
+        assertThrows(ReadOnlyBufferException.class, () -> this.b.readOnlyDataBuffer().put((byte) 'x'));
+        assertEquals("This is a test", new String(this.b.data(), UTF_8), "Data unchanged");
+
+        this.b.setChannelFactory(SeekableByteChannelHelper.memory("From a channel".getBytes(UTF_8)));
+        assertEquals("From a channel", UTF_8.decode(this.b.readOnlyDataBuffer()).toString(), "Buffer contents from channel");
+
+        this.b.clearData();
+        assertEquals(0, this.b.readOnlyDataBuffer().remaining(), "Empty buffer with no data");
+    }
+
     @Test
     void testNonExistentAltViews() {
         assertNull(this.b.getAlternateView("NOSUCHVIEW"), "No such view");
@@ -1147,6 +1163,55 @@ class BaseDataObjectTest extends UnitTest {
         assertEquals("BAZ", this.b.getFileType(), "Filetype set on null as empty");
     }
 
+    @Test
+    void testContentVersion() {
+        final long start = this.b.getContentVersion();
+        this.b.setData("Something else".getBytes(UTF_8));
+        assertEquals(start + 1, this.b.getContentVersion(), "setData must change the version");
+        this.b.setData("Something else".getBytes(UTF_8), 0, 4);
+        assertEquals(start + 2, this.b.getContentVersion(), "setData with a range must change the version");
+        this.b.clearData();
+        assertEquals(start + 3, this.b.getContentVersion(), "clearData must change the version");
+        this.b.markContentChanged();
+        assertEquals(start + 4, this.b.getContentVersion(), "markContentChanged must change the version");
+
+        this.b.pushCurrentForm("FOUR");
+        this.b.setParameter("FOO", "BAR");
+        assertEquals(start + 4, this.b.getContentVersion(), "Metadata changes must not change the version");
+    }
+
+    @Test
+    void testChannelFactoryDirty() {
+        assertFalse(this.b.isChannelFactoryDirty());
+        final long start = this.b.getContentVersion();
+        this.b.setChannelFactory(SeekableByteChannelHelper.memory("channel data".getBytes(UTF_8)));
+        assertTrue(this.b.isChannelFactoryDirty());
+        assertEquals(start + 1, this.b.getContentVersion(), "setChannelFactory must change the version");
+        this.b.clearChannelFactoryDirty();
+        assertFalse(this.b.isChannelFactoryDirty());
+    }
+
+    @Test
+    void testDerivedCurrent() throws CloneNotSupportedException {
+        assertFalse(this.b.isDerivedCurrent("HASH"));
+        this.b.markDerived("HASH");
+        assertTrue(this.b.isDerivedCurrent("HASH"));
+        assertFalse(this.b.isDerivedCurrent("OTHER"));
+
+        final IBaseDataObject clone = this.b.clone();
+        assertTrue(clone.isDerivedCurrent("HASH"), "Clone has the same content");
+
+        this.b.setData("new".getBytes(UTF_8));
+        assertFalse(this.b.isDerivedCurrent("HASH"), "New data makes derived values stale");
+        assertTrue(clone.isDerivedCurrent("HASH"), "Clone must not see changes to the original");
+
+        this.b.markDerived("HASH");
+        assertTrue(this.b.isDerivedCurrent("HASH"));
+        this.b.data()[0] = 'N';
+        this.b.markContentChanged();
+        assertFalse(this.b.isDerivedCurrent("HASH"), "In place changes make derived values stale once marked");
+    }
+
     @Test
     void testClone() throws IOException {
         try {
@@ -0,0 +1,68 @@
+package emissary.core;
+
+import emissary.util.ClassLookupCache;
+import emissary.util.ConstructorLookupCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Factory#create(String, Object...)}, which calls a cached constructor handle, with the reflective path
+ * it replaced, which matched the arguments in {@link ConstructorLookupCache} and called
+ * {@link Constructor#newInstance(Object...)} for every object. The arguments are those DataObjectFactory passes for an
+ * extracted child.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args=FactoryBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FactoryBenchmark {
+
+    private static final String CLASS_NAME = BaseDataObject.class.getName();
+
+    private final byte[] data = "The quick brown fox jumped over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public Object createHandle() {
+        return Factory.create(CLASS_NAME, data, "child-1", "UNKNOWN", "UNKNOWN");
+    }
+
+    @Benchmark
+    public Object createReflection() throws Exception {
+        // The lookup and call made by every Factory.create before constructor handles were cached
+        final Object[] args = {data, "child-1", "UNKNOWN", "UNKNOWN"};
+        final Class<?> clazz = ClassLookupCache.lookup(CLASS_NAME);
+        final Class<?>[] types = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            types[i] = args[i].getClass();
+        }
+        final Constructor<?> constructor = ConstructorLookupCache.lookup(clazz, types);
+        return constructor.newInstance(args);
+    }
+
+    @Benchmark
+    public Object createNoArgsHandle() {
+        return Factory.create(CLASS_NAME);
+    }
+
+    @Benchmark
+    public Object createNoArgsReflection() throws Exception {
+        return ClassLookupCache.lookup(CLASS_NAME).getDeclaredConstructor().newInstance();
+    }
+}
@@ -6,7 +6,11 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -172,6 +176,36 @@ class FactoryTest extends UnitTest {
         assertThrows(Error.class, () -> Factory.create("emissary.core.FactoryTest$DemoClassThatThrowsThrowableFromConstructor"));
     }
 
+    @Test
+    void testPrimitiveConstructorArg() {
+        Object o = Factory.create("java.lang.StringBuilder", 64);
+        assertInstanceOf(StringBuilder.class, o, "Type of object");
+        assertEquals(64, ((StringBuilder) o).capacity(), "Boxed argument passed to primitive parameter");
+    }
+
+    @Test
+    void testRepeatedCreateFromManyThreads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final int value = i;
+                results.add(pool.submit(() -> value % 2 == 0 ? Factory.create("java.lang.Integer", value)
+                        : Factory.create("emissary.core.FactoryTest$SelfBinder", "http://host.domain.com:8001/Binder" + value)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                Object o = results.get(i).get();
+                if (i % 2 == 0) {
+                    assertEquals(i, o, "Created with its own arguments");
+                } else {
+                    assertEquals("http://host.domain.com:8001/Binder" + i, ((SelfBinder) o).getKey(), "Created with its own arguments");
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Test
     void testFactoryBindingInstanceWithoutVarargs() throws NamespaceException {
         String key = "http://host.domain.com:8001/FactoryBindingInstance";
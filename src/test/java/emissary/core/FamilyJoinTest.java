@@ -0,0 +1,113 @@
+package emissary.core;
+
+import emissary.directory.DirectoryEntry;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FamilyJoinTest extends UnitTest {
+
+    private static IBaseDataObject payload(final int i) {
+        return DataObjectFactory.getInstance(new byte[0], "testFile" + Family.getSep(i), "UNKNOWN");
+    }
+
+    @Test
+    void testPartsComeBackInOrder() throws Exception {
+        final FamilyJoin join = new FamilyJoin();
+        final HDMobileAgent first = new HDMobileAgent();
+        final HDMobileAgent second = new HDMobileAgent();
+        final IBaseDataObject a = payload(1);
+        final IBaseDataObject b = payload(2);
+        final IBaseDataObject c = payload(3);
+        final IBaseDataObject sprout = payload(4);
+        final DirectoryEntry io = new DirectoryEntry("*.DROPOFF.IO.http://localhost:8001/DropOffPlace");
+        assertFalse(join.isForked());
+
+        join.fork(first, List.of(a));
+        join.fork(second, List.of(b, c));
+        assertTrue(join.isForked());
+
+        final Thread finisher = new Thread(() -> {
+            join.done(second, List.of(c, b, sprout), io);
+            join.done(first, List.of(a), null);
+        });
+        finisher.start();
+        assertEquals(List.of(a, c, b, sprout), join.await());
+        finisher.join();
+
+        assertSame(io, join.getDropOffEntry());
+        assertEquals(1, join.getDropOffIndex());
+        assertFalse(join.isForked());
+    }
+
+    @Test
+    void testInterruptedWaitsForHelpers() throws Exception {
+        final FamilyJoin join = new FamilyJoin();
+        final HDMobileAgent helper = new HDMobileAgent();
+        final IBaseDataObject a = payload(1);
+        final IBaseDataObject sprout = payload(2);
+        join.fork(helper, List.of(a));
+
+        final Thread finisher = new Thread(() -> {
+            pause(200);
+            join.done(helper, List.of(a, sprout), null);
+        });
+        finisher.start();
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals(List.of(a, sprout), join.await(), "The helper's result is used, not the batch it was given");
+            assertTrue(Thread.interrupted(), "Interrupt is passed on");
+        } finally {
+            finisher.join();
+            helper.killAgent();
+        }
+    }
+
+    @Test
+    void testGivesUpAfterTimeout() throws Exception {
+        final FamilyJoin join = new FamilyJoin();
+        final HDMobileAgent slow = new HDMobileAgent();
+        final HDMobileAgent quick = new HDMobileAgent();
+        final IBaseDataObject a = payload(1);
+        final IBaseDataObject b = payload(2);
+        final DirectoryEntry io = new DirectoryEntry("*.DROPOFF.IO.http://localhost:8001/DropOffPlace");
+        join.fork(slow, List.of(a));
+        join.fork(quick, List.of(b));
+        try {
+            assertTrue(join.done(quick, List.of(b), null));
+
+            final long start = System.nanoTime();
+            assertEquals(List.of(b), join.await(200L), "The part still out is left behind");
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200L));
+            assertFalse(join.isForked());
+
+            assertFalse(join.done(slow, List.of(a), io), "The late helper finishes its part itself");
+            assertNull(join.getDropOffEntry());
+        } finally {
+            slow.killAgent();
+            quick.killAgent();
+        }
+    }
+
+    @Test
+    void testLostHelper() {
+        final FamilyJoin join = new FamilyJoin();
+        final HDMobileAgent helper = new HDMobileAgent();
+        final IBaseDataObject a = payload(1);
+        join.fork(helper, List.of(a));
+        helper.killAgent();
+
+        assertEquals(List.of(a), join.await());
+        assertNull(join.getDropOffEntry());
+        assertEquals(-1, join.getDropOffIndex());
+    }
+}
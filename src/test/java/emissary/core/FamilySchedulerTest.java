@@ -0,0 +1,154 @@
+package emissary.core;
+
+import emissary.directory.DirectoryEntry;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FamilySchedulerTest extends UnitTest {
+
+    private static final String[] PLACES = {"UNKNOWN.UNIXFILE.ID.http://localhost:8001/UnixFilePlace",
+            "UNKNOWN.TEXTMAGIC.ID.http://localhost:8001/TextMagicPlace", "TEXT.TEXTSPLIT.TRANSFORM.http://localhost:8001/TextSplitPlace"};
+
+    private static final String[] FORMS = {"UNKNOWN", "TEXT", "HTML", "ZIP"};
+
+    private static IBaseDataObject payload(final String name, final String place, final String... forms) {
+        final IBaseDataObject d = DataObjectFactory.getInstance(new byte[0], name);
+        d.popCurrentForm();
+        for (int i = forms.length - 1; i >= 0; i--) {
+            d.pushCurrentForm(forms[i]);
+        }
+        if (place != null) {
+            d.appendTransformHistory(place);
+        }
+        return d;
+    }
+
+    @Test
+    void testRiders() {
+        final IBaseDataObject a = payload("a", PLACES[0], "TEXT");
+        final IBaseDataObject b = payload("b", PLACES[1], "TEXT");
+        final IBaseDataObject c = payload("c", PLACES[0], "HTML", "TEXT");
+        final IBaseDataObject d = payload("d", PLACES[0], "ZIP");
+        final IBaseDataObject e = payload("e", null, "TEXT");
+        final List<IBaseDataObject> list = new ArrayList<>(List.of(a, b, c, d, e));
+        final FamilyScheduler family = new FamilyScheduler(list);
+
+        assertEquals(List.of(c), family.riders(a, "TEXT"));
+        assertEquals(List.of(), family.riders(e, "TEXT"));
+
+        // Sprouts are picked up from the end of the list
+        final IBaseDataObject f = payload("f", PLACES[0], "TEXT");
+        list.add(f);
+        assertEquals(List.of(c, f), family.riders(a, "TEXT"));
+
+        // Changes are only seen once reported
+        c.popCurrentForm();
+        c.popCurrentForm();
+        c.pushCurrentForm("ZIP");
+        assertEquals(List.of(c, f), family.riders(a, "TEXT"));
+        family.changed(c);
+        assertEquals(List.of(f), family.riders(a, "TEXT"));
+        assertEquals(List.of(c), family.riders(d, "ZIP"));
+
+        // Results follow the list order
+        Collections.swap(list, 0, 5);
+        family.swapped(0, 5);
+        assertEquals(List.of(a), family.riders(f, "TEXT"));
+        Collections.swap(list, 2, 3);
+        assertEquals(List.of(d, c), family.riders(a, "ZIP"));
+    }
+
+    @Test
+    void testSettled() {
+        final IBaseDataObject a = payload("a", PLACES[0], "TEXT");
+        final IBaseDataObject b = payload("b", PLACES[0], "DONE");
+        final List<IBaseDataObject> list = new ArrayList<>(List.of(a, b));
+        final FamilyScheduler family = new FamilyScheduler(list);
+        final DirectoryEntry io = new DirectoryEntry("*.DROPOFF.IO.http://localhost:8001/DropOffPlace");
+
+        assertFalse(family.isSettled(b));
+        family.settle(b, null);
+        family.settle(a, io);
+        assertTrue(family.isSettled(a));
+        assertTrue(family.isSettled(b));
+        assertSame(io, family.settledKey(a));
+        assertNull(family.settledKey(b));
+
+        family.changed(a);
+        assertFalse(family.isSettled(a));
+        family.changedAll();
+        assertFalse(family.isSettled(b));
+    }
+
+    @Test
+    void testDuplicatePayloads() {
+        final IBaseDataObject a = payload("a", PLACES[0], "TEXT");
+        final IBaseDataObject b = payload("b", PLACES[0], "TEXT");
+        final List<IBaseDataObject> list = new ArrayList<>(List.of(a, b));
+        final FamilyScheduler family = new FamilyScheduler(list);
+        assertEquals(List.of(b), family.riders(a, "TEXT"));
+
+        list.add(b);
+        assertEquals(List.of(b, b), family.riders(a, "TEXT"));
+        family.settle(b, null);
+        assertFalse(family.isSettled(b));
+    }
+
+    /**
+     * The riders must be the payloads the agent would find by checking each one in turn
+     */
+    @Test
+    void testSameAsCheckingEveryPayload() {
+        final Random random = new Random(42);
+        final List<IBaseDataObject> list = new ArrayList<>();
+        final FamilyScheduler family = new FamilyScheduler(list);
+        for (int round = 0; round < 500; round++) {
+            if (list.size() < 40 && random.nextInt(3) == 0) {
+                list.add(payload("p" + round, random.nextInt(4) == 0 ? null : PLACES[random.nextInt(PLACES.length)],
+                        FORMS[random.nextInt(FORMS.length)], FORMS[random.nextInt(FORMS.length)]));
+            }
+            if (list.isEmpty()) {
+                continue;
+            }
+            final IBaseDataObject changed = list.get(random.nextInt(list.size()));
+            changed.pushCurrentForm(FORMS[random.nextInt(FORMS.length)]);
+            if (random.nextBoolean()) {
+                changed.appendTransformHistory(PLACES[random.nextInt(PLACES.length)]);
+            }
+            family.changed(changed);
+            final int j = random.nextInt(list.size());
+            Collections.swap(list, 0, j);
+            family.swapped(0, j);
+
+            final IBaseDataObject primary = list.get(0);
+            final String form = primary.currentForm();
+            assertEquals(checkEveryPayload(list, primary, form), family.riders(primary, form));
+        }
+    }
+
+    private static List<IBaseDataObject> checkEveryPayload(final List<IBaseDataObject> list, final IBaseDataObject primary, final String form) {
+        final DirectoryEntry primaryLast = primary.getLastPlaceVisited();
+        final List<IBaseDataObject> result = new ArrayList<>();
+        for (final IBaseDataObject slug : list) {
+            final DirectoryEntry slugLast = slug.getLastPlaceVisited();
+            if (slug != primary && slug.searchCurrentForm(form) > -1
+                    && ((primaryLast == null && slugLast == null)
+                            || (primaryLast != null && slugLast != null && slugLast.getKey().equals(primaryLast.getKey())))) {
+                result.add(slug);
+            }
+        }
+        return result;
+    }
+}
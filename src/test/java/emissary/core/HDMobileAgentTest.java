@@ -1,8 +1,11 @@
 package emissary.core;
 
 import emissary.place.ServiceProviderPlace;
+import emissary.pool.AgentPool;
+import emissary.pool.MobileAgentFactory;
 import emissary.test.core.junit5.UnitTest;
 
+import jakarta.annotation.Nullable;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -11,6 +14,10 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  *
@@ -38,6 +45,106 @@ class HDMobileAgentTest extends UnitTest {
         assertEquals(2, ret.size());
     }
 
+    @Test
+    void testForkSprouts() throws Exception {
+        final SimplePlace place = new SimplePlace("emissary.core.FakePlace.cfg");
+        final List<IBaseDataObject> sprouts = new ArrayList<>();
+        for (int i = 1; i <= 9; i++) {
+            sprouts.add(DataObjectFactory.getInstance(new byte[] {}, "testFile" + Family.getSep(i), "someFormFileType"));
+        }
+        final HDMobileAgent ma = new HDMobileAgent();
+        final FamilyJoin forks = new FamilyJoin();
+
+        // Nothing is split without a pool
+        assertSame(sprouts, ma.fork(forks, place, sprouts));
+
+        final MobileAgentFactory factory = new MobileAgentFactory(HDMobileAgent.class.getName());
+        factory.setUseNamespace(false);
+        final AgentPool pool = new AgentPool(factory, 2);
+        try {
+            // Nothing is split below the threshold
+            assertSame(sprouts, ma.fork(forks, place, sprouts));
+
+            ma.setSplitThreshold(9);
+            ma.setSplitFanout(2);
+            assertEquals(sprouts.subList(0, 3), ma.fork(forks, place, sprouts));
+            assertEquals(sprouts.subList(3, 9), forks.await());
+        } finally {
+            pool.kill();
+            place.shutDown();
+        }
+    }
+
+    @Test
+    void testTimeVisits() throws Exception {
+        final GrowingPlace place = new GrowingPlace("emissary.core.FakePlace.cfg");
+        try {
+            final IBaseDataObject ibdo = DataObjectFactory.getInstance(new byte[] {1, 2, 3}, "testFile", "someFormFileType");
+            ibdo.appendTransformHistory(place.getDirectoryEntry().getFullKey());
+            final HDMobileAgent ma = new HDMobileAgent();
+
+            // Nothing is recorded unless visits are timed
+            ma.atPlaceHD(place, Collections.singletonList(ibdo));
+            assertNull(ibdo.getTransformHistory().lastVisit().getTiming());
+
+            ma.setTimeVisits(true);
+            ma.atPlaceHD(place, Collections.singletonList(ibdo));
+            final TransformHistory.Timing timing = ibdo.getTransformHistory().lastVisit().getTiming();
+            assertNotNull(timing);
+            assertEquals(4L, timing.getBytesIn());
+            assertEquals(5L, timing.getBytesOut());
+            assertEquals(1, timing.getChildren());
+            assertTrue(timing.getDurationNanos() > 0L);
+        } finally {
+            place.shutDown();
+        }
+    }
+
+    @Test
+    void testTimeVisitsWhenPlaceAddsHistory() throws Exception {
+        final GrowingPlace place = new GrowingPlace("emissary.core.FakePlace.cfg");
+        place.nextKey = "UNKNOWN.DROP_OFF.IO.http://localhost:8001/DropOffPlace";
+        try {
+            final IBaseDataObject ibdo = DataObjectFactory.getInstance(new byte[] {1, 2, 3}, "testFile", "someFormFileType");
+            ibdo.appendTransformHistory(place.getDirectoryEntry().getFullKey());
+            final HDMobileAgent ma = new HDMobileAgent();
+            ma.setTimeVisits(true);
+            ma.atPlaceHD(place, Collections.singletonList(ibdo));
+
+            // The timing stays with the visited place, not the entry the place added
+            final List<TransformHistory.History> history = ibdo.getTransformHistory().getHistory();
+            assertEquals(2, history.size());
+            assertNotNull(history.get(0).getTiming());
+            assertEquals(3L, history.get(0).getTiming().getBytesIn());
+            assertNull(history.get(1).getTiming());
+        } finally {
+            place.shutDown();
+        }
+    }
+
+    static final class GrowingPlace extends ServiceProviderPlace {
+
+        @Nullable
+        String nextKey = null;
+
+        public GrowingPlace(String configInfo) throws IOException {
+            super(configInfo, "GrowingPlace.www.example.com:8001");
+        }
+
+        @Override
+        public List<IBaseDataObject> agentProcessHeavyDuty(List<IBaseDataObject> payloadListArg) {
+            for (final IBaseDataObject p : payloadListArg) {
+                final byte[] data = new byte[p.dataLength() + 1];
+                p.setData(data);
+                p.setNumChildren(p.getNumChildren() + 1);
+                if (nextKey != null) {
+                    p.appendTransformHistory(nextKey);
+                }
+            }
+            return Collections.emptyList();
+        }
+    }
+
     static final class SimplePlace extends ServiceProviderPlace {
 
         private List<IBaseDataObject> children = Collections.emptyList();
@@ -0,0 +1,135 @@
+package emissary.core;
+
+import emissary.core.channels.InMemoryChannelFactory;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IBaseDataObjectBinaryCodecTest extends UnitTest {
+
+    private static final DiffCheckConfiguration DIFF_OPTIONS =
+            DiffCheckConfiguration.configure().enableData().enableInternalId().enableTimestamp().enableTransformHistory()
+                    .enableDetailedParameterDiff().build();
+
+    private static byte[] encode(final List<IBaseDataObject> family) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IBaseDataObjectBinaryCodec.encode(family, out);
+        return out.toByteArray();
+    }
+
+    private static void assertNoDifferences(final List<IBaseDataObject> expected, final List<IBaseDataObject> actual) {
+        assertEquals(expected.size(), actual.size(), "Family size");
+        for (int i = 0; i < expected.size(); i++) {
+            final List<String> differences = new ArrayList<>();
+            IBaseDataObjectDiffHelper.diff(expected.get(i), actual.get(i), differences, DIFF_OPTIONS);
+            assertEquals(Collections.emptyList(), differences, "Member " + i);
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        final IBaseDataObject parent = new BaseDataObject("parent data".getBytes(StandardCharsets.UTF_8), "/dir/parent", "FORM-A");
+        parent.pushCurrentForm("FORM-B");
+        parent.setFileType("FTYPE");
+        parent.putParameter("STRING", Arrays.asList("one", "two"));
+        parent.putParameter("LONG", 12L);
+        parent.putParameter("INT", 7);
+        parent.putParameter("DOUBLE", 1.5);
+        parent.putParameter("BOOL", true);
+        parent.addAlternateView("VIEW", "a view".getBytes(StandardCharsets.UTF_8));
+        parent.setHeader("head".getBytes(StandardCharsets.UTF_8));
+        parent.setFooter("foot".getBytes(StandardCharsets.UTF_8));
+        parent.setHeaderEncoding("UTF-8");
+        parent.setFontEncoding("ascii");
+        parent.setClassification("UNCLASSIFIED");
+        parent.setBroken("it broke");
+        parent.addProcessingError("first");
+        parent.addProcessingError("second");
+        parent.setNumChildren(1);
+        parent.setPriority(3);
+        parent.setOutputable(false);
+        parent.setId("id");
+        parent.setWorkBundleId("bundle");
+        parent.setTransactionId("tx");
+        parent.setCreationTimestamp(Instant.ofEpochSecond(1234567890L, 987654321));
+        parent.appendTransformHistory("UNKNOWN.PLACE.ID.http://localhost:8001/Place");
+        parent.appendTransformHistory("UNKNOWN.COORD.ID.http://localhost:8001/Coord", true);
+        parent.getTransformHistory().lastVisit().setTiming(new TransformHistory.Timing(100L, 11L, 12L, 1));
+        parent.addExtractedRecord(new BaseDataObject("record".getBytes(StandardCharsets.UTF_8), "/dir/parent-rec", "REC"));
+
+        final IBaseDataObject child = new BaseDataObject(new byte[0], "/dir/parent-att-1", "CHILD", parent);
+        child.setChannelFactory(InMemoryChannelFactory.create("child data".getBytes(StandardCharsets.UTF_8)));
+        child.setBirthOrder(1);
+        child.setNumSiblings(1);
+
+        final IBaseDataObject empty = new BaseDataObject();
+        empty.clearData();
+
+        final List<IBaseDataObject> family = Arrays.asList(parent, child, empty);
+        final ByteBuffer encoded = ByteBuffer.wrap(encode(family));
+        final List<IBaseDataObject> decoded = IBaseDataObjectBinaryCodec.decode(encoded);
+
+        assertEquals(0, encoded.remaining(), "Whole family read");
+        assertNoDifferences(family, decoded);
+        assertEquals(Arrays.asList("FORM-B", "FORM-A"), decoded.get(0).getAllCurrentForms());
+        assertEquals("FTYPE", decoded.get(0).getFileType());
+        assertEquals(Arrays.asList(12L), decoded.get(0).getParameter("LONG"));
+        assertEquals(Arrays.asList(true), decoded.get(0).getParameter("BOOL"));
+        assertEquals("it broke", decoded.get(0).getBroken());
+        assertEquals("first\nsecond\n", decoded.get(0).getProcessingError());
+        assertEquals(Arrays.asList("UNKNOWN.PLACE.ID.http://localhost:8001/Place", "UNKNOWN.COORD.ID.http://localhost:8001/Coord"),
+                decoded.get(0).transformHistory(true));
+        final TransformHistory.Timing timing = decoded.get(0).getTransformHistory().lastVisit().getTiming();
+        assertNotNull(timing, "Timing kept");
+        assertEquals(100L, timing.getDurationNanos());
+        assertEquals(1, timing.getChildren());
+        assertEquals(1, decoded.get(0).getExtractedRecordCount());
+        assertArrayEquals("record".getBytes(StandardCharsets.UTF_8), decoded.get(0).getExtractedRecords().get(0).data());
+
+        assertSame(decoded.get(0), decoded.get(1).getTld(), "Top level document restored");
+        assertNull(decoded.get(0).getTld());
+        assertNull(decoded.get(2).data(), "No data");
+    }
+
+    @Test
+    void testChannelContentIsNotCopied() throws IOException {
+        final IBaseDataObject d = new BaseDataObject();
+        d.setFilename("channel");
+        d.setChannelFactory(InMemoryChannelFactory.create("channel data".getBytes(StandardCharsets.UTF_8)));
+        final byte[] bytes = encode(Collections.singletonList(d));
+
+        final IBaseDataObject decoded = IBaseDataObjectBinaryCodec.decode(ByteBuffer.wrap(bytes)).get(0);
+        assertEquals(12L, decoded.getChannelSize());
+
+        // The decoded channel reads the encoded bytes in place
+        final int at = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("channel data");
+        bytes[at] = 'C';
+        assertEquals("Channel data", new String(decoded.data(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCorrupt() throws IOException {
+        final byte[] bytes = encode(Collections.singletonList(new BaseDataObject("data".getBytes(StandardCharsets.UTF_8), "name")));
+
+        assertThrows(IOException.class, () -> IBaseDataObjectBinaryCodec.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+        bytes[0]++;
+        assertThrows(IOException.class, () -> IBaseDataObjectBinaryCodec.decode(ByteBuffer.wrap(bytes)));
+    }
+}
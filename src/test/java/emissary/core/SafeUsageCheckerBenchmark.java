@@ -0,0 +1,82 @@
+package emissary.core;
+
+import emissary.config.ServiceConfigGuide;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what {@link SafeUsageChecker} costs a place that reads the data of a payload, for each way of hashing the
+ * array: SHA-256, the fast hash of the whole array, and the fast hash of sampled blocks. The check covers taking the
+ * array, recording its snapshot and checking it when the place is done, which hashes the array twice. A place that only
+ * reads can use {@link IBaseDataObject#readOnlyDataBuffer()} instead, which is measured for comparison and does not
+ * depend on the hash.
+ * <p>
+ * Run from the project directory with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=SafeUsageCheckerBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-Demissary.config.dir=src/main/config"})
+@State(Scope.Benchmark)
+public class SafeUsageCheckerBenchmark {
+
+    /** Array sizes from a small attachment to a large archive */
+    @Param({"65536", "1048576", "67108864"})
+    public int size;
+
+    /** SHA256 and FAST hash the whole array, SAMPLED hashes the default blocks of arrays larger than them */
+    @Param({"SHA256", "FAST", "SAMPLED"})
+    public String hash;
+
+    private IBaseDataObject payload;
+    private SafeUsageChecker checker;
+
+    @Setup
+    public void setup() {
+        final byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        payload = new BaseDataObject(data, "benchmark");
+
+        final ServiceConfigGuide config = new ServiceConfigGuide();
+        config.addEntry(SafeUsageChecker.ENABLED_KEY, Boolean.toString(true));
+        if ("SAMPLED".equals(hash)) {
+            config.addEntry(SafeUsageChecker.HASH_KEY, SafeUsageChecker.Hash.FAST.name());
+            config.addEntry(SafeUsageChecker.SAMPLE_THRESHOLD_KEY, "1");
+        } else {
+            config.addEntry(SafeUsageChecker.HASH_KEY, hash);
+        }
+        checker = new SafeUsageChecker(config);
+    }
+
+    @Benchmark
+    public String snapshot() {
+        return checker.snapshot(payload.data());
+    }
+
+    @Benchmark
+    public void checkedData() {
+        checker.recordSnapshot(payload.data());
+        checker.checkForUnsafeDataChanges();
+    }
+
+    @Benchmark
+    public ByteBuffer readOnlyDataBuffer() {
+        return payload.readOnlyDataBuffer();
+    }
+}
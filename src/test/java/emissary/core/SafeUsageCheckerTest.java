@@ -4,13 +4,16 @@ import emissary.config.ServiceConfigGuide;
 import emissary.test.core.junit5.LogbackTester;
 import emissary.test.core.junit5.UnitTest;
 
+import ch.qos.logback.classic.Level;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SafeUsageCheckerTest extends UnitTest {
@@ -52,4 +55,62 @@ class SafeUsageCheckerTest extends UnitTest {
             logbackTester.checkLogList(Collections.emptyList());
         }
     }
+
+    @Test
+    void testFastHash() throws IOException {
+        final ServiceConfigGuide scg = new ServiceConfigGuide();
+
+        scg.addEntry(SafeUsageChecker.ENABLED_KEY, Boolean.toString(true));
+        scg.addEntry(SafeUsageChecker.HASH_KEY, "fast");
+
+        final SafeUsageChecker suc = new SafeUsageChecker(scg);
+        assertEquals(SafeUsageChecker.Hash.FAST, suc.hash);
+
+        final byte[] bytes = new byte[100];
+        assertEquals(suc.snapshot(bytes), suc.snapshot(new byte[100]), "Same contents should hash the same");
+        assertNotEquals(suc.snapshot(bytes), suc.snapshot(new byte[101]), "Length should change the hash");
+
+        suc.resetCacheThenRecordSnapshot(bytes);
+        try (LogbackTester logbackTester = new LogbackTester(SafeUsageChecker.class.getName())) {
+            suc.checkForUnsafeDataChanges();
+            logbackTester.checkLogList(Collections.emptyList());
+        }
+
+        suc.recordSnapshot(bytes);
+        bytes[50] = 1;
+        try (LogbackTester logbackTester = new LogbackTester(SafeUsageChecker.class.getName())) {
+            suc.checkForUnsafeDataChanges();
+            logbackTester.checkLogList(Collections.singletonList(
+                    new LogbackTester.SimplifiedLogEvent(Level.WARN, SafeUsageChecker.UNSAFE_MODIFICATION_DETECTED, null)));
+        }
+    }
+
+    @Test
+    void testSampling() {
+        final ServiceConfigGuide scg = new ServiceConfigGuide();
+
+        scg.addEntry(SafeUsageChecker.ENABLED_KEY, Boolean.toString(true));
+        scg.addEntry(SafeUsageChecker.HASH_KEY, "FAST");
+        scg.addEntry(SafeUsageChecker.SAMPLE_THRESHOLD_KEY, "1000");
+        scg.addEntry(SafeUsageChecker.SAMPLE_BLOCKS_KEY, "4");
+        scg.addEntry(SafeUsageChecker.SAMPLE_BLOCK_SIZE_KEY, "10");
+
+        final SafeUsageChecker suc = new SafeUsageChecker(scg);
+        final byte[] bytes = new byte[10000];
+        final String before = suc.snapshot(bytes);
+
+        // Blocks start at 0, 3330, 6660 and 9990
+        bytes[5000] = 1;
+        assertEquals(before, suc.snapshot(bytes), "Change between the sampled blocks is not seen");
+        bytes[0] = 1;
+        assertNotEquals(before, suc.snapshot(bytes), "Change in the first block is seen");
+        bytes[0] = 0;
+        bytes[9999] = 1;
+        assertNotEquals(before, suc.snapshot(bytes), "Change in the last block is seen");
+
+        final byte[] small = new byte[1000];
+        final String smallBefore = suc.snapshot(small);
+        small[500] = 1;
+        assertNotEquals(smallBefore, suc.snapshot(small), "Arrays under the threshold are hashed in full");
+    }
 }
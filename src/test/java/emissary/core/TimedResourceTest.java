@@ -52,6 +52,31 @@ class TimedResourceTest extends UnitTest {
         }
     }
 
+    @TestAttempts
+    void testInterruptThread() throws InterruptedException {
+        TestMobileAgent tma = new TestMobileAgent();
+        CountDownLatch worker = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                worker.await();
+            } catch (InterruptedException ex) {
+                worker.countDown();
+            }
+        });
+        thread.start();
+        // timeout almost immediately, interrupting the thread running the place instead of the agent
+        try (TimedResource tr = new TimedResource(tma, tp, 1, new Timer(), thread)) {
+            Thread.sleep(100);
+            assertFalse(tr.checkState(System.currentTimeMillis()));
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+            assertTrue(tma.latch.getCount() > 0);
+            assertFalse(tma.interrupted);
+        } finally {
+            tma.latch.countDown();
+        }
+    }
+
     @TestAttempts
     void testDontInterruptAgent() {
         TestMobileAgent tma = new TestMobileAgent();
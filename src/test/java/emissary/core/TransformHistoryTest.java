@@ -236,4 +236,56 @@ class TransformHistoryTest extends UnitTest {
 
         assertEquals("UNKNOWN.FILE_PICK_UP.INPUT", th.getHistory().get(0).getKey(true));
     }
+
+    @Test
+    void testTiming() {
+        String key1 = "UNKNOWN.FILE_PICK_UP.INPUT.http://localhost:8001/FilePickUpPlace$5050";
+        String key2 = "UNKNOWN.UNIXFILE.ID.http://localhost:8001/UnixFilePlace$2050";
+        String key3 = "KNOWN.COOL_STUFF.TRANSFORM.http://localhost:8001/CoolStuffPlace$5050";
+        String key4 = "KNOWN.ONE_THING.ANALYZE.http://localhost:8001/DoOneThingPlace$5050";
+
+        TransformHistory th = new TransformHistory();
+        th.set(List.of(key1, key2, key3, key4));
+        assertEquals(0L, th.getTotalNanos());
+        assertTrue(th.slowest(3).isEmpty());
+
+        th.getHistory().get(1).setTiming(new TransformHistory.Timing(200L, 10L, 10L, 0));
+        th.getHistory().get(2).setTiming(new TransformHistory.Timing(500L, 10L, 40L, 2));
+        th.getHistory().get(3).setTiming(new TransformHistory.Timing(300L, 40L, 40L, 0));
+        assertEquals(1000L, th.getTotalNanos());
+
+        List<TransformHistory.History> slowest = th.slowest(2);
+        assertEquals(2, slowest.size());
+        assertEquals(key3, slowest.get(0).getKey());
+        assertEquals(key4, slowest.get(1).getKey());
+        assertEquals(40L, slowest.get(0).getTiming().getBytesOut());
+        assertEquals(2, slowest.get(0).getTiming().getChildren());
+
+        // copies share the visits
+        assertEquals(1000L, new TransformHistory(th).getTotalNanos());
+        assertNull(th.getHistory().get(0).getTiming());
+    }
+
+    @Test
+    void testInheritedTiming() {
+        String key1 = "UNKNOWN.FILE_PICK_UP.INPUT.http://localhost:8001/FilePickUpPlace$5050";
+        String key2 = "UNKNOWN.UNIXFILE.ID.http://localhost:8001/UnixFilePlace$2050";
+
+        TransformHistory parent = new TransformHistory();
+        parent.set(List.of(key1, key2));
+        parent.getHistory().get(0).setTiming(new TransformHistory.Timing(200L, 10L, 10L, 0));
+        parent.append("UNKNOWN.COORD.ID.http://localhost:8001/CoordPlace$2050", true);
+
+        TransformHistory child = TransformHistory.inheritedFrom(parent);
+        // timed while the child is being sprouted
+        parent.getHistory().get(1).setTiming(new TransformHistory.Timing(500L, 10L, 40L, 1));
+
+        assertEquals(700L, parent.getTotalNanos());
+        assertEquals(List.of(key1, key2), child.get());
+        assertEquals(parent.getHistory().get(1).getCoordinated(), child.getHistory().get(1).getCoordinated());
+        // the parent's time is not the child's
+        assertEquals(0L, child.getTotalNanos());
+        assertTrue(child.slowest(2).isEmpty());
+        assertNull(child.getHistory().get(0).getTiming());
+    }
 }
@@ -0,0 +1,90 @@
+package emissary.core.channels;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MemoryMappedChannelFactoryTest extends UnitTest {
+    private static final String TEST_STRING = "test data";
+    private static final byte[] TEST_BYTES = TEST_STRING.getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path tempDir;
+
+    private SeekableByteChannelFactory create(final byte[] bytes) throws IOException {
+        final Path path = tempDir.resolve("testBytes");
+        Files.write(path, bytes);
+        return MemoryMappedChannelFactory.create(path);
+    }
+
+    @Test
+    void testNormalPath() throws IOException {
+        final SeekableByteChannelFactory sbcf = create(TEST_BYTES);
+        final ByteBuffer buff = ByteBuffer.allocate(TEST_STRING.length());
+        sbcf.create().read(buff);
+        assertEquals(TEST_STRING, new String(buff.array(), UTF_8));
+        ChannelTestHelper.checkByteArrayAgainstSbc(TEST_BYTES, sbcf);
+    }
+
+    @Test
+    void testCanCreateMultipleIndependentChannels() throws IOException {
+        final SeekableByteChannelFactory sbcf = create(TEST_BYTES);
+        final SeekableByteChannel sbc = sbcf.create().position(5);
+        final SeekableByteChannel sbc2 = sbcf.create();
+
+        final ByteBuffer buff = ByteBuffer.allocate(4);
+        sbc.read(buff);
+        assertEquals("data", new String(buff.array(), UTF_8));
+        buff.clear();
+        sbc2.read(buff);
+        assertEquals("test", new String(buff.array(), UTF_8));
+    }
+
+    @Test
+    void testReadableAfterFileDeleted() throws IOException {
+        final SeekableByteChannelFactory sbcf = create(TEST_BYTES);
+        Files.delete(tempDir.resolve("testBytes"));
+        ChannelTestHelper.checkByteArrayAgainstSbc(TEST_BYTES, sbcf);
+    }
+
+    @Test
+    void testImmutability() throws IOException {
+        final SeekableByteChannel sbc = create(TEST_BYTES).create();
+        final ByteBuffer buff = ByteBuffer.wrap("New data".getBytes(UTF_8));
+        assertThrows(NonWritableChannelException.class, () -> sbc.write(buff), "Can't write to byte channel as it's immutable");
+        assertThrows(NonWritableChannelException.class, () -> sbc.truncate(5L), "Can't truncate byte channel as it's immutable");
+    }
+
+    @Test
+    void testRegion() throws IOException {
+        final ByteBuffer mapped = ByteBuffer.wrap("head test data tail".getBytes(StandardCharsets.US_ASCII));
+        mapped.position(5).limit(14);
+        final SeekableByteChannelFactory sbcf = MemoryMappedChannelFactory.create(mapped);
+        ChannelTestHelper.checkByteArrayAgainstSbc(TEST_BYTES, sbcf);
+        assertEquals(5, mapped.position(), "Region position unchanged");
+        assertEquals(14, mapped.limit(), "Region limit unchanged");
+    }
+
+    @Test
+    void testCanCreateAndRetrieveEmptyFile() throws IOException {
+        assertEquals(0L, create(new byte[0]).create().size());
+    }
+
+    @Test
+    void testConstructors() {
+        assertThrows(NullPointerException.class, () -> MemoryMappedChannelFactory.create((Path) null), "Can't create a factory with nulls");
+    }
+}
@@ -0,0 +1,41 @@
+package emissary.core.channels;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadMemoryBudgetTest extends UnitTest {
+
+    @Test
+    void testReserveAndRelease() {
+        final PayloadMemoryBudget budget = new PayloadMemoryBudget(100);
+
+        assertTrue(budget.tryReserve(60));
+        assertFalse(budget.tryReserve(41), "Reservation beyond the limit should fail");
+        assertTrue(budget.tryReserve(40));
+        assertEquals(100, budget.getUsed());
+        assertEquals(0, budget.getAvailable());
+
+        budget.release(60);
+        assertEquals(40, budget.getUsed());
+        assertEquals(60, budget.getAvailable());
+    }
+
+    @Test
+    void testGlobalBudget() {
+        assertTrue(PayloadMemoryBudget.global().getLimit() > 0);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PayloadMemoryBudget(-1));
+        final PayloadMemoryBudget budget = new PayloadMemoryBudget(100);
+        assertThrows(IllegalArgumentException.class, () -> budget.tryReserve(-1));
+        assertThrows(IllegalArgumentException.class, () -> budget.release(-1));
+    }
+}
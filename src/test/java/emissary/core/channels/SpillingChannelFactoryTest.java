@@ -0,0 +1,112 @@
+package emissary.core.channels;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SpillingChannelFactoryTest extends UnitTest {
+    private static final byte[] TEST_BYTES = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes(US_ASCII);
+
+    @TempDir
+    Path spillDir;
+
+    private SeekableByteChannelFactory write(final int threshold, final PayloadMemoryBudget budget, final byte[]... parts) throws IOException {
+        final SpillingChannelFactory.Writer writer = SpillingChannelFactory.newWriter(threshold, budget, spillDir);
+        for (final byte[] part : parts) {
+            writer.write(part);
+        }
+        writer.close();
+        return writer.toChannelFactory();
+    }
+
+    private long spillFileCount() throws IOException {
+        try (Stream<Path> files = Files.list(spillDir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testContentFitsInMemory() throws IOException {
+        final PayloadMemoryBudget budget = new PayloadMemoryBudget(1024 * 1024);
+        final SeekableByteChannelFactory sbcf = write(1024 * 1024, budget, TEST_BYTES);
+
+        ChannelTestHelper.checkByteArrayAgainstSbc(TEST_BYTES, sbcf);
+        assertEquals(0, spillFileCount(), "Nothing should have been spilled");
+        assertEquals(8192, budget.getUsed(), "Memory buffer should be reserved from the budget");
+    }
+
+    @Test
+    void testContentSpillsBeyondThreshold() throws IOException {
+        final PayloadMemoryBudget budget = new PayloadMemoryBudget(1024 * 1024);
+        final SeekableByteChannelFactory sbcf = write(10, budget, TEST_BYTES);
+
+        ChannelTestHelper.checkByteArrayAgainstSbc(TEST_BYTES, sbcf);
+        assertEquals(1, spillFileCount(), "Remainder should have been spilled");
+        assertEquals(10, budget.getUsed(), "Only the threshold should be reserved");
+    }
+
+    @Test
+    void testContentSpillsWhenBudgetExhausted() throws IOException {
+        final PayloadMemoryBudget budget = new PayloadMemoryBudget(0);
+        final SeekableByteChannelFactory sbcf = write(1024, budget, TEST_BYTES);
+
+        ChannelTestHelper.checkByteArrayAgainstSbc(TEST_BYTES, sbcf);
+        assertEquals(1, spillFileCount(), "Everything should have been spilled");
+        assertEquals(0, budget.getUsed());
+    }
+
+    @Test
+    void testMultipleWritesAcrossThreshold() throws IOException {
+        final PayloadMemoryBudget budget = new PayloadMemoryBudget(1024 * 1024);
+        final SeekableByteChannelFactory sbcf =
+                write(16, budget, new byte[] {TEST_BYTES[0]}, "123456789abcdefghij".getBytes(US_ASCII),
+                        "klmnopqrstuvwxyz".getBytes(US_ASCII));
+
+        ChannelTestHelper.checkByteArrayAgainstSbc(TEST_BYTES, sbcf);
+    }
+
+    @Test
+    void testCreateFromStream() throws IOException {
+        final SeekableByteChannelFactory sbcf = SpillingChannelFactory.create(new ByteArrayInputStream(TEST_BYTES));
+
+        ChannelTestHelper.checkByteArrayAgainstSbc(TEST_BYTES, sbcf);
+    }
+
+    @Test
+    void testEmptyContent() throws IOException {
+        final SeekableByteChannelFactory sbcf = write(10, new PayloadMemoryBudget(10));
+
+        assertEquals(0L, sbcf.create().size());
+    }
+
+    @Test
+    void testImmutability() throws IOException {
+        final SeekableByteChannel sbc = write(10, new PayloadMemoryBudget(10), TEST_BYTES).create();
+        final ByteBuffer buff = ByteBuffer.wrap("New data".getBytes(US_ASCII));
+        assertThrows(NonWritableChannelException.class, () -> sbc.write(buff), "Can't write to byte channel as it's immutable");
+        assertThrows(NonWritableChannelException.class, () -> sbc.truncate(5L), "Can't truncate byte channel as it's immutable");
+    }
+
+    @Test
+    void testFactoryRequiresClosedWriter() throws IOException {
+        final SpillingChannelFactory.Writer writer = SpillingChannelFactory.newWriter(10, new PayloadMemoryBudget(10), spillDir);
+        writer.write(TEST_BYTES);
+        assertThrows(IllegalArgumentException.class, writer::toChannelFactory);
+        writer.close();
+        assertThrows(IllegalArgumentException.class, () -> writer.write(TEST_BYTES));
+    }
+}
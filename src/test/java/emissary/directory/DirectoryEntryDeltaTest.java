@@ -0,0 +1,82 @@
+package emissary.directory;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryEntryDeltaTest extends UnitTest {
+
+    private static final String key = "UNKNOWN.FOOPLACE.ID.http://host.domain.com:8001/ThePlace";
+    private static final String key2 = "UNKNOWN.FOOPLACE.TRANSFORM.http://host.domain.com:8001/ThePlace";
+    private static final String key3 = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://host2.domain.com:9001/DirectoryPlace";
+
+    @Test
+    void testRoundTrip() throws IOException {
+        List<DirectoryEntry> entries = Arrays.asList(new DirectoryEntry(key, "An ID place \u00e9", 50, 90), new DirectoryEntry(key2, null, 0, 100),
+                new DirectoryEntry(key3, "", 5000, 1));
+        DirectoryEntryDelta delta = new DirectoryEntryDelta(1234567890123L, 17L, 42L, false, entries,
+                Arrays.asList("UNKNOWN.GONE.ID.http://host.domain.com:8001/GonePlace", key3));
+
+        DirectoryEntryDelta copy = DirectoryEntryDelta.fromBytes(delta.toBytes());
+        assertEquals(1234567890123L, copy.getEpoch());
+        assertEquals(17L, copy.getFromSequence());
+        assertEquals(42L, copy.getToSequence());
+        assertFalse(copy.isFull());
+        assertEquals(3, copy.getEntries().size());
+        for (DirectoryEntry e : entries) {
+            DirectoryEntry c = copy.toEntryMap().collectAllMatching(e.getKey()).get(0);
+            assertEquals(e.getFullKey(), c.getFullKey());
+            assertEquals(e.getCost(), c.getCost());
+            assertEquals(e.getQuality(), c.getQuality());
+            assertEquals(e.getDescription(), c.getDescription());
+        }
+        assertNull(copy.toEntryMap().collectAllMatching(key2).get(0).getDescription());
+        assertEquals(2, copy.getRemovedKeys().size());
+        assertTrue(copy.getRemovedKeys().contains(key3));
+    }
+
+    @Test
+    void testEmptyFull() throws IOException {
+        DirectoryEntryDelta delta = new DirectoryEntryDelta(-1L, -1L, 0L, true, Collections.emptyList(), Collections.emptyList());
+        DirectoryEntryDelta copy = DirectoryEntryDelta.fromBytes(delta.toBytes());
+        assertTrue(copy.isFull());
+        assertTrue(copy.isEmpty());
+        assertEquals(-1L, copy.getEpoch());
+    }
+
+    @Test
+    void testSharedPrefixesAreCompact() {
+        List<DirectoryEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(new DirectoryEntry("UNKNOWN.PLACE" + i + ".ID.http://a-long-host-name.example.com:8001/SomePlace" + i, "desc", 50, 50));
+        }
+        DirectoryEntryDelta delta = new DirectoryEntryDelta(1L, -1L, 100L, true, entries, Collections.emptyList());
+        int keyBytes = 0;
+        for (DirectoryEntry e : entries) {
+            keyBytes += e.getKey().length();
+        }
+        assertTrue(delta.toBytes().length < keyBytes / 2, "Encoding should be much smaller than the keys alone");
+    }
+
+    @Test
+    void testRejectGarbage() {
+        assertThrows(IOException.class, () -> DirectoryEntryDelta.fromBytes(new byte[0]));
+        assertThrows(IOException.class, () -> DirectoryEntryDelta.fromBytes("<directory/>".getBytes()));
+
+        byte[] good = new DirectoryEntryDelta(1L, 1L, 2L, false, Collections.singletonList(new DirectoryEntry(key)), Collections.emptyList())
+                .toBytes();
+        assertThrows(IOException.class, () -> DirectoryEntryDelta.fromBytes(Arrays.copyOf(good, good.length - 3)));
+    }
+}
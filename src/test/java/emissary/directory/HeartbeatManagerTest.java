@@ -13,13 +13,22 @@ import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.NoHttpResponseException;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
 import org.apache.hc.core5.http.message.BasicHeader;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -85,4 +94,167 @@ class HeartbeatManagerTest extends UnitTest {
         assertTrue(response.getContentString().contains("Bad request -> status: 401 message: " + responseString));
     }
 
+
+    @Test
+    void testConcurrentRound() throws Exception {
+        SimulatedPeers mgr = new SimulatedPeers();
+        try {
+            List<String> peers = mgr.addPeers(300, 50L);
+            mgr.setThreads(32);
+
+            long start = System.nanoTime();
+            mgr.heartbeatAll().get(30, TimeUnit.SECONDS);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // One at a time would take 15 seconds
+            assertTrue(elapsed < 5000, "Heartbeats were not sent concurrently, took " + elapsed + "ms");
+            for (String peer : peers) {
+                assertTrue(mgr.isHealthy(peer));
+                assertEquals(1, mgr.getRoundTripHistogram(peer).getCount());
+                assertEquals(0, mgr.getFailureHistogram(peer).getCount());
+                assertTrue(mgr.getRoundTripHistogram(peer).getSnapshot().getMin() >= 50L);
+            }
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testHungPeersDoNotDelayOthers() throws Exception {
+        SimulatedPeers mgr = new SimulatedPeers();
+        try {
+            mgr.setFailThreshold(1);
+            mgr.setPermanentFailThreshold(2);
+            mgr.setDeadlineMillis(200L);
+            List<String> peers = mgr.addPeers(200, 5L);
+            List<String> hung = mgr.addPeers(10, SimulatedPeers.HANG);
+
+            long start = System.nanoTime();
+            mgr.heartbeatAll().get(30, TimeUnit.SECONDS);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsed < 3000, "Round waited for hung peers, took " + elapsed + "ms");
+
+            for (String peer : peers) {
+                assertTrue(mgr.isHealthy(peer));
+            }
+            for (String peer : hung) {
+                assertFalse(mgr.isHealthy(peer));
+                assertTrue(mgr.isAlive(peer));
+                assertEquals(1, mgr.getFailureHistogram(peer).getCount());
+                assertTrue(mgr.getFailureHistogram(peer).getSnapshot().getMin() >= 200L);
+            }
+
+            // Still waiting on the first heartbeat, nothing more is sent but the round counts as a failure
+            mgr.heartbeatAll().get(30, TimeUnit.SECONDS);
+            for (String peer : hung) {
+                assertEquals(1, mgr.sent(peer));
+                assertEquals(1, mgr.getFailureHistogram(peer).getCount());
+                assertFalse(mgr.isAlive(peer), "Skipped rounds count toward permanent failure");
+            }
+            for (String peer : peers) {
+                assertEquals(2, mgr.sent(peer));
+                assertEquals(2, mgr.getRoundTripHistogram(peer).getCount());
+            }
+        } finally {
+            mgr.release();
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testFailingPeers() throws Exception {
+        SimulatedPeers mgr = new SimulatedPeers();
+        try {
+            mgr.setFailThreshold(2);
+            List<String> peers = mgr.addPeers(20, SimulatedPeers.FAIL);
+
+            mgr.heartbeatAll().get(30, TimeUnit.SECONDS);
+            assertTrue(mgr.isHealthy(peers.get(0)), "One failure is below the threshold");
+            mgr.heartbeatAll().get(30, TimeUnit.SECONDS);
+            for (String peer : peers) {
+                assertFalse(mgr.isHealthy(peer));
+                assertTrue(mgr.isAlive(peer));
+                assertEquals(2, mgr.getFailureHistogram(peer).getCount());
+                assertEquals(0, mgr.getRoundTripHistogram(peer).getCount());
+            }
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    @Test
+    void testJitter() {
+        SimulatedPeers mgr = new SimulatedPeers();
+        try {
+            mgr.setJitter(0.5);
+            for (int i = 0; i < 1000; i++) {
+                long delay = mgr.jitter(1000L);
+                assertTrue(delay >= 500L && delay <= 1500L, "Delay out of range " + delay);
+            }
+            mgr.setJitter(0.0);
+            assertEquals(1000L, mgr.jitter(1000L));
+        } finally {
+            mgr.shutDown();
+        }
+    }
+
+    /**
+     * Stands in for a cluster of remote directories, each answering after its own latency
+     */
+    static class SimulatedPeers extends HeartbeatManager {
+        static final long HANG = -1L;
+        static final long FAIL = -2L;
+
+        private final Map<String, Long> latency = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> sent = new ConcurrentHashMap<>();
+        private final CountDownLatch hung = new CountDownLatch(1);
+        private int count = 0;
+
+        SimulatedPeers() {
+            // Rounds are started by the tests
+            super("EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:8001/DirectoryPlace", 3600, 3600);
+        }
+
+        List<String> addPeers(int n, long millis) {
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                String key = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://peer" + (count++) + ":8001/DirectoryPlace";
+                latency.put(KeyManipulator.getDefaultDirectoryKey(key), millis);
+                sent.put(KeyManipulator.getDefaultDirectoryKey(key), new AtomicInteger());
+                addRemoteDirectory(key);
+                keys.add(key);
+            }
+            return keys;
+        }
+
+        int sent(String key) {
+            return sent.get(KeyManipulator.getDefaultDirectoryKey(key)).get();
+        }
+
+        void release() {
+            hung.countDown();
+        }
+
+        @Override
+        protected EmissaryResponse sendHeartbeat(String key, long deadlineMillis) {
+            // Rounds use the directory keys
+            sent.get(key).incrementAndGet();
+            long millis = latency.get(key);
+            try {
+                if (millis == HANG) {
+                    hung.await();
+                } else if (millis > 0) {
+                    Thread.sleep(millis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new EmissaryResponse(millis == FAIL ? new BasicClassicHttpResponse(500, "down") : new BasicClassicHttpResponse(200));
+        }
+
+        @Override
+        public void takeFailureAction(String key, boolean permanent) {
+            // no directory to notify
+        }
+    }
 }
@@ -0,0 +1,158 @@
+package emissary.directory;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionedDirectoryEntryMapTest extends UnitTest {
+
+    private static final String key = "UNKNOWN.FOOPLACE.ID.http://host.domain.com:8001/ThePlace";
+    private static final String key2 = "UNKNOWN.FOOPLACE.ID.http://host2.domain.com:9001/ThePlace";
+    private static final String key3 = "UNKNOWN.FOOPLACE.TRANSFORM.http://host.domain.com:8001/ThePlace";
+
+    @Test
+    void testSequenceAdvancesOnChange() {
+        VersionedDirectoryEntryMap map = new VersionedDirectoryEntryMap();
+        assertEquals(0L, map.getSequence());
+        map.addEntry(new DirectoryEntry(key, "place", 50, 50));
+        map.addEntry(new DirectoryEntry(key2, "place", 50, 50));
+        assertEquals(2L, map.getSequence());
+        map.removeEntry(key);
+        assertEquals(3L, map.getSequence());
+        // Nothing to remove, nothing changes
+        map.removeEntry(key);
+        assertEquals(3L, map.getSequence());
+    }
+
+    @Test
+    void testFirstRequestIsFull() {
+        VersionedDirectoryEntryMap map = new VersionedDirectoryEntryMap();
+        map.addEntry(new DirectoryEntry(key, "place", 50, 50));
+        map.addEntry(new DirectoryEntry(key2, "place", 50, 50));
+        map.removeEntry(key2);
+
+        DirectoryEntryDelta delta = map.changesSince(0L, -1L);
+        assertTrue(delta.isFull());
+        assertEquals(map.getEpoch(), delta.getEpoch());
+        assertEquals(3L, delta.getToSequence());
+        assertEquals(1, delta.getEntries().size());
+        assertEquals(key, delta.getEntries().get(0).getKey());
+        assertTrue(delta.getRemovedKeys().isEmpty(), "A full transfer has nothing to remove");
+    }
+
+    @Test
+    void testChangesSince() {
+        VersionedDirectoryEntryMap map = new VersionedDirectoryEntryMap();
+        map.addEntry(new DirectoryEntry(key, "place", 50, 50));
+        map.addEntry(new DirectoryEntry(key2, "place", 50, 50));
+        long seen = map.getSequence();
+
+        assertTrue(map.changesSince(map.getEpoch(), seen).isEmpty());
+
+        map.addEntry(new DirectoryEntry(key3, "place", 50, 50));
+        map.removeEntry(key2);
+        DirectoryEntryDelta delta = map.changesSince(map.getEpoch(), seen);
+        assertFalse(delta.isFull());
+        assertEquals(seen, delta.getFromSequence());
+        assertEquals(map.getSequence(), delta.getToSequence());
+        assertEquals(1, delta.getEntries().size());
+        assertEquals(key3, delta.getEntries().get(0).getKey());
+        assertEquals(Collections.singletonList(key2), delta.getRemovedKeys());
+
+        // Added back after removal is a change, not a removal
+        map.addEntry(new DirectoryEntry(key2, "place", 50, 50));
+        delta = map.changesSince(map.getEpoch(), seen);
+        assertEquals(2, delta.getEntries().size());
+        assertTrue(delta.getRemovedKeys().isEmpty());
+    }
+
+    @Test
+    void testCheaperCopyIsRecorded() {
+        VersionedDirectoryEntryMap map = new VersionedDirectoryEntryMap();
+        map.addEntry(new DirectoryEntry(key, "place", 10, 50));
+        long seen = map.getSequence();
+        map.addEntry(new DirectoryEntry(key, "place", 90, 50));
+        DirectoryEntryDelta delta = map.changesSince(map.getEpoch(), seen);
+        assertEquals(1, delta.getEntries().size());
+        assertEquals(10, delta.getEntries().get(0).getCost(), "The list keeps the cheapest copy");
+    }
+
+    @Test
+    void testOtherEpochIsFull() {
+        VersionedDirectoryEntryMap map = new VersionedDirectoryEntryMap();
+        map.addEntry(new DirectoryEntry(key, "place", 50, 50));
+        assertTrue(map.changesSince(map.getEpoch() + 1, map.getSequence()).isFull());
+        assertTrue(map.changesSince(map.getEpoch(), map.getSequence() + 1).isFull(), "Sequence from the future");
+    }
+
+    @Test
+    void testForgottenRemovalsForceFull() {
+        VersionedDirectoryEntryMap map = new VersionedDirectoryEntryMap();
+        map.setTombstoneLimit(4);
+        long start = map.getSequence();
+        for (int i = 0; i < 10; i++) {
+            String k = "UNKNOWN.FOOPLACE.ID.http://host.domain.com:8001/Place" + i;
+            map.addEntry(new DirectoryEntry(k, "place", 50, 50));
+            map.removeEntry(k);
+        }
+        assertTrue(map.changesSince(map.getEpoch(), start).isFull(), "Removals were forgotten");
+
+        DirectoryEntryDelta recent = map.changesSince(map.getEpoch(), map.getSequence() - 2);
+        assertFalse(recent.isFull());
+        assertEquals(1, recent.getRemovedKeys().size());
+    }
+
+    @Test
+    void testClearRecordsRemovals() {
+        VersionedDirectoryEntryMap map = new VersionedDirectoryEntryMap();
+        map.addEntry(new DirectoryEntry(key, "place", 50, 50));
+        map.addEntry(new DirectoryEntry(key3, "place", 50, 50));
+        long seen = map.getSequence();
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(2, map.changesSince(map.getEpoch(), seen).getRemovedKeys().size());
+    }
+
+    @Test
+    void testDeserializedMapStartsNewEpoch() throws Exception {
+        VersionedDirectoryEntryMap map = new VersionedDirectoryEntryMap();
+        map.addEntry(new DirectoryEntry(key, "place", 50, 50));
+        map.addEntry(new DirectoryEntry(key2, "place", 50, 50));
+        map.removeEntry(key2);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        VersionedDirectoryEntryMap copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (VersionedDirectoryEntryMap) in.readObject();
+        }
+
+        assertNotEquals(map.getEpoch(), copy.getEpoch());
+        DirectoryEntryDelta full = copy.changesSince(map.getEpoch(), map.getSequence());
+        assertTrue(full.isFull(), "Peers of the old map get everything again");
+        assertEquals(1, full.getEntries().size());
+        assertEquals(key, full.getEntries().get(0).getKey());
+
+        long seen = copy.getSequence();
+        copy.addEntry(new DirectoryEntry(key3, "place", 50, 50));
+        copy.removeEntry(key);
+        DirectoryEntryDelta delta = copy.changesSince(copy.getEpoch(), seen);
+        assertFalse(delta.isFull());
+        assertEquals(1, delta.getEntries().size());
+        assertEquals(key3, delta.getEntries().get(0).getKey());
+        assertEquals(Collections.singletonList(key), delta.getRemovedKeys());
+    }
+}
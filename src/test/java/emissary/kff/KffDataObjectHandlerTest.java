@@ -377,6 +377,55 @@ class KffDataObjectHandlerTest extends UnitTest {
         assertDoesNotThrow(() -> kff.hash(null));
     }
 
+    @Test
+    void testUnchangedDataNotRehashed() {
+        CountingHandler counting = new CountingHandler();
+        counting.hash(payload);
+        assertEquals(1, counting.count);
+        assertEquals(DATA_MD5, payload.getStringParameter(KffDataObjectHandler.KFF_PARAM_MD5));
+
+        counting.hash(payload);
+        assertEquals(1, counting.count, "Data did not change");
+        assertEquals(DATA_MD5, payload.getStringParameter(KffDataObjectHandler.KFF_PARAM_MD5));
+
+        counting.hash(payload, false, true, "HASH_ID");
+        assertEquals(2, counting.count, "Murmur hash was not made yet");
+        assertEquals(DATA_HASH_ID, payload.getStringParameter("HASH_ID"));
+        counting.hash(payload, false, true, "HASH_ID");
+        assertEquals(2, counting.count);
+
+        KffDataObjectHandler.removeHash(payload);
+        counting.hash(payload);
+        assertEquals(3, counting.count, "Hashes were removed");
+
+        payload.setData("This is a changed data".getBytes());
+        counting.hash(payload);
+        assertEquals(4, counting.count, "Data changed");
+        assertNotEquals(DATA_MD5, payload.getStringParameter(KffDataObjectHandler.KFF_PARAM_MD5));
+        assertEquals(DATA_MD5, payload.getStringParameter(KffDataObjectHandler.MD5_ORIGINAL));
+
+        payload.setChannelFactory(SBC_DATA);
+        counting.hash(payload, true);
+        assertEquals(5, counting.count, "Channel factory changed");
+        assertEquals(DATA_MD5, payload.getStringParameter(KffDataObjectHandler.KFF_PARAM_MD5));
+    }
+
+    static class CountingHandler extends KffDataObjectHandler {
+        int count = 0;
+
+        @Override
+        public Map<String, String> hashData(@Nullable byte[] data, String name, @Nullable String prefix) {
+            count++;
+            return super.hashData(data, name, prefix);
+        }
+
+        @Override
+        public Map<String, String> hashData(SeekableByteChannelFactory sbcf, String name, String prefix) {
+            count++;
+            return super.hashData(sbcf, name, prefix);
+        }
+    }
+
     @Test
     void testRemovingHash() {
         final SeekableByteChannelFactory exceptionSbcf = () -> new AbstractSeekableByteChannel() {
@@ -0,0 +1,121 @@
+package emissary.kff;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KffSsdeepFileTest extends UnitTest {
+
+    private static final String ITEM_NAME = "Some_item_name";
+
+    private final Ssdeep ss = new Ssdeep();
+    private final byte[] known = new byte[5000];
+    private final byte[] other = new byte[5000];
+    private Path corpus;
+    private KffSsdeepFile kffSsdeepFile;
+
+    @Override
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+        final Random rng = new Random(1234);
+        rng.nextBytes(known);
+        rng.nextBytes(other);
+
+        corpus = Files.createTempFile("kff", ".ssdeep");
+        Files.write(corpus, Arrays.asList(
+                "ssdeep,1.1--blocksize:hash:hash,filename",
+                "# known files",
+                "",
+                ss.fuzzyHash(known) + ",\"known.bin\"",
+                "not a signature"), StandardCharsets.UTF_8);
+        kffSsdeepFile = new KffSsdeepFile(corpus.toString(), "testFilter", KffFilter.FilterType.DUPLICATE);
+    }
+
+    @Override
+    @AfterEach
+    public void tearDown() throws Exception {
+        super.tearDown();
+        Files.deleteIfExists(corpus);
+    }
+
+    @Test
+    void testKffSsdeepFileCreation() {
+        assertEquals("testFilter", kffSsdeepFile.getName());
+        assertEquals(KffFilter.FilterType.DUPLICATE, kffSsdeepFile.getFilterType());
+        assertEquals(KffSsdeepFile.DEFAULT_MIN_SCORE, kffSsdeepFile.getMinScore());
+        assertEquals(1, kffSsdeepFile.size(), "Only the valid signature is loaded");
+    }
+
+    @Test
+    void testCheck() throws Exception {
+        final byte[] nearCopy = known.clone();
+        nearCopy[100] ^= 1;
+        nearCopy[4000] ^= 1;
+
+        final ChecksumResults results = new ChecksumResults();
+        results.setSsdeep(ss.fuzzyHash(nearCopy));
+        assertTrue(kffSsdeepFile.check(ITEM_NAME, results));
+
+        final SsdeepIndex.Match match = kffSsdeepFile.bestMatch(results.getSsdeep());
+        assertNotNull(match);
+        assertEquals("known.bin", match.getName());
+
+        results.setSsdeep(ss.fuzzyHash(other));
+        assertFalse(kffSsdeepFile.check(ITEM_NAME, results));
+        assertNull(kffSsdeepFile.bestMatch(results.getSsdeep()));
+    }
+
+    @Test
+    void testCheckWithoutSsdeep() throws Exception {
+        assertFalse(kffSsdeepFile.check(ITEM_NAME, new ChecksumResults()));
+    }
+
+    @Test
+    void testMinScore() throws Exception {
+        kffSsdeepFile.setMinScore(500);
+        assertEquals(100, kffSsdeepFile.getMinScore());
+
+        final ChecksumResults results = new ChecksumResults();
+        results.setSsdeep(ss.fuzzyHash(known));
+        assertTrue(kffSsdeepFile.check(ITEM_NAME, results), "Identical data scores 100");
+    }
+
+    @Test
+    void testChainMarksNearDuplicate() throws Exception {
+        final KffChain chain = new KffChain();
+        chain.addAlgorithm("SHA-1");
+        chain.addAlgorithm("SSDEEP");
+        chain.addFilter(kffSsdeepFile);
+
+        final byte[] nearCopy = known.clone();
+        nearCopy[2500] ^= 1;
+        final KffResult result = chain.check(ITEM_NAME, nearCopy);
+        assertTrue(result.isDupe());
+        assertEquals("testFilter", result.getFilterName());
+
+        assertFalse(chain.check(ITEM_NAME, other).isHit());
+    }
+
+    @Test
+    void testMissingFile() {
+        final Path missing = corpus.resolveSibling("missing.ssdeep");
+        assertThrows(IOException.class, () -> new KffSsdeepFile(missing.toString(), "testFilter", KffFilter.FilterType.DUPLICATE));
+    }
+}
@@ -0,0 +1,94 @@
+package emissary.kff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a search of {@link SsdeepIndex} with comparing the query against every signature with
+ * {@link Ssdeep#compare(SpamSumSignature, SpamSumSignature)}. The corpus is random documents of a spread of lengths, and
+ * the queries are alternately near copies of documents in the corpus and documents that are not in it.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args=SsdeepIndexBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SsdeepIndexBenchmark {
+
+    private static final int QUERIES = 20;
+    private static final int MIN_SCORE = 1;
+
+    /** Number of signatures in the corpus */
+    @Param({"1000", "10000"})
+    public int size;
+
+    private final Ssdeep ssdeep = new Ssdeep();
+    private final List<SpamSumSignature> corpus = new ArrayList<>();
+    private final List<SpamSumSignature> queries = new ArrayList<>();
+    private SsdeepIndex index;
+
+    @Setup
+    public void setup() {
+        final Random rng = new Random(size);
+        final List<byte[]> documents = new ArrayList<>();
+        index = new SsdeepIndex();
+        for (int i = 0; i < size; i++) {
+            final byte[] doc = new byte[200 + rng.nextInt(i % 3 == 0 ? 40000 : 4000)];
+            rng.nextBytes(doc);
+            final SpamSumSignature sig = new SpamSumSignature(ssdeep.fuzzyHash(doc));
+            documents.add(doc);
+            corpus.add(sig);
+            index.add(sig, "doc" + i);
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            final byte[] doc;
+            if (i % 2 == 0) {
+                doc = documents.get(rng.nextInt(size)).clone();
+                for (int j = 0; j < 3; j++) {
+                    doc[rng.nextInt(doc.length)] = (byte) rng.nextInt();
+                }
+            } else {
+                doc = new byte[200 + rng.nextInt(4000)];
+                rng.nextBytes(doc);
+            }
+            queries.add(new SpamSumSignature(ssdeep.fuzzyHash(doc)));
+        }
+    }
+
+    @Benchmark
+    public void search(final Blackhole bh) {
+        for (final SpamSumSignature query : queries) {
+            bh.consume(index.best(query, MIN_SCORE));
+        }
+    }
+
+    @Benchmark
+    public void compareAll(final Blackhole bh) {
+        for (final SpamSumSignature query : queries) {
+            int best = 0;
+            for (final SpamSumSignature sig : corpus) {
+                best = Math.max(best, ssdeep.compare(query, sig));
+            }
+            bh.consume(best);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package emissary.kff;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SsdeepIndexTest extends UnitTest {
+
+    private static final int CORPUS_SIZE = 500;
+    private static final int SEED = 4242;
+
+    private final Ssdeep ss = new Ssdeep();
+    private final List<byte[]> documents = new ArrayList<>();
+    private final List<SpamSumSignature> signatures = new ArrayList<>();
+    private SsdeepIndex index;
+    private Random rng;
+
+    @Override
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+        rng = new Random(SEED);
+        index = new SsdeepIndex();
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            // Spread the lengths so several block sizes are in the index
+            final byte[] doc = new byte[200 + rng.nextInt(i % 3 == 0 ? 40000 : 4000)];
+            rng.nextBytes(doc);
+            final SpamSumSignature sig = new SpamSumSignature(ss.fuzzyHash(doc));
+            documents.add(doc);
+            signatures.add(sig);
+            index.add(sig, "doc" + i);
+        }
+    }
+
+    private byte[] mutate(final byte[] doc, final int changes) {
+        final byte[] copy = doc.clone();
+        for (int i = 0; i < changes; i++) {
+            copy[rng.nextInt(copy.length)] = (byte) rng.nextInt();
+        }
+        return copy;
+    }
+
+    @Test
+    void testSize() {
+        assertEquals(CORPUS_SIZE, index.size());
+    }
+
+    @Test
+    void testFindsExactMatch() {
+        final SsdeepIndex.Match match = index.best(signatures.get(7), 1);
+        assertNotNull(match);
+        assertEquals("doc7", match.getName());
+        assertEquals(100, match.getScore());
+    }
+
+    @Test
+    void testFindsNearDuplicate() {
+        for (int i = 0; i < 20; i++) {
+            final int target = rng.nextInt(CORPUS_SIZE);
+            final SpamSumSignature query = new SpamSumSignature(ss.fuzzyHash(mutate(documents.get(target), 3)));
+            final SsdeepIndex.Match match = index.best(query, 50);
+            assertNotNull(match, "No match for a copy of doc" + target);
+            assertEquals("doc" + target, match.getName());
+        }
+    }
+
+    @Test
+    void testNoMatchForUnrelatedData() {
+        final byte[] doc = new byte[3000];
+        new Random(SEED + 1).nextBytes(doc);
+        assertNull(index.best(new SpamSumSignature(ss.fuzzyHash(doc)), 1));
+    }
+
+    @Test
+    void testSameResultsAsComparingEverySignature() {
+        for (int i = 0; i < 50; i++) {
+            final int target = rng.nextInt(CORPUS_SIZE);
+            final SpamSumSignature query = new SpamSumSignature(ss.fuzzyHash(mutate(documents.get(target), 1 + rng.nextInt(200))));
+            final List<SsdeepIndex.Match> found = index.search(query, 1, CORPUS_SIZE);
+
+            int expected = 0;
+            for (int j = 0; j < CORPUS_SIZE; j++) {
+                final int score = ss.compare(query, signatures.get(j));
+                if (score > 0) {
+                    expected++;
+                    final String name = "doc" + j;
+                    assertTrue(found.stream().anyMatch(m -> m.getName().equals(name) && m.getScore() == score),
+                            "Missing " + name + " with score " + score);
+                }
+            }
+            assertEquals(expected, found.size());
+        }
+    }
+
+    @Test
+    void testResultOrderAndLimit() {
+        index.add(signatures.get(3), "copy");
+        final List<SsdeepIndex.Match> found = index.search(signatures.get(3), 1, 1);
+        assertEquals(1, found.size());
+        assertEquals("copy", found.get(0).getName(), "Equal scores are ordered by name");
+        assertEquals(2, index.search(signatures.get(3), 1, 10).size());
+    }
+
+    @Test
+    void testMixedBlockSizes() {
+        // A signature matches one with twice or half its block size through the digest they have in common
+        final SsdeepIndex small = new SsdeepIndex();
+        small.add("6:AAAAAAAAAAbcdefghijklmn:Zbcdefghijklmnop", "half");
+        final SsdeepIndex.Match match = small.best(new SpamSumSignature("12:Zbcdefghijklmnop:Yxw"), 1);
+        assertNotNull(match);
+        assertEquals("half", match.getName());
+        assertEquals(ss.compare(new SpamSumSignature("12:Zbcdefghijklmnop:Yxw"), match.getSignature()), match.getScore());
+    }
+}
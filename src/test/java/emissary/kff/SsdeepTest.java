@@ -1,17 +1,24 @@
 package emissary.kff;
 
+import emissary.core.channels.SeekableByteChannelFactory;
+import emissary.core.channels.SeekableByteChannelHelper;
 import emissary.test.core.junit5.UnitTest;
 import emissary.util.Hexl;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -130,6 +137,54 @@ final class SsdeepTest extends UnitTest {
         assertEquals(MANY_RANDOM_EXPECTED_HEX_DIGEST, digestHex, "Digest hex does not match");
     }
 
+    // Changing any of these parameters will require a corresponding
+    // update in the expected values.
+    private static final int LOW_ENTROPY_LENGTH = 1024 * 1024;
+    private static final int LOW_ENTROPY_SEED = 67890;
+    private static final String LOW_ENTROPY_EXPECTED_BLOCK_SIZE = "384:";
+
+    /**
+     * Make input where the block size estimated from the length gives a signature that is too short, so smaller block
+     * sizes have to be used.
+     */
+    private static byte[] lowEntropyInput() {
+        final byte[] input = new byte[LOW_ENTROPY_LENGTH];
+        final Random rng = new Random(LOW_ENTROPY_SEED);
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) ('a' + rng.nextInt(3));
+        }
+        return input;
+    }
+
+    @Test
+    void testHashChannelReadOnce() {
+        final byte[] input = lowEntropyInput();
+        final String expected = ss.fuzzyHash(input);
+        assertTrue(expected.startsWith(LOW_ENTROPY_EXPECTED_BLOCK_SIZE), "Block size was not reduced: " + expected);
+
+        final SeekableByteChannelFactory memory = SeekableByteChannelHelper.memory(input);
+        final AtomicInteger created = new AtomicInteger();
+        final SeekableByteChannelFactory counting = () -> {
+            created.incrementAndGet();
+            return memory.create();
+        };
+        assertEquals(expected, ss.fuzzyHash(counting));
+        // Once for the size and once for the content
+        assertEquals(2, created.get(), "Channel should only be read once");
+    }
+
+    @Test
+    void testHashFile() throws IOException {
+        final byte[] input = lowEntropyInput();
+        final Path file = Files.createTempFile("ssdeep", ".dat");
+        try {
+            Files.write(file, input);
+            assertEquals(ss.fuzzyHash(input), ss.fuzzyHashFile(file.toString()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
     @Test
     void testCompareEqualHashes() {
         final SpamSumSignature hash1 = new SpamSumSignature(ss.fuzzyHash(getStringAsUtf8(LOREM_IPSUM)));
@@ -3,6 +3,7 @@ package emissary.output.filter;
 import emissary.config.ServiceConfigGuide;
 import emissary.core.DataObjectFactory;
 import emissary.core.IBaseDataObject;
+import emissary.core.TransformHistory;
 import emissary.test.core.junit5.UnitTest;
 
 import jakarta.annotation.Nullable;
@@ -25,6 +26,7 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class JsonOutputFilterTest extends UnitTest {
@@ -382,4 +384,24 @@ class JsonOutputFilterTest extends UnitTest {
         assertTrue(s.contains("\"FOO\":[\"ONE\"]"), "Output should have prefix stripped parameter " + s);
         assertTrue(s.contains("\"BAR\":[\"TWO\"]"), "Output should have prefix stripped parameter " + s);
     }
+
+    @Test
+    void testVisitTiming() {
+        f.initialize(config, "FOO", config);
+
+        payload.appendTransformHistory("UNKNOWN.FILE_PICK_UP.INPUT.http://localhost:8001/FilePickUpPlace$5050");
+        payload.appendTransformHistory("UNKNOWN.UNIXFILE.ID.http://localhost:8001/UnixFilePlace$2050");
+        TransformHistory.History visit = payload.getTransformHistory().lastVisit();
+        assertNotNull(visit);
+        visit.setTiming(new TransformHistory.Timing(1500000L, 16L, 20L, 3));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = f.filter(Collections.singletonList(payload), new HashMap<>(), output);
+
+        assertEquals(IDropOffFilter.STATUS_SUCCESS, status, "Filter should return success");
+        String s = output.toString();
+        assertTrue(s.contains("\"timing\":{\"durationNanos\":1500000,\"bytesIn\":16,\"bytesOut\":20,\"children\":3}"), "Timed visit should be output");
+        assertTrue(s.contains("\"totalNanos\":1500000"), "Total time in places should be output");
+        assertEquals(1, StringUtils.countMatches(s, "\"timing\""), "Visits that were not timed should have no timing");
+    }
 }
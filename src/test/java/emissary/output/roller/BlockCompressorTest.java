@@ -0,0 +1,93 @@
+package emissary.output.roller;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockCompressorTest extends UnitTest {
+
+    private static byte[] sample(int size) {
+        Random random = new Random(size);
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < size) {
+            sb.append("{\"id\":").append(random.nextInt(1000)).append(",\"form\":\"TEXT\"}\n");
+        }
+        return sb.substring(0, size).getBytes(UTF_8);
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        try (BlockCompressor compressor = new BlockCompressor(BlockCompressor.Format.GZIP, 6, 1000, 3)) {
+            for (int size : new int[] {1, 999, 1000, 1001, 25_000}) {
+                byte[] data = sample(size);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                CRC32 crc = new CRC32();
+                long written = compressor.compress(Channels.newChannel(new ByteArrayInputStream(data)), data.length, Channels.newChannel(out), crc);
+
+                assertEquals(out.size(), written);
+                assertArrayEquals(data, gunzip(out.toByteArray()), "Concatenated members read back as one stream");
+                CRC32 expected = new CRC32();
+                expected.update(data);
+                assertEquals(expected.getValue(), crc.getValue());
+            }
+        }
+    }
+
+    @Test
+    void testCompresses() throws IOException {
+        byte[] data = sample(200_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BlockCompressor compressor = new BlockCompressor(BlockCompressor.Format.GZIP, 6, BlockCompressor.DEFAULT_BLOCK_SIZE, 2)) {
+            compressor.compress(Channels.newChannel(new ByteArrayInputStream(data)), data.length, Channels.newChannel(out), new CRC32());
+        }
+        assertTrue(out.size() < data.length / 2, "Compressed size " + out.size());
+    }
+
+    @Test
+    void testNothingToCompress() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BlockCompressor compressor = new BlockCompressor(BlockCompressor.Format.GZIP, 6, 1000, 1)) {
+            assertEquals(0L, compressor.compress(Channels.newChannel(new ByteArrayInputStream(new byte[0])), 0, Channels.newChannel(out), new CRC32()));
+        }
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void testPrematureEof() {
+        try (BlockCompressor compressor = new BlockCompressor(BlockCompressor.Format.GZIP, 6, 1000, 1)) {
+            byte[] data = sample(500);
+            assertThrows(IOException.class, () -> compressor.compress(Channels.newChannel(new ByteArrayInputStream(data)), 600,
+                    Channels.newChannel(new ByteArrayOutputStream()), new CRC32()));
+        }
+    }
+
+    @Test
+    void testFormatOf() {
+        assertNull(BlockCompressor.formatOf(null));
+        assertNull(BlockCompressor.formatOf(" none "));
+        assertEquals(BlockCompressor.Format.GZIP, BlockCompressor.formatOf("gzip"));
+        assertThrows(IllegalArgumentException.class, () -> BlockCompressor.formatOf("lz4"));
+        assertThrows(IllegalArgumentException.class, () -> new BlockCompressor(BlockCompressor.Format.GZIP, 0, 1000, 1));
+    }
+}
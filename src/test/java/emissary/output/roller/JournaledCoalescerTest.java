@@ -31,9 +31,12 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static emissary.output.roller.JournaledCoalescer.ROLLING_EXT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -160,13 +163,69 @@ class JournaledCoalescerTest extends UnitTest {
         assertFalse(Files.exists(bud1destination));
 
         // verify
+        long totalBefore = JournaledCoalescer.getTotalPartBytes();
         journaledCoalescer.roll();
         assertTrue(Files.exists(bud1destination));
         long totalSize = Files.size(tempBud1) + Files.size(tempBud2);
         assertEquals(totalSize, Files.size(bud1destination));
+        assertEquals(totalSize, journaledCoalescer.getPartBytes());
+        assertEquals(totalSize, journaledCoalescer.getRolledBytes());
+        assertTrue(JournaledCoalescer.getTotalPartBytes() >= totalBefore + totalSize);
 
     }
 
+    @Test
+    void testCompressedRoll() throws Exception {
+        Path destination;
+        try (JournaledCoalescer compressing = new JournaledCoalescer(targetBudPath, fileNameGenerator, 2,
+                new BlockCompressor(BlockCompressor.Format.GZIP, 6, 4, 2))) {
+            assertEquals(".gz", compressing.getExtension());
+            try (KeyedOutput one = compressing.getOutput(); KeyedOutput two = compressing.getOutput()) {
+                Files.copy(tempBud1, one);
+                Files.copy(tempBud2, two);
+                destination = one.getFinalDestination();
+                one.commit();
+                two.commit();
+            }
+            compressing.roll();
+            assertEquals(Files.size(tempBud1) + Files.size(tempBud2), compressing.getPartBytes());
+            assertEquals(Files.size(Path.of(destination + ".gz")), compressing.getRolledBytes());
+        }
+
+        assertFalse(Files.exists(destination));
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(Path.of(destination + ".gz")))) {
+            List<String> lines = Arrays.asList(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n"));
+            assertEquals(4, lines.size());
+            assertTrue(lines.containsAll(Arrays.asList(BUD1_LINES.get(0), BUD1_LINES.get(1), BUD2_LINES.get(0), BUD2_LINES.get(1))));
+        }
+    }
+
+    @Test
+    void testChecksummedRoll() throws Exception {
+        // larger than the copy buffer so it is reused within a part
+        byte[] big = new byte[200 * 1024];
+        new Random(7).nextBytes(big);
+        Path destination;
+        try (JournaledCoalescer checksumming = new JournaledCoalescer(targetBudPath, fileNameGenerator, 2, null, true)) {
+            assertEquals("", checksumming.getExtension());
+            try (KeyedOutput one = checksumming.getOutput(); KeyedOutput two = checksumming.getOutput()) {
+                one.write(big);
+                two.write(big);
+                destination = one.getFinalDestination();
+                one.commit();
+                two.commit();
+            }
+            checksumming.roll();
+            assertEquals(2L * big.length, checksumming.getPartBytes());
+            assertEquals(2L * big.length, checksumming.getRolledBytes());
+        }
+
+        byte[] rolled = Files.readAllBytes(destination);
+        assertEquals(2 * big.length, rolled.length);
+        assertArrayEquals(big, Arrays.copyOf(rolled, big.length));
+        assertArrayEquals(big, Arrays.copyOfRange(rolled, big.length, rolled.length));
+    }
+
     @Test
     void testAddFilesWithRoll() throws Exception {
         // setup
@@ -1,5 +1,6 @@
 package emissary.parser;
 
+import emissary.core.channels.MemoryMappedChannelFactory;
 import emissary.test.core.junit5.UnitTest;
 
 import jakarta.annotation.Nullable;
@@ -18,6 +19,7 @@ import java.util.Arrays;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -61,6 +63,19 @@ class SimpleNioParserTest extends UnitTest {
         assertThrows(ParserEOFException.class, sp::getNextSession);
     }
 
+    @Test
+    void testZeroCopySlicing() throws IOException, ParserException {
+        SimpleNioParser sp = new SimpleNioParser(channel);
+        sp.setSourceChannelFactory(MemoryMappedChannelFactory.create(testDataFile));
+        assertTrue(sp.isZeroCopy(), "Zero-copy mode enabled");
+        DecomposedSession sd = sp.getNextSession();
+        assertTrue(sd.isValid(), "Session decomposed");
+        assertNull(sd.getData(), "No data bytes copied");
+        assertNotNull(sd.getDataChannelFactory(), "Data channel factory created");
+        assertEquals(DATALEN, sd.getDataChannelFactory().create().size(), "Data size");
+        assertEquals(Integer.toString(DATALEN), sd.getStringMetadataItem(SessionParser.ORIG_DOC_SIZE_KEY), "Original size recorded");
+    }
+
     @BeforeEach
     public void initTestDataFile() throws IOException {
         byte[] DATA = new byte[DATALEN];
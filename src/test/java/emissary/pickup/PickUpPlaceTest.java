@@ -2,7 +2,10 @@ package emissary.pickup;
 
 import emissary.config.Configurator;
 import emissary.config.ServiceConfigGuide;
+import emissary.core.EmissaryException;
+import emissary.core.IBaseDataObject;
 import emissary.core.IMobileAgent;
+import emissary.parser.ParserException;
 import emissary.pickup.file.FilePickUpClient;
 import emissary.pickup.file.FilePickUpPlace;
 import emissary.server.EmissaryServer;
@@ -11,16 +14,22 @@ import emissary.test.core.junit5.UnitTest;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PickUpPlaceTest extends UnitTest {
@@ -166,6 +175,48 @@ class PickUpPlaceTest extends UnitTest {
         }
     }
 
+    @Test
+    void testPipelinedSessions(@TempDir Path tempDir) throws Exception {
+        Files.createDirectories(tempDir.resolve("hold"));
+        Files.createDirectories(tempDir.resolve("error"));
+        Files.createDirectories(tempDir.resolve("done"));
+        Path input = Files.write(tempDir.resolve("input.dat"), "pipelined session data".getBytes(UTF_8));
+
+        Configurator config = createBaseConfig(tempDir);
+        config.addEntry("SESSION_PIPELINE_THREADS", "2");
+        config.addEntry("ZERO_COPY_SESSIONS", "true");
+
+        TestPickUpPlace place = new TestPickUpPlace(config);
+        try {
+            assertEquals(1, place.processSessions(input.toFile(), "input.dat"));
+            assertEquals(1, place.dispatched.size());
+            IBaseDataObject d = place.dispatched.get(0);
+            assertEquals("input.dat-1", d.getFilename());
+            assertEquals("pipelined session data", new String(d.data(), UTF_8));
+        } finally {
+            place.shutDown();
+        }
+    }
+
+    @Test
+    void testPipelinedSessionsDispatchFailure(@TempDir Path tempDir) throws Exception {
+        Files.createDirectories(tempDir.resolve("hold"));
+        Files.createDirectories(tempDir.resolve("error"));
+        Files.createDirectories(tempDir.resolve("done"));
+        Path input = Files.write(tempDir.resolve("input.dat"), "pipelined session data".getBytes(UTF_8));
+
+        Configurator config = createBaseConfig(tempDir);
+        config.addEntry("SESSION_PIPELINE_THREADS", "1");
+
+        TestPickUpPlace place = new TestPickUpPlace(config);
+        place.failDispatch = true;
+        try {
+            assertThrows(ParserException.class, () -> place.processSessions(input.toFile(), "input.dat"));
+        } finally {
+            place.shutDown();
+        }
+    }
+
     /**
      * Creates a base configuration with required service settings for PickUpPlace.
      */
@@ -193,6 +244,8 @@ class PickUpPlaceTest extends UnitTest {
         final AtomicInteger recoveredCallCount = new AtomicInteger(0);
         final CountDownLatch exceededLatch = new CountDownLatch(1);
         final CountDownLatch recoveredLatch = new CountDownLatch(1);
+        final List<IBaseDataObject> dispatched = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean failDispatch = false;
 
         public TestPickUpPlace(Configurator config) throws IOException {
             super(config);
@@ -210,6 +263,15 @@ class PickUpPlaceTest extends UnitTest {
             recoveredLatch.countDown();
         }
 
+        @Override
+        protected boolean processDataObject(IBaseDataObject d, String fixedName, File theFile, boolean simpleMode) throws EmissaryException {
+            if (failDispatch) {
+                throw new EmissaryException("No agent for " + fixedName);
+            }
+            dispatched.add(d);
+            return true;
+        }
+
         @Override
         public void shutDown() {
             stopDiskSpaceMonitoring();
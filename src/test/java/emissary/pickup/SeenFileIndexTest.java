@@ -0,0 +1,84 @@
+package emissary.pickup;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeenFileIndexTest extends UnitTest {
+
+    @Test
+    void testPutGetRemove() {
+        SeenFileIndex index = new SeenFileIndex();
+        assertEquals(SeenFileIndex.NOT_SEEN, index.getModified("/a"));
+        assertFalse(index.contains("/a"));
+
+        index.put("/a", 10L);
+        index.put("/b", 0L);
+        assertTrue(index.contains("/a"));
+        assertEquals(10L, index.getModified("/a"));
+        assertEquals(0L, index.getModified("/b"));
+        assertEquals(2, index.size());
+
+        index.put("/a", 20L);
+        assertEquals(20L, index.getModified("/a"));
+        assertEquals(2, index.size());
+
+        assertTrue(index.remove("/a"));
+        assertFalse(index.remove("/a"));
+        assertEquals(1, index.size());
+
+        index.clear();
+        assertTrue(index.isEmpty());
+    }
+
+    @Test
+    void testUnboundedIndexIsNotPruned() {
+        SeenFileIndex index = new SeenFileIndex(0L);
+        index.put("/a", 1L);
+        index.discard("/a");
+        assertEquals(0, index.prune());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testPruneDiscarded() {
+        SeenFileIndex index = new SeenFileIndex(60000L);
+        index.put("/old", 1L);
+        index.put("/older", 2L);
+        assertTrue(index.discard("/old"));
+        assertTrue(index.discard("/older"));
+        assertFalse(index.discard("/missing"));
+        assertEquals(0, index.prune(), "Nothing was discarded a minute ago yet");
+        assertEquals(1L, index.getModified("/old"), "Discarded files are still seen until pruned");
+
+        long cutoff = System.currentTimeMillis() + 1;
+        pause(5);
+        index.put("/new", 3L);
+        index.discard("/new");
+
+        assertEquals(2, index.prune(cutoff));
+        assertFalse(index.contains("/old"));
+        assertFalse(index.contains("/older"));
+        assertEquals(3L, index.getModified("/new"));
+    }
+
+    @Test
+    void testOutstandingFilesAreNotPruned() {
+        SeenFileIndex index = new SeenFileIndex(60000L);
+        index.put("/pending", 1L);
+        index.put("/discarded", 2L);
+        index.discard("/discarded");
+
+        assertEquals(1, index.prune(System.currentTimeMillis() + 1));
+        assertEquals(1L, index.getModified("/pending"));
+        assertFalse(index.contains("/discarded"));
+
+        index.discard("/pending");
+        index.put("/pending", 4L);
+        assertEquals(0, index.prune(System.currentTimeMillis() + 1), "Collecting a file again makes it outstanding");
+    }
+}
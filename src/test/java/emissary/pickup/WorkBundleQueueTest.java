@@ -0,0 +1,95 @@
+package emissary.pickup;
+
+import emissary.command.converter.WorkspaceSortModeConverter;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkBundleQueueTest extends UnitTest {
+
+    private static WorkBundle bundle(int priority, long size, long modified) {
+        WorkBundle wb = new WorkBundle("/fake/root", "/fake/eat");
+        wb.addFileName("file-" + priority + "-" + size + "-" + modified, modified, size);
+        wb.setPriority(priority);
+        return wb;
+    }
+
+    @Test
+    void testPriorityThenArrivalOrder() {
+        WorkBundleQueue queue = new WorkBundleQueue();
+        WorkBundle low1 = bundle(5, 1L, 0L);
+        WorkBundle low2 = bundle(5, 1L, 0L);
+        WorkBundle high = bundle(1, 1L, 0L);
+        queue.add(low1);
+        queue.add(low2);
+        queue.add(high);
+
+        assertEquals(3, queue.size());
+        assertSame(high, queue.peek());
+        assertSame(high, queue.poll());
+        assertSame(low1, queue.poll());
+        assertSame(low2, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testOrderWithinPriority() {
+        WorkBundleQueue queue = new WorkBundleQueue(new WorkspaceSortModeConverter.YoungestFirstComparator());
+        WorkBundle older = bundle(5, 1L, 10L);
+        WorkBundle younger = bundle(5, 1L, 20L);
+        WorkBundle high = bundle(1, 1L, 0L);
+        queue.add(older);
+        queue.add(younger);
+        queue.add(high);
+
+        assertSame(high, queue.poll());
+        assertSame(younger, queue.poll());
+        assertSame(older, queue.poll());
+    }
+
+    @Test
+    void testDrainLimits() {
+        WorkBundleQueue queue = new WorkBundleQueue();
+        for (int i = 0; i < 5; i++) {
+            queue.add(bundle(i, 100L, 0L));
+        }
+
+        List<WorkBundle> byCount = queue.drain(2, -1L);
+        assertEquals(2, byCount.size());
+        assertEquals(0, byCount.get(0).getPriority());
+        assertEquals(1, byCount.get(1).getPriority());
+
+        assertEquals(1, queue.drain(10, 150L).size());
+        assertEquals(1, queue.drain(10, 50L).size(), "At least one bundle even over the byte limit");
+        assertEquals(1, queue.drain(10, -1L).size());
+        assertEquals(0, queue.size());
+        assertTrue(queue.drain(10, -1L).isEmpty());
+    }
+
+    @Test
+    void testDrainWaitsForWork() throws Exception {
+        WorkBundleQueue queue = new WorkBundleQueue();
+        assertTrue(queue.drain(1, -1L, 10L, TimeUnit.MILLISECONDS).isEmpty(), "Times out without work");
+
+        WorkBundle late = bundle(5, 1L, 0L);
+        Thread producer = new Thread(() -> {
+            pause(100L);
+            queue.add(late);
+        });
+        producer.start();
+
+        List<WorkBundle> drained = queue.drain(1, -1L, 10L, TimeUnit.SECONDS);
+        producer.join();
+        assertEquals(1, drained.size());
+        assertSame(late, drained.get(0));
+    }
+}
@@ -167,6 +167,29 @@ class WorkBundleTest extends UnitTest {
         assertEquals("<file2.txt&foo=bar>", w2l.get(1), "File values from xml");
     }
 
+    @Test
+    void testBundleListXml() {
+        WorkBundle w1 = new WorkBundle("/output/root", "/eat/prefix");
+        w1.addFileName("file1.txt", 15L, 4L);
+        w1.setPriority(1);
+        WorkBundle w2 = new WorkBundle("/output/root", "/eat/prefix");
+        w2.addFileName("file2.txt", 7L, 10L);
+        w2.addFileName("file3.txt", 8L, 11L);
+        w2.setPriority(2);
+
+        List<WorkBundle> bundles = WorkBundle.buildWorkBundles(WorkBundle.toXml(Arrays.asList(w1, w2)));
+        assertNotNull(bundles, "Generated from xml");
+        assertEquals(2, bundles.size(), "Bundles across xml");
+        assertEquals(w1.getBundleId(), bundles.get(0).getBundleId(), "Bundle order across xml");
+        assertEquals(w2.getBundleId(), bundles.get(1).getBundleId(), "Bundle order across xml");
+        assertEquals(w2.getFileNameList(), bundles.get(1).getFileNameList(), "Files across xml");
+        assertEquals(w2.getTotalFileSize(), bundles.get(1).getTotalFileSize(), "Total filesize across xml");
+
+        List<WorkBundle> empty = WorkBundle.buildWorkBundles(WorkBundle.toXml(new ArrayList<>()));
+        assertNotNull(empty, "Generated from xml");
+        assertEquals(0, empty.size(), "Empty list across xml");
+    }
+
     @Test
     void testBundleXmlWithDefaultTimes() {
         WorkBundle w = new WorkBundle("/output/root", "/eat/prefix");
@@ -391,6 +391,88 @@ class WorkSpaceTest extends UnitTest {
         assertEquals(0, mws.getPendingQueueSize(), "Failed item no longer pending");
     }
 
+    @Test
+    void testLeasedTake() {
+        String C1 = "INITIAL.INPUT.A.http://otherhost:7001/FilePickUpClient";
+        mws.addPickUp(C1);
+
+        for (int i = 0; i < 5; i++) {
+            WorkBundle wb = new WorkBundle("/fake/root", "/fake/eat");
+            wb.addFileName("faker-" + i + ".txt", 0L, 100L);
+            wb.setPriority(5 - i);
+            mws.addOutboundBundle(wb);
+        }
+
+        // Limited by count, highest priority first
+        List<WorkBundle> taken = mws.takeLeased(C1, 2, -1L, 60000L, 0L);
+        assertEquals(2, taken.size(), "Leased up to the bundle limit");
+        assertEquals(1, taken.get(0).getPriority(), "Highest priority work must be leased first");
+        assertEquals(2, taken.get(1).getPriority(), "Priority order within a lease");
+        assertEquals(3, mws.getOutboundQueueSize(), "Leased bundles leave outbound");
+        assertEquals(2, mws.getPendingQueueSize(), "Leased bundles are pending");
+
+        // Limited by bytes, but always at least one
+        assertEquals(2, mws.takeLeased(C1, 10, 250L, 60000L, 0L).size(), "Leased up to the byte limit");
+        assertEquals(1, mws.takeLeased(C1, 10, 50L, 60000L, 0L).size(), "Leased one over the byte limit");
+
+        // Nothing left but more may come
+        assertEquals(0, mws.takeLeased(C1, 10, -1L, 60000L, 10L).size(), "Nothing to lease");
+
+        // Nothing left and no more will come
+        mws.stop();
+        List<WorkBundle> close = mws.takeLeased(C1, 10, -1L, 60000L, 0L);
+        assertEquals(1, close.size(), "Close message when finished");
+        assertEquals(0, close.get(0).size(), "Close message is an empty bundle");
+    }
+
+    @Test
+    void testLeasedTakeWaitsForWork() throws Exception {
+        String C1 = "INITIAL.INPUT.A.http://otherhost:7001/FilePickUpClient";
+        mws.addPickUp(C1);
+
+        WorkBundle wb = new WorkBundle("/fake/root", "/fake/eat");
+        wb.addFileName("late.txt");
+        Thread producer = new Thread(() -> {
+            pause(100L);
+            mws.addOutboundBundle(wb);
+        });
+        producer.start();
+
+        List<WorkBundle> taken = mws.takeLeased(C1, 10, -1L, 60000L, 10000L);
+        producer.join();
+        assertEquals(1, taken.size(), "Waiting lease gets late work");
+        assertEquals(wb.getBundleId(), taken.get(0).getBundleId(), "Waiting lease gets late work");
+    }
+
+    @Test
+    void testLeaseRenewalAndExpiry() {
+        String C1 = "INITIAL.INPUT.A.http://otherhost:7001/FilePickUpClient";
+        String C2 = "INITIAL.INPUT.A.http://otherhost:8001/FilePickUpClient";
+        mws.addPickUp(C1);
+        mws.addPickUp(C2);
+
+        WorkBundle renewed = new WorkBundle("/fake/root", "/fake/eat");
+        renewed.addFileName("renewed.txt");
+        mws.addOutboundBundle(renewed);
+        WorkBundle expired = new WorkBundle("/fake/root", "/fake/eat");
+        expired.addFileName("expired.txt");
+        mws.addOutboundBundle(expired);
+
+        assertEquals(2, mws.takeLeased(C1, 2, -1L, 1L, 0L).size(), "Leased both bundles");
+        assertEquals(0, mws.renewLeases(C2, List.of(renewed.getBundleId()), 60000L), "Only the holder can renew");
+        assertEquals(1, mws.renewLeases(C1, List.of(renewed.getBundleId()), 60000L), "Holder renews");
+
+        pause(10L);
+        mws.nextLeaseCheck.set(0L);
+        assertEquals(1, mws.expireLeases(), "Unrenewed lease expires");
+        assertEquals(1, mws.getPendingQueueSize(), "Renewed bundle still pending");
+        assertEquals(1, mws.getOutboundQueueSize(), "Expired bundle back outbound");
+        assertEquals(1, mws.getRetriedCount(), "Retry counter bumped on expiry");
+
+        assertTrue(mws.workCompleted(C1, renewed.getBundleId(), true), "Renewed bundle completes");
+        assertEquals(0, mws.renewLeases(C1, List.of(renewed.getBundleId()), 60000L), "Completed bundle has no lease");
+    }
+
     @Test
     void testArgumentParsing() throws Exception {
         List<String> args = new ArrayList<>();
@@ -3,12 +3,16 @@ package emissary.place;
 import emissary.config.ConfigUtil;
 import emissary.core.DataObjectFactory;
 import emissary.core.EmissaryException;
+import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.core.MobileAgent;
 import emissary.core.Namespace;
+import emissary.core.ResourceException;
 import emissary.core.ResourceWatcher;
+import emissary.pool.FamilyProcessingPool;
 import emissary.test.core.junit5.UnitTest;
 
+import jakarta.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,12 +20,17 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -141,4 +150,172 @@ class CoordinationPlaceTest extends UnitTest {
 
         place.configG.removeEntry("SERVICE_COORDINATION", "fakePlace");
     }
+
+    @Test
+    void testStageConfiguration() {
+        String stage = "emissary.place.sample.ToLowerPlace, emissary.place.sample.ToUpperPlace";
+        place.configG.addEntry("SERVICE_COORDINATION", stage);
+        place.configG.addEntry("SERVICE_COORDINATION", "emissary.place.sample.CachePlace");
+        try {
+            place.configurePlace();
+
+            List<String> actualRefs = place.placeRefs.stream()
+                    .map(IServiceProviderPlace::getPlaceName)
+                    .collect(Collectors.toList());
+            assertEquals(List.of("emissary.place.sample.ToLowerPlace", "emissary.place.sample.ToUpperPlace", "emissary.place.sample.CachePlace"),
+                    actualRefs);
+            assertNotNull(place.placeStages.get(place.placeRefs.get(0)));
+            assertEquals(place.placeStages.get(place.placeRefs.get(0)), place.placeStages.get(place.placeRefs.get(1)));
+            assertNull(place.placeStages.get(place.placeRefs.get(2)));
+        } finally {
+            place.configG.removeEntry("SERVICE_COORDINATION", stage);
+            place.configG.removeEntry("SERVICE_COORDINATION", "emissary.place.sample.CachePlace");
+        }
+    }
+
+    @Test
+    void testProcessStage() throws Exception {
+        TagPlace first = new TagPlace("FIRST", "SECOND", false);
+        TagPlace second = new TagPlace("SECOND", "FIRST", true);
+        TagPlace third = new TagPlace("THIRD", "SECOND", false);
+        place.placeRefs = List.of(first, second, third);
+        place.placeStages.put(first, 0);
+        place.placeStages.put(second, 0);
+
+        IBaseDataObject ibdo = DataObjectFactory.getInstance("testing this".getBytes(), "test_file", "text");
+        ibdo.putParameter("FIRST", "before");
+        List<IBaseDataObject> sprouts = place.processHeavyDuty(ibdo);
+
+        // Places in a stage do not see each other's output, places after it do
+        assertFalse(first.sawOther);
+        assertFalse(second.sawOther);
+        assertTrue(third.sawOther);
+
+        assertEquals(List.of("before", "FIRST"), ibdo.getParameter("FIRST"));
+        assertEquals(List.of("SECOND"), ibdo.getParameter("SECOND"));
+        assertNotNull(ibdo.getAlternateView("FIRST"));
+        assertNotNull(ibdo.getAlternateView("SECOND"));
+        assertEquals(1, sprouts.size());
+        assertEquals("TESTCOORDINATE", ibdo.currentForm());
+    }
+
+    @Test
+    void testStageError() throws Exception {
+        TagPlace first = new TagPlace("FIRST", "SECOND", false);
+        TagPlace second = new TagPlace("SECOND", "FIRST", true);
+        second.fail = true;
+        TagPlace third = new TagPlace("THIRD", "SECOND", false);
+        place.placeRefs = List.of(first, second, third);
+        place.placeStages.put(first, 0);
+        place.placeStages.put(second, 0);
+
+        IBaseDataObject ibdo = DataObjectFactory.getInstance("testing this".getBytes(), "test_file", "text");
+        List<IBaseDataObject> sprouts = place.processHeavyDuty(ibdo);
+
+        assertEquals(Form.ERROR, ibdo.currentForm());
+        assertEquals("FIRST", ibdo.getStringParameter("FIRST"));
+        assertTrue(sprouts.isEmpty());
+        assertFalse(third.ran);
+    }
+
+    @Test
+    void testInterruptedStageWaitsForItsPlaces() throws Exception {
+        TagPlace first = new TagPlace("FIRST", "SECOND", false);
+        TagPlace second = new TagPlace("SECOND", "FIRST", false);
+        second.block = new CountDownLatch(1);
+        place.placeRefs = List.of(first, second);
+        place.placeStages.put(first, 0);
+        place.placeStages.put(second, 0);
+
+        IBaseDataObject ibdo = DataObjectFactory.getInstance("testing this".getBytes(), "test_file", "text");
+        Thread coordinator = new Thread(() -> {
+            try {
+                place.processHeavyDuty(ibdo);
+            } catch (ResourceException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        coordinator.start();
+        assertTrue(second.started.await(10, TimeUnit.SECONDS));
+        coordinator.interrupt();
+        coordinator.join(10000);
+
+        assertFalse(coordinator.isAlive());
+        // The cancelled place was interrupted and had stopped before the stage returned
+        assertTrue(second.interrupted);
+        assertTrue(second.stopped);
+        assertFalse(ibdo.hasParameter("SECOND"));
+    }
+
+    @Test
+    void testStageOnPoolThreadRunsInline() throws Exception {
+        TagPlace first = new TagPlace("FIRST", "SECOND", false);
+        TagPlace second = new TagPlace("SECOND", "FIRST", false);
+        place.placeRefs = List.of(first, second);
+        place.placeStages.put(first, 0);
+        place.placeStages.put(second, 0);
+
+        IBaseDataObject ibdo = DataObjectFactory.getInstance("testing this".getBytes(), "test_file", "text");
+        String caller = FamilyProcessingPool.getPool().submit(() -> {
+            place.processHeavyDuty(ibdo);
+            return Thread.currentThread().getName();
+        }).get(10, TimeUnit.SECONDS);
+
+        // A pool thread waiting on stage tasks queued behind it could deadlock the pool
+        assertEquals(caller, first.thread);
+        assertEquals(caller, second.thread);
+        assertEquals("FIRST", ibdo.getStringParameter("FIRST"));
+        assertEquals("SECOND", ibdo.getStringParameter("SECOND"));
+    }
+
+    static final class TagPlace extends ServiceProviderPlace {
+        private final String tag;
+        private final String other;
+        private final boolean sprout;
+        volatile boolean fail = false;
+        volatile boolean ran = false;
+        volatile boolean sawOther = false;
+        @Nullable
+        volatile CountDownLatch block = null;
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile boolean interrupted = false;
+        volatile boolean stopped = false;
+        @Nullable
+        volatile String thread = null;
+
+        TagPlace(String tag, String other, boolean sprout) throws IOException {
+            super("emissary.core.FakePlace.cfg", tag + "Place.www.example.com:8001");
+            this.tag = tag;
+            this.other = other;
+            this.sprout = sprout;
+        }
+
+        @Override
+        public List<IBaseDataObject> processHeavyDuty(IBaseDataObject d) {
+            ran = true;
+            thread = Thread.currentThread().getName();
+            started.countDown();
+            if (block != null) {
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    return Collections.emptyList();
+                } finally {
+                    stopped = true;
+                }
+            }
+            sawOther = d.getAlternateView(other) != null;
+            d.appendParameter(tag, tag);
+            d.addAlternateView(tag, tag.getBytes());
+            if (fail) {
+                d.pushCurrentForm(Form.ERROR);
+            }
+            List<IBaseDataObject> children = new ArrayList<>();
+            if (sprout) {
+                children.add(DataObjectFactory.getInstance("child".getBytes(), "test_file-att-1", "text"));
+            }
+            return children;
+        }
+    }
 }
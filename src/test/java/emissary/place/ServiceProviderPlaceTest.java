@@ -5,6 +5,7 @@ import emissary.config.Configurator;
 import emissary.config.ServiceConfigGuide;
 import emissary.core.BaseDataObject;
 import emissary.core.EmissaryException;
+import emissary.core.Form;
 import emissary.core.IBaseDataObject;
 import emissary.core.Namespace;
 import emissary.directory.DirectoryEntry;
@@ -22,8 +23,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -85,6 +91,10 @@ class ServiceProviderPlaceTest extends UnitTest {
             + "SERVICE_QUALITY = 90\n" + "SERVICE_PROXY = \"TEST_SERVICE_PROXY\"\n"
             + "SERVICE_PROXY_DENY = \"TEST_SERVICE_PROXY\"\n" + "SERVICE_PROXY_DENY != \"*\"\n").getBytes();
 
+    private static final byte[] configSerialData = ("PLACE_NAME = \"PlaceTest\"\n" + "SERVICE_NAME = \"TEST_SERVICE_NAME\"\n"
+            + "SERVICE_TYPE = \"ANALYZE\"\n" + "SERVICE_DESCRIPTION = \"test place\"\n" + "SERVICE_COST = 60\n" + "SERVICE_QUALITY = 90\n"
+            + "SERVICE_PROXY = \"TEST_SERVICE_PROXY\"\n" + "CONCURRENT_FAMILY_PROCESSING = \"false\"\n").getBytes();
+
     String configDir = System.getProperty(ConfigUtil.CONFIG_DIR_PROPERTY);
 
     @Override
@@ -567,6 +577,155 @@ class ServiceProviderPlaceTest extends UnitTest {
         }
     }
 
+    @Test
+    void testConcurrentFamilyProcessing() throws Exception {
+        ThreadSafeTestPlace tsp = new ThreadSafeTestPlace(new ByteArrayInputStream(configData));
+        try {
+            List<IBaseDataObject> family = makeFamily(24);
+            List<IBaseDataObject> children = tsp.agentProcessHeavyDuty(family);
+
+            assertFalse(tsp.threads.contains(Thread.currentThread().getName()), "Family should be processed on the pool");
+            assertSerialResults(family, children);
+        } finally {
+            tsp.shutDown();
+        }
+    }
+
+    @Test
+    void testConcurrentFamilyProcessingDisabled() throws Exception {
+        ThreadSafeTestPlace tsp = new ThreadSafeTestPlace(new ByteArrayInputStream(configSerialData));
+        try {
+            List<IBaseDataObject> family = makeFamily(24);
+            List<IBaseDataObject> children = tsp.agentProcessHeavyDuty(family);
+
+            assertEquals(Set.of(Thread.currentThread().getName()), tsp.threads, "Config should turn concurrent processing off");
+            assertSerialResults(family, children);
+        } finally {
+            tsp.shutDown();
+        }
+    }
+
+    @Test
+    void testSmallFamilyNotConcurrent() throws Exception {
+        ThreadSafeTestPlace tsp = new ThreadSafeTestPlace(new ByteArrayInputStream(configData));
+        try {
+            tsp.agentProcessHeavyDuty(makeFamily(ServiceProviderPlace.DEFAULT_CONCURRENT_FAMILY_MINIMUM - 1));
+            assertEquals(Set.of(Thread.currentThread().getName()), tsp.threads, "Small family should be processed in order");
+        } finally {
+            tsp.shutDown();
+        }
+    }
+
+    @Test
+    void testInterruptedFamilyWaitsForItsPayloads() throws Exception {
+        ThreadSafeTestPlace tsp = new ThreadSafeTestPlace(new ByteArrayInputStream(configData));
+        tsp.block = new CountDownLatch(1);
+        try {
+            List<IBaseDataObject> family = makeFamily(24);
+            Thread agent = new Thread(() -> {
+                try {
+                    tsp.agentProcessHeavyDuty(family);
+                } catch (Exception e) {
+                    // expected when interrupted
+                }
+            });
+            agent.start();
+            assertTrue(tsp.started.await(10, TimeUnit.SECONDS));
+            agent.interrupt();
+            agent.join(10000);
+
+            assertFalse(agent.isAlive());
+            // The payloads being processed were interrupted and had stopped before the call returned
+            assertTrue(tsp.interrupted.get() > 0);
+            assertEquals(0, tsp.running.get());
+        } finally {
+            tsp.block.countDown();
+            tsp.shutDown();
+        }
+    }
+
+    private static List<IBaseDataObject> makeFamily(int size) {
+        List<IBaseDataObject> family = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            IBaseDataObject d = new BaseDataObject(("payload " + i).getBytes(), "family-att-" + i, "UNKNOWN");
+            d.setParameter("CHILDREN", Integer.toString(i % 3));
+            if (i == 5) {
+                d.setParameter("FAIL", "true");
+            }
+            family.add(d);
+        }
+        return family;
+    }
+
+    // Children must come back in the order of their parents just as when processed one at a time
+    private static void assertSerialResults(List<IBaseDataObject> family, List<IBaseDataObject> children) {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < family.size(); i++) {
+            IBaseDataObject d = family.get(i);
+            if (i == 5) {
+                assertEquals(Form.ERROR, d.currentForm(), "Failed payload should be in error");
+                assertTrue(d.getProcessingError().contains("Failed " + d.shortName()));
+                assertEquals(0, d.getNumChildren());
+                continue;
+            }
+            assertEquals("UNKNOWN", d.currentForm());
+            assertEquals(i % 3, d.getNumChildren(), "Child count of " + d.shortName());
+            for (int c = 0; c < i % 3; c++) {
+                expected.add(d.shortName() + "-child-" + c);
+            }
+        }
+        List<String> actual = new ArrayList<>();
+        for (IBaseDataObject c : children) {
+            actual.add(c.shortName());
+        }
+        assertEquals(expected, actual);
+    }
+
+    private static final class ThreadSafeTestPlace extends ServiceProviderPlace implements ThreadSafePlace {
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger interrupted = new AtomicInteger();
+        @Nullable
+        volatile CountDownLatch block = null;
+
+        ThreadSafeTestPlace(InputStream config) throws IOException {
+            super(config, null, "http://localhost:8001/ThreadSafeTestPlace");
+        }
+
+        @Override
+        public List<IBaseDataObject> processHeavyDuty(IBaseDataObject d) {
+            threads.add(Thread.currentThread().getName());
+            if (d.hasParameter("FAIL")) {
+                throw new IllegalStateException("Failed " + d.shortName());
+            }
+            if (block != null) {
+                running.incrementAndGet();
+                started.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    return new ArrayList<>();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+            // Later payloads finish first
+            try {
+                Thread.sleep(Math.max(1, 30 - Integer.parseInt(d.shortName().substring("family-att-".length()))));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<IBaseDataObject> kids = new ArrayList<>();
+            int count = Integer.parseInt(d.getStringParameter("CHILDREN"));
+            for (int c = 0; c < count; c++) {
+                kids.add(new BaseDataObject(new byte[0], d.shortName() + "-child-" + c, "UNKNOWN"));
+            }
+            return kids;
+        }
+    }
+
     private static final class PlaceTest extends ServiceProviderPlace {
 
         public PlaceTest() throws IOException {
@@ -3,6 +3,7 @@ package emissary.pool;
 import emissary.test.core.junit5.UnitTest;
 
 import jakarta.annotation.Nullable;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -42,4 +43,11 @@ class AgentPoolTest extends UnitTest {
             assertEquals(expectedPoolSize, AgentPool.computePoolSize(maxMemoryInBytes, propertyOverride), "Pool Size Calculation Error");
         }
     }
+
+    @Test
+    void testComputeInFlightLimit() {
+        assertEquals(1000L, AgentPool.computeInFlightLimit(4000L, -1L, 25.0));
+        assertEquals(123L, AgentPool.computeInFlightLimit(4000L, 123L, 25.0));
+        assertEquals(-1L, AgentPool.computeInFlightLimit(4000L, -1L, -1.0));
+    }
 }
@@ -0,0 +1,86 @@
+package emissary.pool;
+
+import emissary.core.BaseDataObject;
+import emissary.core.IBaseDataObject;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost per payload of spilling queued payloads to an {@link OverflowSpool} and reading them back. Each
+ * invocation writes a burst of payloads and then drains it, so segments are filled, sealed, mapped and deleted as they
+ * are when {@link MoveSpool} spills under memory pressure.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args=OverflowSpoolBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OverflowSpoolBenchmark {
+
+    private static final int BURST = 256;
+
+    /** Payload data sizes */
+    @Param({"4096", "65536", "1048576"})
+    public int size;
+
+    private final IBaseDataObject[] payloads = new IBaseDataObject[BURST];
+    private Path directory;
+    private OverflowSpool spool;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Random rng = new Random(size);
+        for (int i = 0; i < BURST; i++) {
+            final byte[] data = new byte[size];
+            rng.nextBytes(data);
+            payloads[i] = new BaseDataObject(data, "payload-" + i);
+            payloads[i].pushCurrentForm("UNKNOWN");
+        }
+        directory = Files.createTempDirectory("overflow-spool-benchmark");
+        spool = new OverflowSpool(directory, MoveSpool.DEFAULT_OVERFLOW_SEGMENT_BYTES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        spool.close();
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void offerAndPoll(final Blackhole bh) {
+        for (final IBaseDataObject payload : payloads) {
+            if (!spool.offer(new MoveSpool.SpoolItem(MoveSpool.Method.GO, payload, null, 0, null))) {
+                throw new IllegalStateException("Payload was not spooled");
+            }
+        }
+        for (int i = 0; i < BURST; i++) {
+            bh.consume(spool.poll().getPayload());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package emissary.pool;
+
+import emissary.core.BaseDataObject;
+import emissary.core.IBaseDataObject;
+import emissary.core.channels.InMemoryChannelFactory;
+import emissary.directory.DirectoryEntry;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverflowSpoolTest extends UnitTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private static MoveSpool.SpoolItem item(final Object payload) {
+        return new MoveSpool.SpoolItem(MoveSpool.Method.GO, payload, null, 0, null);
+    }
+
+    private static IBaseDataObject payload(final String name) {
+        return new BaseDataObject(name.getBytes(StandardCharsets.UTF_8), name);
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> paths = Files.list(spoolDir)) {
+            return paths.count();
+        }
+    }
+
+    @Test
+    void testOrderAcrossSegments() throws IOException {
+        try (OverflowSpool spool = new OverflowSpool(spoolDir, 200)) {
+            for (int i = 0; i < 20; i++) {
+                assertTrue(spool.offer(item(payload("payload-" + i))), "Offer " + i);
+            }
+            assertEquals(20, spool.size());
+            assertTrue(segments() > 1, "Entries should span several segments");
+
+            for (int i = 0; i < 20; i++) {
+                final MoveSpool.SpoolItem read = spool.poll();
+                assertEquals("payload-" + i, ((IBaseDataObject) read.getPayload()).getFilename());
+            }
+            assertNull(spool.poll());
+            assertEquals(0, spool.size());
+            assertEquals(0, segments(), "Segments removed once read");
+        }
+    }
+
+    @Test
+    void testOfferWhileReading() throws IOException {
+        try (OverflowSpool spool = new OverflowSpool(spoolDir, 1024 * 1024)) {
+            spool.offer(item(payload("first")));
+            assertEquals("first", ((IBaseDataObject) spool.poll().getPayload()).getFilename());
+            spool.offer(item(payload("second")));
+            spool.offer(item(payload("third")));
+            assertEquals("second", ((IBaseDataObject) spool.poll().getPayload()).getFilename());
+            spool.offer(item(payload("fourth")));
+            assertEquals("third", ((IBaseDataObject) spool.poll().getPayload()).getFilename());
+            assertEquals("fourth", ((IBaseDataObject) spool.poll().getPayload()).getFilename());
+            assertNull(spool.poll());
+        }
+    }
+
+    @Test
+    void testEntryState() throws IOException {
+        final IBaseDataObject parent = payload("parent");
+        final IBaseDataObject child = payload("child");
+        child.setChannelFactory(InMemoryChannelFactory.create("child data".getBytes(StandardCharsets.UTF_8)));
+        final List<DirectoryEntry> itinerary = Collections.singletonList(new DirectoryEntry("UNKNOWN.PLACE.ID.http://localhost:8001/Place", "a place", 10, 90));
+
+        try (OverflowSpool spool = new OverflowSpool(spoolDir, 1024 * 1024)) {
+            assertTrue(spool.offer(new MoveSpool.SpoolItem(MoveSpool.Method.ARRIVE, Arrays.asList(parent, child), null, 2, itinerary)));
+            assertTrue(spool.offer(item(Collections.singletonList(payload("alone")))));
+
+            final MoveSpool.SpoolItem read = spool.poll();
+            assertEquals(MoveSpool.Method.ARRIVE, read.getMethod());
+            assertEquals(2, read.getErrorCount());
+            assertEquals(1, read.getItineraryItems().size());
+            final DirectoryEntry entry = read.getItineraryItems().get(0);
+            assertEquals("UNKNOWN.PLACE.ID.http://localhost:8001/Place", entry.getKey());
+            assertEquals("a place", entry.getDescription());
+            assertEquals(10, entry.getCost());
+            assertEquals(90, entry.getQuality());
+            final List<?> family = assertInstanceOf(List.class, read.getPayload());
+            assertEquals(2, family.size());
+
+            final MoveSpool.SpoolItem alone = spool.poll();
+            assertInstanceOf(List.class, alone.getPayload(), "A list of one stays a list");
+            assertEquals(0, segments(), "Segments removed once read");
+
+            // The channel content is still readable from the mapping after its segment is gone
+            assertEquals("child data", new String(((IBaseDataObject) family.get(1)).data(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testNotSpillable() throws IOException {
+        try (OverflowSpool spool = new OverflowSpool(spoolDir, 100)) {
+            assertFalse(spool.offer(item("not a payload")), "Only data objects are written");
+            assertFalse(spool.offer(item(Arrays.asList(payload("ok"), "not a payload"))), "Only lists of data objects are written");
+            assertFalse(spool.offer(item(new BaseDataObject(new byte[101], "big"))), "Payloads larger than a segment stay on heap");
+            assertEquals(0, spool.size());
+        }
+    }
+
+    @Test
+    void testLeftoverSegmentsRemoved() throws IOException {
+        try (OverflowSpool spool = new OverflowSpool(spoolDir, 1024)) {
+            spool.offer(item(payload("left behind")));
+        }
+        Files.write(spoolDir.resolve("spool-000000000000.seg"), new byte[10]);
+        Files.write(spoolDir.resolve("other.txt"), new byte[10]);
+
+        try (OverflowSpool spool = new OverflowSpool(spoolDir, 1024)) {
+            assertEquals(0, spool.size());
+            assertNull(spool.poll());
+            assertEquals(1, segments(), "Only segment files are removed");
+        }
+    }
+
+    @Test
+    void testClose() throws IOException {
+        final OverflowSpool spool = new OverflowSpool(spoolDir, 1024);
+        spool.offer(item(payload("dropped")));
+        spool.close();
+
+        assertEquals(0, spool.size());
+        assertEquals(0, segments(), "Segments removed on close");
+        assertFalse(spool.offer(item(payload("too late"))), "Nothing accepted after close");
+        assertNull(spool.poll());
+    }
+}
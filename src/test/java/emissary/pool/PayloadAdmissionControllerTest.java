@@ -0,0 +1,104 @@
+package emissary.pool;
+
+import emissary.core.BaseDataObject;
+import emissary.core.IBaseDataObject;
+import emissary.core.channels.InMemoryChannelFactory;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadAdmissionControllerTest extends UnitTest {
+
+    @Test
+    void testAdmitWithinLimit() {
+        PayloadAdmissionController controller = new PayloadAdmissionController(100);
+        assertTrue(controller.tryAdmit(60));
+        assertTrue(controller.tryAdmit(40));
+        assertFalse(controller.tryAdmit(1));
+        assertEquals(100, controller.getInFlight());
+        assertEquals(2, controller.getAdmitted());
+
+        controller.release(40);
+        assertTrue(controller.tryAdmit(1));
+        assertEquals(61, controller.getInFlight());
+    }
+
+    @Test
+    void testLargePayloadAdmittedAlone() {
+        PayloadAdmissionController controller = new PayloadAdmissionController(100);
+        assertTrue(controller.exceedsBudget(500));
+        assertTrue(controller.tryAdmit(500));
+        assertFalse(controller.tryAdmit(0));
+
+        controller.release(500);
+        assertTrue(controller.tryAdmit(10));
+        assertFalse(controller.tryAdmit(500));
+    }
+
+    @Test
+    void testUnlimited() {
+        PayloadAdmissionController controller = new PayloadAdmissionController(-1);
+        assertFalse(controller.isEnabled());
+        assertFalse(controller.exceedsBudget(Long.MAX_VALUE / 2));
+        assertTrue(controller.tryAdmit(Long.MAX_VALUE / 2));
+        assertTrue(controller.tryAdmit(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    void testAdmitTimesOut() throws InterruptedException {
+        PayloadAdmissionController controller = new PayloadAdmissionController(100);
+        assertTrue(controller.tryAdmit(100));
+        assertFalse(controller.admit(1, 10));
+        assertEquals(1, controller.getAdmitted());
+    }
+
+    @Test
+    void testAdmitWaitsForRelease() throws InterruptedException {
+        PayloadAdmissionController controller = new PayloadAdmissionController(100);
+        assertTrue(controller.tryAdmit(100));
+
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean admitted = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            started.countDown();
+            try {
+                admitted.set(controller.admit(50, -1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertFalse(admitted.get());
+
+        controller.release(100);
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+        assertTrue(admitted.get());
+        assertEquals(50, controller.getInFlight());
+    }
+
+    @Test
+    void testNegativeBytes() {
+        PayloadAdmissionController controller = new PayloadAdmissionController(100);
+        assertThrows(IllegalArgumentException.class, () -> controller.tryAdmit(-1));
+    }
+
+    @Test
+    void testSizeOf() {
+        IBaseDataObject bytes = new BaseDataObject(new byte[42], "bytes");
+        assertEquals(42, PayloadAdmissionController.sizeOf(bytes));
+
+        IBaseDataObject channel = new BaseDataObject();
+        channel.setChannelFactory(InMemoryChannelFactory.create(new byte[17]));
+        assertEquals(17, PayloadAdmissionController.sizeOf(channel));
+    }
+}
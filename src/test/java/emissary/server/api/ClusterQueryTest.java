@@ -0,0 +1,160 @@
+package emissary.server.api;
+
+import emissary.client.response.BaseEntity;
+import emissary.client.response.MapResponseEntity;
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterQueryTest extends UnitTest {
+
+    private static final String FAST = "*.*.*.http://fast:8001/DirectoryPlace";
+    private static final String SLOW = "*.*.*.http://slow:8001/DirectoryPlace";
+    private static final String BROKEN = "*.*.*.http://broken:8001/DirectoryPlace";
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorService executor;
+
+    @Override
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @Override
+    @AfterEach
+    public void tearDown() throws Exception {
+        super.tearDown();
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    private BaseEntity fetch(String url, Class<? extends BaseEntity> type, long timeoutMillis) {
+        calls.computeIfAbsent(url, k -> new AtomicInteger()).incrementAndGet();
+        order.add(url);
+        if (url.contains("broken")) {
+            throw new IllegalStateException("connection refused");
+        }
+        if (url.contains("slow")) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        MapResponseEntity entity = new MapResponseEntity();
+        entity.addKeyValue(url, "up");
+        return entity;
+    }
+
+    private int callsTo(String host) {
+        return calls.getOrDefault("http://" + host + ":8001/api/version", new AtomicInteger()).get();
+    }
+
+    @Test
+    void testPartialResults() {
+        ClusterQuery query = new ClusterQuery(200L, 60000L, 0L, executor, this::fetch);
+        long start = System.nanoTime();
+        List<MapResponseEntity> results = query.query(List.of(FAST, SLOW, BROKEN), "api/version", MapResponseEntity.class);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsed < 5000L, "Slow peer must not hold up the answer: " + elapsed);
+        assertEquals(3, results.size());
+        assertEquals("up", results.get(0).getResponse().get("http://fast:8001/api/version"));
+        assertTrue(results.get(0).getErrors().isEmpty());
+        assertTrue(results.get(1).getResponse().isEmpty());
+        assertEquals("ERROR - No response from http://slow:8001/api/version within 200 ms", results.get(1).getErrors().iterator().next());
+        assertTrue(results.get(2).getErrors().iterator().next().startsWith("ERROR - Request to http://broken:8001/api/version failed"));
+    }
+
+    @Test
+    void testAnswersAreKept() {
+        ClusterQuery query = new ClusterQuery(200L, 60000L, 0L, executor, this::fetch);
+        query.query(List.of(FAST, SLOW, BROKEN), "api/version", MapResponseEntity.class);
+        List<MapResponseEntity> again = query.query(List.of(FAST, SLOW, BROKEN), "api/version", MapResponseEntity.class);
+
+        assertEquals(1, callsTo("fast"), "Recent answer reused");
+        assertEquals(1, callsTo("slow"), "Fetch in progress shared");
+        assertEquals(2, callsTo("broken"), "Failures are not kept");
+        assertEquals("up", again.get(0).getResponse().get("http://fast:8001/api/version"));
+        assertEquals("ERROR - Earlier request to http://slow:8001/api/version is still outstanding", again.get(1).getErrors().iterator().next());
+
+        release.countDown();
+        query.clear();
+        query.query(List.of(FAST), "api/version", MapResponseEntity.class);
+        assertEquals(2, callsTo("fast"));
+    }
+
+    @Test
+    void testFailuresAreKept() {
+        ClusterQuery query = new ClusterQuery(200L, 60000L, 60000L, executor, this::fetch);
+        query.query(List.of(BROKEN), "api/version", MapResponseEntity.class);
+        List<MapResponseEntity> again = query.query(List.of(BROKEN), "api/version", MapResponseEntity.class);
+
+        assertEquals(1, callsTo("broken"), "Failed peer left alone");
+        assertTrue(again.get(0).getErrors().iterator().next().startsWith("ERROR - Request to http://broken:8001/api/version failed"));
+    }
+
+    @Test
+    void testRetriesQueuedLast() {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            ClusterQuery query = new ClusterQuery(1000L, 0L, 0L, single, this::fetch);
+            query.query(List.of(BROKEN, FAST), "api/version", MapResponseEntity.class);
+            order.clear();
+            query.query(List.of(BROKEN, FAST), "api/version", MapResponseEntity.class);
+            assertEquals(List.of("http://fast:8001/api/version", "http://broken:8001/api/version"), order);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAnswersExpire() throws InterruptedException {
+        ClusterQuery query = new ClusterQuery(1000L, 1L, 0L, executor, this::fetch);
+        query.query(List.of(FAST), "api/version", MapResponseEntity.class);
+        Thread.sleep(5L);
+        query.query(List.of(FAST), "api/version", MapResponseEntity.class);
+        assertEquals(2, callsTo("fast"));
+    }
+
+    @Test
+    void testConcurrentCallersShareOneFetch() throws Exception {
+        ClusterQuery query = new ClusterQuery(5000L, 60000L, 0L, executor, this::fetch);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = callers.submit(() -> query.query(List.of(SLOW), "api/version", MapResponseEntity.class));
+            }
+            Thread.sleep(100L);
+            release.countDown();
+            for (Future<?> f : futures) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, callsTo("slow"));
+    }
+}
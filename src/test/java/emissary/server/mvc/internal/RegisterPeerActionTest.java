@@ -2,6 +2,7 @@ package emissary.server.mvc.internal;
 
 import emissary.config.ConfigUtil;
 import emissary.core.Namespace;
+import emissary.directory.DirectoryEntryDelta;
 import emissary.directory.DirectoryPlace;
 import emissary.directory.EmissaryNode;
 import emissary.server.mvc.EndpointTestBase;
@@ -19,9 +20,12 @@ import org.junit.jupiter.params.provider.ValueSource;
 import java.io.IOException;
 import java.util.Collections;
 
+import static emissary.server.mvc.adapters.DirectoryAdapter.DELTA_EPOCH;
+import static emissary.server.mvc.adapters.DirectoryAdapter.DELTA_SEQUENCE;
 import static emissary.server.mvc.adapters.DirectoryAdapter.DIRECTORY_NAME;
 import static emissary.server.mvc.adapters.DirectoryAdapter.TARGET_DIRECTORY;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -33,6 +37,7 @@ class RegisterPeerActionTest extends EndpointTestBase {
     private static final String PEER_KEY_BAD = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://otherRemoteHost:8888/DirectoryPlace";
     private static final String DIRNAME = "EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:9999/DirectoryPlace$5050";
     private static final String REGISTER_PEER_ACTION = "RegisterPeer.action";
+    private static final String REGISTER_PEER_DELTA_ACTION = "RegisterPeerDelta.action";
     private static final String SUCCESS_RESULT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
             + "<directory location=\"EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:9999/DirectoryPlace\">\r\n"
             + "  <entryList dataid=\"EMISSARY_DIRECTORY_SERVICES::STUDY\">\r\n" + "    <entry>\r\n"
@@ -108,6 +113,37 @@ class RegisterPeerActionTest extends EndpointTestBase {
         }
     }
 
+    @Test
+    void registerPeerDeltaSuccessfully() throws IOException {
+        final DirectoryEntryDelta full;
+        try (Response response = target(REGISTER_PEER_DELTA_ACTION).request().post(Entity.form(formParams))) {
+            assertEquals(200, response.getStatus());
+            full = DirectoryEntryDelta.fromBytes(response.readEntity(byte[].class));
+        }
+        assertTrue(full.isFull());
+        assertEquals(1, full.getEntries().size());
+        assertEquals("EMISSARY_DIRECTORY_SERVICES.DIRECTORY.STUDY.http://localhost:9999/DirectoryPlace$5050",
+                full.getEntries().get(0).getFullKey());
+
+        formParams.put(DELTA_EPOCH, Collections.singletonList(Long.toString(full.getEpoch())));
+        formParams.put(DELTA_SEQUENCE, Collections.singletonList(Long.toString(full.getToSequence())));
+        try (Response response = target(REGISTER_PEER_DELTA_ACTION).request().post(Entity.form(formParams))) {
+            assertEquals(200, response.getStatus());
+            final DirectoryEntryDelta delta = DirectoryEntryDelta.fromBytes(response.readEntity(byte[].class));
+            assertFalse(delta.isFull());
+            assertTrue(delta.isEmpty(), "Nothing changed since the full transfer");
+        }
+    }
+
+    @Test
+    void failUnknownPeerDeltaRegistration() {
+        formParams.replace(DIRECTORY_NAME, Collections.singletonList(PEER_KEY_BAD));
+        try (Response response = target(REGISTER_PEER_DELTA_ACTION).request().post(Entity.form(formParams))) {
+            assertEquals(500, response.getStatus());
+            assertTrue(response.readEntity(String.class).startsWith("Registration failed"));
+        }
+    }
+
     @Test
     void failUnknownPeerRegistration() {
         MultivaluedHashMap<String, String> newFormParams = new MultivaluedHashMap<>();
@@ -0,0 +1,81 @@
+package emissary.spi;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectTraceBufferTest extends UnitTest {
+
+    @Test
+    void testCapacity() {
+        assertEquals(2, ObjectTraceBuffer.capacityFor(0));
+        assertEquals(2, ObjectTraceBuffer.capacityFor(2));
+        assertEquals(4, ObjectTraceBuffer.capacityFor(3));
+        assertEquals(1024, ObjectTraceBuffer.capacityFor(1024));
+        assertEquals(2048, ObjectTraceBuffer.capacityFor(1025));
+        assertEquals(1 << 30, ObjectTraceBuffer.capacityFor(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testFullAndWrap() {
+        ObjectTraceBuffer<Integer> buffer = new ObjectTraceBuffer<>(4);
+        List<Integer> out = new ArrayList<>();
+        int next = 0;
+        for (int lap = 0; lap < 5; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(next++));
+            }
+            assertFalse(buffer.offer(-1), "Full buffer refuses items");
+            assertEquals(4, buffer.size());
+            assertEquals(3, buffer.drain(out, 3));
+            assertTrue(buffer.offer(next++));
+            assertEquals(2, buffer.drain(out, 10));
+            assertEquals(0, buffer.size());
+        }
+        for (int i = 0; i < out.size(); i++) {
+            assertEquals(i, (int) out.get(i), "Items come out in order");
+        }
+    }
+
+    @Test
+    void testManyProducers() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 20000;
+        ObjectTraceBuffer<int[]> buffer = new ObjectTraceBuffer<>(64);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(new int[] {producer, i})) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+
+        int[] expected = new int[producers];
+        List<int[]> out = new ArrayList<>();
+        int taken = 0;
+        while (taken < producers * perProducer) {
+            out.clear();
+            taken += buffer.drain(out, 16);
+            for (int[] item : out) {
+                assertEquals(expected[item[0]]++, item[1], "Each producer's items stay in order");
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,86 @@
+package emissary.spi;
+
+import emissary.core.DataObjectFactory;
+import emissary.core.IBaseDataObject;
+import emissary.test.core.junit5.UnitTest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectTracingServiceTest extends UnitTest {
+
+    private final Logger objectTraceLogger = (Logger) LoggerFactory.getLogger("objectTrace");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Level level;
+
+    @BeforeEach
+    void attach() {
+        level = objectTraceLogger.getLevel();
+        objectTraceLogger.setLevel(Level.INFO);
+        appender.start();
+        objectTraceLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detach() {
+        objectTraceLogger.detachAppender(appender);
+        objectTraceLogger.setLevel(level);
+    }
+
+    @Test
+    void testEventsAreLogged() {
+        IBaseDataObject d = DataObjectFactory.getInstance(new byte[0], "file1");
+        ObjectTracingService.emitLifecycleEvent(null, "input1", ObjectTracing.Stage.PICK_UP, true);
+        ObjectTracingService.emitLifecycleEvent(d, "input1", ObjectTracing.Stage.DROP_OFF, true, "JSON", "out1");
+        ObjectTracingService.emitLifecycleEvent(d, "input2", ObjectTracing.Stage.DROP_OFF, false, "JSON", "out2");
+        ObjectTracingService.flush();
+
+        List<String> logged = new ArrayList<>();
+        for (ILoggingEvent event : appender.list) {
+            logged.add(String.valueOf(event.getMarker()));
+        }
+        assertEquals(2, logged.size(), "Only traced events are logged: " + logged);
+        assertTrue(logged.get(0).contains("inputFileName=input1") && logged.get(0).contains("stage=PICK_UP"), logged.get(0));
+        assertTrue(logged.get(1).contains("outputFileName=out1") && logged.get(1).contains("outputType=JSON"), logged.get(1));
+        assertEquals(0, ObjectTracingService.getPendingCount());
+    }
+
+    @Test
+    void testManyThreads() throws InterruptedException {
+        final int threads = 4;
+        final int perThread = 500;
+        final long emitted = ObjectTracingService.getEmittedCount();
+        final long lost = ObjectTracingService.getOverflowCount() + ObjectTracingService.getDroppedCount();
+        List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String name = "thread" + t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    ObjectTracingService.emitLifecycleEvent(null, name + "-" + i, ObjectTracing.Stage.PICK_UP, true);
+                }
+            });
+            started.add(thread);
+            thread.start();
+        }
+        for (Thread thread : started) {
+            thread.join();
+        }
+        ObjectTracingService.flush();
+
+        final long lostNow = ObjectTracingService.getOverflowCount() + ObjectTracingService.getDroppedCount() - lost;
+        assertEquals(threads * perThread, ObjectTracingService.getEmittedCount() - emitted + lostNow, "Every event is logged or counted");
+        assertEquals(ObjectTracingService.getEmittedCount() - emitted, appender.list.size());
+    }
+}
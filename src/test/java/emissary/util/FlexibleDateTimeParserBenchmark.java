@@ -0,0 +1,125 @@
+package emissary.util;
+
+import jakarta.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FlexibleDateTimeParser}, which only tries the formats that fit the shape of a string, with trying
+ * every configured format in order and catching the exception from each misfit, as it did before.
+ * <p>
+ * The corpus is weighted towards what extraction hands the parser: mail and HTTP header dates, ISO timestamps, numeric
+ * dates from documents and image metadata, and strings that are not dates at all. Each string is tried against the
+ * main formats and then the extra ones, as {@link FlexibleDateTimeParser#parse(String, boolean)} does.
+ * <p>
+ * Run from the project directory, which the forked JVM reads the formats from, with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=FlexibleDateTimeParserBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Demissary.config.dir=src/main/config")
+@State(Scope.Benchmark)
+public class FlexibleDateTimeParserBenchmark {
+
+    private static final String[] CORPUS = {
+            // mail and http headers
+            "Mon, 4 Jan 2016 18:20:30 +0000",
+            "Mon, 04 Jan 2016 18:20:30 GMT",
+            "Mon, 4 Jan 2016 13:20:30 -0500 (EST)",
+            "Monday, January 4, 2016 01:20 PM",
+            "Mon Jan 04 13:20:30 EST 2016",
+            "Tue, 5 Jan 2016 09:01:02 +0100",
+            // iso and log timestamps
+            "2016-01-04T18:20:30Z",
+            "2016-01-04T18:20:30.123+05:30",
+            "2016-01-04 18:20:30 GMT+0000",
+            "2016-01-04",
+            "20160104182030",
+            // document and image metadata
+            "01/04/2016 13:20:30",
+            "01/04/16",
+            "04.01.2016 13:20:30",
+            "2016:01:04 13:20:30.00",
+            "4 January 2016 6:20:30 PM",
+            "17.Mar.2016",
+            // not dates
+            "2016-13-45",
+            "Tuesday",
+            "Unknown",
+            "1234",
+            "see attached"};
+
+    private final List<DateTimeFormatter> main = FlexibleDateTimeParser.getMainFormats();
+    private final List<DateTimeFormatter> extra = FlexibleDateTimeParser.getExtraFormats();
+
+    @Benchmark
+    public void byShape(final Blackhole bh) {
+        for (final String date : CORPUS) {
+            ZonedDateTime zdt = FlexibleDateTimeParser.parse(date, main);
+            if (zdt == null) {
+                zdt = FlexibleDateTimeParser.parse(date, extra);
+            }
+            bh.consume(zdt);
+        }
+    }
+
+    @Benchmark
+    public void everyFormat(final Blackhole bh) {
+        for (final String date : CORPUS) {
+            ZonedDateTime zdt = parseEveryFormat(date, main);
+            if (zdt == null) {
+                zdt = parseEveryFormat(date, extra);
+            }
+            bh.consume(zdt);
+        }
+    }
+
+    /**
+     * The parse loop used before formats were chosen by shape
+     */
+    @Nullable
+    private static ZonedDateTime parseEveryFormat(final String dateString, final List<DateTimeFormatter> formats) {
+        final String cleanedDateString = FlexibleDateTimeParser.cleanDateString(dateString);
+        if (cleanedDateString == null) {
+            return null;
+        }
+        for (final DateTimeFormatter formatter : formats) {
+            try {
+                final TemporalAccessor accessor =
+                        formatter.parseBest(cleanedDateString, ZonedDateTime::from, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+                if (accessor instanceof ZonedDateTime) {
+                    return (ZonedDateTime) accessor;
+                } else if (accessor instanceof OffsetDateTime) {
+                    return ((OffsetDateTime) accessor).atZoneSameInstant(FlexibleDateTimeParser.getTimezone());
+                } else if (accessor instanceof LocalDateTime) {
+                    return ((LocalDateTime) accessor).atZone(FlexibleDateTimeParser.getTimezone());
+                } else if (accessor instanceof LocalDate) {
+                    return ((LocalDate) accessor).atStartOfDay(FlexibleDateTimeParser.getTimezone());
+                }
+            } catch (NullPointerException | IllegalArgumentException | DateTimeParseException e) {
+                // expected for formats that do not fit
+            }
+        }
+        return null;
+    }
+}
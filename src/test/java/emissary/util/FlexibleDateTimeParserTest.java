@@ -7,13 +7,25 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FlexibleDateTimeParserTest extends UnitTest {
 
@@ -708,4 +720,89 @@ class FlexibleDateTimeParserTest extends UnitTest {
         test("Mon, 2 Feb 2017 06:20:30 PM +0000", 0L, "UNKNOWN");
         test("2016:01:04 18:20:30 GMT+0000<" + RandomStringUtils.randomAlphanumeric(75) + ">", 0L, "UNKNOWN");
     }
+
+    @Test
+    void testRequiredShape() {
+        assertEquals(FlexibleDateTimeParser.shapeOf("2016-01-04"), FlexibleDateTimeParser.requiredShape("yyyy-MM-dd"));
+        assertEquals(FlexibleDateTimeParser.shapeOf("2016-01-04"), FlexibleDateTimeParser.requiredShape("yyyy-MM-dd['T'HH:mm:ss]"));
+        assertEquals(FlexibleDateTimeParser.shapeOf("Jan 4, 2016"), FlexibleDateTimeParser.requiredShape("MMM d, yyyy"));
+        assertEquals(FlexibleDateTimeParser.shapeOf("04'16"), FlexibleDateTimeParser.requiredShape("dd''yy"));
+        assertEquals(FlexibleDateTimeParser.shapeOf("T:"), FlexibleDateTimeParser.requiredShape("'T':"));
+        assertEquals(0L, FlexibleDateTimeParser.requiredShape("[yyyy]VV"));
+    }
+
+    @Test
+    void testSeparatorShapes() {
+        long digitAndLetter = FlexibleDateTimeParser.shapeOf("1a");
+        Set<Long> bits = new HashSet<>();
+        for (char c = ' '; c <= '~'; c++) {
+            if (!Character.isLetterOrDigit(c)) {
+                long bit = FlexibleDateTimeParser.shapeOf(String.valueOf(c));
+                assertEquals(1, Long.bitCount(bit), "One bit for " + c);
+                assertEquals(0L, bit & digitAndLetter, "No digit or letter bit for " + c);
+                assertTrue(bits.add(bit), "Separate bit for " + c);
+            }
+        }
+        assertEquals(0L, FlexibleDateTimeParser.shapeOf("\u00a0\t"));
+    }
+
+    /**
+     * Formats that are skipped for the shape of a string must not change the result of trying every format in order
+     */
+    @Test
+    void testSameAsTryingEveryFormat() {
+        List<DateTimeFormatter> all = new ArrayList<>(FlexibleDateTimeParser.getMainFormats());
+        all.addAll(FlexibleDateTimeParser.getExtraFormats());
+
+        // every format should parse its own output
+        List<String> dates = new ArrayList<>();
+        for (ZonedDateTime date : Arrays.asList(ZonedDateTime.of(2016, 1, 4, 18, 20, 30, 0, ZoneId.of("GMT")),
+                ZonedDateTime.of(1999, 12, 31, 8, 2, 3, 123_000_000, ZoneId.of("America/New_York")))) {
+            for (DateTimeFormatter formatter : all) {
+                try {
+                    dates.add(formatter.format(date));
+                } catch (RuntimeException e) {
+                    // some formats cannot print every field they parse
+                }
+            }
+        }
+        dates.addAll(Arrays.asList("Mon, 4 Jan 2016 18:20:30 +0000", "Mon, 04 Jan 2016 18:20:30 GMT", "2016-01-04T18:20:30Z",
+                "2016-01-04T18:20:30.123+05:30", "2016-01-04", "01/04/2016 18:20", "01/04/16", "20160104182030", "2016.01.04",
+                "Jan 04 2016 18:20:30 +0000 (This is not a date offset)", "17.Mar.2016", "1234", "hello world", "--", "2016-13-45",
+                "Tue, 5 Jan 2016 02:20:30 +0800 PHT", "4 January 2016 6:20:30 PM", "2016-01-04 18:20:30 GMT+0000"));
+
+        for (String date : dates) {
+            for (List<DateTimeFormatter> formats : Arrays.asList(FlexibleDateTimeParser.getMainFormats(),
+                    FlexibleDateTimeParser.getExtraFormats())) {
+                assertEquals(tryEveryFormat(date, formats), FlexibleDateTimeParser.parse(date, formats), "Different result for " + date);
+            }
+            assertEquals(tryEveryFormat(date, all), FlexibleDateTimeParser.parse(date, all), "Different result for " + date);
+        }
+    }
+
+    /**
+     * Parse the way the parser did before formats were chosen by shape
+     */
+    @Nullable
+    private static ZonedDateTime tryEveryFormat(String date, List<DateTimeFormatter> formats) {
+        String cleaned = FlexibleDateTimeParser.cleanDateString(date);
+        for (DateTimeFormatter formatter : formats) {
+            try {
+                TemporalAccessor accessor =
+                        formatter.parseBest(cleaned, ZonedDateTime::from, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+                if (accessor instanceof ZonedDateTime) {
+                    return (ZonedDateTime) accessor;
+                } else if (accessor instanceof OffsetDateTime) {
+                    return ((OffsetDateTime) accessor).atZoneSameInstant(FlexibleDateTimeParser.getTimezone());
+                } else if (accessor instanceof LocalDateTime) {
+                    return ((LocalDateTime) accessor).atZone(FlexibleDateTimeParser.getTimezone());
+                } else if (accessor instanceof LocalDate) {
+                    return ((LocalDate) accessor).atStartOfDay(FlexibleDateTimeParser.getTimezone());
+                }
+            } catch (NullPointerException | IllegalArgumentException | DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,139 @@
+package emissary.util;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextStatsTest extends UnitTest {
+
+    private static final String TEXT = "Now is the time for all good men to come to the aid of their countries.\r\n\t";
+
+    @Test
+    void testAsciiText() {
+        byte[] data = TEXT.getBytes(UTF_8);
+        TextStats stats = TextStats.of(data);
+        assertEquals(data.length, stats.getLength());
+        assertTrue(stats.isAscii());
+        assertTrue(stats.isUtf8());
+        assertEquals(data.length, stats.getPrintableCount());
+        assertEquals(1.0, stats.getPrintableRatio());
+        assertEquals(15, stats.getCount(' '));
+        assertTrue(stats.getEntropy() < 6.0);
+    }
+
+    @Test
+    void testMultibyteText() {
+        byte[] data = "Слова́рь это книга 稱辭典".getBytes(UTF_8);
+        TextStats stats = TextStats.of(data);
+        assertFalse(stats.isAscii());
+        assertTrue(stats.isUtf8());
+        assertEquals(3, stats.getPrintableCount());
+    }
+
+    @Test
+    void testBinary() {
+        byte[] data = new byte[256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        TextStats stats = TextStats.of(data);
+        assertFalse(stats.isAscii());
+        assertFalse(stats.isUtf8());
+        assertEquals(5 + 96, stats.getPrintableCount());
+        assertEquals(8.0, stats.getEntropy(), 0.0001);
+        for (int i = 0; i < 256; i++) {
+            assertEquals(1, stats.getCount(i));
+        }
+    }
+
+    @Test
+    void testEmpty() {
+        TextStats stats = TextStats.of(new byte[0]);
+        assertEquals(0, stats.getLength());
+        assertTrue(stats.isAscii());
+        assertTrue(stats.isUtf8());
+        assertEquals(1.0, stats.getPrintableRatio());
+        assertEquals(0.0, stats.getEntropy());
+    }
+
+    @Test
+    void testRange() {
+        byte[] data = ("\u0000\u0000" + TEXT + "\u0000").getBytes(UTF_8);
+        TextStats stats = TextStats.of(data, 2, TEXT.length());
+        assertEquals(TEXT.length(), stats.getPrintableCount());
+        assertEquals(0, stats.getCount(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> TextStats.of(data, 2, data.length));
+        assertThrows(IndexOutOfBoundsException.class, () -> TextStats.of(data, -1, 1));
+    }
+
+    /**
+     * The word at a time scans must agree with checking one byte at a time wherever the interesting byte falls
+     */
+    @Test
+    void testScansMatchByteAtATime() {
+        Random random = new Random(1234);
+        byte[] text = (TEXT + TEXT).getBytes(UTF_8);
+        for (int len = 0; len <= 40; len++) {
+            for (int pos = 0; pos < len; pos++) {
+                for (int value = 0; value < 256; value++) {
+                    byte[] data = new byte[len];
+                    System.arraycopy(text, 0, data, 0, len);
+                    data[pos] = (byte) value;
+                    int from = random.nextInt(len);
+                    int to = from + random.nextInt(len - from + 1);
+
+                    assertEquals(skipAscii(data, from, to), TextStats.skipAscii(data, from, to));
+                    assertEquals(hasNonPrintable(data, from, to), TextStats.hasNonPrintable(data, from, to));
+                    assertEquals(skipIndexableAscii(data, from, to), TextStats.skipIndexableAscii(data, from, to));
+                    assertArrayEquals(histogram(data, from, to), TextStats.histogram(data, from, to - from));
+                }
+            }
+        }
+    }
+
+    private static int skipAscii(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((data[i] & 0xff) >= 0x80) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static boolean hasNonPrintable(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int b = data[i] & 0xff;
+            if (b < 9 || (b > 13 && b < 32) || b >= 128) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipIndexableAscii(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int b = data[i] & 0xff;
+            if (b < 9 || (b > 13 && b < 32) || b >= 127) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int[] histogram(byte[] data, int from, int to) {
+        int[] counts = new int[256];
+        for (int i = from; i < to; i++) {
+            counts[data[i] & 0xff]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,162 @@
+package emissary.util.io;
+
+import emissary.test.core.junit5.UnitTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileDiscoveryTest extends UnitTest {
+
+    @TempDir
+    Path root;
+
+    private Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<Path, FileDiscovery.DiscoveredFile> drain(FileDiscovery.Walk walk) {
+        Map<Path, FileDiscovery.DiscoveredFile> found = new HashMap<>();
+        while (walk.hasNext()) {
+            FileDiscovery.DiscoveredFile file = walk.next();
+            found.put(file.getPath(), file);
+        }
+        return found;
+    }
+
+    @Test
+    void testWalkFindsEveryFileOnce() throws IOException {
+        Set<Path> expected = new HashSet<>();
+        for (int d = 0; d < 10; d++) {
+            for (int f = 0; f < 25; f++) {
+                expected.add(write(root.resolve("d" + d).resolve("sub" + (f % 3)).resolve("f" + f), "data" + f));
+            }
+        }
+        expected.add(write(root.resolve(".hidden"), "dot"));
+
+        try (FileDiscovery discovery = new FileDiscovery(4, 16)) {
+            FileDiscovery.Walk walk = discovery.walk(root, false);
+            int count = 0;
+            Set<Path> found = new HashSet<>();
+            while (walk.hasNext()) {
+                FileDiscovery.DiscoveredFile file = walk.next();
+                assertTrue(file.isRegularFile(), "Only files expected " + file);
+                found.add(file.getPath());
+                count++;
+            }
+            assertEquals(expected.size(), count, "No file found twice");
+            assertEquals(expected, found);
+            assertEquals(41, walk.getDirectoryCount(), "Root, 10 directories and 3 subdirectories in each");
+        }
+    }
+
+    @Test
+    void testAttributesAreRead() throws IOException {
+        Path file = write(root.resolve("a").resolve("file.txt"), "twelve bytes");
+        Path dot = write(root.resolve(".dot"), "x");
+
+        try (FileDiscovery discovery = new FileDiscovery(2)) {
+            Map<Path, FileDiscovery.DiscoveredFile> found = drain(discovery.walk(root, true));
+            assertEquals(4, found.size(), "Root, one directory and two files");
+            assertTrue(found.get(root).isDirectory());
+            assertTrue(found.get(root.resolve("a")).isDirectory());
+
+            FileDiscovery.DiscoveredFile entry = found.get(file);
+            assertEquals(12L, entry.getSize());
+            assertEquals(file.toFile().lastModified(), entry.getLastModified());
+            assertFalse(entry.isDotFile());
+            assertTrue(found.get(dot).isDotFile());
+        }
+    }
+
+    @Test
+    void testWalkSingleFile() throws IOException {
+        Path file = write(root.resolve("only"), "1");
+        try (FileDiscovery discovery = new FileDiscovery(1)) {
+            Map<Path, FileDiscovery.DiscoveredFile> found = drain(discovery.walk(file, true));
+            assertEquals(1, found.size());
+            assertTrue(found.containsKey(file));
+        }
+    }
+
+    @Test
+    void testSortedWalk() throws IOException {
+        write(root.resolve("b").resolve("2"), "b2");
+        write(root.resolve("b").resolve("1"), "b1");
+        write(root.resolve("a"), "a");
+        write(root.resolve("c").resolve("x").resolve("y"), "cxy");
+        write(root.resolve("c").resolve("w"), "cw");
+
+        List<Path> files = new ArrayList<>();
+        FileDiscovery.sortedWalk(root, false).forEachRemaining(file -> files.add(root.relativize(file.getPath())));
+        assertEquals(Arrays.asList(Path.of("a"), Path.of("b", "1"), Path.of("b", "2"), Path.of("c", "w"), Path.of("c", "x", "y")), files);
+
+        List<Path> all = new ArrayList<>();
+        FileDiscovery.sortedWalk(root, true).forEachRemaining(file -> all.add(root.relativize(file.getPath())));
+        assertEquals(Arrays.asList(Path.of(""), Path.of("a"), Path.of("b"), Path.of("b", "1"), Path.of("b", "2"), Path.of("c"), Path.of("c", "w"),
+                Path.of("c", "x"), Path.of("c", "x", "y")), all);
+    }
+
+    @Test
+    void testWalkMissingRoot() {
+        try (FileDiscovery discovery = new FileDiscovery(1)) {
+            assertThrows(IOException.class, () -> discovery.walk(root.resolve("missing"), false));
+        }
+    }
+
+    @Test
+    void testCloseStopsWalk() throws IOException {
+        for (int f = 0; f < 50; f++) {
+            write(root.resolve("f" + f), "data");
+        }
+        try (FileDiscovery discovery = new FileDiscovery(1, 1)) {
+            FileDiscovery.Walk walk = discovery.walk(root, false);
+            assertTrue(walk.hasNext());
+            walk.next();
+            walk.close();
+            // The lister gives up on the full queue once the walk is closed
+            int remaining = 0;
+            while (walk.hasNext()) {
+                walk.next();
+                remaining++;
+            }
+            assertTrue(remaining < 50);
+        }
+    }
+
+    @Test
+    void testWatcherReportsNewFiles() throws Exception {
+        write(root.resolve("existing"), "old");
+        try (DirectoryChangeWatcher watcher = new DirectoryChangeWatcher(root)) {
+            assertEquals(1, watcher.getWatchedDirectoryCount());
+            assertTrue(watcher.poll(10, TimeUnit.MILLISECONDS).isEmpty());
+
+            Path created = write(root.resolve("created"), "new");
+            Set<Path> changed = new HashSet<>();
+            long deadline = System.currentTimeMillis() + 30000L;
+            while (!changed.contains(created) && System.currentTimeMillis() < deadline) {
+                changed.addAll(watcher.poll(1, TimeUnit.SECONDS).getPaths());
+            }
+            assertTrue(changed.contains(created), "New file should be reported");
+            assertFalse(changed.contains(root.resolve("existing")), "Untouched file should not be reported");
+        }
+    }
+}